@@ -25,6 +25,10 @@ android {
             )
         }
     }
+    androidResources {
+        // Model TFLite tùy chỉnh được ML Kit memory-map trực tiếp từ assets
+        noCompress += "tflite"
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -32,6 +36,8 @@ android {
 }
 
 dependencies {
+    implementation(project(":core"))
+
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -45,6 +51,7 @@ dependencies {
 
     // ML Kit Object Detection
     implementation(libs.objectDetection)
+    implementation(libs.objectDetectionCustom)
 
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
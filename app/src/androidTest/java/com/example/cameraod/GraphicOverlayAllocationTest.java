@@ -0,0 +1,85 @@
+package com.example.cameraod;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.cameraod.pipeline.Detection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that steady-state {@link GraphicOverlay#onDraw} allocates nothing
+ * once the boxes have settled.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GraphicOverlayAllocationTest {
+
+    private static final int BOX_COUNT = 20;
+    private static final int SETTLE_FRAMES = 300;
+    private static final int MEASURED_FRAMES = 100;
+    private static final long FRAME_NANOS = 8_333_333L; // 120 Hz
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void settledOnDrawDoesNotAllocate() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+            GraphicOverlay overlay = new GraphicOverlay(context);
+            overlay.layout(0, 0, 1080, 1920);
+
+            overlay.setDetectionResults(newDetections(), 640, 480, 90);
+
+            Bitmap bitmap = Bitmap.createBitmap(1080, 1920, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+
+            // Chờ các hộp hội tụ (vị trí và alpha), đồng hồ vsync giả lập
+            long frameTime = 1_000_000_000L;
+            for (int i = 0; i < SETTLE_FRAMES; i++) {
+                frameTime += FRAME_NANOS;
+                overlay.onAnimationFrame(frameTime);
+                overlay.onDraw(canvas);
+            }
+
+            Debug.startAllocCounting();
+            try {
+                Debug.resetThreadAllocCount();
+                for (int i = 0; i < MEASURED_FRAMES; i++) {
+                    frameTime += FRAME_NANOS;
+                    overlay.onAnimationFrame(frameTime);
+                    overlay.onDraw(canvas);
+                }
+                assertEquals("allocations in " + MEASURED_FRAMES + " settled frames",
+                        0, Debug.getThreadAllocCount());
+            } finally {
+                Debug.stopAllocCounting();
+                bitmap.recycle();
+            }
+        });
+    }
+
+    private static List<Detection> newDetections() {
+        String[] labels = {"Food", "Home good", "Fashion good", "Place", "Plant"};
+        List<Detection> detections = new ArrayList<>(BOX_COUNT);
+        for (int i = 0; i < BOX_COUNT; i++) {
+            int left = (i % 5) * 90;
+            int top = (i / 5) * 140;
+            List<Detection.Label> boxLabels = i % 4 == 0
+                    ? Collections.<Detection.Label>emptyList()
+                    : Collections.singletonList(new Detection.Label(labels[i % labels.length], i % 5, 0.75f));
+            detections.add(new Detection(left, top, left + 80, top + 120, i, boxLabels));
+        }
+        return detections;
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.cameraod;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import com.example.cameraod.overlay.AnimatedBox;
+import com.example.cameraod.overlay.AtlasSlots;
+import com.example.cameraod.overlay.BoxRect;
+import com.example.cameraod.overlay.BoxTracker;
+import com.example.cameraod.overlay.LabelCatalog;
+
+import java.util.Locale;
+
+/**
+ * Draws the animated boxes of a {@link BoxTracker}: glow, gradient outline,
+ * corner accents and label. Shared by the overlay backends ({@link GraphicOverlay}
+ * on the UI thread, {@link SurfaceOverlayView} on its render thread); an instance
+ * and the tracker it draws must only be used from one thread.
+ * Steady-state drawing allocates nothing (per-box cached shaders and paths, labels and
+ * confidence badges blitted from a pre-rasterized {@link LabelAtlas}). Glow and corner
+ * accents can be switched off at runtime when the device is over its frame budget.
+ */
+final class BoxRenderer {
+
+    // Bảng màu Gradient hiện đại
+    static final int[][] GRADIENT_COLORS = {
+        {0xFF00D9FF, 0xFF0066FF},  // Xanh Cyan sang Xanh Blue
+        {0xFFFF6B6B, 0xFFFF3366},  // San hô sang Hồng
+        {0xFF4FFFB0, 0xFF00CC66},  // Bạc hà sang Xanh lá
+        {0xFFFFD93D, 0xFFFF9500},  // Vàng sang Cam
+        {0xFFB388FF, 0xFF8E24AA},  // Tím nhạt sang Tím đậm
+        {0xFF64FFDA, 0xFF00BFA5},  // Teal nhạt sang Teal
+    };
+
+    private static final float CORNER_SIZE = 24f;
+    private static final float LABEL_PADDING = 12f;
+    private static final int MAX_PERCENT = 100;
+    private static final int LABEL_CELL_WIDTH = 384; // px, nhãn dài hơn bị rút gọn bằng "…"
+    private static final int PERCENT_CELL_WIDTH = 160;
+    private static final int CUSTOM_LABEL_SLOTS = 32; // Nhãn ngoài từ điển (model khác), thay theo LRU
+
+    static final int PALETTE_SIZE = GRADIENT_COLORS.length;
+
+    /**
+     * Trạng thái vẽ của một hộp, gắn vào {@link AnimatedBox} và tái sử dụng giữa các frame.
+     * Gradient được tạo một lần trong không gian đơn vị; mỗi frame chỉ cập nhật ma trận.
+     */
+    private static final class BoxRenderState {
+        int colorIndex = -1;
+        LinearGradient boxShader;
+        LinearGradient labelShader;
+        final Matrix boxMatrix = new Matrix();
+        final Matrix labelMatrix = new Matrix();
+        final RectF boxShaderRect = new RectF();
+        final RectF labelShaderRect = new RectF();
+
+        // Path góc nhấn theo tọa độ cục bộ của hộp, chỉ dựng lại khi kích thước đổi
+        final Path cornerPath = new Path();
+        float cornerPathWidth = -1f;
+        float cornerPathHeight = -1f;
+    }
+
+    // Các đối tượng Paint (Cache để tối ưu hiệu năng)
+    private final Paint boxPaint;
+    private final Paint glowPaint;
+    private final Paint textPaint;
+    private final Paint textBgPaint;
+    private final Paint cornerPaint;
+
+    // Các biến tái sử dụng (Tránh cấp phát bộ nhớ liên tục)
+    private final RectF tempRect = new RectF();
+    private final RectF boxRect = new RectF();
+
+    // Atlas chữ: nhãn đã dịch (ghim) + nhãn lạ (LRU), và 101 huy hiệu phần trăm (slot = phần trăm).
+    // Tạo ở frame đầu tiên để overlay không dùng tới không giữ bitmap
+    private LabelAtlas labelAtlas;
+    private LabelAtlas percentAtlas;
+    private float textHeight;
+
+    // Hiệu ứng tùy chọn, bộ điều chỉnh chất lượng tắt dần khi vẽ quá chậm (ghi từ luồng bất kỳ)
+    private volatile boolean glowEnabled = true;
+    private volatile boolean cornerAccentsEnabled = true;
+
+    BoxRenderer() {
+        // Khởi tạo trước các bút vẽ (Paints) để hiệu năng tốt hơn
+        boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(4f);
+        boxPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        glowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        glowPaint.setStyle(Paint.Style.STROKE);
+        glowPaint.setStrokeWidth(12f);
+
+        cornerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        cornerPaint.setStyle(Paint.Style.STROKE);
+        cornerPaint.setStrokeWidth(6f);
+        cornerPaint.setStrokeCap(Paint.Cap.ROUND);
+
+        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(36f);
+        textPaint.setFakeBoldText(true);
+
+        textBgPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textBgPaint.setStyle(Paint.Style.FILL);
+    }
+
+    /**
+     * Bật/tắt glow và góc nhấn; an toàn từ mọi luồng, áp dụng từ frame vẽ tiếp theo.
+     */
+    void setEffects(boolean glow, boolean cornerAccents) {
+        glowEnabled = glow;
+        cornerAccentsEnabled = cornerAccents;
+    }
+
+    /**
+     * Vẽ các hộp còn nhìn thấy (sau khi tracker đã chạy animation tới frame hiện tại).
+     */
+    void draw(Canvas canvas, BoxTracker boxTracker) {
+        if (labelAtlas == null) {
+            createAtlases();
+        }
+        labelAtlas.beginFrame();
+        boolean glow = glowEnabled;
+        boolean cornerAccents = cornerAccentsEnabled;
+        for (int i = 0; i < boxTracker.size(); i++) {
+            AnimatedBox box = boxTracker.getBox(i);
+            // Vẽ nếu còn nhìn thấy
+            if (box.isVisible()) {
+                drawAnimatedBox(canvas, box, glow, cornerAccents);
+            }
+        }
+    }
+
+    private void createAtlases() {
+        labelAtlas = new LabelAtlas(textPaint, LABEL_CELL_WIDTH,
+                LabelCatalog.displayNames().size() + CUSTOM_LABEL_SLOTS);
+        for (String name : LabelCatalog.displayNames()) {
+            labelAtlas.pin(name);
+        }
+        percentAtlas = new LabelAtlas(textPaint, PERCENT_CELL_WIDTH, MAX_PERCENT + 1);
+        for (int percent = 0; percent <= MAX_PERCENT; percent++) {
+            percentAtlas.pin(String.format(Locale.US, " • %d%%", percent));
+        }
+
+        // Chiều cao nền nhãn cố định theo font (không đo lại từng chuỗi)
+        Rect bounds = new Rect();
+        String reference = "Đồ gia dụng • 100%";
+        textPaint.getTextBounds(reference, 0, reference.length(), bounds);
+        textHeight = bounds.height();
+    }
+
+    private void drawAnimatedBox(Canvas canvas, AnimatedBox box, boolean glow, boolean cornerAccents) {
+        float alpha = box.getAlpha();
+        int[] colors = GRADIENT_COLORS[box.getColorIndex()];
+        int primaryColor = applyAlpha(colors[0], alpha);
+        BoxRenderState state = getRenderState(box);
+
+        BoxRect current = box.getCurrentRect();
+        RectF rect = boxRect;
+        rect.set(current.left, current.top, current.right, current.bottom);
+
+        // Vẽ hiệu ứng phát sáng (Glow)
+        if (glow) {
+            glowPaint.setColor(primaryColor);
+            glowPaint.setAlpha((int)(30 * alpha));
+            canvas.drawRoundRect(rect, 16f, 16f, glowPaint);
+        }
+
+        // Vẽ khung chính với màu Gradient (gradient không nhân alpha, nên Paint dùng alpha² như cách vẽ cũ)
+        updateShaderMatrix(state.boxShader, state.boxMatrix, state.boxShaderRect, rect);
+        boxPaint.setShader(state.boxShader);
+        boxPaint.setAlpha((int)(255 * alpha * alpha));
+        canvas.drawRoundRect(rect, 12f, 12f, boxPaint);
+        boxPaint.setShader(null);
+
+        // Vẽ các góc nhấn (Accents)
+        if (cornerAccents) {
+            drawCornerAccents(canvas, state, rect, primaryColor, alpha);
+        }
+
+        // Vẽ nhãn (Label)
+        drawLabel(canvas, state, box.getLabel(), box.getConfidence(), rect, alpha);
+    }
+
+    /**
+     * Lấy (hoặc tạo) trạng thái vẽ của hộp; chỉ cấp phát khi hộp mới hoặc đổi màu.
+     */
+    private BoxRenderState getRenderState(AnimatedBox box) {
+        BoxRenderState state = (BoxRenderState) box.getRenderState();
+        if (state == null) {
+            state = new BoxRenderState();
+            box.setRenderState(state);
+        }
+        if (state.colorIndex != box.getColorIndex()) {
+            int[] colors = GRADIENT_COLORS[box.getColorIndex()];
+            state.colorIndex = box.getColorIndex();
+            state.boxShader = newUnitGradient(colors);
+            state.labelShader = newUnitGradient(colors);
+            state.boxShaderRect.setEmpty();
+            state.labelShaderRect.setEmpty();
+        }
+        return state;
+    }
+
+    /**
+     * Gradient từ (0,0) đến (1,0); ma trận cục bộ đưa nó lên đường chéo của hình chữ nhật.
+     */
+    private static LinearGradient newUnitGradient(int[] colors) {
+        return new LinearGradient(0f, 0f, 1f, 0f, colors[0], colors[1], Shader.TileMode.CLAMP);
+    }
+
+    private static void updateShaderMatrix(LinearGradient shader, Matrix matrix, RectF applied, RectF rect) {
+        // Không đổi thì không gọi setLocalMatrix (tránh tạo lại shader native)
+        if (applied.equals(rect)) {
+            return;
+        }
+        applied.set(rect);
+
+        float dx = rect.width();
+        float dy = rect.height();
+        float length = (float) Math.hypot(dx, dy);
+        if (length < 1e-3f) {
+            matrix.reset();
+        } else {
+            matrix.setSinCos(dy / length, dx / length);
+            matrix.preScale(length, length);
+            matrix.postTranslate(rect.left, rect.top);
+        }
+        shader.setLocalMatrix(matrix);
+    }
+
+    private int applyAlpha(int color, float alpha) {
+        int a = (int)(Color.alpha(color) * alpha);
+        return Color.argb(a, Color.red(color), Color.green(color), Color.blue(color));
+    }
+
+    private void drawCornerAccents(Canvas canvas, BoxRenderState state, RectF rect, int color, float alpha) {
+        cornerPaint.setColor(color);
+        cornerPaint.setAlpha((int)(255 * alpha));
+
+        float width = rect.width();
+        float height = rect.height();
+        if (width != state.cornerPathWidth || height != state.cornerPathHeight) {
+            buildCornerPath(state.cornerPath, width, height);
+            state.cornerPathWidth = width;
+            state.cornerPathHeight = height;
+        }
+
+        // Path ở tọa độ cục bộ, chỉ cần dịch tới góc trên-trái của hộp
+        canvas.save();
+        canvas.translate(rect.left, rect.top);
+        canvas.drawPath(state.cornerPath, cornerPaint);
+        canvas.restore();
+    }
+
+    private static void buildCornerPath(Path path, float width, float height) {
+        path.rewind();
+
+        // Top-left
+        path.moveTo(0, CORNER_SIZE);
+        path.lineTo(0, 0);
+        path.lineTo(CORNER_SIZE, 0);
+
+        // Top-right
+        path.moveTo(width - CORNER_SIZE, 0);
+        path.lineTo(width, 0);
+        path.lineTo(width, CORNER_SIZE);
+
+        // Bottom-left
+        path.moveTo(0, height - CORNER_SIZE);
+        path.lineTo(0, height);
+        path.lineTo(CORNER_SIZE, height);
+
+        // Bottom-right
+        path.moveTo(width - CORNER_SIZE, height);
+        path.lineTo(width, height);
+        path.lineTo(width, height - CORNER_SIZE);
+    }
+
+    private void drawLabel(Canvas canvas, BoxRenderState state, String label, float confidence,
+                           RectF rect, float alpha) {
+        if (alpha < 0.1f) return;
+
+        // Nhãn và phần trăm là hai ô trong atlas, đặt cạnh nhau: không định dạng hay đo chữ mỗi frame
+        int labelSlot = labelAtlas.slotFor(label);
+        int percent = confidence > 0 ? Math.min(Math.round(confidence * 100), MAX_PERCENT) : -1;
+        float labelWidth = labelSlot != AtlasSlots.NO_SLOT
+                ? labelAtlas.getWidth(labelSlot)
+                : textPaint.measureText(label);
+        float textWidth = percent >= 0 ? labelWidth + percentAtlas.getWidth(percent) : labelWidth;
+        float padding = LABEL_PADDING;
+
+        float bgLeft = rect.left;
+        float bgTop = rect.top - textHeight - padding * 2 - 8;
+        float bgRight = rect.left + textWidth + padding * 2;
+        float bgBottom = rect.top - 8;
+
+        if (bgTop < 0) {
+            bgTop = rect.bottom + 8;
+            bgBottom = rect.bottom + textHeight + padding * 2 + 8;
+        }
+
+        // Vẽ nền (Background)
+        tempRect.set(bgLeft, bgTop, bgRight, bgBottom);
+        updateShaderMatrix(state.labelShader, state.labelMatrix, state.labelShaderRect, tempRect);
+        textBgPaint.setShader(state.labelShader);
+        textBgPaint.setAlpha((int)(255 * alpha * alpha));
+        canvas.drawRoundRect(tempRect, 8f, 8f, textBgPaint);
+        textBgPaint.setShader(null);
+
+        // Vẽ chữ (Text)
+        textPaint.setAlpha((int)(255 * alpha));
+        float textX = bgLeft + padding;
+        float baseline = bgBottom - padding - 2;
+        if (labelSlot != AtlasSlots.NO_SLOT) {
+            labelAtlas.draw(canvas, labelSlot, textX, baseline, textPaint);
+        } else {
+            // Mọi ô nhãn lạ đều đang dùng trong frame này: vẽ chữ trực tiếp
+            canvas.drawText(label, textX, baseline, textPaint);
+        }
+        if (percent >= 0) {
+            percentAtlas.draw(canvas, percent, textX + labelWidth, baseline, textPaint);
+        }
+    }
+}
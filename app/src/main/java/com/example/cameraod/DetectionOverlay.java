@@ -0,0 +1,43 @@
+package com.example.cameraod;
+
+import com.example.cameraod.metrics.FrameTracer;
+import com.example.cameraod.metrics.PipelineMetrics;
+import com.example.cameraod.pipeline.DetectionSnapshot;
+import com.example.cameraod.pipeline.ResultHandoff;
+
+/**
+ * Overlay backend that draws the tracked detection boxes over the camera preview.
+ * {@link GraphicOverlay} (default) draws on the UI thread; {@link SurfaceOverlayView}
+ * draws on its own render thread so UI-thread work cannot delay box updates.
+ */
+public interface DetectionOverlay {
+
+    /**
+     * Nhận thông báo mỗi khi overlay áp dụng một snapshot mới, trên luồng vẽ của overlay
+     * (Luồng chính với {@link GraphicOverlay}, luồng render với {@link SurfaceOverlayView}).
+     * Snapshot chỉ hợp lệ trong lời gọi.
+     */
+    interface ResultListener {
+        void onResultShown(DetectionSnapshot snapshot);
+    }
+
+    /**
+     * Lấy kết quả mới nhất từ {@code handoff} tại mỗi frame. Gọi trên Luồng chính,
+     * trước khi pipeline bắt đầu công bố kết quả.
+     */
+    void setResultHandoff(ResultHandoff handoff, ResultListener listener);
+
+    void setMetrics(PipelineMetrics metrics);
+
+    void setTracer(FrameTracer tracer);
+
+    /**
+     * Bật/tắt glow và góc nhấn của hộp (gọi từ luồng bất kỳ, áp dụng từ frame sau).
+     */
+    void setEffects(boolean glow, boolean cornerAccents);
+
+    /**
+     * Làm mờ mọi hộp đang hiển thị.
+     */
+    void clear();
+}
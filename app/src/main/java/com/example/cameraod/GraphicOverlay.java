@@ -2,168 +2,59 @@ package com.example.cameraod;
 
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.LinearGradient;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.Rect;
-import android.graphics.RectF;
-import android.graphics.Shader;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
 
-import com.google.mlkit.vision.objects.DetectedObject;
+import com.example.cameraod.metrics.FrameTracer;
+import com.example.cameraod.metrics.PipelineMetrics;
+import com.example.cameraod.overlay.BoxTracker;
+import com.example.cameraod.overlay.ViewTransform;
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.DetectionResult;
+import com.example.cameraod.pipeline.DetectionSnapshot;
+import com.example.cameraod.pipeline.ResultHandoff;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 /**
  * High-performance GraphicOverlay with smooth animations.
  * Features:
  * - Smooth interpolation for bounding box positions
- * - Fade in/out animations
+ * - Fade in/out animations, frame-rate independent (driven by Choreographer vsync timestamps)
+ * - Stops redrawing entirely once every box has settled
  * - Object tracking with smooth transitions
  * - Optimized drawing for better FPS
+ * - Allocation-free steady-state onDraw (per-box cached shaders, paths and label text)
+ * - Optional lock-free result intake: with a {@link ResultHandoff} the newest detection
+ *   snapshot is polled at vsync instead of being posted to the main thread every frame
+ * Draws on the UI thread; {@link SurfaceOverlayView} is the render-thread alternative.
  */
-public class GraphicOverlay extends View {
-
-    // Các hằng số Animation
-    private static final float LERP_FACTOR = 0.3f;  // Tốc độ nội suy (làm mượt chuyển động)
-    private static final float FADE_SPEED = 0.15f;  // Tốc độ làm mờ
-    private static final long FADE_OUT_DELAY = 200; // Thời gian chờ trước khi mờ dần (ms)
-    
-    // Bảng màu Gradient hiện đại
-    private static final int[][] GRADIENT_COLORS = {
-        {0xFF00D9FF, 0xFF0066FF},  // Xanh Cyan sang Xanh Blue
-        {0xFFFF6B6B, 0xFFFF3366},  // San hô sang Hồng
-        {0xFF4FFFB0, 0xFF00CC66},  // Bạc hà sang Xanh lá
-        {0xFFFFD93D, 0xFFFF9500},  // Vàng sang Cam
-        {0xFFB388FF, 0xFF8E24AA},  // Tím nhạt sang Tím đậm
-        {0xFF64FFDA, 0xFF00BFA5},  // Teal nhạt sang Teal
-    };
-
-    // Ánh xạ danh mục sang màu sắc
-    private static final Map<Integer, Integer> CATEGORY_COLOR_INDEX = new HashMap<>();
-    static {
-        CATEGORY_COLOR_INDEX.put(0, 0);
-        CATEGORY_COLOR_INDEX.put(1, 1);
-        CATEGORY_COLOR_INDEX.put(2, 2);
-        CATEGORY_COLOR_INDEX.put(3, 3);
-        CATEGORY_COLOR_INDEX.put(4, 4);
-        CATEGORY_COLOR_INDEX.put(5, 5);
-    }
+public class GraphicOverlay extends View implements DetectionOverlay {
 
-    // Từ điển dịch sang Tiếng Việt
-    private static final Map<String, String> VIETNAMESE_LABELS = new HashMap<>();
-    static {
-        VIETNAMESE_LABELS.put("Food", "Thực phẩm");
-        VIETNAMESE_LABELS.put("Home good", "Đồ gia dụng");
-        VIETNAMESE_LABELS.put("Home goods", "Đồ gia dụng");
-        VIETNAMESE_LABELS.put("Fashion good", "Thời trang");
-        VIETNAMESE_LABELS.put("Fashion goods", "Thời trang");
-        VIETNAMESE_LABELS.put("Place", "Địa điểm");
-        VIETNAMESE_LABELS.put("Plant", "Cây cối");
-        VIETNAMESE_LABELS.put("Animal", "Động vật");
-        VIETNAMESE_LABELS.put("Object", "Vật thể");
-        VIETNAMESE_LABELS.put("Person", "Người");
-        VIETNAMESE_LABELS.put("Car", "Xe hơi");
-        VIETNAMESE_LABELS.put("Chair", "Ghế");
-        VIETNAMESE_LABELS.put("Table", "Bàn");
-        VIETNAMESE_LABELS.put("Phone", "Điện thoại");
-        VIETNAMESE_LABELS.put("Laptop", "Máy tính");
-        VIETNAMESE_LABELS.put("Book", "Sách");
-        VIETNAMESE_LABELS.put("Bottle", "Chai");
-        VIETNAMESE_LABELS.put("Cup", "Cốc");
-        VIETNAMESE_LABELS.put("Keyboard", "Bàn phím");
-        VIETNAMESE_LABELS.put("Mouse", "Chuột");
-    }
+    // Vẽ hộp, góc và nhãn (dùng chung với SurfaceOverlayView)
+    private final BoxRenderer renderer = new BoxRenderer();
 
-    // Lớp nội bộ xử lý hiệu ứng khung bao (Inner Class)
-    private static class AnimatedBox {
-        int trackingId;
-        RectF currentRect = new RectF();
-        RectF targetRect = new RectF();
-        float alpha = 0f;
-        float targetAlpha = 1f;
-        String label;
-        float confidence;
-        int colorIndex;
-        long lastUpdateTime;
-        boolean isActive = true;
-
-        AnimatedBox(int id) {
-            this.trackingId = id;
-            this.lastUpdateTime = System.currentTimeMillis();
-        }
+    // Theo dõi các khung hình đang hiển thị và biến đổi tọa độ (Java thuần, xem module core)
+    private final BoxTracker boxTracker = new BoxTracker(BoxRenderer.PALETTE_SIZE);
+    private final ViewTransform viewTransform = new ViewTransform();
 
-        void updateTarget(RectF newTarget, String label, float confidence, int colorIndex) {
-            this.targetRect.set(newTarget);
-            this.label = label;
-            this.confidence = confidence;
-            this.colorIndex = colorIndex;
-            this.targetAlpha = 1f;
-            this.isActive = true;
-            this.lastUpdateTime = System.currentTimeMillis();
-        }
+    // Thời gian Animation: frame được điều khiển bởi Choreographer, chỉ khi còn hộp đang chuyển động
+    private final Choreographer.FrameCallback frameCallback = this::onAnimationFrame;
+    private boolean frameScheduled = false;
+    private long frameTimeNanos = 0;
 
-        void animate() {
-            // Nội suy vị trí (Làm mượt)
-            currentRect.left = lerp(currentRect.left, targetRect.left, LERP_FACTOR);
-            currentRect.top = lerp(currentRect.top, targetRect.top, LERP_FACTOR);
-            currentRect.right = lerp(currentRect.right, targetRect.right, LERP_FACTOR);
-            currentRect.bottom = lerp(currentRect.bottom, targetRect.bottom, LERP_FACTOR);
+    // Đo thời gian onDraw và ghi vết (không cấp phát), null nếu không đo
+    private PipelineMetrics metrics;
+    private FrameTracer tracer;
+    private long lastSequence = -1; // Frame của kết quả đang hiển thị, dùng cho trace
 
-            // Nội suy độ mờ
-            alpha = lerp(alpha, targetAlpha, FADE_SPEED);
-        }
-
-        void startFadeOut() {
-            targetAlpha = 0f;
-            isActive = false;
-        }
-
-        boolean shouldRemove() {
-            return !isActive && alpha < 0.01f;
-        }
-
-        private float lerp(float start, float end, float factor) {
-            return start + (end - start) * factor;
-        }
-    }
-
-    // Các đối tượng Paint (Cache để tối ưu hiệu năng)
-    private final Paint boxPaint;
-    private final Paint glowPaint;
-    private final Paint textPaint;
-    private final Paint textBgPaint;
-    private final Paint cornerPaint;
-    
-    // Các biến tái sử dụng (Tránh cấp phát bộ nhớ liên tục)
-    private final RectF tempRect = new RectF();
-    private final Rect textBounds = new Rect();
-    private final Path cornerPath = new Path();
-
-    // Map lưu trữ các khung hình đang hiển thị (trackingId -> AnimatedBox)
-    private final Map<Integer, AnimatedBox> animatedBoxes = new HashMap<>();
-    private int nextTempId = -1; // ID tạm cho vật thể không có tracking ID
-
-    // Kích thước ảnh gốc từ Camera
-    private int imageWidth = 0;
-    private int imageHeight = 0;
-    private int imageRotation = 0;
-
-    // Các thông số biến đổi tọa độ
-    private float scaleX = 1f;
-    private float scaleY = 1f;
-    private float offsetX = 0f;
-    private float offsetY = 0f;
-
-    // Thời gian Animation
-    private long lastFrameTime = 0;
-    private boolean needsAnimation = false;
+    // Nhận kết quả qua triple buffer: poll tại vsync, chỉ được đánh thức khi overlay đang nghỉ
+    private ResultHandoff resultHandoff;
+    private ResultListener resultListener;
+    // Chạy ở pha animation của vsync kế tiếp nên vẽ ngay trong frame đó (không chờ thêm một vsync)
+    private final Runnable wakeUpFrame = () -> onAnimationFrame(System.nanoTime());
+    private final Runnable postWakeUp = () -> postOnAnimation(wakeUpFrame);
 
     public GraphicOverlay(Context context) {
         this(context, null);
@@ -178,286 +69,173 @@ public class GraphicOverlay extends View {
 
         // Bật tăng tốc phần cứng
         setLayerType(LAYER_TYPE_HARDWARE, null);
+    }
 
-        // Khởi tạo trước các bút vẽ (Paints) để hiệu năng tốt hơn
-        boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        boxPaint.setStyle(Paint.Style.STROKE);
-        boxPaint.setStrokeWidth(4f);
-        boxPaint.setStrokeCap(Paint.Cap.ROUND);
-
-        glowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        glowPaint.setStyle(Paint.Style.STROKE);
-        glowPaint.setStrokeWidth(12f);
-
-        cornerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        cornerPaint.setStyle(Paint.Style.STROKE);
-        cornerPaint.setStrokeWidth(6f);
-        cornerPaint.setStrokeCap(Paint.Cap.ROUND);
+    /**
+     * Cập nhật kết quả nhận diện. Gọi trên Luồng chính (Main Thread).
+     */
+    public void setDetectionResults(List<Detection> objects, int imgWidth, int imgHeight, int rotation) {
+        // Cập nhật kích thước ảnh nếu thay đổi
+        viewTransform.setImageSize(imgWidth, imgHeight, rotation);
 
-        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        textPaint.setColor(Color.WHITE);
-        textPaint.setTextSize(36f);
-        textPaint.setFakeBoldText(true);
+        // Cập nhật, tạo mới hoặc làm mờ các khung (Animated Boxes)
+        boxTracker.update(objects, viewTransform, System.currentTimeMillis());
 
-        textBgPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        textBgPaint.setStyle(Paint.Style.FILL);
+        scheduleFrame();
     }
 
-    public void setDetectionResults(List<DetectedObject> objects, int imgWidth, int imgHeight, int rotation) {
-        // Cập nhật kích thước ảnh nếu thay đổi
-        if (imageWidth != imgWidth || imageHeight != imgHeight || imageRotation != rotation) {
-            imageWidth = imgWidth;
-            imageHeight = imgHeight;
-            imageRotation = rotation;
-            updateTransformationValues();
-        }
+    /**
+     * Cập nhật kết quả nhận diện kèm thời điểm chụp frame (cùng đồng hồ với {@link System#nanoTime()}).
+     * Các hộp được dự đoán tới thời điểm hiển thị bằng bộ lọc Kalman để bù độ trễ pipeline.
+     * Gọi trên Luồng chính (Main Thread).
+     */
+    public void setDetectionResults(DetectionResult result) {
+        viewTransform.setImageSize(result.getImageWidth(), result.getImageHeight(), result.getRotationDegrees());
+        lastSequence = result.getSequence();
 
-        // Đánh dấu tất cả khung cũ là "không hoạt động"
-        for (AnimatedBox box : animatedBoxes.values()) {
-            box.isActive = false;
-        }
+        // Chỉ kết quả của detector (keyframe) mới hiệu chỉnh bộ lọc, hộp dự đoán chỉ giữ track sống
+        boxTracker.update(result.getDetections(), viewTransform, System.currentTimeMillis(),
+                result.getTimestampNanos(), result.isKeyframe());
 
-        // Cập nhật hoặc tạo mới khung (Animated Boxes)
-        if (objects != null) {
-            for (int i = 0; i < objects.size(); i++) {
-                DetectedObject obj = objects.get(i);
-                Integer trackingId = obj.getTrackingId();
-                
-                // Dùng ID tạm nếu không có Tracking ID
-                int id = trackingId != null ? trackingId : (nextTempId--);
-
-                // Lấy hoặc tạo mới Hộp thoại
-                AnimatedBox animBox = animatedBoxes.get(id);
-                if (animBox == null) {
-                    animBox = new AnimatedBox(id);
-                    // Đặt vị trí ban đầu tại mục tiêu cho hộp mới
-                    transformRect(obj.getBoundingBox(), animBox.currentRect);
-                    animatedBoxes.put(id, animBox);
-                }
-
-                // Biến đổi tọa độ và cập nhật mục tiêu
-                transformRect(obj.getBoundingBox(), tempRect);
-                
-                // Lấy nhãn và màu sắc
-                String label = "Vật thể";
-                float confidence = 0f;
-                int colorIndex = i % GRADIENT_COLORS.length;
-
-                if (!obj.getLabels().isEmpty()) {
-                    DetectedObject.Label topLabel = obj.getLabels().get(0);
-                    String englishLabel = topLabel.getText();
-                    label = VIETNAMESE_LABELS.getOrDefault(englishLabel, englishLabel);
-                    confidence = topLabel.getConfidence();
-                    colorIndex = CATEGORY_COLOR_INDEX.getOrDefault(topLabel.getIndex(), 0);
-                }
-
-                animBox.updateTarget(tempRect, label, confidence, colorIndex);
-            }
-        }
+        scheduleFrame();
+    }
 
-        // Bắt đầu làm mờ các khung không còn hoạt động
-        long now = System.currentTimeMillis();
-        for (AnimatedBox box : animatedBoxes.values()) {
-            if (!box.isActive && box.targetAlpha > 0 && 
-                (now - box.lastUpdateTime) > FADE_OUT_DELAY) {
-                box.startFadeOut();
+    /**
+     * Lấy kết quả từ {@code handoff} tại mỗi vsync thay vì qua {@link #setDetectionResults}.
+     */
+    @Override
+    public void setResultHandoff(ResultHandoff handoff, ResultListener listener) {
+        if (resultHandoff != null) {
+            resultHandoff.setWakeUp(null);
+        }
+        resultHandoff = handoff;
+        resultListener = listener;
+        if (handoff != null) {
+            // Chạy trên luồng pipeline: chỉ post callback animation (an toàn từ mọi luồng)
+            handoff.setWakeUp(postWakeUp);
+            if (handoff.onConsumerIdle()) {
+                scheduleFrame();
             }
         }
-
-        needsAnimation = true;
-        postInvalidate();
     }
 
-    public void clear() {
-        for (AnimatedBox box : animatedBoxes.values()) {
-            box.startFadeOut();
-        }
-        postInvalidate();
+    @Override
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
     }
 
     @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-        updateTransformationValues();
+    public void setTracer(FrameTracer tracer) {
+        this.tracer = tracer;
     }
 
-    private void updateTransformationValues() {
-        if (imageWidth == 0 || imageHeight == 0 || getWidth() == 0 || getHeight() == 0) {
-            return;
-        }
-
-        boolean isRotated = imageRotation == 90 || imageRotation == 270;
-        int mlKitWidth = isRotated ? imageHeight : imageWidth;
-        int mlKitHeight = isRotated ? imageWidth : imageHeight;
+    @Override
+    public void setEffects(boolean glow, boolean cornerAccents) {
+        renderer.setEffects(glow, cornerAccents);
+    }
 
-        float viewAspect = (float) getWidth() / getHeight();
-        float imageAspect = (float) mlKitWidth / mlKitHeight;
+    @Override
+    public void clear() {
+        boxTracker.fadeOutAll();
+        scheduleFrame();
+    }
 
-        if (viewAspect > imageAspect) {
-            scaleX = (float) getWidth() / mlKitWidth;
-            scaleY = scaleX;
-        } else {
-            scaleY = (float) getHeight() / mlKitHeight;
-            scaleX = scaleY;
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
         }
-
-        offsetX = (getWidth() - mlKitWidth * scaleX) / 2f;
-        offsetY = (getHeight() - mlKitHeight * scaleY) / 2f;
     }
 
-    private void transformRect(Rect imageRect, RectF viewRect) {
-        viewRect.left = imageRect.left * scaleX + offsetX;
-        viewRect.top = imageRect.top * scaleY + offsetY;
-        viewRect.right = imageRect.right * scaleX + offsetX;
-        viewRect.bottom = imageRect.bottom * scaleY + offsetY;
+    /**
+     * Callback vsync: ghi lại timestamp của frame rồi vẽ lại.
+     */
+    void onAnimationFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        this.frameTimeNanos = frameTimeNanos;
+        pollResult();
+        invalidate();
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        if (animatedBoxes.isEmpty()) {
+    /**
+     * Áp dụng snapshot mới nhất (nếu có); các snapshot chưa kịp hiển thị đã bị bỏ ở phía ghi.
+     */
+    private void pollResult() {
+        if (resultHandoff == null) {
             return;
         }
-
-        // Chạy animation cho tất cả các hộp
-        boolean stillAnimating = false;
-        Iterator<Map.Entry<Integer, AnimatedBox>> iterator = animatedBoxes.entrySet().iterator();
-        
-        while (iterator.hasNext()) {
-            AnimatedBox box = iterator.next().getValue();
-            box.animate();
-
-            // Xóa các hộp đã mờ hẳn
-            if (box.shouldRemove()) {
-                iterator.remove();
-                continue;
-            }
-
-            // Kiểm tra xem có cần vẽ tiếp không
-            if (Math.abs(box.alpha - box.targetAlpha) > 0.01f) {
-                stillAnimating = true;
-            }
-
-            // Vẽ nếu còn nhìn thấy
-            if (box.alpha > 0.01f && box.currentRect.width() > 10 && box.currentRect.height() > 10) {
-                drawAnimatedBox(canvas, box);
-            }
+        DetectionSnapshot snapshot = resultHandoff.poll();
+        if (snapshot == null) {
+            return;
         }
-
-        // Tiếp tục animation nếu cần
-        if (stillAnimating || needsAnimation) {
-            needsAnimation = false;
-            postInvalidateOnAnimation();
+        viewTransform.setImageSize(snapshot.getImageWidth(), snapshot.getImageHeight(),
+                snapshot.getRotationDegrees());
+        lastSequence = snapshot.getSequence();
+        boxTracker.update(snapshot, viewTransform, System.currentTimeMillis());
+        if (resultListener != null) {
+            resultListener.onResultShown(snapshot);
         }
     }
 
-    private void drawAnimatedBox(Canvas canvas, AnimatedBox box) {
-        int[] colors = GRADIENT_COLORS[box.colorIndex];
-        int primaryColor = applyAlpha(colors[0], box.alpha);
-        int secondaryColor = applyAlpha(colors[1], box.alpha);
-
-        RectF rect = box.currentRect;
-
-        // Vẽ hiệu ứng phát sáng (Glow)
-        glowPaint.setColor(primaryColor);
-        glowPaint.setAlpha((int)(30 * box.alpha));
-        canvas.drawRoundRect(rect, 16f, 16f, glowPaint);
-
-        // Vẽ khung chính với màu Gradient
-        LinearGradient gradient = new LinearGradient(
-            rect.left, rect.top, rect.right, rect.bottom,
-            primaryColor, secondaryColor, Shader.TileMode.CLAMP
-        );
-        boxPaint.setShader(gradient);
-        boxPaint.setAlpha((int)(255 * box.alpha));
-        canvas.drawRoundRect(rect, 12f, 12f, boxPaint);
-        boxPaint.setShader(null);
-
-        // Vẽ các góc nhấn (Accents)
-        drawCornerAccents(canvas, rect, primaryColor, box.alpha);
-
-        // Vẽ nhãn (Label)
-        drawLabel(canvas, box.label, box.confidence, rect, primaryColor, secondaryColor, box.alpha);
+    /**
+     * Không còn gì để vẽ: báo luồng pipeline đánh thức overlay ở kết quả tiếp theo.
+     */
+    private void goIdle() {
+        if (resultHandoff != null && resultHandoff.onConsumerIdle()) {
+            scheduleFrame();
+        }
     }
 
-    private int applyAlpha(int color, float alpha) {
-        int a = (int)(Color.alpha(color) * alpha);
-        return Color.argb(a, Color.red(color), Color.green(color), Color.blue(color));
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            frameScheduled = false;
+        }
+        if (resultHandoff != null) {
+            // Lần đánh thức tiếp theo được giữ trong hàng đợi của View tới khi gắn lại
+            resultHandoff.onConsumerIdle();
+        }
     }
 
-    private void drawCornerAccents(Canvas canvas, RectF rect, int color, float alpha) {
-        float cornerSize = 24f;
-        cornerPaint.setColor(color);
-        cornerPaint.setAlpha((int)(255 * alpha));
-
-        // Top-left
-        cornerPath.reset();
-        cornerPath.moveTo(rect.left, rect.top + cornerSize);
-        cornerPath.lineTo(rect.left, rect.top);
-        cornerPath.lineTo(rect.left + cornerSize, rect.top);
-        canvas.drawPath(cornerPath, cornerPaint);
-
-        // Top-right
-        cornerPath.reset();
-        cornerPath.moveTo(rect.right - cornerSize, rect.top);
-        cornerPath.lineTo(rect.right, rect.top);
-        cornerPath.lineTo(rect.right, rect.top + cornerSize);
-        canvas.drawPath(cornerPath, cornerPaint);
-
-        // Bottom-left
-        cornerPath.reset();
-        cornerPath.moveTo(rect.left, rect.bottom - cornerSize);
-        cornerPath.lineTo(rect.left, rect.bottom);
-        cornerPath.lineTo(rect.left + cornerSize, rect.bottom);
-        canvas.drawPath(cornerPath, cornerPaint);
-
-        // Bottom-right
-        cornerPath.reset();
-        cornerPath.moveTo(rect.right - cornerSize, rect.bottom);
-        cornerPath.lineTo(rect.right, rect.bottom);
-        cornerPath.lineTo(rect.right, rect.bottom - cornerSize);
-        canvas.drawPath(cornerPath, cornerPaint);
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        viewTransform.setViewSize(w, h);
     }
 
-    private void drawLabel(Canvas canvas, String label, float confidence, RectF rect,
-                           int primaryColor, int secondaryColor, float alpha) {
-        if (alpha < 0.1f) return;
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
 
-        String displayLabel = label;
-        if (confidence > 0) {
-            displayLabel += String.format(" • %.0f%%", confidence * 100);
+        if (boxTracker.isEmpty()) {
+            goIdle();
+            return;
         }
+        long drawStart = System.nanoTime();
 
-        textPaint.getTextBounds(displayLabel, 0, displayLabel.length(), textBounds);
-        float textWidth = textBounds.width();
-        float textHeight = textBounds.height();
-        float padding = 12f;
+        // Chạy animation tới thời điểm vsync hiện tại (xóa các hộp đã mờ hẳn)
+        if (frameTimeNanos == 0) {
+            frameTimeNanos = System.nanoTime();
+        }
+        boolean stillAnimating = boxTracker.animate(frameTimeNanos);
 
-        float bgLeft = rect.left;
-        float bgTop = rect.top - textHeight - padding * 2 - 8;
-        float bgRight = rect.left + textWidth + padding * 2;
-        float bgBottom = rect.top - 8;
+        renderer.draw(canvas, boxTracker);
 
-        if (bgTop < 0) {
-            bgTop = rect.bottom + 8;
-            bgBottom = rect.bottom + textHeight + padding * 2 + 8;
+        // Tiếp tục animation nếu còn hộp chuyển động; đứng yên thì không vẽ lại nữa
+        if (stillAnimating) {
+            scheduleFrame();
+        } else {
+            goIdle();
         }
 
-        // Vẽ nền (Background)
-        LinearGradient bgGradient = new LinearGradient(
-            bgLeft, bgTop, bgRight, bgBottom,
-            primaryColor, secondaryColor, Shader.TileMode.CLAMP
-        );
-        textBgPaint.setShader(bgGradient);
-        textBgPaint.setAlpha((int)(255 * alpha));
-        
-        tempRect.set(bgLeft, bgTop, bgRight, bgBottom);
-        canvas.drawRoundRect(tempRect, 8f, 8f, textBgPaint);
-        textBgPaint.setShader(null);
-
-        // Vẽ chữ (Text)
-        textPaint.setAlpha((int)(255 * alpha));
-        canvas.drawText(displayLabel, bgLeft + padding, bgBottom - padding - 2, textPaint);
+        long drawEnd = System.nanoTime();
+        if (metrics != null) {
+            metrics.record(PipelineMetrics.Stage.DRAW, drawEnd - drawStart);
+        }
+        if (tracer != null) {
+            tracer.record(FrameTracer.Stage.DRAW, lastSequence, drawStart, drawEnd, boxTracker.size());
+        }
     }
 }
@@ -0,0 +1,133 @@
+package com.example.cameraod;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import com.example.cameraod.overlay.AtlasSlots;
+
+/**
+ * Pre-rasterized text in an ALPHA_8 bitmap atlas, one fixed-size cell per string.
+ * Features:
+ * - Each string is rasterized and measured once; drawing it is a single bitmap blit
+ *   tinted by the paint colour, with no formatting, measuring or glyph layout per frame
+ * - Pinned strings (known vocabulary, percentages) keep their slot; other strings share
+ *   the remaining cells with LRU eviction ({@link AtlasSlots})
+ * - Strings wider than a cell are ellipsized when rasterized
+ * <p>
+ * Not thread-safe: used only from the overlay's drawing thread.
+ */
+final class LabelAtlas {
+
+    private static final int MAX_ATLAS_WIDTH = 1024;
+
+    private final AtlasSlots slots;
+    private final TextPaint rasterPaint;
+    private final Bitmap bitmap;
+    private final Canvas atlasCanvas;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int columns;
+    private final int baseline; // Vị trí đường chân chữ trong một ô
+    private final float[] widths;
+
+    // Các biến tái sử dụng khi blit
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    /**
+     * @param textPaint paint whose typeface, size and style are copied for rasterization
+     */
+    LabelAtlas(Paint textPaint, int cellWidth, int slotCount) {
+        this.slots = new AtlasSlots(slotCount);
+        this.rasterPaint = new TextPaint(textPaint);
+        rasterPaint.setColor(Color.WHITE);
+        rasterPaint.setAlpha(255);
+
+        Paint.FontMetricsInt metrics = rasterPaint.getFontMetricsInt();
+        this.cellWidth = cellWidth;
+        this.cellHeight = metrics.bottom - metrics.top + 2;
+        this.baseline = 1 - metrics.top;
+        this.columns = Math.max(1, MAX_ATLAS_WIDTH / cellWidth);
+        int rows = (slotCount + columns - 1) / columns;
+        this.bitmap = Bitmap.createBitmap(columns * cellWidth, rows * cellHeight, Bitmap.Config.ALPHA_8);
+        this.atlasCanvas = new Canvas(bitmap);
+        this.widths = new float[slotCount];
+    }
+
+    /**
+     * Vẽ sẵn {@code text} vào slot ghim kế tiếp (0, 1, 2... theo thứ tự gọi).
+     */
+    int pin(String text) {
+        int slot = slots.pin(text);
+        rasterize(slot, text);
+        return slot;
+    }
+
+    /**
+     * Bắt đầu frame vẽ mới (gọi một lần mỗi frame, trước {@link #slotFor}).
+     */
+    void beginFrame() {
+        slots.beginFrame();
+    }
+
+    /**
+     * Slot chứa {@code text}, vẽ vào atlas nếu chưa có.
+     *
+     * @return the slot, or {@link AtlasSlots#NO_SLOT} if no cell can be reused in this frame
+     */
+    int slotFor(String text) {
+        int slot = slots.find(text);
+        if (slot == AtlasSlots.NO_SLOT) {
+            slot = slots.insert(text);
+            if (slot != AtlasSlots.NO_SLOT) {
+                rasterize(slot, text);
+            }
+        }
+        return slot;
+    }
+
+    private void rasterize(int slot, String text) {
+        float maxWidth = cellWidth - 1;
+        CharSequence fitted = rasterPaint.measureText(text) <= maxWidth
+                ? text
+                : TextUtils.ellipsize(text, rasterPaint, maxWidth, TextUtils.TruncateAt.END);
+        int left = (slot % columns) * cellWidth;
+        int top = (slot / columns) * cellHeight;
+
+        atlasCanvas.save();
+        atlasCanvas.clipRect(left, top, left + cellWidth, top + cellHeight);
+        atlasCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        atlasCanvas.drawText(fitted, 0, fitted.length(), left, top + baseline, rasterPaint);
+        atlasCanvas.restore();
+        widths[slot] = Math.min(rasterPaint.measureText(fitted, 0, fitted.length()), maxWidth);
+    }
+
+    /**
+     * Độ rộng (advance) của chuỗi trong slot, cùng đơn vị với {@link Paint#measureText}.
+     */
+    float getWidth(int slot) {
+        return widths[slot];
+    }
+
+    /**
+     * Vẽ chuỗi trong slot với đường chân chữ tại ({@code x}, {@code baselineY}); màu và alpha
+     * lấy từ {@code paint} như {@link Canvas#drawText}.
+     */
+    void draw(Canvas canvas, int slot, float x, float baselineY, Paint paint) {
+        int left = (slot % columns) * cellWidth;
+        int top = (slot / columns) * cellHeight;
+        src.set(left, top, left + cellWidth, top + cellHeight);
+        // Căn theo pixel nguyên để blit 1:1, chữ không bị nhòe
+        float dstLeft = Math.round(x);
+        float dstTop = Math.round(baselineY) - baseline;
+        dst.set(dstLeft, dstTop, dstLeft + cellWidth, dstTop + cellHeight);
+        canvas.drawBitmap(bitmap, src, dst, paint);
+    }
+}
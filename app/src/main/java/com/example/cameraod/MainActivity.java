@@ -3,7 +3,12 @@ package com.example.cameraod;
 import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.Size;
+import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -13,8 +18,13 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.AspectRatio;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.AspectRatioStrategy;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
@@ -23,45 +33,234 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import com.google.common.util.concurrent.ListenableFuture;
+import com.example.cameraod.analytics.OccupancyAnalytics;
+import com.example.cameraod.capture.SnapshotSaver;
+import com.example.cameraod.capture.SnapshotStore;
+import com.example.cameraod.capture.SnapshotTrigger;
+import com.example.cameraod.log.DetectionLog;
+import com.example.cameraod.metrics.FrameTracer;
+import com.example.cameraod.metrics.LatencyHistogram;
+import com.example.cameraod.metrics.PipelineMetrics;
+import com.example.cameraod.metrics.TraceExporter;
+import com.example.cameraod.overlay.LabelCatalog;
+import com.example.cameraod.pipeline.CropRegion;
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.Detector;
+import com.example.cameraod.pipeline.DirectBufferPool;
+import com.example.cameraod.pipeline.DetectionResult;
+import com.example.cameraod.pipeline.DetectionSnapshot;
+import com.example.cameraod.pipeline.FanOutDetector;
+import com.example.cameraod.pipeline.Frame;
+import com.example.cameraod.pipeline.FramePipeline;
+import com.example.cameraod.pipeline.KeyframeScheduler;
+import com.example.cameraod.pipeline.RegionImage;
+import com.example.cameraod.pipeline.RegionOfInterest;
+import com.example.cameraod.pipeline.ResolutionLadder;
+import com.example.cameraod.pipeline.ResultHandoff;
+import com.example.cameraod.pipeline.TieredDetector;
+import com.example.cameraod.pipeline.RoiDetector;
+import com.example.cameraod.pipeline.FilterEngine;
+import com.example.cameraod.pipeline.FilterRules;
+import com.example.cameraod.pipeline.YuvCropper;
+import com.example.cameraod.quality.QualityGovernor;
+import com.example.cameraod.replay.FrameRecorder;
+import com.example.cameraod.startup.StartupOrchestrator;
+import com.google.mlkit.common.model.LocalModel;
 import com.google.mlkit.vision.common.InputImage;
-import com.google.mlkit.vision.objects.DetectedObject;
 import com.google.mlkit.vision.objects.ObjectDetection;
-import com.google.mlkit.vision.objects.ObjectDetector;
+import com.google.mlkit.vision.objects.custom.CustomObjectDetectorOptions;
 import com.google.mlkit.vision.objects.defaults.ObjectDetectorOptions;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "CameraOD";
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 100;
     private static final float CONFIDENCE_THRESHOLD = 0.3f; // Đã hạ xuống để bắt được nhiều phân loại hơn
+    private static final int MAX_FRAMES_IN_FLIGHT = 2; // Số frame được xử lý đồng thời
+    private static final int MAX_KEYFRAME_INTERVAL = 6; // Chạy detector ít nhất 1 trong 6 frame
+    private static final float TARGET_DETECTOR_LOAD = 0.5f; // Detector chiếm tối đa ~50% thời gian mỗi frame
+    private static final ResolutionLadder.Rung INITIAL_RESOLUTION = ResolutionLadder.Rung.P480; // Độ phân giải phân tích ban đầu
+    private static final boolean ROI_MODE_ENABLED = true; // Chỉ phân tích vùng quanh các vật thể gần đây
+    private static final long TRACE_EXPORT_WINDOW_NANOS = 10_000_000_000L; // Xuất trace 10 giây gần nhất
+    private static final boolean RECORD_CAPTURE = false; // Ghi frame YUV thô ra file để phát lại offline
+    private static final boolean DETECTION_LOG_ENABLED = false; // Ghi mọi vật thể đã lọc vào log nhị phân
+    private static final int DETECTION_LOG_MAX_SEGMENTS = 16; // ~16 triệu bản ghi (~400 MB)
+    // Chụp ảnh độ phân giải cao làm bằng chứng khi phát hiện các lớp đã chọn (thư mục snapshots)
+    private static final boolean SNAPSHOT_ENABLED = false;
+    private static final int[] SNAPSHOT_LABELS = {1}; // Chỉ số nhãn ML Kit (1 = Food)
+    private static final float SNAPSHOT_MIN_CONFIDENCE = 0.6f;
+    private static final long SNAPSHOT_TRACK_INTERVAL_MS = 10_000; // Mỗi track chụp tối đa một lần trong 10 giây
+    private static final int SNAPSHOT_WORKERS = 2; // Luồng ghi ảnh, tách khỏi luồng analyzer
+    private static final int SNAPSHOT_MAX_PENDING = 2; // Quá số ảnh đang chụp/ghi này thì bỏ ảnh mới
+    private static final int SNAPSHOT_JPEG_QUALITY = 90;
+    private static final int SNAPSHOT_MAX_FILES = 500;
+    private static final long SNAPSHOT_MAX_BYTES = 256L * 1024 * 1024; // Xóa ảnh cũ nhất khi vượt
+    // Thống kê theo lớp: bộ đếm trên màn hình đọc số liệu tổng hợp, không định dạng lại mỗi frame
+    private static final long ANALYTICS_UI_INTERVAL_MS = 500; // Cập nhật tối đa 2 lần mỗi giây
+    private static final long ANALYTICS_TRACK_TIMEOUT_MS = 2000; // Track không còn thấy trong thời gian này thì đã rời khung
+    // Model TFLite (có metadata nhãn) trong assets, chạy song song với ML Kit, ví dụ "models/household.tflite"
+    private static final String[] CUSTOM_MODEL_ASSETS = {};
+    // Ngân sách mỗi frame của model tùy chỉnh; ML Kit là model chính nên frame luôn chờ nó
+    private static final long CUSTOM_MODEL_BUDGET_MS = 100;
+    private static final boolean SURFACE_OVERLAY = false; // Vẽ hộp trên SurfaceView bằng luồng render riêng
+    // Hai tầng: model chỉ phát hiện chạy mọi keyframe, model phân loại chạy nền theo chu kỳ hoặc khi có track mới
+    private static final boolean TIERED_CLASSIFICATION = true;
+    private static final long CLASSIFY_INTERVAL_MS = 500; // Chu kỳ phân loại lại các track đã có nhãn
+    private static final long LABEL_TTL_MS = 2000; // Nhãn của track không còn thấy được giữ trong thời gian này
+    // Bộ điều chỉnh chất lượng: quá ngân sách thì tắt glow → góc nhấn → hạ độ phân giải → giảm tần suất nhận diện
+    private static final long DETECTOR_BUDGET_MS = 80; // Độ trễ detector trung bình cho phép
+    private static final long DRAW_BUDGET_MS = 6; // Thời gian vẽ overlay trung bình cho phép (frame 16 ms)
+    private static final ResolutionLadder.Rung REDUCED_MAX_RESOLUTION = ResolutionLadder.Rung.P320;
+    private static final float REDUCED_DETECTOR_LOAD = 0.25f; // Detector chiếm tối đa ~25% thời gian mỗi frame
+
+    // Các bước khởi động (chạy song song theo phụ thuộc) và các mốc đo thời gian khởi động lạnh
+    private static final String STEP_DETECTOR = "detector";
+    private static final String STEP_WARM_UP = "warm-up";
+    private static final String STEP_CAMERA_PROVIDER = "camera-provider";
+    private static final String STEP_BIND_CAMERA = "bind-camera";
+    private static final String MILESTONE_FIRST_FRAME = "first-frame";
+    private static final String MILESTONE_FIRST_PREVIEW = "first-preview";
+    private static final String MILESTONE_FIRST_BOX = "first-box";
 
     // Khai báo các biến View
     private PreviewView previewView;
-    private GraphicOverlay graphicOverlay;
-    private TextView fpsTextView;
+    private DetectionOverlay overlay;
+    private TextView perfHudTextView;
     private TextView objectCountTextView;
 
     // Biến quản lý Camera
     private ProcessCameraProvider cameraProvider;
+    private CameraSelector cameraSelector;
+    private ImageAnalysis imageAnalysis;
     private ExecutorService cameraExecutor;
-
-    // Bộ nhận diện vật thể ML Kit
-    private ObjectDetector objectDetector;
-
-    // Biến tính toán FPS
-    private long lastFpsUpdateTime = 0;
-    private int frameCount = 0;
+    private ExecutorService detectorExecutor;
+    private ExecutorService modelExecutor;
+    private ExecutorService startupExecutor;
+    private StartupOrchestrator startup;
+    // Các model để chạy thử một lần trước frame thật (nạp model, JIT)
+    private final List<Detector<InputImage>> warmUpDetectors = new ArrayList<>();
+    private boolean cameraReady = false; // CameraProvider và pipeline đã sẵn sàng (Luồng chính)
+
+    // Pipeline nhận diện: acquire → preprocess → detect (ML Kit) → filter → publish
+    // Detector chỉ chạy trên keyframe, các frame còn lại dùng hộp dự đoán theo chuyển động
+    private FramePipeline<ImageProxy, RegionImage<InputImage>> framePipeline;
+    // Kết quả được giao cho overlay qua triple buffer (overlay lấy bản mới nhất tại vsync)
+    private final ResultHandoff resultHandoff = new ResultHandoff();
+
+    // Chọn độ phân giải phân tích và vùng cần phân tích theo kích thước/vị trí vật thể
+    private final ResolutionLadder resolutionLadder = new ResolutionLadder(INITIAL_RESOLUTION);
+    private final RegionOfInterest regionOfInterest = new RegionOfInterest();
+    // Buffer NV21 tiền xử lý dùng lại giữa các frame (thêm 2 cho detector/phân loại còn giữ frame cũ)
+    private final DirectBufferPool bufferPool = new DirectBufferPool(MAX_FRAMES_IN_FLIGHT + 2);
+    private final KeyframeScheduler keyframeScheduler = new KeyframeScheduler(MAX_KEYFRAME_INTERVAL, TARGET_DETECTOR_LOAD);
+
+    // Hạ/nâng chất lượng theo độ trễ detector và vẽ đo được (pipelineMetrics chuyển từng phép đo tới)
+    private final QualityGovernor qualityGovernor = new QualityGovernor.Builder()
+            .setDetectorBudget(DETECTOR_BUDGET_MS, TimeUnit.MILLISECONDS)
+            .setDrawBudget(DRAW_BUDGET_MS, TimeUnit.MILLISECONDS)
+            .setListener(level -> runOnUiThread(this::applyQualityLevel))
+            .build();
+
+    // Bộ lọc theo bảng quy tắc, đổi quy tắc lúc chạy bằng filterEngine.setRules(...)
+    private final FilterEngine filterEngine = new FilterEngine(FilterRules.smartDefault(CONFIDENCE_THRESHOLD));
+
+    // Đo hiệu năng: histogram độ trễ từng stage (luôn bật, ghi không cấp phát) và HUD cập nhật mỗi giây
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+    // Ghi vết từng frame vào ring buffer; nhấn giữ HUD để xuất file trace (chrome://tracing, Perfetto)
+    private final FrameTracer frameTracer = new FrameTracer();
+    // Ghi frame camera (chỉ dùng trên luồng analyzer), phát lại bằng ./gradlew :core:replay
+    private FrameRecorder frameRecorder;
+    private boolean recordingFailed = false;
+    // Log vật thể, chỉ dùng trên luồng detectionLogExecutor
+    private ExecutorService detectionLogExecutor;
+    private DetectionLog detectionLog;
+    private volatile boolean detectionLogFailed = false;
+    // Snapshot: trigger chạy trên luồng pipeline, chụp trên Luồng chính, ghi file trên snapshotExecutor
+    private ImageCapture imageCapture; // Chỉ đọc/ghi trên Luồng chính
+    private ExecutorService snapshotExecutor;
+    private SnapshotTrigger snapshotTrigger;
+    private volatile SnapshotSaver snapshotSaver; // null tới khi mở xong thư mục snapshots
+    private long lastHudUpdateTime = 0;
+    // Thống kê theo lớp trong cửa sổ 1 phút (track mới, đỉnh, thời gian ở), ghi từ luồng pipeline
+    private final OccupancyAnalytics occupancyAnalytics = new OccupancyAnalytics.Builder()
+            .setWindow(1, TimeUnit.SECONDS, 60)
+            .setTrackTimeout(ANALYTICS_TRACK_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .build();
+    private long lastCountUpdateNanos = Long.MIN_VALUE; // Chỉ dùng trên Luồng chính
+    private final StringBuilder countText = new StringBuilder(64);
+    // Số snapshot overlay đã hiển thị; với SurfaceOverlayView chỉ post tối đa một lần cập nhật UI
+    private final AtomicInteger shownFrames = new AtomicInteger();
+    private final AtomicBoolean shownUpdatePending = new AtomicBoolean();
+    private volatile int shownObjectCount = 0;
+    private final Runnable showResult = () -> {
+        shownUpdatePending.set(false);
+        updateObjectCount();
+        updateHud();
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        Log.i(TAG, "Process start → onCreate: "
+                + (SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) + " ms");
+
+        // Khởi tạo luồng xử lý Camera (Background Thread)
+        cameraExecutor = Executors.newSingleThreadExecutor();
+        detectorExecutor = Executors.newFixedThreadPool(MAX_FRAMES_IN_FLIGHT);
+        if (DETECTION_LOG_ENABLED) {
+            detectionLogExecutor = Executors.newSingleThreadExecutor();
+        }
+        if (SNAPSHOT_ENABLED) {
+            // Số tác vụ chờ không vượt SNAPSHOT_MAX_PENDING (SnapshotSaver giữ chỗ trước khi chụp)
+            snapshotExecutor = Executors.newFixedThreadPool(SNAPSHOT_WORKERS);
+            SnapshotTrigger.Builder trigger = new SnapshotTrigger.Builder()
+                    .setPerTrackInterval(SNAPSHOT_TRACK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            for (int label : SNAPSHOT_LABELS) {
+                trigger.addLabel(label, SNAPSHOT_MIN_CONFIDENCE);
+            }
+            snapshotTrigger = trigger.build();
+            snapshotExecutor.execute(this::openSnapshotStore);
+        }
+
+        // Khởi động lạnh song song với việc dựng giao diện: tạo detector (rồi chạy thử) và lấy
+        // CameraProvider cùng lúc; gắn camera trên Luồng chính khi cả hai đã xong
+        startupExecutor = Executors.newFixedThreadPool(2);
+        startup = new StartupOrchestrator.Builder()
+                .addStep(STEP_DETECTOR, startupExecutor, this::initializeObjectDetector)
+                .addStep(STEP_WARM_UP, startupExecutor, this::warmUpDetectors, STEP_DETECTOR)
+                .addStep(STEP_CAMERA_PROVIDER, startupExecutor,
+                        () -> cameraProvider = ProcessCameraProvider.getInstance(this).get())
+                .addStep(STEP_BIND_CAMERA, ContextCompat.getMainExecutor(this), this::onCameraReady,
+                        STEP_DETECTOR, STEP_CAMERA_PROVIDER)
+                .addMilestone(MILESTONE_FIRST_FRAME)
+                .addMilestone(MILESTONE_FIRST_PREVIEW)
+                .addMilestone(MILESTONE_FIRST_BOX)
+                .build();
+        startup.start().whenComplete((ignored, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Startup failed\n" + startup.format(), error);
+                runOnUiThread(() -> Toast.makeText(this, "Failed to initialize camera",
+                        Toast.LENGTH_SHORT).show());
+            }
+        });
+
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
 
@@ -74,38 +273,119 @@ public class MainActivity extends AppCompatActivity {
 
         // Ánh xạ Views
         previewView = findViewById(R.id.previewView);
-        graphicOverlay = findViewById(R.id.graphicOverlay);
-        fpsTextView = findViewById(R.id.fpsTextView);
+        GraphicOverlay graphicOverlay = findViewById(R.id.graphicOverlay);
+        SurfaceOverlayView surfaceOverlay = findViewById(R.id.surfaceOverlay);
+        graphicOverlay.setVisibility(SURFACE_OVERLAY ? View.GONE : View.VISIBLE);
+        surfaceOverlay.setVisibility(SURFACE_OVERLAY ? View.VISIBLE : View.GONE);
+        overlay = SURFACE_OVERLAY ? surfaceOverlay : graphicOverlay;
+        perfHudTextView = findViewById(R.id.perfHudTextView);
         objectCountTextView = findViewById(R.id.objectCountTextView);
+        pipelineMetrics.setLatencyListener((stage, nanos) -> {
+            if (stage == PipelineMetrics.Stage.DETECT) {
+                qualityGovernor.onDetectorLatency(nanos);
+            } else if (stage == PipelineMetrics.Stage.DRAW) {
+                qualityGovernor.onDrawLatency(nanos);
+            }
+        });
+        overlay.setMetrics(pipelineMetrics);
+        overlay.setTracer(frameTracer);
+        overlay.setResultHandoff(resultHandoff, this::onResultShown);
+        perfHudTextView.setOnLongClickListener(v -> {
+            exportTrace();
+            return true;
+        });
+        previewView.getPreviewStreamState().observe(this, state -> {
+            if (state == PreviewView.StreamState.STREAMING) {
+                startup.mark(MILESTONE_FIRST_PREVIEW);
+            }
+        });
 
-        // Khởi tạo luồng xử lý Camera (Background Thread)
-        cameraExecutor = Executors.newSingleThreadExecutor();
-
-        // Khởi tạo ML Kit Object Detector
-        initializeObjectDetector();
-
-        // Kiểm tra quyền Camera tại thời điểm chạy (Runtime Permission)
-        if (hasCameraPermission()) {
-            startCamera();
-        } else {
+        // Kiểm tra quyền Camera tại thời điểm chạy (Runtime Permission), trong lúc detector đang khởi tạo
+        if (!hasCameraPermission()) {
             requestCameraPermission();
         }
     }
 
     /**
-     * Khởi tạo ML Kit ObjectDetector.
+     * Khởi tạo ML Kit ObjectDetector (cùng các model tùy chỉnh) và pipeline xử lý frame.
+     * Chạy trên luồng startup.
      */
     private void initializeObjectDetector() {
-        ObjectDetectorOptions options = new ObjectDetectorOptions.Builder()
-                .setDetectorMode(ObjectDetectorOptions.STREAM_MODE)
-                .enableClassification()
-                .enableMultipleObjects()
-                .build();
+        // Mọi model chạy song song trên cùng frame, kết quả gộp bằng NMS theo lớp
+        // (thêm một luồng cho model phân loại nền ở chế độ hai tầng)
+        modelExecutor = Executors.newFixedThreadPool((1 + CUSTOM_MODEL_ASSETS.length) * MAX_FRAMES_IN_FLIGHT
+                + (TIERED_CLASSIFICATION ? 1 : 0));
+        Detector<InputImage> mlKitDetector = TIERED_CLASSIFICATION
+                ? createTieredMlKitDetector()
+                : createMlKitDetector(true, ObjectDetectorOptions.STREAM_MODE);
+        FanOutDetector.Builder<InputImage> models = new FanOutDetector.Builder<InputImage>(modelExecutor)
+                .addDetector(mlKitDetector);
+        for (String asset : CUSTOM_MODEL_ASSETS) {
+            LocalModel localModel = new LocalModel.Builder().setAssetFilePath(asset).build();
+            CustomObjectDetectorOptions customOptions = new CustomObjectDetectorOptions.Builder(localModel)
+                    .setDetectorMode(CustomObjectDetectorOptions.STREAM_MODE)
+                    .enableClassification()
+                    .enableMultipleObjects()
+                    .setClassificationConfidenceThreshold(CONFIDENCE_THRESHOLD)
+                    .build();
+            MlKitDetector customDetector = new MlKitDetector(ObjectDetection.getClient(customOptions));
+            warmUpDetectors.add(customDetector);
+            models.addDetector(customDetector, CUSTOM_MODEL_BUDGET_MS, TimeUnit.MILLISECONDS);
+        }
+
+        regionOfInterest.setEnabled(ROI_MODE_ENABLED);
+        framePipeline = new FramePipeline.Builder<ImageProxy, RegionImage<InputImage>>()
+                .setPreprocessor(this::toRegionImage, Runnable::run)
+                .setDetector(new RoiDetector<>(models.build(), regionOfInterest), detectorExecutor)
+                .setFilter(filterEngine, Runnable::run)
+                .setListener(new FramePipeline.Listener() {
+                    @Override
+                    public void onResult(DetectionResult result) {
+                        onDetectionResult(result);
+                    }
 
-        objectDetector = ObjectDetection.getClient(options);
+                    @Override
+                    public void onFrameFailed(long sequence, Throwable error) {
+                        Log.e(TAG, "Detection failed", error);
+                    }
+                }, Runnable::run)
+                .setMaxInFlight(MAX_FRAMES_IN_FLIGHT)
+                .setKeyframeScheduler(keyframeScheduler)
+                .setMetrics(pipelineMetrics)
+                .setTracer(frameTracer)
+                .build();
         Log.d(TAG, "ML Kit ObjectDetector initialized");
     }
 
+    /**
+     * Tạo ML Kit ObjectDetector (có hoặc không phân loại) và thêm vào danh sách chạy thử.
+     */
+    private MlKitDetector createMlKitDetector(boolean classify, int mode) {
+        ObjectDetectorOptions.Builder options = new ObjectDetectorOptions.Builder()
+                .setDetectorMode(mode)
+                .enableMultipleObjects();
+        if (classify) {
+            options.enableClassification();
+        }
+        MlKitDetector detector = new MlKitDetector(ObjectDetection.getClient(options.build()));
+        warmUpDetectors.add(detector);
+        return detector;
+    }
+
+    /**
+     * Model chỉ phát hiện (STREAM_MODE, giữ tracking ID) chạy trên mọi keyframe; model phân loại
+     * (SINGLE_IMAGE_MODE, vì chỉ thấy các frame rời rạc) chạy nền và nhãn được cache theo tracking ID.
+     */
+    private Detector<InputImage> createTieredMlKitDetector() {
+        return new TieredDetector.Builder<>(
+                createMlKitDetector(false, ObjectDetectorOptions.STREAM_MODE),
+                createMlKitDetector(true, ObjectDetectorOptions.SINGLE_IMAGE_MODE),
+                modelExecutor)
+                .setClassifyInterval(CLASSIFY_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                .setLabelTtl(LABEL_TTL_MS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
     /**
      * Check if camera permission is granted.
      */
@@ -141,21 +421,42 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Khởi động CameraX với chế độ Preview (Xem trước) và ImageAnalysis (Phân tích ảnh).
+     * Chạy mỗi model một lần trên frame tổng hợp (xám, độ phân giải ban đầu) để nạp model và
+     * làm nóng JIT trước frame thật. Chạy trên luồng startup, song song với việc mở camera.
      */
-    private void startCamera() {
-        ListenableFuture<ProcessCameraProvider> cameraProviderFuture =
-                ProcessCameraProvider.getInstance(this);
-
-        cameraProviderFuture.addListener(() -> {
+    private void warmUpDetectors() {
+        int width = INITIAL_RESOLUTION.getLongSide();
+        int height = INITIAL_RESOLUTION.getShortSide();
+        byte[] nv21 = new byte[YuvCropper.nv21Size(width, height)];
+        Arrays.fill(nv21, (byte) 128);
+        InputImage image = InputImage.fromByteArray(nv21, width, height, 0, InputImage.IMAGE_FORMAT_NV21);
+        Frame<InputImage> frame = new Frame<>(image, System.nanoTime(), width, height, 0, null);
+        for (Detector<InputImage> detector : warmUpDetectors) {
             try {
-                cameraProvider = cameraProviderFuture.get();
-                bindCameraUseCases();
-            } catch (ExecutionException | InterruptedException e) {
-                Log.e(TAG, "Failed to get camera provider", e);
-                Toast.makeText(this, "Failed to initialize camera", Toast.LENGTH_SHORT).show();
+                detector.detect(frame);
+            } catch (Exception e) {
+                // Chạy thử thất bại không chặn khởi động: frame thật sẽ tự nạp model
+                Log.w(TAG, "Detector warm-up failed", e);
             }
-        }, ContextCompat.getMainExecutor(this));
+        }
+    }
+
+    /**
+     * Bước cuối của khởi động (Luồng chính): CameraProvider và pipeline đã sẵn sàng.
+     */
+    private void onCameraReady() {
+        cameraReady = true;
+        startCamera();
+    }
+
+    /**
+     * Khởi động CameraX với chế độ Preview (Xem trước) và ImageAnalysis (Phân tích ảnh), khi đã
+     * có quyền camera và quá trình khởi động đã xong (nếu chưa, hàm được gọi lại sau).
+     */
+    private void startCamera() {
+        if (cameraReady && hasCameraPermission()) {
+            bindCameraUseCases();
+        }
     }
 
     /**
@@ -175,7 +476,7 @@ public class MainActivity extends AppCompatActivity {
         cameraProvider.unbindAll();
 
         // Bộ chọn Camera - Sử dụng Camera sau
-        CameraSelector cameraSelector = new CameraSelector.Builder()
+        cameraSelector = new CameraSelector.Builder()
                 .requireLensFacing(CameraSelector.LENS_FACING_BACK)
                 .build();
 
@@ -187,22 +488,34 @@ public class MainActivity extends AppCompatActivity {
         preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
         // Use case 2: ImageAnalysis (Lấy dữ liệu ảnh để chạy AI)
-        ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                .setTargetAspectRatio(AspectRatio.RATIO_16_9)
-                .setTargetRotation(rotation)
-                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST) // Chỉ lấy frame mới nhất
-                .build();
+        imageAnalysis = buildImageAnalysis(rotation);
 
-        imageAnalysis.setAnalyzer(cameraExecutor, this::analyzeImage);
+        // Use case 3: ImageCapture (Chụp ảnh bằng chứng, JPEG do camera mã hóa)
+        imageCapture = SNAPSHOT_ENABLED ? new ImageCapture.Builder()
+                .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY)
+                .setJpegQuality(SNAPSHOT_JPEG_QUALITY)
+                .setTargetRotation(rotation)
+                .build() : null;
 
         try {
             // Gắn kết tất cả vào vòng đời Activity
-            cameraProvider.bindToLifecycle(
-                    this,
-                    cameraSelector,
-                    preview,
-                    imageAnalysis
-            );
+            if (imageCapture != null) {
+                try {
+                    cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageAnalysis, imageCapture);
+                } catch (IllegalArgumentException e) {
+                    // Thiết bị không hỗ trợ tổ hợp ba use case: bỏ snapshot, giữ nhận diện
+                    Log.w(TAG, "Snapshot capture not supported with analysis, snapshots disabled", e);
+                    imageCapture = null;
+                }
+            }
+            if (imageCapture == null) {
+                cameraProvider.bindToLifecycle(
+                        this,
+                        cameraSelector,
+                        preview,
+                        imageAnalysis
+                );
+            }
             Log.d(TAG, "Camera use cases bound successfully");
         } catch (Exception e) {
             Log.e(TAG, "Failed to bind camera use cases", e);
@@ -211,90 +524,470 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Phân tích từng frame ảnh (Callback).
+     * Tạo use case ImageAnalysis với độ phân giải theo nấc hiện tại của {@link ResolutionLadder}.
+     */
+    private ImageAnalysis buildImageAnalysis(int rotation) {
+        ResolutionLadder.Rung rung = resolutionLadder.getRung();
+        ResolutionSelector resolutionSelector = new ResolutionSelector.Builder()
+                .setAspectRatioStrategy(AspectRatioStrategy.RATIO_16_9_FALLBACK_AUTO_STRATEGY)
+                .setResolutionStrategy(new ResolutionStrategy(
+                        new Size(rung.getLongSide(), rung.getShortSide()),
+                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                .build();
+
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+                .setResolutionSelector(resolutionSelector)
+                .setTargetRotation(rotation)
+                // Cho phép nhiều frame cùng lúc; pipeline tự bỏ frame khi đã đủ số frame đang xử lý
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_BLOCK_PRODUCER)
+                .setImageQueueDepth(MAX_FRAMES_IN_FLIGHT + 1)
+                .build();
+        analysis.setAnalyzer(cameraExecutor, this::analyzeImage);
+        return analysis;
+    }
+
+    /**
+     * Gắn lại riêng ImageAnalysis khi đổi nấc độ phân giải (Preview không bị gián đoạn).
+     */
+    private void rebindImageAnalysis() {
+        if (cameraProvider == null || imageAnalysis == null) {
+            return;
+        }
+        int rotation = previewView.getDisplay() != null ?
+                previewView.getDisplay().getRotation() : 0;
+        cameraProvider.unbind(imageAnalysis);
+        regionOfInterest.reset();
+        imageAnalysis = buildImageAnalysis(rotation);
+        try {
+            cameraProvider.bindToLifecycle(this, cameraSelector, imageAnalysis);
+            Log.d(TAG, "Analysis resolution: " + resolutionLadder.getRung());
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to rebind image analysis", e);
+        }
+    }
+
+    /**
+     * Áp dụng mức chất lượng hiện tại của {@link QualityGovernor} (Luồng chính). Đọc lại mức mới
+     * nhất nên các lần đổi mức dồn dập chỉ cần áp dụng lần cuối.
+     */
+    private void applyQualityLevel() {
+        QualityGovernor.Level level = qualityGovernor.getLevel();
+        overlay.setEffects(level.isGlowEnabled(), level.areCornerAccentsEnabled());
+        keyframeScheduler.setTargetLoad(level.isRateReduced() ? REDUCED_DETECTOR_LOAD : TARGET_DETECTOR_LOAD);
+        // Nâng mức chỉ bỏ giới hạn: nấc tăng lại theo kích thước vật thể như bình thường
+        ResolutionLadder.Rung maxRung = level.isResolutionReduced()
+                ? REDUCED_MAX_RESOLUTION : ResolutionLadder.Rung.P720;
+        if (resolutionLadder.setMaxRung(maxRung)) {
+            rebindImageAnalysis();
+        }
+        Log.i(TAG, "Quality level: " + level);
+    }
+
+    /**
+     * Phân tích từng frame ảnh (Callback) - stage acquire của pipeline.
      */
     @androidx.camera.core.ExperimentalGetImage
     private void analyzeImage(@NonNull ImageProxy imageProxy) {
-        android.media.Image mediaImage = imageProxy.getImage();
-        
-        if (mediaImage == null) {
+        if (imageProxy.getImage() == null) {
             imageProxy.close();
             return;
         }
+        startup.mark(MILESTONE_FIRST_FRAME);
+
+        // Độ trễ từ lúc chụp tới analyzer, và các frame camera bị bỏ trước analyzer
+        long timestampNanos = toMonotonicNanos(imageProxy.getImageInfo().getTimestamp());
+        pipelineMetrics.record(PipelineMetrics.Stage.CAPTURE_TO_ANALYZER, System.nanoTime() - timestampNanos);
+        pipelineMetrics.onFrameArrived(timestampNanos);
+        if (RECORD_CAPTURE && !recordingFailed) {
+            recordFrame(imageProxy, timestampNanos);
+        }
+
+        // Frame được đóng ngay khi stage preprocess sao chép xong sang buffer NV21, khi bị bỏ,
+        // hoặc ngay lập tức nếu không phải keyframe (hộp được dự đoán từ keyframe trước)
+        framePipeline.submit(new Frame<>(
+                imageProxy,
+                timestampNanos,
+                imageProxy.getWidth(),
+                imageProxy.getHeight(),
+                imageProxy.getImageInfo().getRotationDegrees(),
+                imageProxy::close));
+    }
 
-        // Lấy kích thước và góc xoay của ảnh gốc
-        int imageWidth = imageProxy.getWidth();
-        int imageHeight = imageProxy.getHeight();
-        int rotation = imageProxy.getImageInfo().getRotationDegrees();
-
-        // Tạo đối tượng InputImage từ ImageProxy để ML Kit xử lý
-        InputImage inputImage = InputImage.fromMediaImage(mediaImage, rotation);
-
-        // Chạy nhận diện đối tượng
-        objectDetector.process(inputImage)
-                .addOnSuccessListener(detectedObjects -> {
-                    // Smart Filter: Hiển thị nếu ĐÃ PHÂN LOẠI hoặc (CHƯA PHÂN LOẠI nhưng KÍCH THƯỚC LỚN)
-                    List<DetectedObject> filteredObjects = new ArrayList<>();
-                    for (DetectedObject object : detectedObjects) {
-                        boolean isClassified = false;
-                        // Kiểm tra xem có nhãn nào đạt ngưỡng tin cậy không
-                        for (DetectedObject.Label label : object.getLabels()) {
-                            if (label.getConfidence() >= CONFIDENCE_THRESHOLD) {
-                                isClassified = true;
-                                break;
-                            }
-                        }
-                        
-                        // Kiểm tra kích thước (phải chiếm > 20% chiều rộng ảnh nếu chưa được phân loại)
-                        boolean isLargeEnough = object.getBoundingBox().width() > (imageWidth * 0.2f);
-
-                        // Điều kiện: Đã phân loại HOẶC Là vật thể lớn
-                        if (isClassified || (object.getLabels().isEmpty() && isLargeEnough)) {
-                            filteredObjects.add(object);
-                        }
+    /**
+     * Ghi frame nguyên vẹn (trước khi cắt ROI) vào file ghi hình trong thư mục captures.
+     */
+    private void recordFrame(ImageProxy imageProxy, long timestampNanos) {
+        try {
+            if (frameRecorder == null) {
+                File directory = new File(getExternalFilesDir(null), "captures");
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Cannot create " + directory);
+                }
+                File file = new File(directory, "capture-" + System.currentTimeMillis() + ".yuv");
+                frameRecorder = new FrameRecorder(file);
+                Log.i(TAG, "Recording frames to " + file);
+            }
+            ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+            frameRecorder.appendYuv(timestampNanos, imageProxy.getWidth(), imageProxy.getHeight(),
+                    imageProxy.getImageInfo().getRotationDegrees(),
+                    planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                    planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride());
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Frame recording failed, recording stopped", e);
+            recordingFailed = true;
+            closeRecorder();
+        }
+    }
+
+    private void closeDetector() {
+        if (framePipeline != null) {
+            framePipeline.close();
+        }
+        if (modelExecutor != null) {
+            modelExecutor.shutdown();
+        }
+    }
+
+    private void closeDetectionLog() {
+        if (detectionLog == null) {
+            return;
+        }
+        try {
+            detectionLog.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close detection log", e);
+        }
+        detectionLog = null;
+    }
+
+    private void closeRecorder() {
+        if (frameRecorder == null) {
+            return;
+        }
+        try {
+            frameRecorder.close();
+            Log.i(TAG, "Recorded " + frameRecorder.getFrameCount() + " frames");
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close frame recorder", e);
+        }
+        frameRecorder = null;
+    }
+
+    /**
+     * Quy timestamp camera về đồng hồ {@link System#nanoTime()} (đồng hồ của Choreographer).
+     * Tùy thiết bị, cảm biến dùng CLOCK_MONOTONIC hoặc CLOCK_BOOTTIME ({@link SystemClock#elapsedRealtimeNanos()}).
+     */
+    private static long toMonotonicNanos(long sensorTimestampNanos) {
+        long monotonicNow = System.nanoTime();
+        long boottimeNow = SystemClock.elapsedRealtimeNanos();
+        if (Math.abs(boottimeNow - sensorTimestampNanos) < Math.abs(monotonicNow - sensorTimestampNanos)) {
+            return sensorTimestampNanos - (boottimeNow - monotonicNow);
+        }
+        return sensorTimestampNanos;
+    }
+
+    /**
+     * Stage preprocess: đọc các plane của ImageProxy tại chỗ (theo row/pixel stride) và ghi NV21
+     * vào một buffer trực tiếp lấy từ pool. Ở chế độ ROI chỉ vùng quanh các vật thể gần đây được
+     * cắt ra; khi camera trả frame lớn hơn bậc phân giải đang chọn, ảnh được thu nhỏ về bậc đó.
+     * ImageProxy được đóng ngay sau khi sao chép, nên detector chậm hay phân loại nền không giữ
+     * ảnh camera; buffer NV21 về lại pool khi frame được trả (sau detector cuối cùng và mọi lượt
+     * giữ). RoiDetector quy đổi kết quả.
+     */
+    @androidx.camera.core.ExperimentalGetImage
+    private RegionImage<InputImage> toRegionImage(Frame<ImageProxy> frame) {
+        ImageProxy imageProxy = frame.getImage();
+        int rotation = frame.getRotationDegrees();
+        CropRegion crop = regionOfInterest.select(frame.getTimestampNanos(),
+                frame.getUprightWidth(), frame.getUprightHeight());
+
+        // Vùng cắt trong tọa độ buffer cảm biến, căn chẵn cho lấy mẫu màu 4:2:0
+        CropRegion sensorCrop = crop.uprightToSensor(rotation, frame.getWidth(), frame.getHeight())
+                .alignEven(frame.getWidth(), frame.getHeight());
+        float factor = Math.min(1f, (float) resolutionLadder.getRung().getShortSide()
+                / Math.min(frame.getWidth(), frame.getHeight()));
+        int outWidth = Math.max(2, Math.round(sensorCrop.width() * factor) & ~1);
+        int outHeight = Math.max(2, Math.round(sensorCrop.height() * factor) & ~1);
+
+        int size = YuvCropper.nv21Size(outWidth, outHeight);
+        ByteBuffer pooled = bufferPool.acquire(size);
+        ByteBuffer nv21;
+        if (pooled != null) {
+            frame.addReleaser(() -> bufferPool.release(pooled));
+            nv21 = pooled;
+        } else {
+            // Mọi buffer đều đang dùng (hiếm, pool lớn hơn số frame đồng thời): dùng buffer tạm
+            nv21 = ByteBuffer.allocate(size);
+        }
+        try {
+            ImageProxy.PlaneProxy[] planes = imageProxy.getPlanes();
+            YuvCropper.scaleToNv21(
+                    planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                    planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride(),
+                    sensorCrop, outWidth, outHeight, nv21);
+        } finally {
+            // Ảnh đã nằm trong buffer NV21: trả ImageProxy cho camera ngay (cả khi dùng buffer tạm)
+            frame.releaseSource();
+        }
+        nv21.flip();
+        InputImage image = InputImage.fromByteBuffer(nv21, outWidth, outHeight, rotation, InputImage.IMAGE_FORMAT_NV21);
+        // Tỷ lệ riêng cho từng trục vì kích thước ra được làm tròn chẵn riêng từng chiều
+        boolean rotated = rotation % 180 != 0;
+        return new RegionImage<>(image, sensorCrop.sensorToUpright(rotation, frame.getWidth(), frame.getHeight()),
+                rotated ? outHeight : outWidth, rotated ? outWidth : outHeight);
+    }
+
+    /**
+     * Nhận kết quả trên luồng pipeline (analyzer hoặc detector): giao cho overlay không qua
+     * Luồng chính, rồi xử lý các việc nền của keyframe.
+     */
+    private void onDetectionResult(DetectionResult result) {
+        resultHandoff.onResult(result);
+
+        // Đổi nấc độ phân giải theo kích thước vật thể (chỉ dựa trên kết quả thật của detector)
+        if (result.isKeyframe()) {
+            boolean rotated = result.getRotationDegrees() % 180 != 0;
+            int uprightWidth = rotated ? result.getImageHeight() : result.getImageWidth();
+            int uprightHeight = rotated ? result.getImageWidth() : result.getImageHeight();
+            if (resolutionLadder.onResult(result.getDetections(), uprightWidth, uprightHeight)) {
+                runOnUiThread(this::rebindImageAnalysis);
+            }
+            occupancyAnalytics.onResult(result.getDetections(), result.getTimestampNanos());
+            SnapshotSaver saver = snapshotSaver;
+            if (saver != null && !result.getDetections().isEmpty()) {
+                // Hàng ghi đầy: bỏ ảnh này (track không bị tính là đã chụp), không chặn luồng pipeline
+                Detection target = snapshotTrigger.onResult(result.getDetections(), result.getTimestampNanos(), saver);
+                if (target != null) {
+                    long epochMillis = System.currentTimeMillis();
+                    runOnUiThread(() -> takeSnapshot(saver, target, epochMillis));
+                }
+            }
+            if (detectionLogExecutor != null && !detectionLogFailed && !result.getDetections().isEmpty()) {
+                // Timestamp theo đồng hồ thực để log giữ thứ tự qua các lần chạy
+                long epochNanos = System.currentTimeMillis() * 1_000_000L
+                        + (result.getTimestampNanos() - System.nanoTime());
+                detectionLogExecutor.execute(() -> logDetections(epochNanos, result.getDetections()));
+            }
+        }
+    }
+
+    /**
+     * Overlay vừa áp dụng một snapshot mới, trên luồng vẽ của overlay (Luồng chính tại vsync,
+     * hoặc luồng render của SurfaceOverlayView).
+     */
+    private void onResultShown(DetectionSnapshot snapshot) {
+        if (snapshot.size() > 0 && startup.mark(MILESTONE_FIRST_BOX)) {
+            Log.i(TAG, "Cold start\n" + startup.format());
+        }
+        shownObjectCount = snapshot.size();
+        shownFrames.incrementAndGet();
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            showResult.run();
+        } else if (shownUpdatePending.compareAndSet(false, true)) {
+            // Luồng render không chạm vào View: gộp các lần cập nhật thành một tác vụ trên Luồng chính
+            runOnUiThread(showResult);
+        }
+    }
+
+    /**
+     * Mở thư mục snapshots (luồng snapshotExecutor); lỗi chỉ tắt snapshot.
+     */
+    private void openSnapshotStore() {
+        try {
+            SnapshotStore store = new SnapshotStore(new File(getExternalFilesDir(null), "snapshots"),
+                    SNAPSHOT_MAX_FILES, SNAPSHOT_MAX_BYTES);
+            snapshotSaver = new SnapshotSaver(store, SNAPSHOT_MAX_PENDING);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Cannot open snapshot store, snapshots disabled", e);
+        }
+    }
+
+    /**
+     * Chụp ảnh cho vật thể đã kích hoạt (Luồng chính, chỗ đã được giữ trong {@code saver}).
+     * Ảnh JPEG được ghi ra file trên snapshotExecutor rồi trả chỗ.
+     */
+    private void takeSnapshot(SnapshotSaver saver, Detection target, long epochMillis) {
+        ImageCapture capture = imageCapture;
+        if (capture == null) {
+            saver.cancel();
+            return;
+        }
+        List<Detection.Label> labels = target.getLabels();
+        String tag = (labels.isEmpty() ? "object" : labels.get(0).getText())
+                + (target.getTrackingId() != null ? "-" + target.getTrackingId() : "");
+        try {
+            capture.takePicture(snapshotExecutor, new ImageCapture.OnImageCapturedCallback() {
+                @Override
+                public void onCaptureSuccess(@NonNull ImageProxy image) {
+                    try {
+                        saver.save(epochMillis, tag, image.getPlanes()[0].getBuffer());
+                    } catch (IOException | RuntimeException e) {
+                        Log.e(TAG, "Failed to save snapshot", e);
+                    } finally {
+                        image.close();
                     }
+                }
+
+                @Override
+                public void onError(@NonNull ImageCaptureException e) {
+                    saver.cancel();
+                    Log.w(TAG, "Snapshot capture failed", e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor đã dừng (Activity đang hủy)
+            saver.cancel();
+        }
+    }
 
-                    // Log kiểm tra
-                    Log.d(TAG, "Detection: " + filteredObjects.size() + " objects");
-
-                    // Cập nhật giao diện trên Luồng chính (Main Thread)
-                    final int count = filteredObjects.size();
-                    runOnUiThread(() -> {
-                        graphicOverlay.setDetectionResults(filteredObjects, imageWidth, imageHeight, rotation);
-                        objectCountTextView.setText(count + " vật thể");
-                        updateFps();
-                    });
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Detection failed", e))
-                .addOnCompleteListener(task -> imageProxy.close()); // Quan trọng: Đóng frame ảnh để nhận frame tiếp theo
+    /**
+     * Ghi các vật thể đã lọc vào log nhị phân trong thư mục detections (luồng detectionLogExecutor).
+     */
+    private void logDetections(long epochNanos, List<Detection> detections) {
+        if (detectionLogFailed) {
+            return;
+        }
+        try {
+            if (detectionLog == null) {
+                detectionLog = new DetectionLog(new File(getExternalFilesDir(null), "detections"),
+                        DetectionLog.DEFAULT_RECORDS_PER_SEGMENT, DETECTION_LOG_MAX_SEGMENTS);
+            }
+            detectionLog.append(epochNanos, detections);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Detection log failed, logging stopped", e);
+            detectionLogFailed = true;
+            closeDetectionLog();
+        }
+    }
+
+    /**
+     * Cập nhật bộ đếm vật thể (Luồng chính), tối đa mỗi {@link #ANALYTICS_UI_INTERVAL_MS}: số vật
+     * thể đang hiện, số track mới trong phút qua và số vật thể lớn nhất cùng lúc.
+     */
+    private void updateObjectCount() {
+        long now = System.nanoTime();
+        if (lastCountUpdateNanos != Long.MIN_VALUE
+                && now - lastCountUpdateNanos < TimeUnit.MILLISECONDS.toNanos(ANALYTICS_UI_INTERVAL_MS)) {
+            return;
+        }
+        lastCountUpdateNanos = now;
+        OccupancyAnalytics.Snapshot snapshot = occupancyAnalytics.snapshot(now);
+        countText.setLength(0);
+        countText.append(shownObjectCount).append(" vật thể · ")
+                .append(snapshot.getUniqueTotal()).append("/phút · đỉnh ").append(snapshot.getPeakTotal());
+        objectCountTextView.setText(countText);
     }
 
     /**
-     * Cập nhật bộ đếm FPS.
+     * Cập nhật HUD hiệu năng mỗi giây: FPS kết quả, frame bị bỏ và p50/p95/p99/max từng stage
+     * trong cửa sổ 1 giây vừa qua.
      */
-    private void updateFps() {
-        frameCount++;
+    private void updateHud() {
         long currentTime = System.currentTimeMillis();
-        long elapsedTime = currentTime - lastFpsUpdateTime;
+        long elapsedTime = currentTime - lastHudUpdateTime;
+        if (elapsedTime < 1000) {
+            return;
+        }
+
+        float fps = shownFrames.getAndSet(0) * 1000f / elapsedTime;
+        lastHudUpdateTime = currentTime;
+
+        StringBuilder hud = new StringBuilder(512);
+        hud.append(String.format(Locale.US, "FPS %.1f  N=%d  bỏ: camera %d, pipeline %d, UI %d%n",
+                fps, framePipeline.getKeyframeInterval(), pipelineMetrics.getCameraDroppedFrames(),
+                framePipeline.getDroppedCount(), resultHandoff.getDroppedCount()));
+        hud.append("Chất lượng: ").append(qualityGovernor.getLevel())
+                .append("  buffer: cấp ").append(bufferPool.getAllocationCount())
+                .append(", thiếu ").append(bufferPool.getMissCount()).append('\n');
+        SnapshotSaver saver = snapshotSaver;
+        if (saver != null) {
+            hud.append("Ảnh: lưu ").append(saver.getSavedCount())
+                    .append(", bỏ ").append(saver.getDroppedCount())
+                    .append(", lỗi ").append(saver.getFailedCount()).append('\n');
+        }
+        appendClassCounts(hud, occupancyAnalytics.snapshot(System.nanoTime()));
+        hud.append(String.format(Locale.US, "%-16s %5s %5s %5s %5s", "ms", "p50", "p95", "p99", "max"));
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = pipelineMetrics.histogram(stage).snapshotAndReset();
+            hud.append(String.format(Locale.US, "%n%-16s %5.1f %5.1f %5.1f %5.1f", stage.getLabel(),
+                    snapshot.getPercentileNanos(0.50) / 1e6, snapshot.getPercentileNanos(0.95) / 1e6,
+                    snapshot.getPercentileNanos(0.99) / 1e6, snapshot.getMaxNanos() / 1e6));
+        }
+        perfHudTextView.setText(hud);
+    }
 
-        if (elapsedTime >= 1000) {
-            float fps = frameCount * 1000f / elapsedTime;
-            fpsTextView.setText(String.format("FPS: %.1f", fps));
-            frameCount = 0;
-            lastFpsUpdateTime = currentTime;
+    /**
+     * Một dòng cho mỗi lớp đã thấy trong phút qua: hiện tại, track mới/phút, đỉnh, thời gian ở trung bình.
+     */
+    private static void appendClassCounts(StringBuilder hud, OccupancyAnalytics.Snapshot snapshot) {
+        for (int label = OccupancyAnalytics.UNLABELED; label <= snapshot.getMaxLabels(); label++) {
+            int labelIndex = label == snapshot.getMaxLabels() ? OccupancyAnalytics.OTHER : label;
+            if (snapshot.getUniqueCount(labelIndex) == 0 && snapshot.getCurrentCount(labelIndex) == 0) {
+                continue;
+            }
+            String text = snapshot.getLabelText(labelIndex);
+            hud.append(String.format(Locale.US, "%-12s %2d  %3d/phút  đỉnh %2d  ở %4.1f s%n",
+                    text != null ? LabelCatalog.translate(text) : LabelCatalog.DEFAULT_LABEL,
+                    snapshot.getCurrentCount(labelIndex), snapshot.getUniqueCount(labelIndex),
+                    snapshot.getPeakOccupancy(labelIndex), snapshot.getMeanDwellNanos(labelIndex) / 1e9));
         }
     }
 
+    /**
+     * Xuất các sự kiện trace gần đây ra file JSON (luồng nền, không ảnh hưởng pipeline).
+     */
+    private void exportTrace() {
+        File directory = new File(getExternalFilesDir(null), "traces");
+        File file = new File(directory, "trace-" + System.currentTimeMillis() + ".json");
+        long now = System.nanoTime();
+        new Thread(() -> {
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Cannot create " + directory);
+                }
+                int events;
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                    events = TraceExporter.writeChromeTrace(frameTracer, now, TRACE_EXPORT_WINDOW_NANOS, writer);
+                }
+                Log.i(TAG, "Trace exported: " + file + " (" + events + " events)");
+                runOnUiThread(() -> Toast.makeText(this, "Trace: " + file.getName(), Toast.LENGTH_SHORT).show());
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to export trace", e);
+            }
+        }, "TraceExport").start();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
         
         if (cameraExecutor != null) {
+            // Đóng file ghi hình trên luồng analyzer, sau frame cuối cùng
+            cameraExecutor.execute(this::closeRecorder);
             cameraExecutor.shutdown();
         }
 
-        if (objectDetector != null) {
-            objectDetector.close();
+        if (startup != null) {
+            // Detector có thể vẫn đang được tạo trên luồng startup: đóng khi bước đó kết thúc
+            startup.stepFuture(STEP_DETECTOR).whenComplete((ignored, error) -> closeDetector());
+        }
+
+        if (startupExecutor != null) {
+            startupExecutor.shutdown();
+        }
+
+        if (detectorExecutor != null) {
+            detectorExecutor.shutdown();
+        }
+
+        if (detectionLogExecutor != null) {
+            detectionLogExecutor.execute(this::closeDetectionLog);
+            detectionLogExecutor.shutdown();
+        }
+
+        if (snapshotExecutor != null) {
+            // Các ảnh đang ghi được ghi xong
+            snapshotExecutor.shutdown();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.example.cameraod;
+
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.Detector;
+import com.example.cameraod.pipeline.Frame;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.objects.DetectedObject;
+import com.google.mlkit.vision.objects.ObjectDetector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Detector} backed by an ML Kit {@link ObjectDetector}.
+ * Blocks the calling pipeline thread until ML Kit delivers the result.
+ */
+public class MlKitDetector implements Detector<InputImage> {
+
+    private final ObjectDetector objectDetector;
+
+    public MlKitDetector(ObjectDetector objectDetector) {
+        this.objectDetector = objectDetector;
+    }
+
+    @Override
+    public List<Detection> detect(Frame<InputImage> frame) throws Exception {
+        List<DetectedObject> objects = Tasks.await(objectDetector.process(frame.getImage()));
+
+        // Chuyển DetectedObject của ML Kit sang kiểu Java thuần
+        List<Detection> detections = new ArrayList<>(objects.size());
+        for (DetectedObject object : objects) {
+            List<Detection.Label> labels = new ArrayList<>(object.getLabels().size());
+            for (DetectedObject.Label label : object.getLabels()) {
+                labels.add(new Detection.Label(label.getText(), label.getIndex(), label.getConfidence()));
+            }
+            detections.add(new Detection(
+                    object.getBoundingBox().left, object.getBoundingBox().top,
+                    object.getBoundingBox().right, object.getBoundingBox().bottom,
+                    object.getTrackingId(), labels));
+        }
+        return detections;
+    }
+
+    @Override
+    public void close() {
+        objectDetector.close();
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.cameraod;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import com.example.cameraod.metrics.FrameTracer;
+import com.example.cameraod.metrics.PipelineMetrics;
+import com.example.cameraod.overlay.BoxTracker;
+import com.example.cameraod.overlay.ViewTransform;
+import com.example.cameraod.pipeline.DetectionSnapshot;
+import com.example.cameraod.pipeline.ResultHandoff;
+
+/**
+ * Overlay backend that draws on its own transparent surface from a dedicated render thread.
+ * Features:
+ * - Polling, animation and drawing all run on the render thread, paced by that thread's
+ *   Choreographer, so layout, input and HUD work on the UI thread cannot delay box updates
+ * - Results come only through a {@link ResultHandoff}; the pipeline wakes the render thread
+ *   directly, with no message on the main looper per result
+ * - Stops rendering entirely once every box has settled and the surface is clear
+ * - Hardware-accelerated canvas on API 26+
+ * <p>
+ * The tracker, transform and renderer are confined to the render thread; every call from
+ * the UI thread is posted to it.
+ */
+public class SurfaceOverlayView extends SurfaceView implements SurfaceHolder.Callback, DetectionOverlay {
+
+    private static final String TAG = "SurfaceOverlayView";
+    private static final long JOIN_TIMEOUT_MS = 500;
+
+    // Chỉ dùng trên luồng render
+    private final BoxRenderer renderer = new BoxRenderer();
+    private final BoxTracker boxTracker = new BoxTracker(BoxRenderer.PALETTE_SIZE);
+    private final ViewTransform viewTransform = new ViewTransform();
+    private final Choreographer.FrameCallback frameCallback = this::onFrame;
+    private Choreographer choreographer;
+    private boolean frameScheduled = false;
+    private boolean surfaceReady = false;
+    private boolean surfaceDirty = false; // Frame trước đã vẽ hộp lên surface
+    private long lastSequence = -1;
+
+    // Luồng render, tạo khi surface sẵn sàng và dừng khi surface bị hủy
+    private HandlerThread renderThread;
+    private volatile Handler renderHandler;
+
+    // Cấu hình từ Luồng chính, đọc trên luồng render
+    private volatile ResultHandoff resultHandoff;
+    private volatile ResultListener resultListener;
+    private volatile PipelineMetrics metrics;
+    private volatile FrameTracer tracer;
+
+    private final Runnable scheduleFrame = this::scheduleFrame;
+    // Chạy trên luồng pipeline: chỉ post sang luồng render (nếu đang chạy)
+    private final Runnable postWakeUp = () -> {
+        Handler handler = renderHandler;
+        if (handler != null) {
+            handler.post(scheduleFrame);
+        }
+    };
+    private final Runnable fadeOutAll = () -> {
+        boxTracker.fadeOutAll();
+        scheduleFrame();
+    };
+
+    public SurfaceOverlayView(Context context) {
+        this(context, null);
+    }
+
+    public SurfaceOverlayView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public SurfaceOverlayView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        // Surface trong suốt, nằm trên surface của PreviewView
+        SurfaceHolder holder = getHolder();
+        holder.setFormat(PixelFormat.TRANSLUCENT);
+        holder.addCallback(this);
+        setZOrderMediaOverlay(true);
+    }
+
+    /**
+     * Lấy kết quả từ {@code handoff} tại mỗi frame của luồng render; listener cũng chạy
+     * trên luồng render.
+     */
+    @Override
+    public void setResultHandoff(ResultHandoff handoff, ResultListener listener) {
+        if (resultHandoff != null) {
+            resultHandoff.setWakeUp(null);
+        }
+        resultListener = listener;
+        resultHandoff = handoff;
+        if (handoff != null) {
+            handoff.setWakeUp(postWakeUp);
+            // Kết quả đến trước khi gắn wake-up: nhận lại ở frame đầu tiên
+            postWakeUp.run();
+        }
+    }
+
+    @Override
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void setTracer(FrameTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void setEffects(boolean glow, boolean cornerAccents) {
+        renderer.setEffects(glow, cornerAccents);
+    }
+
+    @Override
+    public void clear() {
+        Handler handler = renderHandler;
+        if (handler != null) {
+            handler.post(fadeOutAll);
+        }
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        renderThread = new HandlerThread("OverlayRender", Process.THREAD_PRIORITY_DISPLAY);
+        renderThread.start();
+        Handler handler = new Handler(renderThread.getLooper());
+        handler.post(() -> {
+            // Choreographer gắn với Looper của luồng gọi
+            choreographer = Choreographer.getInstance();
+            surfaceReady = true;
+            scheduleFrame();
+        });
+        renderHandler = handler;
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        Handler handler = renderHandler;
+        if (handler != null) {
+            handler.post(() -> {
+                viewTransform.setViewSize(width, height);
+                scheduleFrame();
+            });
+        }
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        Handler handler = renderHandler;
+        if (handler == null) {
+            return;
+        }
+        renderHandler = null;
+        handler.post(() -> {
+            surfaceReady = false;
+            surfaceDirty = false;
+            if (frameScheduled) {
+                choreographer.removeFrameCallback(frameCallback);
+                frameScheduled = false;
+            }
+            ResultHandoff handoff = resultHandoff;
+            if (handoff != null) {
+                // Lần đánh thức tiếp theo chỉ post khi luồng render mới đã chạy
+                handoff.onConsumerIdle();
+            }
+        });
+        // Surface chỉ hợp lệ tới khi hàm này trả về: chờ luồng render vẽ xong frame đang dở
+        renderThread.quitSafely();
+        try {
+            renderThread.join(JOIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Interrupted while stopping the render thread");
+        }
+        renderThread = null;
+    }
+
+    private void scheduleFrame() {
+        if (surfaceReady && !frameScheduled) {
+            frameScheduled = true;
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Callback vsync trên luồng render: lấy kết quả mới, chạy animation và vẽ lên surface.
+     */
+    private void onFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (!surfaceReady) {
+            return;
+        }
+        pollResult();
+
+        if (boxTracker.isEmpty() && !surfaceDirty) {
+            goIdle();
+            return;
+        }
+        long drawStart = System.nanoTime();
+        boolean stillAnimating = boxTracker.animate(frameTimeNanos);
+
+        Canvas canvas;
+        try {
+            canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                    ? getHolder().lockHardwareCanvas()
+                    : getHolder().lockCanvas();
+        } catch (IllegalStateException e) {
+            // Surface vừa bị hủy, surfaceDestroyed sẽ dừng luồng render
+            return;
+        }
+        if (canvas == null) {
+            // Surface chưa sẵn sàng: thử lại ở vsync sau, nếu không handoff sẽ coi luồng render vẫn bận
+            scheduleFrame();
+            return;
+        }
+        try {
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            renderer.draw(canvas, boxTracker);
+        } finally {
+            getHolder().unlockCanvasAndPost(canvas);
+        }
+        // Còn hộp thì frame sau phải xóa chúng; rỗng thì surface đã sạch
+        surfaceDirty = !boxTracker.isEmpty();
+
+        if (stillAnimating) {
+            scheduleFrame();
+        } else {
+            goIdle();
+        }
+
+        long drawEnd = System.nanoTime();
+        PipelineMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.record(PipelineMetrics.Stage.DRAW, drawEnd - drawStart);
+        }
+        FrameTracer tracer = this.tracer;
+        if (tracer != null) {
+            tracer.record(FrameTracer.Stage.DRAW, lastSequence, drawStart, drawEnd, boxTracker.size());
+        }
+    }
+
+    private void pollResult() {
+        ResultHandoff handoff = resultHandoff;
+        if (handoff == null) {
+            return;
+        }
+        DetectionSnapshot snapshot = handoff.poll();
+        if (snapshot == null) {
+            return;
+        }
+        viewTransform.setImageSize(snapshot.getImageWidth(), snapshot.getImageHeight(),
+                snapshot.getRotationDegrees());
+        lastSequence = snapshot.getSequence();
+        boxTracker.update(snapshot, viewTransform, System.currentTimeMillis());
+        ResultListener listener = resultListener;
+        if (listener != null) {
+            listener.onResultShown(snapshot);
+        }
+    }
+
+    private void goIdle() {
+        ResultHandoff handoff = resultHandoff;
+        if (handoff != null && handoff.onConsumerIdle()) {
+            scheduleFrame();
+        }
+    }
+}
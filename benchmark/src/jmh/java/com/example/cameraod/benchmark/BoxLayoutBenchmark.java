@@ -0,0 +1,158 @@
+package com.example.cameraod.benchmark;
+
+import com.example.cameraod.overlay.AnimatedBox;
+import com.example.cameraod.overlay.BoxArrays;
+import com.example.cameraod.overlay.BoxRect;
+import com.example.cameraod.overlay.Smoothing;
+import com.example.cameraod.overlay.ViewTransform;
+import com.example.cameraod.pipeline.Detection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Overlay hot loops with the previous per-object box layout (one heap object
+ * per box with its own rectangles) against the structure-of-arrays
+ * {@link BoxArrays}: coordinate transform of a frame and one lerp/fade step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class BoxLayoutBenchmark {
+
+    private static final int RETARGET_INTERVAL = 32; // Đổi đích định kỳ để hộp không đứng yên
+
+    @Param({"10", "100", "500", "2000"})
+    public int boxCount;
+
+    /**
+     * Hộp theo bố cục cũ: trạng thái nằm trong đối tượng riêng và hai BoxRect riêng.
+     */
+    static final class ObjectBox {
+        final BoxRect currentRect = new BoxRect();
+        final BoxRect targetRect = new BoxRect();
+        float alpha = 0f;
+        float targetAlpha = 1f;
+
+        boolean animate(float positionFactor, float fadeFactor) {
+            currentRect.left = approach(currentRect.left, targetRect.left, positionFactor, AnimatedBox.SETTLE_DISTANCE);
+            currentRect.top = approach(currentRect.top, targetRect.top, positionFactor, AnimatedBox.SETTLE_DISTANCE);
+            currentRect.right = approach(currentRect.right, targetRect.right, positionFactor,
+                    AnimatedBox.SETTLE_DISTANCE);
+            currentRect.bottom = approach(currentRect.bottom, targetRect.bottom, positionFactor,
+                    AnimatedBox.SETTLE_DISTANCE);
+            alpha = approach(alpha, targetAlpha, fadeFactor, AnimatedBox.SETTLE_ALPHA);
+            return alpha != targetAlpha
+                    || currentRect.left != targetRect.left
+                    || currentRect.top != targetRect.top
+                    || currentRect.right != targetRect.right
+                    || currentRect.bottom != targetRect.bottom;
+        }
+
+        private static float approach(float start, float end, float factor, float epsilon) {
+            float value = start + (end - start) * factor;
+            return Math.abs(end - value) < epsilon ? end : value;
+        }
+    }
+
+    private final ViewTransform transform = new ViewTransform();
+    private final float positionFactor = Smoothing.factor(AnimatedBox.LERP_FACTOR, Smoothing.REFERENCE_FRAME_NANOS);
+    private final float fadeFactor = Smoothing.factor(AnimatedBox.FADE_SPEED, Smoothing.REFERENCE_FRAME_NANOS);
+    private List<Detection> detections;
+    private ObjectBox[] objectBoxes;
+    private BoxArrays arrays;
+    private float[] left;
+    private float[] top;
+    private float[] right;
+    private float[] bottom;
+    private int frame;
+
+    @Setup
+    public void setUp() {
+        transform.setViewSize(1080, 2400);
+        transform.setImageSize(SyntheticDetections.IMAGE_WIDTH, SyntheticDetections.IMAGE_HEIGHT, 90);
+        detections = SyntheticDetections.stream(1, boxCount, 42L, true).get(0);
+
+        // Hộp được tạo/tái chế dần theo thời gian: thứ tự duyệt không trùng thứ tự cấp phát
+        List<ObjectBox> allocated = new ArrayList<>();
+        for (int i = 0; i < boxCount; i++) {
+            allocated.add(new ObjectBox());
+        }
+        Collections.shuffle(allocated, new Random(7));
+        objectBoxes = allocated.toArray(new ObjectBox[0]);
+
+        arrays = new BoxArrays(boxCount);
+        left = new float[boxCount];
+        top = new float[boxCount];
+        right = new float[boxCount];
+        bottom = new float[boxCount];
+        for (int i = 0; i < boxCount; i++) {
+            arrays.resetRow(i);
+            arrays.setPositionFactor(i, positionFactor);
+        }
+        retarget(0f);
+    }
+
+    private void retarget(float shift) {
+        for (int i = 0; i < boxCount; i++) {
+            Detection object = detections.get(i);
+            transform.transform(object, objectBoxes[i].targetRect);
+            BoxRect target = objectBoxes[i].targetRect;
+            target.left += shift;
+            target.right += shift;
+            arrays.setTarget(i, target.left, target.top, target.right, target.bottom);
+        }
+    }
+
+    private void maybeRetarget() {
+        if (++frame % RETARGET_INTERVAL == 0) {
+            retarget((frame / RETARGET_INTERVAL) % 2 == 0 ? 0f : 40f);
+        }
+    }
+
+    @Benchmark
+    public float transformPerObject() {
+        for (int i = 0; i < boxCount; i++) {
+            transform.transform(detections.get(i), objectBoxes[i].targetRect);
+        }
+        return objectBoxes[boxCount - 1].targetRect.left;
+    }
+
+    @Benchmark
+    public float transformArrays() {
+        for (int i = 0; i < boxCount; i++) {
+            Detection object = detections.get(i);
+            left[i] = object.getLeft();
+            top[i] = object.getTop();
+            right[i] = object.getRight();
+            bottom[i] = object.getBottom();
+        }
+        transform.transform(boxCount, left, top, right, bottom);
+        return left[boxCount - 1];
+    }
+
+    @Benchmark
+    public boolean animatePerObject() {
+        maybeRetarget();
+        boolean moving = false;
+        for (ObjectBox box : objectBoxes) {
+            moving |= box.animate(positionFactor, fadeFactor);
+        }
+        return moving;
+    }
+
+    @Benchmark
+    public boolean animateArrays() {
+        maybeRetarget();
+        return arrays.animate(boxCount, fadeFactor) > 0;
+    }
+}
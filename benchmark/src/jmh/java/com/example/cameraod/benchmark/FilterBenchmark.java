@@ -0,0 +1,74 @@
+package com.example.cameraod.benchmark;
+
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.DetectionFilter;
+import com.example.cameraod.pipeline.FilterEngine;
+import com.example.cameraod.pipeline.FilterRules;
+import com.example.cameraod.pipeline.SmartFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Confidence/size "smart filter" that {@code MainActivity} applies to every frame,
+ * against the table-driven {@link FilterEngine} with the same rules and with a
+ * full rule set (per-class thresholds, shape, region, max per class, top-K).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class FilterBenchmark {
+
+    private static final int FRAME_COUNT = 64;
+
+    @Param({"5", "50", "200", "500"})
+    public int objectCount;
+
+    private List<List<Detection>> frames;
+    private final DetectionFilter filter = new SmartFilter(0.3f);
+    private final FilterEngine smartEngine = new FilterEngine(FilterRules.smartDefault(0.3f));
+    private final FilterEngine fullEngine = new FilterEngine(new FilterRules.Builder()
+            .setMinConfidence(0.3f)
+            .setMinConfidence(FilterRules.UNLABELED, 0f)
+            .setMinConfidence(2, 0.5f)
+            .setRelativeWidth(0.02f, 0.9f)
+            .setRelativeWidth(FilterRules.UNLABELED, 0.2f, 1f)
+            .setAspectRatio(0.1f, 10f)
+            .setRegion(0.05f, 0.05f, 0.95f, 0.95f)
+            .setMaxPerClass(20)
+            .setTopK(50)
+            .build());
+    private int[] kept;
+    private int frameIndex;
+
+    @Setup
+    public void setUp() {
+        frames = SyntheticDetections.stream(FRAME_COUNT, objectCount, 7L);
+        kept = new int[objectCount];
+    }
+
+    @Benchmark
+    public List<Detection> smartFilter() {
+        List<Detection> frame = frames.get(frameIndex++ & (FRAME_COUNT - 1));
+        return filter.filter(frame, SyntheticDetections.IMAGE_WIDTH, SyntheticDetections.IMAGE_HEIGHT);
+    }
+
+    @Benchmark
+    public List<Detection> filterEngineSmartRules() {
+        List<Detection> frame = frames.get(frameIndex++ & (FRAME_COUNT - 1));
+        return smartEngine.filter(frame, SyntheticDetections.IMAGE_WIDTH, SyntheticDetections.IMAGE_HEIGHT);
+    }
+
+    @Benchmark
+    public int filterEngineFullRules() {
+        List<Detection> frame = frames.get(frameIndex++ & (FRAME_COUNT - 1));
+        // Đường không cấp phát: chỉ số các vật thể được giữ
+        return fullEngine.filter(frame, SyntheticDetections.IMAGE_WIDTH, SyntheticDetections.IMAGE_HEIGHT, kept);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.cameraod.benchmark;
+
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.DetectionMerger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cross-model merge of two detectors' outputs (the same objects, slightly shifted):
+ * the grid-bucketed {@link DetectionMerger} against a plain sort-then-compare-with-
+ * every-kept-box NMS.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class MergeBenchmark {
+
+    private static final float IOU_THRESHOLD = DetectionMerger.DEFAULT_IOU_THRESHOLD;
+
+    @Param({"10", "100", "500", "2000"})
+    public int objectCount;
+
+    private List<Detection> candidates;
+    private final DetectionMerger merger = new DetectionMerger(IOU_THRESHOLD);
+
+    @Setup
+    public void setUp() {
+        List<Detection> first = SyntheticDetections.stream(1, objectCount, 7L).get(0);
+        candidates = new ArrayList<>(first.size() * 2);
+        candidates.addAll(first);
+        // Model thứ hai thấy cùng vật thể, lệch vài pixel
+        for (Detection d : first) {
+            candidates.add(new Detection(d.getLeft() + 4, d.getTop() + 3, d.getRight() + 4, d.getBottom() + 3,
+                    null, d.getLabels()));
+        }
+    }
+
+    @Benchmark
+    public List<Detection> gridMerge() {
+        return merger.merge(candidates);
+    }
+
+    @Benchmark
+    public List<Detection> pairwiseMerge() {
+        List<Detection> sorted = new ArrayList<>(candidates);
+        sorted.sort((a, b) -> Float.compare(score(b), score(a)));
+        List<Detection> kept = new ArrayList<>();
+        for (Detection candidate : sorted) {
+            boolean suppressed = false;
+            for (int k = 0; k < kept.size() && !suppressed; k++) {
+                Detection other = kept.get(k);
+                suppressed = sameClass(other, candidate) && iou(other, candidate) > IOU_THRESHOLD;
+            }
+            if (!suppressed) {
+                kept.add(candidate);
+            }
+        }
+        return kept;
+    }
+
+    private static float score(Detection d) {
+        return d.getLabels().isEmpty() ? 0f : d.getLabels().get(0).getConfidence();
+    }
+
+    private static boolean sameClass(Detection a, Detection b) {
+        String labelA = a.getLabels().isEmpty() ? null : a.getLabels().get(0).getText();
+        String labelB = b.getLabels().isEmpty() ? null : b.getLabels().get(0).getText();
+        return labelA == null ? labelB == null : labelA.equals(labelB);
+    }
+
+    private static float iou(Detection a, Detection b) {
+        float w = Math.min(a.getRight(), b.getRight()) - Math.max(a.getLeft(), b.getLeft());
+        float h = Math.min(a.getBottom(), b.getBottom()) - Math.max(a.getTop(), b.getTop());
+        if (w <= 0f || h <= 0f) {
+            return 0f;
+        }
+        float intersection = w * h;
+        return intersection / ((float) a.width() * a.height() + (float) b.width() * b.height() - intersection);
+    }
+}
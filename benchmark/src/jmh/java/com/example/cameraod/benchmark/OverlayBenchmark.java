@@ -0,0 +1,123 @@
+package com.example.cameraod.benchmark;
+
+import com.example.cameraod.overlay.AnimatedBox;
+import com.example.cameraod.overlay.BoxRect;
+import com.example.cameraod.overlay.BoxTracker;
+import com.example.cameraod.overlay.LabelCatalog;
+import com.example.cameraod.overlay.Smoothing;
+import com.example.cameraod.overlay.ViewTransform;
+import com.example.cameraod.pipeline.Detection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Per-frame overlay work from {@code GraphicOverlay}: box matching in
+ * {@code setDetectionResults}, {@code transformRect}, label lookup and
+ * {@code AnimatedBox.animate}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class OverlayBenchmark {
+
+    private static final int FRAME_COUNT = 64;
+    private static final int PALETTE_SIZE = 6;
+
+    @Param({"5", "50", "200", "500"})
+    public int objectCount;
+
+    // false: không có tracking ID, hộp được ghép theo IoU / khoảng cách tâm
+    @Param({"true", "false"})
+    public boolean tracked;
+
+    private List<List<Detection>> frames;
+    private final ViewTransform transform = new ViewTransform();
+    private final BoxRect rect = new BoxRect();
+    private BoxTracker tracker;
+    private int frameIndex;
+    private long nowMillis;
+    private long frameTimeNanos;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        frames = SyntheticDetections.stream(FRAME_COUNT, objectCount, 42L, tracked);
+        transform.setViewSize(1080, 2400);
+        transform.setImageSize(SyntheticDetections.IMAGE_WIDTH, SyntheticDetections.IMAGE_HEIGHT, 90);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        tracker = new BoxTracker(PALETTE_SIZE);
+        frameIndex = 0;
+        nowMillis = 0;
+        frameTimeNanos = 0;
+        tracker.update(nextFrame(), transform, nowMillis);
+    }
+
+    /**
+     * Chạy tới rồi lùi qua luồng frame để vật thể không "nhảy" khi quay vòng.
+     */
+    private List<Detection> nextFrame() {
+        int index = frameIndex++ % (2 * FRAME_COUNT - 2);
+        return frames.get(index < FRAME_COUNT ? index : 2 * FRAME_COUNT - 2 - index);
+    }
+
+    /**
+     * Một lần cập nhật kết quả, kèm một bước animation như onDraw (để các hộp mờ hẳn được xóa).
+     */
+    @Benchmark
+    public int setDetectionResults() {
+        nowMillis += 33;
+        tracker.update(nextFrame(), transform, nowMillis);
+        tracker.animate(nowMillis * 1_000_000L);
+        return tracker.size();
+    }
+
+    @Benchmark
+    public void transformRect(Blackhole bh) {
+        List<Detection> frame = nextFrame();
+        for (int i = 0; i < frame.size(); i++) {
+            transform.transform(frame.get(i), rect);
+            bh.consume(rect.left);
+            bh.consume(rect.bottom);
+        }
+    }
+
+    @Benchmark
+    public void labelLookup(Blackhole bh) {
+        List<Detection> frame = nextFrame();
+        for (int i = 0; i < frame.size(); i++) {
+            List<Detection.Label> labels = frame.get(i).getLabels();
+            if (!labels.isEmpty()) {
+                Detection.Label top = labels.get(0);
+                bh.consume(LabelCatalog.translate(top.getText()));
+                bh.consume(LabelCatalog.colorIndexFor(top.getIndex()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void animateBoxes(Blackhole bh) {
+        float positionFactor = Smoothing.factor(AnimatedBox.LERP_FACTOR, Smoothing.REFERENCE_FRAME_NANOS);
+        float fadeFactor = Smoothing.factor(AnimatedBox.FADE_SPEED, Smoothing.REFERENCE_FRAME_NANOS);
+        for (int i = 0; i < tracker.size(); i++) {
+            AnimatedBox box = tracker.getBox(i);
+            bh.consume(box.animate(positionFactor, fadeFactor));
+        }
+    }
+
+    @Benchmark
+    public boolean animateFrame() {
+        frameTimeNanos += Smoothing.REFERENCE_FRAME_NANOS;
+        return tracker.animate(frameTimeNanos);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.cameraod.benchmark;
+
+import com.example.cameraod.pipeline.Detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic stream of detection frames: objects with stable tracking IDs
+ * drifting (and bouncing off the edges of) a 640x480 image, a mix of
+ * labelled and unlabelled boxes.
+ */
+final class SyntheticDetections {
+
+    static final int IMAGE_WIDTH = 640;
+    static final int IMAGE_HEIGHT = 480;
+
+    private static final String[] LABELS = {
+            "Food", "Home good", "Fashion good", "Place", "Plant", "Person", "Unknown"
+    };
+
+    private SyntheticDetections() {
+    }
+
+    /**
+     * @param frameCount  number of frames in the stream
+     * @param objectCount objects per frame
+     */
+    static List<List<Detection>> stream(int frameCount, int objectCount, long seed) {
+        return stream(frameCount, objectCount, seed, true);
+    }
+
+    /**
+     * @param tracked {@code false} to emit detections without tracking IDs
+     */
+    static List<List<Detection>> stream(int frameCount, int objectCount, long seed, boolean tracked) {
+        Random random = new Random(seed);
+        float[] x = new float[objectCount];
+        float[] y = new float[objectCount];
+        float[] vx = new float[objectCount];
+        float[] vy = new float[objectCount];
+        int[] size = new int[objectCount];
+        int[] labelIndex = new int[objectCount];
+        float[] confidence = new float[objectCount];
+        for (int i = 0; i < objectCount; i++) {
+            x[i] = random.nextFloat() * IMAGE_WIDTH;
+            y[i] = random.nextFloat() * IMAGE_HEIGHT;
+            vx[i] = random.nextFloat() * 8 - 4;
+            vy[i] = random.nextFloat() * 8 - 4;
+            size[i] = 20 + random.nextInt(200);
+            // Khoảng 1/4 vật thể không có nhãn
+            labelIndex[i] = random.nextInt(4) == 0 ? -1 : random.nextInt(LABELS.length);
+            confidence[i] = random.nextFloat();
+        }
+
+        List<List<Detection>> frames = new ArrayList<>(frameCount);
+        for (int f = 0; f < frameCount; f++) {
+            List<Detection> frame = new ArrayList<>(objectCount);
+            for (int i = 0; i < objectCount; i++) {
+                x[i] += vx[i];
+                y[i] += vy[i];
+                if (x[i] < 0 || x[i] >= IMAGE_WIDTH) {
+                    vx[i] = -vx[i];
+                    x[i] += 2 * vx[i];
+                }
+                if (y[i] < 0 || y[i] >= IMAGE_HEIGHT) {
+                    vy[i] = -vy[i];
+                    y[i] += 2 * vy[i];
+                }
+                int left = (int) x[i];
+                int top = (int) y[i];
+                List<Detection.Label> labels = labelIndex[i] < 0
+                        ? Collections.<Detection.Label>emptyList()
+                        : Collections.singletonList(
+                                new Detection.Label(LABELS[labelIndex[i]], labelIndex[i], confidence[i]));
+                frame.add(new Detection(left, top, left + size[i], top + size[i], tracked ? i : null, labels));
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+}
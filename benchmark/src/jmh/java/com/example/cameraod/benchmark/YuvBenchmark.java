@@ -0,0 +1,87 @@
+package com.example.cameraod.benchmark;
+
+import com.example.cameraod.pipeline.CropRegion;
+import com.example.cameraod.pipeline.DirectBufferPool;
+import com.example.cameraod.pipeline.YuvCropper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Preprocessing a 1280x720 YUV_420_888 frame (direct planes, padded rows,
+ * semi-planar chroma as delivered by most cameras) into NV21: a fresh byte
+ * array per frame as before, a pooled direct buffer, and a pooled direct buffer
+ * downscaled to 854x480.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class YuvBenchmark {
+
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int ROW_STRIDE = 1344; // Hàng có padding như trên thiết bị
+
+    /**
+     * "full" = cả frame, "roi" = vùng 640x360 giữa frame.
+     */
+    @Param({"full", "roi"})
+    public String region;
+
+    private ByteBuffer yPlane;
+    private ByteBuffer uPlane;
+    private ByteBuffer vPlane;
+    private CropRegion crop;
+    private final DirectBufferPool pool = new DirectBufferPool(4);
+
+    @Setup
+    public void setUp() {
+        yPlane = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        // U và V xen kẽ trong cùng vùng nhớ (pixel stride 2), mỗi plane thấy từ byte của nó
+        ByteBuffer chroma = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT / 2);
+        for (int i = 0; i < yPlane.capacity(); i++) {
+            yPlane.put(i, (byte) (i * 31));
+        }
+        for (int i = 0; i < chroma.capacity(); i++) {
+            chroma.put(i, (byte) (i * 17));
+        }
+        uPlane = chroma.duplicate();
+        chroma.position(1);
+        vPlane = chroma.slice();
+        crop = "full".equals(region) ? CropRegion.full(WIDTH, HEIGHT) : new CropRegion(320, 180, 960, 540);
+    }
+
+    @Benchmark
+    public byte[] freshByteArray() {
+        byte[] out = new byte[YuvCropper.nv21Size(crop.width(), crop.height())];
+        YuvCropper.cropToNv21(yPlane, ROW_STRIDE, 1, uPlane, vPlane, ROW_STRIDE, 2, crop, out);
+        return out;
+    }
+
+    @Benchmark
+    public int pooledDirect() {
+        ByteBuffer out = pool.acquire(YuvCropper.nv21Size(crop.width(), crop.height()));
+        YuvCropper.cropToNv21(yPlane, ROW_STRIDE, 1, uPlane, vPlane, ROW_STRIDE, 2, crop, out);
+        int written = out.position();
+        pool.release(out);
+        return written;
+    }
+
+    @Benchmark
+    public int pooledDirectDownscaled() {
+        int outWidth = (crop.width() * 2 / 3) & ~1;
+        int outHeight = (crop.height() * 2 / 3) & ~1;
+        ByteBuffer out = pool.acquire(YuvCropper.nv21Size(outWidth, outHeight));
+        YuvCropper.scaleToNv21(yPlane, ROW_STRIDE, 1, uPlane, vPlane, ROW_STRIDE, 2,
+                crop, outWidth, outHeight, out);
+        int written = out.position();
+        pool.release(out);
+        return written;
+    }
+}
@@ -0,0 +1,24 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+// Phát lại file ghi hình không cần thiết bị: ./gradlew :core:replay --args="capture.yuv --fast"
+tasks.register<JavaExec>("replay") {
+    group = "application"
+    description = "Replays a capture file through the pipeline with the stand-in detector"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.cameraod.replay.ReplayMain")
+}
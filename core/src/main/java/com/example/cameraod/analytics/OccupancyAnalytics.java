@@ -0,0 +1,494 @@
+package com.example.cameraod.analytics;
+
+import com.example.cameraod.pipeline.Detection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-class counting over a sliding time window, fed with detection results:
+ * unique tracked objects entering the window, peak occupancy (most objects of
+ * a class in one result) and dwell time per tracking ID.
+ * Features:
+ * - Counters live in primitive rings of time buckets per class (row = class
+ *   slot, plus one row for all classes); an update touches the current bucket
+ *   and a running window sum, so update and query are O(1). Moving to a new
+ *   bucket clears the expired one (the window peak is rescanned only when the
+ *   expired bucket held it)
+ * - Dwell time is tracked in a bounded open-addressing table of tracking IDs
+ *   (no allocation per result); a track not seen for {@code trackTimeout} ends
+ *   and its dwell is added to its class. When the table is full new tracks are
+ *   counted as overflow and ignored
+ * - A track first seen without a label and labelled later (background
+ *   classification) is moved to its new class
+ * - Readers take a {@link Snapshot} at their own pace
+ * Classes are slotted as in {@link com.example.cameraod.pipeline.FilterRules}:
+ * slot 0 for unlabelled objects, label index + 1 up to {@code maxLabels}, and a
+ * shared slot ({@link #OTHER}) for higher label indices. Thread-safe.
+ */
+public final class OccupancyAnalytics {
+
+    public static final int UNLABELED = -1;
+    public static final int OTHER = Integer.MAX_VALUE; // Nhãn có chỉ số từ maxLabels trở lên
+
+    private static final int EMPTY = 0;
+    private static final int OCCUPIED = 1;
+
+    private final long bucketNanos;
+    private final int bucketCount;
+    private final int maxLabels;
+    private final int otherSlot;
+    private final int totalRow; // Hàng cộng dồn mọi lớp
+    private final long trackTimeoutNanos;
+
+    // Vòng bucket theo hàng: chỉ số row * bucketCount + (bucket % bucketCount)
+    private final int[] newTracks;
+    private final int[] peakOccupancy;
+    private final long[] dwellNanos;
+    private final int[] dwellCount;
+    // Tổng/đỉnh trên cả cửa sổ theo hàng
+    private final int[] windowNewTracks;
+    private final int[] windowPeak;
+    private final long[] windowDwellNanos;
+    private final int[] windowDwellCount;
+    private final int[] currentOccupancy;
+    private final int[] frameCounts; // Mảng tạm cho một kết quả
+    private final String[] labelTexts;
+    private long currentBucket = Long.MIN_VALUE;
+
+    // Bảng track: băm mở, dò tuyến tính, xóa bằng dời lùi (không để lại ô đánh dấu)
+    private final int maxTracks;
+    private final int tableMask;
+    private final int[] states;
+    private final int[] trackIds;
+    private final int[] trackSlots;
+    private final long[] firstSeenNanos;
+    private final long[] lastSeenNanos;
+    private final long[] countedBuckets; // Bucket đã đếm track là mới
+    private int trackCount;
+    private long overflowCount;
+
+    private OccupancyAnalytics(Builder builder) {
+        bucketNanos = builder.bucketNanos;
+        bucketCount = builder.bucketCount;
+        maxLabels = builder.maxLabels;
+        otherSlot = maxLabels + 1;
+        totalRow = otherSlot + 1;
+        trackTimeoutNanos = builder.trackTimeoutNanos;
+
+        int rows = totalRow + 1;
+        newTracks = new int[rows * bucketCount];
+        peakOccupancy = new int[rows * bucketCount];
+        dwellNanos = new long[rows * bucketCount];
+        dwellCount = new int[rows * bucketCount];
+        windowNewTracks = new int[rows];
+        windowPeak = new int[rows];
+        windowDwellNanos = new long[rows];
+        windowDwellCount = new int[rows];
+        currentOccupancy = new int[rows];
+        frameCounts = new int[rows];
+        labelTexts = new String[rows];
+
+        maxTracks = builder.maxTracks;
+        int capacity = Integer.highestOneBit(Math.max(2, maxTracks * 2 - 1)) << 1;
+        tableMask = capacity - 1;
+        states = new int[capacity];
+        trackIds = new int[capacity];
+        trackSlots = new int[capacity];
+        firstSeenNanos = new long[capacity];
+        lastSeenNanos = new long[capacity];
+        countedBuckets = new long[capacity];
+    }
+
+    /**
+     * Ghi kết quả (đã lọc) của một frame.
+     */
+    public synchronized void onResult(List<Detection> detections, long nowNanos) {
+        advance(nowNanos);
+        Arrays.fill(frameCounts, 0);
+        for (int i = 0; i < detections.size(); i++) {
+            Detection d = detections.get(i);
+            List<Detection.Label> labels = d.getLabels();
+            Detection.Label top = labels.isEmpty() ? null : labels.get(0);
+            int slot = slot(top != null ? top.getIndex() : UNLABELED);
+            frameCounts[slot]++;
+            if (top != null && labelTexts[slot] != top.getText()) {
+                labelTexts[slot] = top.getText();
+            }
+            Integer trackingId = d.getTrackingId();
+            if (trackingId != null) {
+                touch(trackingId, slot, nowNanos);
+            }
+        }
+        frameCounts[totalRow] = detections.size();
+
+        int bucket = (int) Math.floorMod(currentBucket, (long) bucketCount);
+        for (int row = 0; row <= totalRow; row++) {
+            int count = frameCounts[row];
+            currentOccupancy[row] = count;
+            int index = row * bucketCount + bucket;
+            if (count > peakOccupancy[index]) {
+                peakOccupancy[index] = count;
+                windowPeak[row] = Math.max(windowPeak[row], count);
+            }
+        }
+    }
+
+    int slot(int labelIndex) {
+        if (labelIndex == UNLABELED) {
+            return 0;
+        }
+        return labelIndex >= 0 && labelIndex < maxLabels ? labelIndex + 1 : otherSlot;
+    }
+
+    private int ringIndex(int row, long bucket) {
+        return row * bucketCount + (int) Math.floorMod(bucket, (long) bucketCount);
+    }
+
+    /**
+     * Chuyển sang bucket của {@code nowNanos}: xóa các bucket ra khỏi cửa sổ (trừ khỏi tổng)
+     * và kết thúc các track quá hạn. Thời gian lùi được tính vào bucket hiện tại.
+     */
+    private void advance(long nowNanos) {
+        long bucket = Math.floorDiv(nowNanos, bucketNanos);
+        if (currentBucket == Long.MIN_VALUE) {
+            currentBucket = bucket;
+            return;
+        }
+        if (bucket <= currentBucket) {
+            return;
+        }
+        long steps = Math.min(bucket - currentBucket, bucketCount);
+        boolean rescanPeak = false;
+        for (long step = 1; step <= steps; step++) {
+            int offset = (int) Math.floorMod(currentBucket + step, (long) bucketCount);
+            for (int row = 0; row <= totalRow; row++) {
+                int index = row * bucketCount + offset;
+                windowNewTracks[row] -= newTracks[index];
+                windowDwellNanos[row] -= dwellNanos[index];
+                windowDwellCount[row] -= dwellCount[index];
+                rescanPeak |= peakOccupancy[index] > 0 && peakOccupancy[index] == windowPeak[row];
+                newTracks[index] = 0;
+                peakOccupancy[index] = 0;
+                dwellNanos[index] = 0;
+                dwellCount[index] = 0;
+            }
+        }
+        currentBucket = bucket;
+        if (rescanPeak) {
+            for (int row = 0; row <= totalRow; row++) {
+                int peak = 0;
+                for (int b = 0; b < bucketCount; b++) {
+                    peak = Math.max(peak, peakOccupancy[row * bucketCount + b]);
+                }
+                windowPeak[row] = peak;
+            }
+        }
+        endExpiredTracks(nowNanos);
+    }
+
+    private void touch(int trackingId, int slot, long nowNanos) {
+        int position = find(trackingId);
+        if (position < 0) {
+            if (trackCount >= maxTracks) {
+                overflowCount++;
+                return;
+            }
+            position = ~position;
+            states[position] = OCCUPIED;
+            trackIds[position] = trackingId;
+            trackSlots[position] = slot;
+            firstSeenNanos[position] = nowNanos;
+            lastSeenNanos[position] = nowNanos;
+            countedBuckets[position] = currentBucket;
+            trackCount++;
+            newTracks[ringIndex(slot, currentBucket)]++;
+            newTracks[ringIndex(totalRow, currentBucket)]++;
+            windowNewTracks[slot]++;
+            windowNewTracks[totalRow]++;
+            return;
+        }
+        lastSeenNanos[position] = Math.max(lastSeenNanos[position], nowNanos);
+        int previous = trackSlots[position];
+        // Chỉ đổi lớp khi có nhãn: một frame thiếu nhãn không đưa track về "chưa phân loại"
+        if (slot != previous && slot != 0) {
+            trackSlots[position] = slot;
+            long counted = countedBuckets[position];
+            if (currentBucket - counted < bucketCount) {
+                newTracks[ringIndex(previous, counted)]--;
+                newTracks[ringIndex(slot, counted)]++;
+                windowNewTracks[previous]--;
+                windowNewTracks[slot]++;
+            }
+        }
+    }
+
+    /**
+     * @return the position of the track, or {@code ~insertionPoint} if it is not in the table
+     */
+    private int find(int trackingId) {
+        int position = mix(trackingId) & tableMask;
+        while (states[position] == OCCUPIED) {
+            if (trackIds[position] == trackingId) {
+                return position;
+            }
+            position = (position + 1) & tableMask;
+        }
+        return ~position;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void endExpiredTracks(long nowNanos) {
+        int position = 0;
+        while (position <= tableMask) {
+            if (states[position] == OCCUPIED && nowNanos - lastSeenNanos[position] > trackTimeoutNanos) {
+                long dwell = lastSeenNanos[position] - firstSeenNanos[position];
+                int slot = trackSlots[position];
+                dwellNanos[ringIndex(slot, currentBucket)] += dwell;
+                dwellCount[ringIndex(slot, currentBucket)]++;
+                dwellNanos[ringIndex(totalRow, currentBucket)] += dwell;
+                dwellCount[ringIndex(totalRow, currentBucket)]++;
+                windowDwellNanos[slot] += dwell;
+                windowDwellCount[slot]++;
+                windowDwellNanos[totalRow] += dwell;
+                windowDwellCount[totalRow]++;
+                remove(position);
+                // Ô này có thể vừa nhận một track dời lùi: kiểm tra lại
+            } else {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * Xóa ô {@code position} và dời lùi các track phía sau cùng cụm về đúng vị trí dò.
+     */
+    private void remove(int position) {
+        int hole = position;
+        int next = (hole + 1) & tableMask;
+        while (states[next] == OCCUPIED) {
+            int home = mix(trackIds[next]) & tableMask;
+            // Dời nếu vị trí gốc không nằm trong (hole, next]
+            boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+            if (movable) {
+                states[hole] = OCCUPIED;
+                trackIds[hole] = trackIds[next];
+                trackSlots[hole] = trackSlots[next];
+                firstSeenNanos[hole] = firstSeenNanos[next];
+                lastSeenNanos[hole] = lastSeenNanos[next];
+                countedBuckets[hole] = countedBuckets[next];
+                hole = next;
+            }
+            next = (next + 1) & tableMask;
+        }
+        states[hole] = EMPTY;
+        trackCount--;
+    }
+
+    /**
+     * Thời gian track đã ở trong khung hình (từ lần đầu tới lần cuối thấy).
+     *
+     * @return the dwell time, or {@code -1} if the track is not active
+     */
+    public synchronized long getDwellNanos(int trackingId) {
+        int position = find(trackingId);
+        return position < 0 ? -1 : lastSeenNanos[position] - firstSeenNanos[position];
+    }
+
+    public synchronized int getActiveTrackCount() {
+        return trackCount;
+    }
+
+    /**
+     * Số track mới bị bỏ qua vì bảng track đã đầy.
+     */
+    public synchronized long getOverflowCount() {
+        return overflowCount;
+    }
+
+    /**
+     * Chụp số liệu hiện tại của cửa sổ kết thúc tại {@code nowNanos}.
+     */
+    public synchronized Snapshot snapshot(long nowNanos) {
+        advance(nowNanos);
+        int rows = totalRow + 1;
+        long[] longestDwell = new long[rows];
+        for (int position = 0; position <= tableMask; position++) {
+            if (states[position] == OCCUPIED) {
+                long dwell = lastSeenNanos[position] - firstSeenNanos[position];
+                int slot = trackSlots[position];
+                longestDwell[slot] = Math.max(longestDwell[slot], dwell);
+                longestDwell[totalRow] = Math.max(longestDwell[totalRow], dwell);
+            }
+        }
+        long[] meanDwell = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            meanDwell[row] = windowDwellCount[row] > 0 ? windowDwellNanos[row] / windowDwellCount[row] : 0;
+        }
+        return new Snapshot(this, bucketNanos * bucketCount, trackCount, labelTexts.clone(),
+                currentOccupancy.clone(), windowNewTracks.clone(), windowPeak.clone(), meanDwell, longestDwell);
+    }
+
+    /**
+     * Số liệu của cửa sổ tại một thời điểm, theo chỉ số nhãn ({@link #UNLABELED}, 0.., {@link #OTHER}).
+     */
+    public static final class Snapshot {
+        private final OccupancyAnalytics owner; // Chỉ dùng để quy nhãn về hàng
+        private final long windowNanos;
+        private final int activeTracks;
+        private final String[] labelTexts;
+        private final int[] current;
+        private final int[] unique;
+        private final int[] peak;
+        private final long[] meanDwellNanos;
+        private final long[] longestDwellNanos;
+
+        Snapshot(OccupancyAnalytics owner, long windowNanos, int activeTracks, String[] labelTexts,
+                 int[] current, int[] unique, int[] peak, long[] meanDwellNanos, long[] longestDwellNanos) {
+            this.owner = owner;
+            this.windowNanos = windowNanos;
+            this.activeTracks = activeTracks;
+            this.labelTexts = labelTexts;
+            this.current = current;
+            this.unique = unique;
+            this.peak = peak;
+            this.meanDwellNanos = meanDwellNanos;
+            this.longestDwellNanos = longestDwellNanos;
+        }
+
+        public long getWindowNanos() {
+            return windowNanos;
+        }
+
+        public int getActiveTrackCount() {
+            return activeTracks;
+        }
+
+        /**
+         * Chỉ số nhãn lớn nhất có hàng riêng (cộng một); các nhãn lớn hơn thuộc {@link #OTHER}.
+         */
+        public int getMaxLabels() {
+            return owner.maxLabels;
+        }
+
+        /**
+         * @return the last label text seen for the class, or {@code null}
+         */
+        public String getLabelText(int labelIndex) {
+            return labelTexts[owner.slot(labelIndex)];
+        }
+
+        /**
+         * Số vật thể của lớp trong kết quả gần nhất.
+         */
+        public int getCurrentCount(int labelIndex) {
+            return current[owner.slot(labelIndex)];
+        }
+
+        /**
+         * Số track khác nhau của lớp xuất hiện lần đầu trong cửa sổ.
+         */
+        public int getUniqueCount(int labelIndex) {
+            return unique[owner.slot(labelIndex)];
+        }
+
+        /**
+         * Số vật thể lớn nhất của lớp trong một kết quả, trong cửa sổ.
+         */
+        public int getPeakOccupancy(int labelIndex) {
+            return peak[owner.slot(labelIndex)];
+        }
+
+        /**
+         * Thời gian ở trung bình của các track đã kết thúc trong cửa sổ.
+         */
+        public long getMeanDwellNanos(int labelIndex) {
+            return meanDwellNanos[owner.slot(labelIndex)];
+        }
+
+        /**
+         * Thời gian ở lâu nhất trong các track đang hoạt động.
+         */
+        public long getLongestDwellNanos(int labelIndex) {
+            return longestDwellNanos[owner.slot(labelIndex)];
+        }
+
+        public int getCurrentTotal() {
+            return current[owner.totalRow];
+        }
+
+        public int getUniqueTotal() {
+            return unique[owner.totalRow];
+        }
+
+        public int getPeakTotal() {
+            return peak[owner.totalRow];
+        }
+
+        public long getMeanDwellTotalNanos() {
+            return meanDwellNanos[owner.totalRow];
+        }
+    }
+
+    public static final class Builder {
+        private long bucketNanos = TimeUnit.SECONDS.toNanos(1);
+        private int bucketCount = 60;
+        private int maxLabels = 8;
+        private int maxTracks = 256;
+        private long trackTimeoutNanos = TimeUnit.SECONDS.toNanos(2);
+
+        /**
+         * Cửa sổ trượt gồm {@code bucketCount} bucket dài {@code bucket} (mặc định 60 x 1 s).
+         */
+        public Builder setWindow(long bucket, TimeUnit unit, int bucketCount) {
+            if (bucket <= 0 || bucketCount < 1) {
+                throw new IllegalArgumentException("bucket and bucketCount must be positive");
+            }
+            this.bucketNanos = unit.toNanos(bucket);
+            this.bucketCount = bucketCount;
+            return this;
+        }
+
+        /**
+         * Số nhãn (chỉ số 0..maxLabels-1) có hàng riêng (mặc định 8).
+         */
+        public Builder setMaxLabels(int maxLabels) {
+            if (maxLabels < 0) {
+                throw new IllegalArgumentException("maxLabels must be >= 0");
+            }
+            this.maxLabels = maxLabels;
+            return this;
+        }
+
+        /**
+         * Số track tối đa được theo dõi thời gian ở cùng lúc (mặc định 256).
+         */
+        public Builder setMaxTracks(int maxTracks) {
+            if (maxTracks < 1) {
+                throw new IllegalArgumentException("maxTracks must be >= 1");
+            }
+            this.maxTracks = maxTracks;
+            return this;
+        }
+
+        /**
+         * Track không được thấy trong thời gian này thì kết thúc (mặc định 2 s).
+         */
+        public Builder setTrackTimeout(long timeout, TimeUnit unit) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("timeout must be >= 0");
+            }
+            this.trackTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        public OccupancyAnalytics build() {
+            return new OccupancyAnalytics(this);
+        }
+    }
+}
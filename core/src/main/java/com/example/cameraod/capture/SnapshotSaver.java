@@ -0,0 +1,101 @@
+package com.example.cameraod.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backpressure for snapshot capture: at most {@code maxPending} snapshots are
+ * between capture request and the end of their disk write. A trigger that
+ * finds every slot taken is dropped (counted) instead of queueing, so a slow
+ * disk costs snapshots, never analysis frames.
+ * <p>
+ * Usage: {@link #tryReserve()} before requesting the capture, then exactly one
+ * of {@link #save} (on the worker that received the image) or {@link #cancel()}
+ * (capture failed). The worker executor needs no queue limit of its own: it
+ * never holds more than {@code maxPending} tasks.
+ */
+public final class SnapshotSaver {
+
+    private final SnapshotStore store;
+    private final int maxPending;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong savedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public SnapshotSaver(SnapshotStore store, int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be >= 1");
+        }
+        this.store = store;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Giữ một chỗ cho snapshot mới.
+     *
+     * @return {@code false} if {@code maxPending} snapshots are already in progress (the snapshot is dropped)
+     */
+    public boolean tryReserve() {
+        while (true) {
+            int current = pending.get();
+            if (current >= maxPending) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            if (pending.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ghi ảnh đã mã hóa của một chỗ đã giữ vào {@link SnapshotStore} rồi trả chỗ đó.
+     */
+    public File save(long epochMillis, String tag, ByteBuffer encoded) throws IOException {
+        try {
+            File file = store.write(epochMillis, tag, encoded);
+            savedCount.incrementAndGet();
+            return file;
+        } catch (IOException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            throw e;
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Trả chỗ đã giữ khi không chụp được ảnh.
+     */
+    public void cancel() {
+        failedCount.incrementAndGet();
+        pending.decrementAndGet();
+    }
+
+    public SnapshotStore getStore() {
+        return store;
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getSavedCount() {
+        return savedCount.get();
+    }
+
+    /**
+     * Số snapshot bị bỏ vì đã có {@code maxPending} snapshot đang chụp/ghi.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
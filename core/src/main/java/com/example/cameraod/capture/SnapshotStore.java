@@ -0,0 +1,145 @@
+package com.example.cameraod.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded directory of snapshot files, written through a {@link FileChannel}.
+ * Features:
+ * - A file is written under a temporary name and renamed when complete, so a
+ *   crash never leaves a truncated snapshot (leftovers are deleted on open)
+ * - Names sort by capture time; the oldest files are deleted first once the
+ *   store holds more than {@code maxFiles} files or {@code maxBytes} bytes
+ *   (the newest file is always kept)
+ * - Files from earlier runs are counted towards the limits
+ * - Thread-safe: writes run in parallel, only the index update is serialized
+ */
+public final class SnapshotStore {
+
+    static final String PREFIX = "snapshot-";
+    static final String SUFFIX = ".jpg";
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final int maxFiles;
+    private final long maxBytes;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    // Các file hiện có, cũ nhất ở đầu
+    private final ArrayDeque<File> files = new ArrayDeque<>();
+    private long totalBytes;
+    private long evictedCount;
+
+    public SnapshotStore(File directory, int maxFiles, long maxBytes) throws IOException {
+        if (maxFiles < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("maxFiles and maxBytes must be >= 1");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.maxFiles = maxFiles;
+        this.maxBytes = maxBytes;
+        File[] existing = directory.listFiles((dir, name) -> name.startsWith(PREFIX)
+                && (name.endsWith(SUFFIX) || name.endsWith(TEMP_SUFFIX)));
+        if (existing != null) {
+            Arrays.sort(existing);
+            for (File file : existing) {
+                if (file.getName().endsWith(TEMP_SUFFIX)) {
+                    // Bản ghi dở từ lần chạy trước
+                    Files.deleteIfExists(file.toPath());
+                } else {
+                    files.addLast(file);
+                    totalBytes += file.length();
+                }
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Ghi toàn bộ phần còn lại của {@code data} thành một snapshot mới.
+     *
+     * @param epochMillis capture time, used for the name and ordering
+     * @param tag         short description (label, tracking ID) appended to the name
+     * @return the written file
+     */
+    public File write(long epochMillis, String tag, ByteBuffer data) throws IOException {
+        String name = String.format(Locale.US, "%s%013d-%04d-%s", PREFIX, epochMillis,
+                sequence.getAndIncrement() % 10_000, sanitize(tag));
+        File file = new File(directory, name + SUFFIX);
+        File temp = new File(directory, name + TEMP_SUFFIX);
+        long size = data.remaining();
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            files.addLast(file);
+            totalBytes += size;
+            evict();
+        }
+        return file;
+    }
+
+    private void evict() {
+        while (files.size() > 1 && (files.size() > maxFiles || totalBytes > maxBytes)) {
+            File oldest = files.pollFirst();
+            long length = oldest.length();
+            if (oldest.delete() || !oldest.exists()) {
+                totalBytes -= length;
+                evictedCount++;
+            } else {
+                // Không xóa được: giữ lại trong danh sách để thử lần sau
+                files.addFirst(oldest);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Chỉ giữ chữ, số, '-' và '_' trong tên file.
+     */
+    static String sanitize(String tag) {
+        StringBuilder sb = new StringBuilder(Math.min(tag.length(), 32));
+        for (int i = 0; i < tag.length() && sb.length() < 32; i++) {
+            char c = tag.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_';
+            sb.append(safe ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized int getFileCount() {
+        return files.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.cameraod.capture;
+
+import com.example.cameraod.pipeline.Detection;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a detection result deserves an evidence snapshot: a detection
+ * whose top label is one of the configured classes at or above that class's
+ * minimum confidence, and whose track has not triggered a snapshot within the
+ * per-track interval.
+ * Features:
+ * - One snapshot per result at most: the most confident eligible detection wins
+ * - Rate limited per tracking ID; untracked detections are limited per label
+ * - Optional global minimum interval between any two snapshots
+ * - The table of recent triggers is bounded: entries older than the interval
+ *   no longer limit anything and are dropped first, then the oldest entry
+ * Thread-safe.
+ */
+public final class SnapshotTrigger {
+
+    private final Map<Integer, Float> minConfidence;
+    private final long perTrackIntervalNanos;
+    private final long minIntervalNanos;
+    private final int maxTracks;
+
+    // Khóa: tracking ID, hoặc nhãn (giá trị âm) với vật thể không có tracking ID
+    private final Map<Long, Long> lastTriggerNanos = new HashMap<>();
+    private long lastAnyTriggerNanos = Long.MIN_VALUE;
+    private long triggerCount;
+    private long suppressedCount;
+
+    private SnapshotTrigger(Builder builder) {
+        this.minConfidence = new HashMap<>(builder.minConfidence);
+        this.perTrackIntervalNanos = builder.perTrackIntervalNanos;
+        this.minIntervalNanos = builder.minIntervalNanos;
+        this.maxTracks = builder.maxTracks;
+    }
+
+    /**
+     * Chọn vật thể cần chụp trong kết quả của một frame và ghi nhận lần kích hoạt.
+     *
+     * @return the detection to snapshot, or {@code null} if none is eligible
+     */
+    public Detection onResult(List<Detection> detections, long nowNanos) {
+        return onResult(detections, nowNanos, null);
+    }
+
+    /**
+     * Như {@link #onResult(List, long)}, nhưng chỉ ghi nhận lần kích hoạt khi giữ được chỗ trong
+     * {@code saver}: ảnh bị bỏ vì hàng ghi đầy không làm track bị chặn.
+     *
+     * @return the detection to snapshot (a slot of {@code saver} is then reserved for it),
+     *         or {@code null} if none is eligible or the saver is full
+     */
+    public synchronized Detection onResult(List<Detection> detections, long nowNanos, SnapshotSaver saver) {
+        if (lastAnyTriggerNanos != Long.MIN_VALUE && nowNanos - lastAnyTriggerNanos < minIntervalNanos) {
+            return null;
+        }
+        Detection best = null;
+        long bestKey = 0;
+        float bestConfidence = -1f;
+        for (int i = 0; i < detections.size(); i++) {
+            Detection d = detections.get(i);
+            List<Detection.Label> labels = d.getLabels();
+            if (labels.isEmpty()) {
+                continue;
+            }
+            Detection.Label label = labels.get(0);
+            Float threshold = minConfidence.get(label.getIndex());
+            if (threshold == null || label.getConfidence() < threshold || label.getConfidence() <= bestConfidence) {
+                continue;
+            }
+            long key = key(d.getTrackingId(), label.getIndex());
+            Long last = lastTriggerNanos.get(key);
+            if (last != null && nowNanos - last < perTrackIntervalNanos) {
+                suppressedCount++;
+                continue;
+            }
+            best = d;
+            bestKey = key;
+            bestConfidence = label.getConfidence();
+        }
+        if (best == null || (saver != null && !saver.tryReserve())) {
+            return null;
+        }
+        if (lastTriggerNanos.size() >= maxTracks && !lastTriggerNanos.containsKey(bestKey)) {
+            evict(nowNanos);
+        }
+        lastTriggerNanos.put(bestKey, nowNanos);
+        lastAnyTriggerNanos = nowNanos;
+        triggerCount++;
+        return best;
+    }
+
+    private static long key(Integer trackingId, int labelIndex) {
+        return trackingId != null ? trackingId.longValue() & 0xFFFFFFFFL : -1L - labelIndex;
+    }
+
+    /**
+     * Bỏ các mục đã hết khoảng giới hạn; nếu vẫn đầy thì bỏ mục cũ nhất.
+     */
+    private void evict(long nowNanos) {
+        Iterator<Long> it = lastTriggerNanos.values().iterator();
+        while (it.hasNext()) {
+            if (nowNanos - it.next() >= perTrackIntervalNanos) {
+                it.remove();
+            }
+        }
+        if (lastTriggerNanos.size() >= maxTracks) {
+            Long oldest = null;
+            long oldestNanos = Long.MAX_VALUE;
+            for (Map.Entry<Long, Long> e : lastTriggerNanos.entrySet()) {
+                if (e.getValue() < oldestNanos) {
+                    oldestNanos = e.getValue();
+                    oldest = e.getKey();
+                }
+            }
+            lastTriggerNanos.remove(oldest);
+        }
+    }
+
+    public synchronized int size() {
+        return lastTriggerNanos.size();
+    }
+
+    public synchronized long getTriggerCount() {
+        return triggerCount;
+    }
+
+    /**
+     * Số lần vật thể đủ điều kiện bị bỏ qua vì track vừa được chụp.
+     */
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    public static final class Builder {
+        private final Map<Integer, Float> minConfidence = new HashMap<>();
+        private long perTrackIntervalNanos = TimeUnit.SECONDS.toNanos(10);
+        private long minIntervalNanos = 0;
+        private int maxTracks = 64;
+
+        /**
+         * Chụp khi nhãn cao nhất của vật thể là {@code labelIndex} với độ tin cậy từ {@code minConfidence}.
+         */
+        public Builder addLabel(int labelIndex, float minConfidence) {
+            if (labelIndex < 0) {
+                throw new IllegalArgumentException("invalid label index " + labelIndex);
+            }
+            this.minConfidence.put(labelIndex, minConfidence);
+            return this;
+        }
+
+        /**
+         * Khoảng tối thiểu giữa hai lần chụp cùng một track (mặc định 10 s).
+         */
+        public Builder setPerTrackInterval(long interval, TimeUnit unit) {
+            this.perTrackIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * Khoảng tối thiểu giữa hai lần chụp bất kỳ (mặc định 0).
+         */
+        public Builder setMinInterval(long interval, TimeUnit unit) {
+            this.minIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        public Builder setMaxTracks(int maxTracks) {
+            this.maxTracks = maxTracks;
+            return this;
+        }
+
+        public SnapshotTrigger build() {
+            if (minConfidence.isEmpty()) {
+                throw new IllegalStateException("at least one label is required");
+            }
+            if (perTrackIntervalNanos < 0 || minIntervalNanos < 0 || maxTracks < 1) {
+                throw new IllegalStateException("intervals must be >= 0 and maxTracks >= 1");
+            }
+            return new SnapshotTrigger(this);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.cameraod.log;
+
+import com.example.cameraod.pipeline.Detection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Append-only log of filtered detections as fixed-width binary records in
+ * memory-mapped segment files, read back by {@link DetectionLogReader}.
+ * Features:
+ * - 24-byte records, an append is a few stores into the mapping (no allocation, no system call)
+ * - A new segment is started when the current one is full; the oldest segments
+ *   are deleted beyond {@code maxSegments}
+ * - Records are kept in timestamp order across segments and restarts (older records
+ *   are rejected) so readers can binary-search time ranges; use a wall-clock based
+ *   timestamp when the log outlives the process
+ * - Not thread-safe: append from a single thread
+ *
+ * <pre>
+ * segment header: int magic, int version, int recordBytes, int recordsPerSegment
+ * record:         long timestampNanos, int trackingId, short left, short top, short right, short bottom,
+ *                 short labelIndex, short confidence (x 1/10000)
+ * </pre>
+ */
+public final class DetectionLog implements Closeable {
+
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20; // ~24 MB mỗi segment
+    public static final int NO_TRACKING_ID = Integer.MIN_VALUE;
+    public static final int NO_LABEL = -1;
+
+    static final int MAGIC = 0x444C4F47; // "DLOG"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 24;
+    static final float CONFIDENCE_SCALE = 10_000f;
+    static final String SEGMENT_PREFIX = "detections-";
+    static final String SEGMENT_SUFFIX = ".dlog";
+
+    private final File directory;
+    private final int recordsPerSegment;
+    private final int maxSegments;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int segmentNumber;
+    private int segmentRecords;
+    private long lastTimestampNanos = Long.MIN_VALUE;
+    private long appendedCount;
+    private long rejectedCount;
+
+    public DetectionLog(File directory) throws IOException {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxSegments number of segments kept on disk, including the one being written
+     */
+    public DetectionLog(File directory, int recordsPerSegment, int maxSegments) throws IOException {
+        if (recordsPerSegment < 1 || maxSegments < 1) {
+            throw new IllegalArgumentException("recordsPerSegment and maxSegments must be >= 1");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.maxSegments = maxSegments;
+        // Không ghi tiếp vào segment cũ: bắt đầu sau số thứ tự lớn nhất hiện có
+        File[] existing = DetectionLogReader.listSegments(directory);
+        segmentNumber = existing.length > 0 ? segmentNumber(existing[existing.length - 1]) : 0;
+        if (existing.length > 0) {
+            try (DetectionLogReader reader = new DetectionLogReader(directory)) {
+                if (reader.size() > 0) {
+                    lastTimestampNanos = reader.getTimestampNanos(reader.size() - 1);
+                }
+            }
+        }
+        openSegment();
+        deleteOldSegments();
+    }
+
+    /**
+     * Ghi toàn bộ vật thể (đã lọc) của một frame.
+     */
+    public void append(long timestampNanos, List<Detection> detections) {
+        for (int i = 0; i < detections.size(); i++) {
+            append(timestampNanos, detections.get(i));
+        }
+    }
+
+    public void append(long timestampNanos, Detection detection) {
+        Integer trackingId = detection.getTrackingId();
+        List<Detection.Label> labels = detection.getLabels();
+        Detection.Label top = labels.isEmpty() ? null : labels.get(0);
+        append(timestampNanos, trackingId != null ? trackingId : NO_TRACKING_ID,
+                detection.getLeft(), detection.getTop(), detection.getRight(), detection.getBottom(),
+                top != null ? top.getIndex() : NO_LABEL, top != null ? top.getConfidence() : 0f);
+    }
+
+    /**
+     * @return {@code false} if the record is older than the last one and was rejected
+     */
+    public boolean append(long timestampNanos, int trackingId, int left, int top, int right, int bottom,
+                          int labelIndex, float confidence) {
+        if (timestampNanos < lastTimestampNanos || timestampNanos == 0) {
+            rejectedCount++;
+            return false;
+        }
+        if (segmentRecords == recordsPerSegment) {
+            rollOver();
+        }
+        int offset = HEADER_BYTES + segmentRecords * RECORD_BYTES;
+        segment.putInt(offset + 8, trackingId);
+        segment.putShort(offset + 12, clampShort(left));
+        segment.putShort(offset + 14, clampShort(top));
+        segment.putShort(offset + 16, clampShort(right));
+        segment.putShort(offset + 18, clampShort(bottom));
+        segment.putShort(offset + 20, clampShort(labelIndex));
+        segment.putShort(offset + 22, (short) Math.round(Math.max(0f, Math.min(1f, confidence)) * CONFIDENCE_SCALE));
+        // Timestamp ghi sau cùng: bản ghi có timestamp 0 là phần chưa ghi của segment
+        segment.putLong(offset, timestampNanos);
+        segmentRecords++;
+        appendedCount++;
+        lastTimestampNanos = timestampNanos;
+        return true;
+    }
+
+    private static short clampShort(int value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+
+    private void rollOver() {
+        try {
+            closeSegment();
+            openSegment();
+            deleteOldSegments();
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot roll over detection log", e);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentNumber++;
+        File file = new File(directory, String.format(Locale.US, "%s%06d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) recordsPerSegment * RECORD_BYTES);
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_BYTES).putInt(12, recordsPerSegment);
+        segmentRecords = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        try {
+            segment.force();
+            // Cắt phần chưa dùng của segment cuối
+            channel.truncate(HEADER_BYTES + (long) segmentRecords * RECORD_BYTES);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void deleteOldSegments() {
+        File[] segments = DetectionLogReader.listSegments(directory);
+        for (int i = 0; i < segments.length - maxSegments; i++) {
+            if (!segments[i].delete()) {
+                break;
+            }
+        }
+    }
+
+    static int segmentNumber(File file) {
+        String name = file.getName();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Đẩy các bản ghi đã ghi xuống đĩa.
+     */
+    public void flush() {
+        segment.force();
+    }
+
+    public long getAppendedCount() {
+        return appendedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            closeSegment();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.cameraod.log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only, memory-mapped view of the segments written by {@link DetectionLog}.
+ * Records are addressed by a global index and decoded straight from the mapping
+ * into a {@link Visitor} call, so scanning millions of records allocates nothing.
+ * Time-range queries binary-search the (ordered) timestamps.
+ * <p>
+ * The segment being written may be opened too; records appended after the
+ * reader was opened are not visible.
+ */
+public final class DetectionLogReader implements Closeable {
+
+    /**
+     * Nhận từng bản ghi (các trường đã giải mã, không tạo đối tượng).
+     */
+    public interface Visitor {
+        void onRecord(long index, long timestampNanos, int trackingId, int left, int top, int right, int bottom,
+                      int labelIndex, float confidence);
+    }
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile(
+            Pattern.quote(DetectionLog.SEGMENT_PREFIX) + "\\d+" + Pattern.quote(DetectionLog.SEGMENT_SUFFIX));
+
+    private final FileChannel[] channels;
+    private final MappedByteBuffer[] segments;
+    // firstIndex[i]: chỉ số toàn cục của bản ghi đầu tiên trong segment i; firstIndex[n] = tổng số bản ghi
+    private final long[] firstIndex;
+
+    public DetectionLogReader(File directory) throws IOException {
+        File[] files = listSegments(directory);
+        List<FileChannel> openChannels = new ArrayList<>();
+        List<MappedByteBuffer> mapped = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        try {
+            for (File file : files) {
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                openChannels.add(channel);
+                long size = channel.size();
+                if (size < DetectionLog.HEADER_BYTES) {
+                    continue;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                if (buffer.getInt(0) != DetectionLog.MAGIC || buffer.getInt(4) != DetectionLog.VERSION
+                        || buffer.getInt(8) != DetectionLog.RECORD_BYTES) {
+                    throw new IOException("Not a detection log segment: " + file);
+                }
+                mapped.add(buffer);
+                counts.add(countRecords(buffer));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (FileChannel channel : openChannels) {
+                channel.close();
+            }
+            throw e;
+        }
+        channels = openChannels.toArray(new FileChannel[0]);
+        segments = mapped.toArray(new MappedByteBuffer[0]);
+        firstIndex = new long[segments.length + 1];
+        for (int i = 0; i < segments.length; i++) {
+            firstIndex[i + 1] = firstIndex[i] + counts.get(i);
+        }
+    }
+
+    /**
+     * Các file segment trong thư mục, theo thứ tự ghi.
+     */
+    static File[] listSegments(File directory) {
+        File[] files = directory.listFiles((dir, name) -> SEGMENT_NAME.matcher(name).matches());
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, (a, b) -> Integer.compare(DetectionLog.segmentNumber(a), DetectionLog.segmentNumber(b)));
+        return files;
+    }
+
+    /**
+     * Số bản ghi hợp lệ: segment đang ghi có phần đuôi toàn số 0 (timestamp 0), tìm nhị phân ranh giới.
+     */
+    private static int countRecords(MappedByteBuffer buffer) {
+        int low = 0;
+        int high = (buffer.limit() - DetectionLog.HEADER_BYTES) / DetectionLog.RECORD_BYTES;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getLong(DetectionLog.HEADER_BYTES + mid * DetectionLog.RECORD_BYTES) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public long size() {
+        return firstIndex[segments.length];
+    }
+
+    public long getTimestampNanos(long index) {
+        int segment = segmentOf(index);
+        return segments[segment].getLong(offset(segment, index));
+    }
+
+    /**
+     * Duyệt toàn bộ bản ghi theo thứ tự.
+     */
+    public void scan(Visitor visitor) {
+        visit(0, size(), visitor);
+    }
+
+    /**
+     * Duyệt các bản ghi có timestamp trong [{@code fromNanos}, {@code toNanos}).
+     *
+     * @return number of records visited
+     */
+    public long query(long fromNanos, long toNanos, Visitor visitor) {
+        long from = lowerBound(fromNanos);
+        long to = lowerBound(toNanos);
+        visit(from, to, visitor);
+        return Math.max(0, to - from);
+    }
+
+    /**
+     * Số bản ghi có timestamp trong [{@code fromNanos}, {@code toNanos}), không giải mã bản ghi.
+     */
+    public long count(long fromNanos, long toNanos) {
+        return Math.max(0, lowerBound(toNanos) - lowerBound(fromNanos));
+    }
+
+    /**
+     * Chỉ số của bản ghi đầu tiên có timestamp >= {@code timestampNanos} ({@link #size()} nếu không có).
+     */
+    public long lowerBound(long timestampNanos) {
+        long low = 0;
+        long high = size();
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getTimestampNanos(mid) < timestampNanos) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void visit(long from, long to, Visitor visitor) {
+        if (from >= to) {
+            return;
+        }
+        int segment = segmentOf(from);
+        for (long index = from; index < to; index++) {
+            while (index >= firstIndex[segment + 1]) {
+                segment++;
+            }
+            MappedByteBuffer buffer = segments[segment];
+            int offset = offset(segment, index);
+            visitor.onRecord(index, buffer.getLong(offset), buffer.getInt(offset + 8),
+                    buffer.getShort(offset + 12), buffer.getShort(offset + 14),
+                    buffer.getShort(offset + 16), buffer.getShort(offset + 18),
+                    buffer.getShort(offset + 20), buffer.getShort(offset + 22) / DetectionLog.CONFIDENCE_SCALE);
+        }
+    }
+
+    private int segmentOf(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("record " + index + " of " + size());
+        }
+        int position = Arrays.binarySearch(firstIndex, index);
+        if (position < 0) {
+            return -position - 2;
+        }
+        // Bỏ qua các segment rỗng có cùng chỉ số bắt đầu
+        while (firstIndex[position + 1] == index) {
+            position++;
+        }
+        return position;
+    }
+
+    private int offset(int segment, long index) {
+        return DetectionLog.HEADER_BYTES + (int) (index - firstIndex[segment]) * DetectionLog.RECORD_BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.cameraod.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring buffer of per-frame trace events, written from any thread
+ * without locks. When full, the oldest events are overwritten. Readers see
+ * only completely written events (each slot carries its write sequence and is
+ * re-checked after reading, seqlock-style).
+ * Features:
+ * - {@link #record} never allocates and takes no lock; it only waits briefly when
+ *   writers lap the whole ring onto a slot that is still being written
+ * - A slot always ends up holding the newest of the events that raced for it
+ * - Fixed memory: {@code capacity * 6} longs
+ * - {@link TraceExporter} turns the buffer into Chrome trace-event JSON
+ */
+public final class FrameTracer {
+
+    /**
+     * Các stage được ghi vết.
+     */
+    public enum Stage {
+        ACQUIRE("acquire"),
+        PREPROCESS("preprocess"),
+        DETECT("detect"),
+        FILTER("filter"),
+        PUBLISH("publish"),
+        PROPAGATE("propagate"),
+        DRAW("draw");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Nhận từng sự kiện khi đọc buffer.
+     */
+    public interface Visitor {
+        void onEvent(Stage stage, long frameId, long startNanos, long endNanos, int objectCount, long threadId);
+    }
+
+    public static final int DEFAULT_CAPACITY = 8192; // ~10 s ở 30 fps với ~25 sự kiện mỗi frame
+
+    // Mỗi slot: [sequence, frameId, start, end, stage << 32 | objectCount, threadId]
+    private static final int STRIDE = 6;
+    private static final Stage[] STAGES = Stage.values();
+    private static final long EMPTY = -1;
+    private static final long WRITING = -2;
+    private static final int MAX_CLAIM_SPINS = 1000; // Sau đó bỏ sự kiện thay vì chờ tiếp
+
+    private final AtomicLongArray slots;
+    private final AtomicLong cursor = new AtomicLong();
+    private final int capacity;
+    private final int mask;
+
+    public FrameTracer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of events kept, rounded up to a power of two
+     */
+    public FrameTracer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicLongArray(size * STRIDE);
+        for (int i = 0; i < size; i++) {
+            slots.set(i * STRIDE, EMPTY);
+        }
+    }
+
+    /**
+     * Ghi một sự kiện đã hoàn thành.
+     *
+     * @param frameId     pipeline sequence number of the frame, or -1 if unknown
+     * @param objectCount number of objects at this stage, or -1 if not applicable
+     */
+    public void record(Stage stage, long frameId, long startNanos, long endNanos, int objectCount) {
+        long index = cursor.getAndIncrement();
+        int base = (int) (index & mask) * STRIDE;
+
+        // Giành slot (đánh dấu đang ghi để người đọc bỏ qua). Một luồng ghi khác đã vượt trọn
+        // một vòng buffer có thể đang ghi cùng slot: chờ nó xong; sự kiện cũ hơn thì bỏ.
+        for (int spins = 0; ; spins++) {
+            long current = slots.get(base);
+            if (current >= index) {
+                return;
+            }
+            if (current != WRITING && slots.compareAndSet(base, current, WRITING)) {
+                break;
+            }
+            if (spins >= MAX_CLAIM_SPINS) {
+                return;
+            }
+            Thread.yield();
+        }
+        slots.set(base + 1, frameId);
+        slots.set(base + 2, startNanos);
+        slots.set(base + 3, endNanos);
+        slots.set(base + 4, ((long) stage.ordinal() << 32) | (objectCount & 0xFFFFFFFFL));
+        slots.set(base + 5, Thread.currentThread().getId());
+        slots.set(base, index);
+    }
+
+    /**
+     * Duyệt các sự kiện còn trong buffer, từ cũ tới mới, có thời điểm kết thúc
+     * không sớm hơn {@code minEndNanos}.
+     *
+     * @return number of events visited
+     */
+    public int forEach(long minEndNanos, Visitor visitor) {
+        long end = cursor.get();
+        long start = Math.max(0, end - capacity);
+        int visited = 0;
+        for (long index = start; index < end; index++) {
+            int base = (int) (index & mask) * STRIDE;
+            if (slots.get(base) != index) {
+                continue; // Đang ghi hoặc đã bị ghi đè
+            }
+            long frameId = slots.get(base + 1);
+            long startNanos = slots.get(base + 2);
+            long endNanos = slots.get(base + 3);
+            long packed = slots.get(base + 4);
+            long threadId = slots.get(base + 5);
+            if (slots.get(base) != index || endNanos < minEndNanos) {
+                continue;
+            }
+            visitor.onEvent(STAGES[(int) (packed >>> 32)], frameId, startNanos, endNanos, (int) packed, threadId);
+            visited++;
+        }
+        return visited;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Tổng số sự kiện đã ghi (kể cả đã bị ghi đè).
+     */
+    public long getRecordedCount() {
+        return cursor.get();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.cameraod.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, fixed-memory latency histogram. Values are bucketed in
+ * microseconds on a log-linear scale (8 sub-buckets per power of two, so a
+ * reported percentile is within 12.5% of the true value) from 1 µs to ~16 s.
+ * Features:
+ * - {@link #record} is wait-free apart from the max update and never allocates
+ * - Safe to record from any number of threads
+ * - Readers take a {@link Snapshot}, optionally resetting the window
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 24; // 2^24 µs ~ 16.7 s
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Ghi một giá trị độ trễ. Giá trị âm bị bỏ qua.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        counts.incrementAndGet(bucketIndex(nanos / 1000));
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    static int bucketIndex(long micros) {
+        long value = Math.min(micros, MAX_MICROS);
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Giá trị lớn nhất (µs) thuộc bucket {@code index}.
+     */
+    static long bucketUpperMicros(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, maxNanos.get());
+    }
+
+    /**
+     * Chụp và đặt lại về 0 (cửa sổ đo mới). Giá trị ghi đồng thời rơi vào cửa sổ này hoặc cửa sổ sau.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(copy, maxNanos.getAndSet(0));
+    }
+
+    /**
+     * Bản chụp bất biến của histogram.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long maxNanos;
+        private final long count;
+
+        Snapshot(long[] counts, long maxNanos) {
+            this.counts = counts;
+            this.maxNanos = maxNanos;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @param quantile in [0, 1], e.g. 0.95 for p95
+         * @return upper bound of the bucket holding the quantile, in nanoseconds (0 if empty)
+         */
+        public long getPercentileNanos(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    // Không báo cao hơn giá trị lớn nhất thực tế
+                    return Math.min(bucketUpperMicros(i) * 1000 + 999, maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.cameraod.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms for each pipeline stage plus frame drop counters.
+ * Recording never allocates, so metrics stay enabled in release builds.
+ */
+public final class PipelineMetrics {
+
+    /**
+     * Các stage được đo.
+     */
+    public enum Stage {
+        CAPTURE_TO_ANALYZER("capture→analyzer"),
+        DETECT("detector"),
+        FILTER("filter"),
+        UI_HANDOFF("UI handoff"),
+        DRAW("onDraw");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Nhận từng phép đo ngay khi được ghi, trên luồng ghi (ví dụ cho bộ điều chỉnh chất lượng).
+     */
+    public interface LatencyListener {
+        void onLatency(Stage stage, long nanos);
+    }
+
+    private static final float GAP_FACTOR = 1.5f;   // Khoảng cách > 1.5 lần chu kỳ frame coi như có frame bị bỏ
+    private static final float INTERVAL_WEIGHT = 0.05f;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLong cameraDroppedFrames = new AtomicLong();
+    private final AtomicLong arrivedFrames = new AtomicLong();
+    private volatile LatencyListener latencyListener;
+
+    // Chỉ được ghi từ luồng analyzer (một luồng)
+    private long lastFrameTimestampNanos = 0;
+    private float frameIntervalNanos = 0;
+
+    public PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+        LatencyListener listener = latencyListener;
+        if (listener != null) {
+            listener.onLatency(stage, nanos);
+        }
+    }
+
+    public void setLatencyListener(LatencyListener listener) {
+        this.latencyListener = listener;
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Gọi cho mỗi frame mà analyzer nhận được (từ một luồng duy nhất). Các frame camera
+     * bị bỏ trước analyzer được suy ra từ khoảng trống giữa các timestamp.
+     */
+    public void onFrameArrived(long timestampNanos) {
+        arrivedFrames.incrementAndGet();
+        long last = lastFrameTimestampNanos;
+        lastFrameTimestampNanos = timestampNanos;
+        if (last == 0 || timestampNanos <= last) {
+            return;
+        }
+
+        float gap = timestampNanos - last;
+        if (frameIntervalNanos == 0) {
+            frameIntervalNanos = gap;
+            return;
+        }
+        if (gap > GAP_FACTOR * frameIntervalNanos) {
+            cameraDroppedFrames.addAndGet(Math.max(0, Math.round(gap / frameIntervalNanos) - 1));
+        }
+        // Giới hạn mẫu để khoảng trống không làm lệch chu kỳ, nhưng vẫn thích nghi khi FPS camera đổi
+        frameIntervalNanos += (Math.min(gap, 2 * frameIntervalNanos) - frameIntervalNanos) * INTERVAL_WEIGHT;
+    }
+
+    public long getCameraDroppedFrames() {
+        return cameraDroppedFrames.get();
+    }
+
+    public long getArrivedFrames() {
+        return arrivedFrames.get();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.cameraod.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Writes the recent contents of a {@link FrameTracer} as Chrome trace-event
+ * JSON ("X" complete events), which opens in chrome://tracing and Perfetto.
+ * Runs on demand, off the hot path; allocation here is fine.
+ */
+public final class TraceExporter {
+
+    private static final String PROCESS_NAME = "CameraOD";
+
+    private TraceExporter() {
+    }
+
+    /**
+     * Xuất các sự kiện kết thúc trong {@code windowNanos} trước {@code nowNanos}.
+     *
+     * @return number of events written
+     */
+    public static int writeChromeTrace(FrameTracer tracer, long nowNanos, long windowNanos, Writer out)
+            throws IOException {
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        out.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":\"" + PROCESS_NAME + "\"}}");
+
+        final IOException[] failure = new IOException[1];
+        int written = tracer.forEach(nowNanos - windowNanos, (stage, frameId, startNanos, endNanos, objectCount, threadId) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            try {
+                out.write(String.format(Locale.US,
+                        ",\n{\"name\":\"%s\",\"cat\":\"pipeline\",\"ph\":\"X\",\"pid\":1,\"tid\":%d,"
+                                + "\"ts\":%.3f,\"dur\":%.3f,\"args\":{\"frame\":%d,\"objects\":%d}}",
+                        stage.getLabel(), threadId, startNanos / 1000.0,
+                        Math.max(0, endNanos - startNanos) / 1000.0, frameId, objectCount));
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+
+        out.write("\n]}\n");
+        out.flush();
+        return written;
+    }
+}
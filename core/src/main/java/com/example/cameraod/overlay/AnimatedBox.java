@@ -0,0 +1,165 @@
+package com.example.cameraod.overlay;
+
+/**
+ * One bounding box: smooth interpolation towards the latest detection and
+ * fade in/out. Once position and alpha are within {@link #SETTLE_DISTANCE} /
+ * {@link #SETTLE_ALPHA} of their targets they snap to them and the box is settled.
+ * The animated values live in a row of the tracker's {@link BoxArrays}; this
+ * object keeps the identity, label, motion filter and render state.
+ */
+public final class AnimatedBox {
+
+    // Các hằng số Animation (hệ số cho mỗi frame ở 60 Hz, xem Smoothing)
+    public static final float LERP_FACTOR = 0.3f;  // Tốc độ nội suy (làm mượt chuyển động)
+    public static final float FADE_SPEED = 0.15f;  // Tốc độ làm mờ
+    public static final float SETTLE_DISTANCE = 0.5f; // Sai số vị trí (px) coi như đã tới đích
+    public static final float SETTLE_ALPHA = 0.01f;   // Sai số alpha coi như đã tới đích
+
+    // Tọa độ, alpha và màu nằm ở hàng row của mảng song song (BoxStore dồn hàng khi xóa hộp)
+    private final BoxArrays arrays;
+    int row;
+
+    int trackingId;
+    String label;
+    float confidence;
+    long lastUpdateTime;
+    boolean isActive = true;
+    boolean inPool = false;
+
+    // Dự đoán vị trí theo thời gian chụp ảnh (chỉ dùng khi có timestamp camera)
+    final KalmanBoxFilter motion = new KalmanBoxFilter();
+
+    // Trạng thái vẽ riêng của nền tảng (shader, path...), được tái sử dụng giữa các frame
+    // và giữ lại khi hộp được tái chế từ pool
+    private Object renderState;
+
+    // Bản sao tọa độ trả cho phía đọc, tránh cấp phát
+    private final BoxRect currentView = new BoxRect();
+    private final BoxRect targetView = new BoxRect();
+
+    AnimatedBox(BoxArrays arrays, int row) {
+        this.arrays = arrays;
+        this.row = row;
+    }
+
+    /**
+     * Đưa hộp (mới hoặc tái chế) về trạng thái như mới tạo, tại hàng {@link #row} hiện tại.
+     */
+    void reset(int id, long nowMillis) {
+        trackingId = id;
+        arrays.resetRow(row);
+        label = null;
+        confidence = 0f;
+        lastUpdateTime = nowMillis;
+        isActive = true;
+        inPool = false;
+        motion.reset();
+    }
+
+    void updateTarget(BoxRect newTarget, String label, float confidence, int colorIndex, long nowMillis) {
+        arrays.setTarget(row, newTarget.left, newTarget.top, newTarget.right, newTarget.bottom);
+        arrays.colorIndex[row] = colorIndex;
+        arrays.targetAlpha[row] = 1f;
+        this.label = label;
+        this.confidence = confidence;
+        this.isActive = true;
+        this.lastUpdateTime = nowMillis;
+    }
+
+    void setCurrent(BoxRect rect) {
+        arrays.setCurrent(row, rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+    void setTarget(BoxRect rect) {
+        arrays.setTarget(row, rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+    float targetAlpha() {
+        return arrays.targetAlpha[row];
+    }
+
+    /**
+     * Nội suy một bước về phía mục tiêu (chỉ hộp này; {@link BoxTracker#animate} chạy theo lô).
+     *
+     * @param positionFactor lerp factor for this frame, see {@link Smoothing#factor}
+     * @param fadeFactor     lerp factor for alpha for this frame
+     * @return {@code true} if the box has not settled yet
+     */
+    public boolean animate(float positionFactor, float fadeFactor) {
+        arrays.animateRow(row, positionFactor, fadeFactor);
+        return !isSettled();
+    }
+
+    /**
+     * Vị trí và alpha đã trùng mục tiêu, không cần vẽ lại.
+     */
+    public boolean isSettled() {
+        return arrays.isSettled(row);
+    }
+
+    void startFadeOut() {
+        arrays.targetAlpha[row] = 0f;
+        isActive = false;
+    }
+
+    boolean shouldRemove() {
+        return !isActive && arrays.alpha[row] < 0.01f;
+    }
+
+    /**
+     * Chỉ vẽ nếu còn nhìn thấy và đủ lớn.
+     */
+    public boolean isVisible() {
+        return arrays.alpha[row] > 0.01f
+                && arrays.currentRight[row] - arrays.currentLeft[row] > 10
+                && arrays.currentBottom[row] - arrays.currentTop[row] > 10;
+    }
+
+    public int getTrackingId() {
+        return trackingId;
+    }
+
+    /**
+     * Vị trí hiện tại; đối tượng trả về được dùng lại ở lần gọi sau.
+     */
+    public BoxRect getCurrentRect() {
+        arrays.readCurrent(row, currentView);
+        return currentView;
+    }
+
+    /**
+     * Vị trí đích; đối tượng trả về được dùng lại ở lần gọi sau.
+     */
+    public BoxRect getTargetRect() {
+        arrays.readTarget(row, targetView);
+        return targetView;
+    }
+
+    public float getAlpha() {
+        return arrays.alpha[row];
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public int getColorIndex() {
+        return arrays.colorIndex[row];
+    }
+
+    public KalmanBoxFilter getMotion() {
+        return motion;
+    }
+
+    public Object getRenderState() {
+        return renderState;
+    }
+
+    public void setRenderState(Object renderState) {
+        this.renderState = renderState;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.cameraod.overlay;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Slot bookkeeping of a fixed-size text atlas: which label string is rasterized in which cell.
+ * Features:
+ * - Pinned slots for the known vocabulary, assigned in pin order and never evicted
+ * - The remaining slots are shared by unknown labels (other models, custom labels)
+ *   with least-recently-used eviction
+ * - A slot used in the current frame is never evicted, so cells already queued for
+ *   drawing keep their content until the frame is rendered
+ * - Lookups of cached labels allocate nothing (intrusive LRU list over int arrays)
+ * <p>
+ * Not thread-safe: owned by the overlay's drawing thread, like the atlas bitmap itself.
+ */
+public final class AtlasSlots {
+
+    public static final int NO_SLOT = -1;
+
+    private final String[] keys;
+    private final Map<String, Integer> slotByKey;
+    // Danh sách LRU của các slot không ghim: head là slot dùng gần nhất
+    private final int[] prev;
+    private final int[] next;
+    private final long[] usedFrame;
+    private int head = NO_SLOT;
+    private int tail = NO_SLOT;
+    private int pinnedCount;
+    private int allocatedCount;
+    private long frame = 1;
+    private long evictionCount;
+
+    public AtlasSlots(int slotCount) {
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("slotCount must be > 0");
+        }
+        keys = new String[slotCount];
+        slotByKey = new HashMap<>(slotCount * 2);
+        prev = new int[slotCount];
+        next = new int[slotCount];
+        usedFrame = new long[slotCount];
+    }
+
+    /**
+     * Ghim {@code key} vào slot kế tiếp (0, 1, 2... theo thứ tự ghim). Phải gọi trước mọi
+     * {@link #insert}.
+     *
+     * @return the pinned slot (the existing one if {@code key} is already pinned)
+     * @throws IllegalStateException if every slot is taken or unpinned slots are in use
+     */
+    public int pin(String key) {
+        Integer existing = slotByKey.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (allocatedCount != pinnedCount) {
+            throw new IllegalStateException("Pin labels before inserting unpinned ones");
+        }
+        if (pinnedCount == keys.length) {
+            throw new IllegalStateException("No free atlas slot for " + key);
+        }
+        int slot = pinnedCount++;
+        allocatedCount++;
+        keys[slot] = key;
+        slotByKey.put(key, slot);
+        return slot;
+    }
+
+    /**
+     * Bắt đầu frame mới: các slot dùng ở frame trước lại có thể bị thay.
+     */
+    public void beginFrame() {
+        frame++;
+    }
+
+    /**
+     * Tìm slot của {@code key} và đánh dấu đã dùng trong frame này.
+     *
+     * @return the slot, or {@link #NO_SLOT} if {@code key} is not in the atlas
+     */
+    public int find(String key) {
+        Integer slot = slotByKey.get(key);
+        if (slot == null) {
+            return NO_SLOT;
+        }
+        touch(slot);
+        return slot;
+    }
+
+    /**
+     * Cấp slot cho {@code key} (slot trống, hoặc thay slot ít dùng nhất). Người gọi phải vẽ
+     * lại nội dung của slot.
+     *
+     * @return the slot, or {@link #NO_SLOT} if every unpinned slot is already used in this
+     *         frame (the caller should draw the text directly)
+     */
+    public int insert(String key) {
+        Integer existing = slotByKey.get(key);
+        if (existing != null) {
+            touch(existing);
+            return existing;
+        }
+        int slot;
+        if (allocatedCount < keys.length) {
+            slot = allocatedCount++;
+        } else {
+            slot = tail;
+            if (slot == NO_SLOT || usedFrame[slot] == frame) {
+                return NO_SLOT;
+            }
+            unlink(slot);
+            slotByKey.remove(keys[slot]);
+            evictionCount++;
+        }
+        keys[slot] = key;
+        slotByKey.put(key, slot);
+        linkFirst(slot);
+        usedFrame[slot] = frame;
+        return slot;
+    }
+
+    private void touch(int slot) {
+        usedFrame[slot] = frame;
+        if (slot >= pinnedCount && slot != head) {
+            unlink(slot);
+            linkFirst(slot);
+        }
+    }
+
+    private void linkFirst(int slot) {
+        prev[slot] = NO_SLOT;
+        next[slot] = head;
+        if (head != NO_SLOT) {
+            prev[head] = slot;
+        }
+        head = slot;
+        if (tail == NO_SLOT) {
+            tail = slot;
+        }
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+        if (before != NO_SLOT) {
+            next[before] = after;
+        } else {
+            head = after;
+        }
+        if (after != NO_SLOT) {
+            prev[after] = before;
+        } else {
+            tail = before;
+        }
+    }
+
+    /**
+     * @return the label in {@code slot}, or {@code null} if the slot was never used
+     */
+    public String keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int getSlotCount() {
+        return keys.length;
+    }
+
+    public int getPinnedCount() {
+        return pinnedCount;
+    }
+
+    public int size() {
+        return allocatedCount;
+    }
+
+    /**
+     * Số lần một nhãn bị thay khỏi atlas (mỗi lần là một lần vẽ lại chữ).
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.cameraod.overlay;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays animation state of the live boxes: current and target
+ * rectangles, alpha and colour index in parallel primitive arrays, one row per
+ * box in {@link BoxStore} insertion order.
+ * Features:
+ * - Interpolation, fade and the settled check run as one tight loop over contiguous
+ *   arrays instead of one method call per box object
+ * - Rows are compacted together with the store, so live rows are always {@code [0, size)}
+ * - Grows by doubling; steady-state frames allocate nothing
+ * <p>
+ * {@link AnimatedBox} is a handle to one row that keeps the per-box data that is
+ * not animated (ID, label, motion filter, render state).
+ */
+public final class BoxArrays {
+
+    private static final int MIN_CAPACITY = 16;
+
+    float[] currentLeft;
+    float[] currentTop;
+    float[] currentRight;
+    float[] currentBottom;
+    float[] targetLeft;
+    float[] targetTop;
+    float[] targetRight;
+    float[] targetBottom;
+    float[] alpha;
+    float[] targetAlpha;
+    int[] colorIndex;
+    // Hệ số nội suy vị trí của từng hàng trong frame hiện tại (1 với hộp theo bộ lọc Kalman)
+    float[] positionFactor;
+
+    public BoxArrays() {
+        this(MIN_CAPACITY);
+    }
+
+    public BoxArrays(int capacity) {
+        allocate(Math.max(capacity, 1));
+    }
+
+    private void allocate(int capacity) {
+        currentLeft = grow(currentLeft, capacity);
+        currentTop = grow(currentTop, capacity);
+        currentRight = grow(currentRight, capacity);
+        currentBottom = grow(currentBottom, capacity);
+        targetLeft = grow(targetLeft, capacity);
+        targetTop = grow(targetTop, capacity);
+        targetRight = grow(targetRight, capacity);
+        targetBottom = grow(targetBottom, capacity);
+        alpha = grow(alpha, capacity);
+        targetAlpha = grow(targetAlpha, capacity);
+        positionFactor = grow(positionFactor, capacity);
+        colorIndex = colorIndex == null ? new int[capacity] : Arrays.copyOf(colorIndex, capacity);
+    }
+
+    private static float[] grow(float[] array, int capacity) {
+        return array == null ? new float[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    public int getCapacity() {
+        return alpha.length;
+    }
+
+    public void ensureCapacity(int rows) {
+        if (rows > alpha.length) {
+            allocate(Math.max(rows, alpha.length * 2));
+        }
+    }
+
+    /**
+     * Đưa hàng về trạng thái hộp mới: tọa độ 0, trong suốt, đang hiện dần.
+     */
+    public void resetRow(int row) {
+        setCurrent(row, 0f, 0f, 0f, 0f);
+        setTarget(row, 0f, 0f, 0f, 0f);
+        alpha[row] = 0f;
+        targetAlpha[row] = 1f;
+        colorIndex[row] = 0;
+        positionFactor[row] = 0f;
+    }
+
+    /**
+     * Chép hàng {@code from} sang hàng {@code to} (khi store dồn các hộp còn lại).
+     */
+    public void copyRow(int from, int to) {
+        currentLeft[to] = currentLeft[from];
+        currentTop[to] = currentTop[from];
+        currentRight[to] = currentRight[from];
+        currentBottom[to] = currentBottom[from];
+        targetLeft[to] = targetLeft[from];
+        targetTop[to] = targetTop[from];
+        targetRight[to] = targetRight[from];
+        targetBottom[to] = targetBottom[from];
+        alpha[to] = alpha[from];
+        targetAlpha[to] = targetAlpha[from];
+        colorIndex[to] = colorIndex[from];
+        positionFactor[to] = positionFactor[from];
+    }
+
+    public void setCurrent(int row, float left, float top, float right, float bottom) {
+        currentLeft[row] = left;
+        currentTop[row] = top;
+        currentRight[row] = right;
+        currentBottom[row] = bottom;
+    }
+
+    public void setTarget(int row, float left, float top, float right, float bottom) {
+        targetLeft[row] = left;
+        targetTop[row] = top;
+        targetRight[row] = right;
+        targetBottom[row] = bottom;
+    }
+
+    public void setTargetAlpha(int row, float value) {
+        targetAlpha[row] = value;
+    }
+
+    public void setPositionFactor(int row, float factor) {
+        positionFactor[row] = factor;
+    }
+
+    public void readCurrent(int row, BoxRect out) {
+        out.set(currentLeft[row], currentTop[row], currentRight[row], currentBottom[row]);
+    }
+
+    public void readTarget(int row, BoxRect out) {
+        out.set(targetLeft[row], targetTop[row], targetRight[row], targetBottom[row]);
+    }
+
+    public float getAlpha(int row) {
+        return alpha[row];
+    }
+
+    /**
+     * Một bước nội suy cho các hàng {@code [0, count)}: vị trí theo hệ số riêng của từng hàng
+     * ({@link #setPositionFactor}), alpha theo {@code fadeFactor}.
+     *
+     * @return number of rows that have not settled yet
+     */
+    public int animate(int count, float fadeFactor) {
+        int moving = 0;
+        for (int i = 0; i < count; i++) {
+            float factor = positionFactor[i];
+            float left = approach(currentLeft[i], targetLeft[i], factor, AnimatedBox.SETTLE_DISTANCE);
+            float top = approach(currentTop[i], targetTop[i], factor, AnimatedBox.SETTLE_DISTANCE);
+            float right = approach(currentRight[i], targetRight[i], factor, AnimatedBox.SETTLE_DISTANCE);
+            float bottom = approach(currentBottom[i], targetBottom[i], factor, AnimatedBox.SETTLE_DISTANCE);
+            float fade = approach(alpha[i], targetAlpha[i], fadeFactor, AnimatedBox.SETTLE_ALPHA);
+            currentLeft[i] = left;
+            currentTop[i] = top;
+            currentRight[i] = right;
+            currentBottom[i] = bottom;
+            alpha[i] = fade;
+            boolean settled = left == targetLeft[i] && top == targetTop[i] && right == targetRight[i]
+                    && bottom == targetBottom[i] && fade == targetAlpha[i];
+            moving += settled ? 0 : 1;
+        }
+        return moving;
+    }
+
+    /**
+     * Nội suy một hàng (đường đi của {@link AnimatedBox#animate}).
+     */
+    void animateRow(int row, float factor, float fadeFactor) {
+        currentLeft[row] = approach(currentLeft[row], targetLeft[row], factor, AnimatedBox.SETTLE_DISTANCE);
+        currentTop[row] = approach(currentTop[row], targetTop[row], factor, AnimatedBox.SETTLE_DISTANCE);
+        currentRight[row] = approach(currentRight[row], targetRight[row], factor, AnimatedBox.SETTLE_DISTANCE);
+        currentBottom[row] = approach(currentBottom[row], targetBottom[row], factor, AnimatedBox.SETTLE_DISTANCE);
+        alpha[row] = approach(alpha[row], targetAlpha[row], fadeFactor, AnimatedBox.SETTLE_ALPHA);
+    }
+
+    public boolean isSettled(int row) {
+        return alpha[row] == targetAlpha[row]
+                && currentLeft[row] == targetLeft[row]
+                && currentTop[row] == targetTop[row]
+                && currentRight[row] == targetRight[row]
+                && currentBottom[row] == targetBottom[row];
+    }
+
+    static float approach(float start, float end, float factor, float epsilon) {
+        float value = start + (end - start) * factor;
+        // Đủ gần thì gán bằng đích để trạng thái "đứng yên" là chính xác
+        return Math.abs(end - value) < epsilon ? end : value;
+    }
+}
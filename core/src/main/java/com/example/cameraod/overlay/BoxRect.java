@@ -0,0 +1,32 @@
+package com.example.cameraod.overlay;
+
+/**
+ * Mutable float rectangle in view coordinates, the plain-Java counterpart of
+ * {@code android.graphics.RectF}.
+ */
+public final class BoxRect {
+
+    public float left;
+    public float top;
+    public float right;
+    public float bottom;
+
+    public void set(float left, float top, float right, float bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public void set(BoxRect other) {
+        set(other.left, other.top, other.right, other.bottom);
+    }
+
+    public float width() {
+        return right - left;
+    }
+
+    public float height() {
+        return bottom - top;
+    }
+}
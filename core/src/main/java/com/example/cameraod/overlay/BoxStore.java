@@ -0,0 +1,209 @@
+package com.example.cameraod.overlay;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing {@code int -> AnimatedBox} map with insertion-ordered
+ * iteration and a bounded free-list pool of recycled boxes.
+ * Features:
+ * - Primitive keys, linear probing with backward-shift deletion (no tombstones)
+ * - Lookup, iteration and removal allocate nothing
+ * - Removed boxes (with their render state) are reused for new IDs
+ * - Owns the {@link BoxArrays} rows of the boxes, kept in insertion order
+ */
+final class BoxStore {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Bảng băm: keys[i] chỉ có nghĩa khi values[i] != null
+    private int[] keys;
+    private AnimatedBox[] values;
+    private int mask;
+    private int count;
+
+    // Thứ tự thêm vào (dày đặc, không có lỗ); hộp order[i] dùng hàng i của arrays
+    private AnimatedBox[] order;
+    private final BoxArrays arrays = new BoxArrays(MIN_CAPACITY);
+
+    // Pool các hộp đã bị xóa để tái sử dụng
+    private final AnimatedBox[] pool;
+    private int pooled;
+
+    BoxStore(int maxPooled) {
+        this.pool = new AnimatedBox[maxPooled];
+        allocate(MIN_CAPACITY);
+        this.order = new AnimatedBox[MIN_CAPACITY];
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new AnimatedBox[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    AnimatedBox get(int key) {
+        for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lấy một hộp từ pool (hoặc tạo mới) và thêm vào map với ID cho trước.
+     * ID chưa được có trong map.
+     */
+    AnimatedBox obtain(int key, long nowMillis) {
+        AnimatedBox box;
+        if (pooled > 0) {
+            box = pool[--pooled];
+            pool[pooled] = null;
+        } else {
+            box = new AnimatedBox(arrays, count);
+        }
+        box.row = count;
+        arrays.ensureCapacity(count + 1);
+        box.reset(key, nowMillis);
+
+        // Giữ hệ số tải <= 0.5
+        if ((count + 1) * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        insert(key, box);
+
+        if (count > order.length) {
+            order = Arrays.copyOf(order, order.length * 2);
+        }
+        order[count - 1] = box;
+        return box;
+    }
+
+    private void insert(int key, AnimatedBox box) {
+        int i = hash(key) & mask;
+        while (values[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = box;
+        count++;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        AnimatedBox[] oldValues = values;
+        allocate(capacity);
+        count = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void removeKey(int key) {
+        int i = hash(key) & mask;
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == null) {
+            return;
+        }
+
+        // Backward-shift: dời các phần tử phía sau lên để chuỗi dò không bị đứt
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == null) {
+                break;
+            }
+            int home = hash(keys[j]) & mask;
+            boolean inRange = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (inRange) {
+                continue;
+            }
+            keys[i] = keys[j];
+            values[i] = values[j];
+            i = j;
+        }
+        values[i] = null;
+        count--;
+    }
+
+    /**
+     * Xóa các hộp đã mờ hẳn, giữ nguyên thứ tự các hộp còn lại và trả hộp về pool.
+     */
+    void removeFinished() {
+        int size = count;
+        int write = 0;
+        for (int read = 0; read < size; read++) {
+            AnimatedBox box = order[read];
+            if (box.shouldRemove()) {
+                removeKey(box.trackingId);
+                recycle(box);
+            } else {
+                if (write != read) {
+                    arrays.copyRow(read, write);
+                    box.row = write;
+                }
+                order[write++] = box;
+            }
+        }
+        Arrays.fill(order, write, size, null);
+    }
+
+    /**
+     * Xóa ngay hộp không hoạt động cũ nhất (thêm vào sớm nhất) để nhường chỗ.
+     *
+     * @return {@code false} if every box is active
+     */
+    boolean evictOldestInactive() {
+        int size = count;
+        for (int i = 0; i < size; i++) {
+            AnimatedBox box = order[i];
+            if (!box.isActive) {
+                removeKey(box.trackingId);
+                System.arraycopy(order, i + 1, order, i, size - i - 1);
+                order[size - 1] = null;
+                for (int j = i; j < size - 1; j++) {
+                    arrays.copyRow(j + 1, j);
+                    order[j].row = j;
+                }
+                recycle(box);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recycle(AnimatedBox box) {
+        box.inPool = true;
+        if (pooled < pool.length) {
+            pool[pooled++] = box;
+        }
+    }
+
+    /**
+     * Hộp thứ {@code index} theo thứ tự thêm vào.
+     */
+    AnimatedBox valueAt(int index) {
+        return order[index];
+    }
+
+    BoxArrays arrays() {
+        return arrays;
+    }
+
+    int size() {
+        return count;
+    }
+
+    int pooledCount() {
+        return pooled;
+    }
+}
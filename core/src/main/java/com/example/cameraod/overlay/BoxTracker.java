@@ -0,0 +1,277 @@
+package com.example.cameraod.overlay;
+
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.DetectionSnapshot;
+
+import java.util.List;
+
+/**
+ * Keeps one {@link AnimatedBox} per tracked object and matches each new set
+ * of detections against them. Detections without a tracking ID are matched
+ * to existing boxes by IoU / centroid distance and keep a stable synthetic ID.
+ * When detections carry the camera capture time, each box is driven by a
+ * {@link KalmanBoxFilter} and drawn where the object is predicted to be at
+ * display time rather than where it was when the frame was captured.
+ * Detections are transformed and boxes animated in batches over the parallel
+ * arrays of {@link BoxArrays}.
+ * Pure Java so it can be benchmarked on the JVM.
+ */
+public final class BoxTracker {
+
+    public static final long FADE_OUT_DELAY = 200; // Thời gian chờ trước khi mờ dần (ms)
+    public static final int MAX_POOLED_BOXES = 64; // Số hộp tối đa giữ lại để tái sử dụng
+    public static final int MAX_LIVE_BOXES = 256;  // Số hộp tối đa hiển thị cùng lúc
+    public static final long MAX_FRAME_DELTA_NANOS = 100_000_000L; // Giới hạn bước thời gian (frame bị trễ)
+    // Frame vẽ tại vsync này được hiển thị ở vsync kế tiếp
+    public static final long PREDICTION_LEAD_NANOS = Smoothing.REFERENCE_FRAME_NANOS;
+
+    // Lưu trữ các khung hình đang hiển thị (trackingId -> AnimatedBox), khóa int nguyên thủy
+    private final BoxStore boxStore = new BoxStore(MAX_POOLED_BOXES);
+    private int nextTempId = -1; // ID tạm cho vật thể không có tracking ID
+
+    // Ghép vật thể không có tracking ID với hộp ID tạm của frame trước
+    private final UntrackedMatcher untrackedMatcher = new UntrackedMatcher();
+
+    private final BoxRect tempRect = new BoxRect();
+    // Tọa độ View của các vật thể trong frame đang cập nhật (biến đổi theo lô)
+    private float[] objectLeft = new float[16];
+    private float[] objectTop = new float[16];
+    private float[] objectRight = new float[16];
+    private float[] objectBottom = new float[16];
+    private final int paletteSize;
+    private final int maxLiveBoxes;
+
+    // Thời điểm frame animation trước, 0 khi đang đứng yên
+    private long lastFrameTimeNanos = 0;
+
+    /**
+     * @param paletteSize number of overlay colours, used for unlabelled boxes
+     */
+    public BoxTracker(int paletteSize) {
+        this(paletteSize, MAX_LIVE_BOXES);
+    }
+
+    public BoxTracker(int paletteSize, int maxLiveBoxes) {
+        this.paletteSize = paletteSize;
+        this.maxLiveBoxes = maxLiveBoxes;
+    }
+
+    /**
+     * Cập nhật không có timestamp camera: hộp chỉ nội suy về vị trí phát hiện (không dự đoán).
+     */
+    public void update(List<Detection> objects, ViewTransform transform, long nowMillis) {
+        update(objects, transform, nowMillis, 0, false);
+    }
+
+    /**
+     * @param captureTimeNanos camera capture time of the frame, in the same clock as the
+     *                         {@link #animate} frame time
+     * @param measurement      {@code true} if the boxes come from the detector; propagated
+     *                         boxes keep tracks alive but do not correct the Kalman filters
+     */
+    public void update(List<Detection> objects, ViewTransform transform, long nowMillis,
+                       long captureTimeNanos, boolean measurement) {
+        beginUpdate();
+        if (objects != null) {
+            int count = objects.size();
+            ensureObjectCapacity(count);
+            for (int i = 0; i < count; i++) {
+                Detection obj = objects.get(i);
+                objectLeft[i] = obj.getLeft();
+                objectTop[i] = obj.getTop();
+                objectRight[i] = obj.getRight();
+                objectBottom[i] = obj.getBottom();
+            }
+            transform.transform(count, objectLeft, objectTop, objectRight, objectBottom);
+
+            for (int i = 0; i < count; i++) {
+                Detection obj = objects.get(i);
+                Integer trackingId = obj.getTrackingId();
+                Detection.Label topLabel = obj.getLabels().isEmpty() ? null : obj.getLabels().get(0);
+                tempRect.set(objectLeft[i], objectTop[i], objectRight[i], objectBottom[i]);
+                updateObject(trackingId != null ? trackingId : DetectionSnapshot.NO_TRACKING_ID,
+                        topLabel != null ? topLabel.getText() : null,
+                        topLabel != null ? topLabel.getIndex() : DetectionSnapshot.NO_LABEL,
+                        topLabel != null ? topLabel.getConfidence() : 0f,
+                        nowMillis, captureTimeNanos, measurement);
+            }
+        }
+        endUpdate(nowMillis);
+    }
+
+    /**
+     * Cập nhật từ snapshot dạng mảng nguyên thủy (không cấp phát), dùng timestamp camera và
+     * cờ keyframe của snapshot.
+     */
+    public void update(DetectionSnapshot snapshot, ViewTransform transform, long nowMillis) {
+        beginUpdate();
+        int count = snapshot.size();
+        ensureObjectCapacity(count);
+        for (int i = 0; i < count; i++) {
+            objectLeft[i] = snapshot.getLeft(i);
+            objectTop[i] = snapshot.getTop(i);
+            objectRight[i] = snapshot.getRight(i);
+            objectBottom[i] = snapshot.getBottom(i);
+        }
+        transform.transform(count, objectLeft, objectTop, objectRight, objectBottom);
+
+        for (int i = 0; i < count; i++) {
+            tempRect.set(objectLeft[i], objectTop[i], objectRight[i], objectBottom[i]);
+            updateObject(snapshot.getTrackingId(i), snapshot.getLabelText(i), snapshot.getLabelIndex(i),
+                    snapshot.getConfidence(i), nowMillis, snapshot.getTimestampNanos(), snapshot.isKeyframe());
+        }
+        endUpdate(nowMillis);
+    }
+
+    private void ensureObjectCapacity(int count) {
+        if (objectLeft.length < count) {
+            int capacity = Math.max(count, objectLeft.length * 2);
+            objectLeft = new float[capacity];
+            objectTop = new float[capacity];
+            objectRight = new float[capacity];
+            objectBottom = new float[capacity];
+        }
+    }
+
+    private void beginUpdate() {
+        // Đánh dấu tất cả khung cũ là "không hoạt động"
+        for (int i = 0; i < boxStore.size(); i++) {
+            boxStore.valueAt(i).isActive = false;
+        }
+        untrackedMatcher.build(boxStore);
+    }
+
+    /**
+     * Cập nhật hoặc tạo mới khung (Animated Box) cho một vật thể đã biến đổi vào {@code tempRect}.
+     */
+    private void updateObject(int trackingId, String labelText, int labelIndex, float labelConfidence,
+                              long nowMillis, long captureTimeNanos, boolean measurement) {
+        boolean tracked = trackingId != DetectionSnapshot.NO_TRACKING_ID;
+
+        // Lấy Hộp thoại theo Tracking ID, hoặc ghép theo vị trí nếu không có
+        int id;
+        AnimatedBox animBox;
+        if (tracked) {
+            id = trackingId;
+            animBox = boxStore.get(id);
+        } else {
+            animBox = untrackedMatcher.match(tempRect);
+            id = animBox != null ? animBox.trackingId : nextTempId;
+        }
+
+        if (animBox == null) {
+            // Giới hạn số hộp: nhường chỗ từ hộp không hoạt động cũ nhất, nếu không thì bỏ qua
+            if (boxStore.size() >= maxLiveBoxes && !boxStore.evictOldestInactive()) {
+                return;
+            }
+            if (!tracked) {
+                nextTempId = nextTempId == Integer.MIN_VALUE ? -1 : nextTempId - 1;
+            }
+            animBox = boxStore.obtain(id, nowMillis);
+            // Đặt vị trí ban đầu tại mục tiêu cho hộp mới
+            animBox.setCurrent(tempRect);
+        }
+
+        // Lấy nhãn và màu sắc (màu theo ID để không đổi giữa các frame)
+        String label = LabelCatalog.DEFAULT_LABEL;
+        float confidence = 0f;
+        int colorIndex = Math.floorMod(id, paletteSize);
+
+        if (labelText != null) {
+            label = LabelCatalog.translate(labelText);
+            confidence = labelConfidence;
+            colorIndex = LabelCatalog.colorIndexFor(labelIndex);
+        }
+
+        animBox.updateTarget(tempRect, label, confidence, colorIndex, nowMillis);
+        if (measurement) {
+            animBox.motion.correct(tempRect, captureTimeNanos);
+        }
+    }
+
+    private void endUpdate(long nowMillis) {
+        // Bắt đầu làm mờ các khung không còn hoạt động
+        for (int i = 0; i < boxStore.size(); i++) {
+            AnimatedBox box = boxStore.valueAt(i);
+            if (!box.isActive && box.targetAlpha() > 0 &&
+                (nowMillis - box.lastUpdateTime) > FADE_OUT_DELAY) {
+                box.startFadeOut();
+            }
+        }
+    }
+
+    public void fadeOutAll() {
+        for (int i = 0; i < boxStore.size(); i++) {
+            boxStore.valueAt(i).startFadeOut();
+        }
+    }
+
+    /**
+     * Chạy animation cho tất cả các hộp tới thời điểm {@code frameTimeNanos}
+     * (timestamp vsync) và xóa các hộp đã mờ hẳn.
+     *
+     * @return {@code true} if any box is still moving; {@code false} once everything has
+     *         settled and no further frames are needed
+     */
+    public boolean animate(long frameTimeNanos) {
+        // Frame đầu tiên sau khi đứng yên dùng một frame chuẩn
+        long delta = lastFrameTimeNanos == 0
+                ? Smoothing.REFERENCE_FRAME_NANOS
+                : Math.min(frameTimeNanos - lastFrameTimeNanos, MAX_FRAME_DELTA_NANOS);
+        lastFrameTimeNanos = frameTimeNanos;
+
+        float positionFactor = Smoothing.factor(AnimatedBox.LERP_FACTOR, delta);
+        float fadeFactor = Smoothing.factor(AnimatedBox.FADE_SPEED, delta);
+
+        long displayTimeNanos = frameTimeNanos + PREDICTION_LEAD_NANOS;
+        BoxArrays arrays = boxStore.arrays();
+        int count = boxStore.size();
+        for (int i = 0; i < count; i++) {
+            AnimatedBox box = boxStore.valueAt(i);
+            if (box.motion.isInitialized()) {
+                // Bộ lọc Kalman đã làm mượt, vẽ thẳng tại vị trí dự đoán (không thêm độ trễ lerp)
+                box.motion.predict(displayTimeNanos, tempRect);
+                box.setTarget(tempRect);
+                arrays.setPositionFactor(i, 1f);
+            } else {
+                arrays.setPositionFactor(i, positionFactor);
+            }
+        }
+
+        // Nội suy vị trí và độ mờ của mọi hộp theo lô
+        arrays.animate(count, fadeFactor);
+
+        boolean moving = false;
+        for (int i = 0; i < count && !moving; i++) {
+            AnimatedBox box = boxStore.valueAt(i);
+            boolean animating = !arrays.isSettled(i)
+                    || (box.motion.isInitialized() && box.motion.isMoving(displayTimeNanos));
+            if (animating && !box.shouldRemove()) {
+                moving = true;
+            }
+        }
+
+        // Trả các hộp đã mờ hẳn về pool
+        boxStore.removeFinished();
+
+        if (!moving) {
+            lastFrameTimeNanos = 0;
+        }
+        return moving;
+    }
+
+    /**
+     * Hộp thứ {@code index} theo thứ tự thêm vào, {@code 0 <= index < size()}.
+     */
+    public AnimatedBox getBox(int index) {
+        return boxStore.valueAt(index);
+    }
+
+    public boolean isEmpty() {
+        return boxStore.size() == 0;
+    }
+
+    public int size() {
+        return boxStore.size();
+    }
+}
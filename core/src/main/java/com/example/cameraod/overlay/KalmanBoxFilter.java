@@ -0,0 +1,149 @@
+package com.example.cameraod.overlay;
+
+/**
+ * Constant-velocity Kalman filter for one tracked box. The centre and size
+ * are four independent axes, each with a position/velocity state and a 2x2
+ * covariance. Measurements are stamped with the camera capture time, so the
+ * box can be predicted forward to the display time to cancel pipeline latency.
+ * Features:
+ * - State in primitive arrays, updates and predictions allocate nothing
+ * - Out-of-order measurements are ignored
+ * - Extrapolation is capped at {@link #MAX_PREDICTION_NANOS} after the last measurement
+ */
+public final class KalmanBoxFilter {
+
+    public static final long MAX_PREDICTION_NANOS = 300_000_000L; // Không ngoại suy quá 0.3 s sau lần đo cuối
+    public static final float MIN_SPEED = 5f; // px/s, chậm hơn coi như đứng yên
+
+    // Nhiễu (đơn vị pixel của view)
+    static final double MEASUREMENT_NOISE = 4.0;           // Độ lệch chuẩn của phép đo (px)
+    static final double CENTER_ACCELERATION_NOISE = 200.0; // Độ lệch chuẩn gia tốc của tâm (px/s²)
+    static final double SIZE_ACCELERATION_NOISE = 100.0;   // Độ lệch chuẩn gia tốc của kích thước (px/s²)
+    static final double INITIAL_VELOCITY_STD = 500.0;      // Độ bất định vận tốc ban đầu (px/s)
+
+    private static final int AXES = 4; // tâm x, tâm y, rộng, cao
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // Trạng thái từng trục: vị trí (px), vận tốc (px/s), hiệp phương sai [p00 p01; p01 p11]
+    private final double[] position = new double[AXES];
+    private final double[] velocity = new double[AXES];
+    private final double[] p00 = new double[AXES];
+    private final double[] p01 = new double[AXES];
+    private final double[] p11 = new double[AXES];
+    private final double[] measurement = new double[AXES];
+
+    private long timestampNanos;
+    private boolean initialized = false;
+
+    public void reset() {
+        initialized = false;
+        timestampNanos = 0;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Dự đoán tới {@code captureTimeNanos} rồi hiệu chỉnh bằng hộp đo được.
+     * Phép đo cũ hơn lần đo trước bị bỏ qua.
+     */
+    public void correct(BoxRect measured, long captureTimeNanos) {
+        measurement[0] = (measured.left + measured.right) * 0.5;
+        measurement[1] = (measured.top + measured.bottom) * 0.5;
+        measurement[2] = measured.width();
+        measurement[3] = measured.height();
+
+        double r = MEASUREMENT_NOISE * MEASUREMENT_NOISE;
+        if (!initialized) {
+            for (int axis = 0; axis < AXES; axis++) {
+                position[axis] = measurement[axis];
+                velocity[axis] = 0;
+                p00[axis] = r;
+                p01[axis] = 0;
+                p11[axis] = INITIAL_VELOCITY_STD * INITIAL_VELOCITY_STD;
+            }
+            timestampNanos = captureTimeNanos;
+            initialized = true;
+            return;
+        }
+        if (captureTimeNanos < timestampNanos) {
+            return;
+        }
+
+        double dt = (captureTimeNanos - timestampNanos) / NANOS_PER_SECOND;
+        timestampNanos = captureTimeNanos;
+        for (int axis = 0; axis < AXES; axis++) {
+            double noise = axis < 2 ? CENTER_ACCELERATION_NOISE : SIZE_ACCELERATION_NOISE;
+            double q = noise * noise;
+
+            // Dự đoán (mô hình gia tốc nhiễu trắng)
+            position[axis] += velocity[axis] * dt;
+            p00[axis] += dt * (2 * p01[axis] + dt * p11[axis]) + q * dt * dt * dt / 3;
+            p01[axis] += dt * p11[axis] + q * dt * dt / 2;
+            p11[axis] += q * dt;
+
+            // Hiệu chỉnh
+            double s = p00[axis] + r;
+            double k0 = p00[axis] / s;
+            double k1 = p01[axis] / s;
+            double innovation = measurement[axis] - position[axis];
+            position[axis] += k0 * innovation;
+            velocity[axis] += k1 * innovation;
+            p11[axis] -= k1 * p01[axis];
+            p00[axis] *= 1 - k0;
+            p01[axis] *= 1 - k0;
+        }
+    }
+
+    /**
+     * Ngoại suy hộp tới {@code timeNanos} (không thay đổi trạng thái bộ lọc).
+     */
+    public void predict(long timeNanos, BoxRect out) {
+        double dt = clampedDelta(timeNanos);
+        double cx = position[0] + velocity[0] * dt;
+        double cy = position[1] + velocity[1] * dt;
+        double halfWidth = Math.max(0, position[2] + velocity[2] * dt) * 0.5;
+        double halfHeight = Math.max(0, position[3] + velocity[3] * dt) * 0.5;
+        out.set((float) (cx - halfWidth), (float) (cy - halfHeight),
+                (float) (cx + halfWidth), (float) (cy + halfHeight));
+    }
+
+    /**
+     * Hộp còn đang di chuyển tại {@code timeNanos} (chưa vượt giới hạn ngoại suy).
+     */
+    public boolean isMoving(long timeNanos) {
+        if (!initialized || timeNanos - timestampNanos >= MAX_PREDICTION_NANOS) {
+            return false;
+        }
+        for (int axis = 0; axis < AXES; axis++) {
+            if (Math.abs(velocity[axis]) > MIN_SPEED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double clampedDelta(long timeNanos) {
+        long delta = Math.max(0, Math.min(timeNanos - timestampNanos, MAX_PREDICTION_NANOS));
+        return delta / NANOS_PER_SECOND;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * Vận tốc tâm theo trục x (px/s).
+     */
+    public float getVelocityX() {
+        return (float) velocity[0];
+    }
+
+    /**
+     * Vận tốc tâm theo trục y (px/s).
+     */
+    public float getVelocityY() {
+        return (float) velocity[1];
+    }
+}
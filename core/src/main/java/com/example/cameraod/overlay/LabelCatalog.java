@@ -0,0 +1,79 @@
+package com.example.cameraod.overlay;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Vietnamese display names and colour indices for detector labels.
+ */
+public final class LabelCatalog {
+
+    public static final String DEFAULT_LABEL = "Vật thể";
+
+    // Ánh xạ danh mục sang màu sắc
+    private static final Map<Integer, Integer> CATEGORY_COLOR_INDEX = new HashMap<>();
+    static {
+        CATEGORY_COLOR_INDEX.put(0, 0);
+        CATEGORY_COLOR_INDEX.put(1, 1);
+        CATEGORY_COLOR_INDEX.put(2, 2);
+        CATEGORY_COLOR_INDEX.put(3, 3);
+        CATEGORY_COLOR_INDEX.put(4, 4);
+        CATEGORY_COLOR_INDEX.put(5, 5);
+    }
+
+    // Từ điển dịch sang Tiếng Việt
+    private static final Map<String, String> VIETNAMESE_LABELS = new HashMap<>();
+    static {
+        VIETNAMESE_LABELS.put("Food", "Thực phẩm");
+        VIETNAMESE_LABELS.put("Home good", "Đồ gia dụng");
+        VIETNAMESE_LABELS.put("Home goods", "Đồ gia dụng");
+        VIETNAMESE_LABELS.put("Fashion good", "Thời trang");
+        VIETNAMESE_LABELS.put("Fashion goods", "Thời trang");
+        VIETNAMESE_LABELS.put("Place", "Địa điểm");
+        VIETNAMESE_LABELS.put("Plant", "Cây cối");
+        VIETNAMESE_LABELS.put("Animal", "Động vật");
+        VIETNAMESE_LABELS.put("Object", "Vật thể");
+        VIETNAMESE_LABELS.put("Person", "Người");
+        VIETNAMESE_LABELS.put("Car", "Xe hơi");
+        VIETNAMESE_LABELS.put("Chair", "Ghế");
+        VIETNAMESE_LABELS.put("Table", "Bàn");
+        VIETNAMESE_LABELS.put("Phone", "Điện thoại");
+        VIETNAMESE_LABELS.put("Laptop", "Máy tính");
+        VIETNAMESE_LABELS.put("Book", "Sách");
+        VIETNAMESE_LABELS.put("Bottle", "Chai");
+        VIETNAMESE_LABELS.put("Cup", "Cốc");
+        VIETNAMESE_LABELS.put("Keyboard", "Bàn phím");
+        VIETNAMESE_LABELS.put("Mouse", "Chuột");
+    }
+
+    private static final Set<String> DISPLAY_NAMES;
+    static {
+        Set<String> names = new LinkedHashSet<>(VIETNAMESE_LABELS.values());
+        names.add(DEFAULT_LABEL);
+        DISPLAY_NAMES = Collections.unmodifiableSet(names);
+    }
+
+    private LabelCatalog() {
+    }
+
+    /**
+     * Dịch nhãn sang Tiếng Việt, giữ nguyên nếu không có trong từ điển.
+     */
+    public static String translate(String englishLabel) {
+        return VIETNAMESE_LABELS.getOrDefault(englishLabel, englishLabel);
+    }
+
+    /**
+     * Mọi tên hiển thị đã biết (không trùng lặp), gồm cả {@link #DEFAULT_LABEL}.
+     */
+    public static Set<String> displayNames() {
+        return DISPLAY_NAMES;
+    }
+
+    public static int colorIndexFor(int labelIndex) {
+        return CATEGORY_COLOR_INDEX.getOrDefault(labelIndex, 0);
+    }
+}
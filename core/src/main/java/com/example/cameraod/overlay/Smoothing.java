@@ -0,0 +1,26 @@
+package com.example.cameraod.overlay;
+
+/**
+ * Frame-rate-independent exponential smoothing. Factors are specified per
+ * reference 60 Hz frame and converted to the actual frame interval, so motion
+ * is identical at 60, 90 and 120 Hz.
+ */
+public final class Smoothing {
+
+    public static final long REFERENCE_FRAME_NANOS = 16_666_667L; // 1 frame ở 60 Hz
+
+    private Smoothing() {
+    }
+
+    /**
+     * Hệ số nội suy cho khoảng thời gian {@code deltaNanos}:
+     * {@code 1 - (1 - perFrameFactor)^(delta / referenceFrame)}.
+     */
+    public static float factor(float perFrameFactor, long deltaNanos) {
+        if (deltaNanos <= 0) {
+            return 0f;
+        }
+        double frames = (double) deltaNanos / REFERENCE_FRAME_NANOS;
+        return (float) (1.0 - Math.pow(1.0 - perFrameFactor, frames));
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.cameraod.overlay;
+
+import java.util.Arrays;
+
+/**
+ * Matches detections without a tracking ID to existing synthetic-ID boxes by
+ * IoU, falling back to centroid distance. Candidates are bucketed by centre
+ * into a uniform grid so each query only looks at nearby boxes.
+ */
+final class UntrackedMatcher {
+
+    static final float MIN_IOU = 0.3f;             // IoU tối thiểu để coi là cùng vật thể
+    static final float MAX_CENTER_DISTANCE = 0.5f; // Khoảng cách tâm tối đa, theo tỉ lệ đường chéo
+
+    private static final float MIN_CELL_SIZE = 64f;
+    private static final int MAX_GRID_SIDE = 32;
+
+    // Ứng viên: các hộp có ID tạm (âm)
+    private AnimatedBox[] candidates = new AnimatedBox[16];
+    private int[] candidateIds = new int[16];
+    private float[] centerX = new float[16];
+    private float[] centerY = new float[16];
+    private int[] next = new int[16];
+    private int count;
+
+    // Lưới đồng nhất: cellHead[cell] -> ứng viên đầu tiên, next[] nối các ứng viên cùng ô
+    private int[] cellHead = new int[MAX_GRID_SIDE * MAX_GRID_SIDE];
+    private int cols;
+    private int rows;
+    private float originX;
+    private float originY;
+    private float cellSize;
+
+    /**
+     * Dựng lại lưới từ các hộp có ID tạm hiện có. Gọi một lần mỗi frame trước {@link #match}.
+     */
+    void build(BoxStore store) {
+        count = 0;
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+
+        BoxArrays arrays = store.arrays();
+        for (int i = 0; i < store.size(); i++) {
+            AnimatedBox box = store.valueAt(i);
+            if (box.trackingId >= 0) {
+                continue;
+            }
+            ensureCapacity(count + 1);
+            float cx = (arrays.targetLeft[i] + arrays.targetRight[i]) * 0.5f;
+            float cy = (arrays.targetTop[i] + arrays.targetBottom[i]) * 0.5f;
+            candidates[count] = box;
+            candidateIds[count] = box.trackingId;
+            centerX[count] = cx;
+            centerY[count] = cy;
+            minX = Math.min(minX, cx);
+            minY = Math.min(minY, cy);
+            maxX = Math.max(maxX, cx);
+            maxY = Math.max(maxY, cy);
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        // Kích thước ô: đủ lớn để lưới không vượt quá MAX_GRID_SIDE x MAX_GRID_SIDE
+        float span = Math.max(maxX - minX, maxY - minY);
+        cellSize = Math.max(MIN_CELL_SIZE, span / MAX_GRID_SIDE);
+        originX = minX;
+        originY = minY;
+        cols = Math.min(MAX_GRID_SIDE, (int) ((maxX - minX) / cellSize) + 1);
+        rows = Math.min(MAX_GRID_SIDE, (int) ((maxY - minY) / cellSize) + 1);
+        Arrays.fill(cellHead, 0, cols * rows, -1);
+
+        for (int k = 0; k < count; k++) {
+            int cell = cellRow(centerY[k]) * cols + cellCol(centerX[k]);
+            next[k] = cellHead[cell];
+            cellHead[cell] = k;
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= candidates.length) {
+            return;
+        }
+        int capacity = candidates.length * 2;
+        candidates = Arrays.copyOf(candidates, capacity);
+        candidateIds = Arrays.copyOf(candidateIds, capacity);
+        centerX = Arrays.copyOf(centerX, capacity);
+        centerY = Arrays.copyOf(centerY, capacity);
+        next = Arrays.copyOf(next, capacity);
+    }
+
+    private int cellCol(float x) {
+        return clamp((int) Math.floor((x - originX) / cellSize), cols);
+    }
+
+    private int cellRow(float y) {
+        return clamp((int) Math.floor((y - originY) / cellSize), rows);
+    }
+
+    private static int clamp(int value, int size) {
+        return value < 0 ? 0 : (value >= size ? size - 1 : value);
+    }
+
+    /**
+     * Tìm hộp ID tạm chưa được ghép trong frame này khớp nhất với {@code rect}.
+     *
+     * @return the matched box, or {@code null} if none is close enough
+     */
+    AnimatedBox match(BoxRect rect) {
+        if (count == 0) {
+            return null;
+        }
+
+        float cx = (rect.left + rect.right) * 0.5f;
+        float cy = (rect.top + rect.bottom) * 0.5f;
+        float diagonal = (float) Math.hypot(rect.width(), rect.height());
+        // Với hộp cùng cỡ, IoU >= MIN_IOU cũng kéo theo tâm nằm trong maxDistance
+        float maxDistance = MAX_CENTER_DISTANCE * diagonal;
+
+        int col0 = cellCol(cx - maxDistance);
+        int col1 = cellCol(cx + maxDistance);
+        int row0 = cellRow(cy - maxDistance);
+        int row1 = cellRow(cy + maxDistance);
+
+        AnimatedBox best = null;
+        float bestScore = 0f;
+        for (int row = row0; row <= row1; row++) {
+            for (int col = col0; col <= col1; col++) {
+                for (int k = cellHead[row * cols + col]; k >= 0; k = next[k]) {
+                    AnimatedBox box = candidates[k];
+                    // Bỏ qua hộp đã ghép (isActive), đã bị xóa hoặc đã bị tái chế sang ID khác
+                    if (box.isActive || box.inPool || box.trackingId != candidateIds[k]) {
+                        continue;
+                    }
+                    float score = score(rect, box.getTargetRect(), cx - centerX[k], cy - centerY[k], maxDistance);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = box;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Điểm ghép: IoU đạt ngưỡng cho điểm trong (1, 2]; nếu không, khoảng cách tâm gần cho điểm (0, 1].
+     */
+    private static float score(BoxRect a, BoxRect b, float dx, float dy, float maxDistance) {
+        float iou = iou(a, b);
+        if (iou >= MIN_IOU) {
+            return 1f + iou;
+        }
+        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        if (maxDistance > 0f && distance <= maxDistance) {
+            return 1f - distance / maxDistance * 0.999f;
+        }
+        return 0f;
+    }
+
+    static float iou(BoxRect a, BoxRect b) {
+        float w = Math.min(a.right, b.right) - Math.max(a.left, b.left);
+        float h = Math.min(a.bottom, b.bottom) - Math.max(a.top, b.top);
+        if (w <= 0f || h <= 0f) {
+            return 0f;
+        }
+        float intersection = w * h;
+        float union = a.width() * a.height() + b.width() * b.height() - intersection;
+        return union > 0f ? intersection / union : 0f;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.cameraod.overlay;
+
+import com.example.cameraod.pipeline.Detection;
+
+/**
+ * Maps detector image coordinates into overlay view coordinates
+ * (center-crop "fill" scaling, honouring the image rotation).
+ */
+public final class ViewTransform {
+
+    // Kích thước ảnh gốc từ Camera
+    private int imageWidth = 0;
+    private int imageHeight = 0;
+    private int imageRotation = 0;
+
+    // Kích thước View
+    private int viewWidth = 0;
+    private int viewHeight = 0;
+
+    // Các thông số biến đổi tọa độ
+    private float scaleX = 1f;
+    private float scaleY = 1f;
+    private float offsetX = 0f;
+    private float offsetY = 0f;
+
+    /**
+     * @return {@code true} if the image size or rotation changed
+     */
+    public boolean setImageSize(int width, int height, int rotation) {
+        if (imageWidth == width && imageHeight == height && imageRotation == rotation) {
+            return false;
+        }
+        imageWidth = width;
+        imageHeight = height;
+        imageRotation = rotation;
+        update();
+        return true;
+    }
+
+    public void setViewSize(int width, int height) {
+        viewWidth = width;
+        viewHeight = height;
+        update();
+    }
+
+    private void update() {
+        if (imageWidth == 0 || imageHeight == 0 || viewWidth == 0 || viewHeight == 0) {
+            return;
+        }
+
+        boolean isRotated = imageRotation == 90 || imageRotation == 270;
+        int mlKitWidth = isRotated ? imageHeight : imageWidth;
+        int mlKitHeight = isRotated ? imageWidth : imageHeight;
+
+        float viewAspect = (float) viewWidth / viewHeight;
+        float imageAspect = (float) mlKitWidth / mlKitHeight;
+
+        if (viewAspect > imageAspect) {
+            scaleX = (float) viewWidth / mlKitWidth;
+            scaleY = scaleX;
+        } else {
+            scaleY = (float) viewHeight / mlKitHeight;
+            scaleX = scaleY;
+        }
+
+        offsetX = (viewWidth - mlKitWidth * scaleX) / 2f;
+        offsetY = (viewHeight - mlKitHeight * scaleY) / 2f;
+    }
+
+    public void transform(Detection imageRect, BoxRect viewRect) {
+        transform(imageRect.getLeft(), imageRect.getTop(), imageRect.getRight(), imageRect.getBottom(),
+                viewRect);
+    }
+
+    public void transform(float left, float top, float right, float bottom, BoxRect viewRect) {
+        viewRect.left = left * scaleX + offsetX;
+        viewRect.top = top * scaleY + offsetY;
+        viewRect.right = right * scaleX + offsetX;
+        viewRect.bottom = bottom * scaleY + offsetY;
+    }
+
+    /**
+     * Biến đổi tại chỗ {@code count} hộp ở dạng mảng song song, mỗi mảng một vòng lặp liên tục.
+     */
+    public void transform(int count, float[] left, float[] top, float[] right, float[] bottom) {
+        scale(left, count, scaleX, offsetX);
+        scale(top, count, scaleY, offsetY);
+        scale(right, count, scaleX, offsetX);
+        scale(bottom, count, scaleY, offsetY);
+    }
+
+    private static void scale(float[] values, int count, float scale, float offset) {
+        for (int i = 0; i < count; i++) {
+            values[i] = values[i] * scale + offset;
+        }
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public int getImageRotation() {
+        return imageRotation;
+    }
+
+    public float getScaleX() {
+        return scaleX;
+    }
+
+    public float getScaleY() {
+        return scaleY;
+    }
+
+    public float getOffsetX() {
+        return offsetX;
+    }
+
+    public float getOffsetY() {
+        return offsetY;
+    }
+}
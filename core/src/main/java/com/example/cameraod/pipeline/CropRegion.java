@@ -0,0 +1,124 @@
+package com.example.cameraod.pipeline;
+
+/**
+ * Immutable integer rectangle used to crop analysis frames. Provides the
+ * conversions between upright image coordinates (the space of
+ * {@link Detection}) and sensor buffer coordinates for a given rotation.
+ */
+public final class CropRegion {
+
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+
+    public CropRegion(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public static CropRegion full(int width, int height) {
+        return new CropRegion(0, 0, width, height);
+    }
+
+    public boolean isFull(int width, int height) {
+        return left <= 0 && top <= 0 && right >= width && bottom >= height;
+    }
+
+    /**
+     * Chuyển từ tọa độ ảnh thẳng đứng sang tọa độ buffer cảm biến.
+     *
+     * @param rotationDegrees clockwise rotation that makes the sensor image upright
+     * @param sensorWidth     sensor buffer width
+     * @param sensorHeight    sensor buffer height
+     */
+    public CropRegion uprightToSensor(int rotationDegrees, int sensorWidth, int sensorHeight) {
+        switch (rotationDegrees) {
+            case 90:
+                return new CropRegion(top, sensorHeight - right, bottom, sensorHeight - left);
+            case 180:
+                return new CropRegion(sensorWidth - right, sensorHeight - bottom,
+                        sensorWidth - left, sensorHeight - top);
+            case 270:
+                return new CropRegion(sensorWidth - bottom, left, sensorWidth - top, right);
+            default:
+                return this;
+        }
+    }
+
+    /**
+     * Chuyển từ tọa độ buffer cảm biến sang tọa độ ảnh thẳng đứng (phép ngược của {@link #uprightToSensor}).
+     */
+    public CropRegion sensorToUpright(int rotationDegrees, int sensorWidth, int sensorHeight) {
+        switch (rotationDegrees) {
+            case 90:
+                return new CropRegion(sensorHeight - bottom, left, sensorHeight - top, right);
+            case 180:
+                return new CropRegion(sensorWidth - right, sensorHeight - bottom,
+                        sensorWidth - left, sensorHeight - top);
+            case 270:
+                return new CropRegion(top, sensorWidth - right, bottom, sensorWidth - left);
+            default:
+                return this;
+        }
+    }
+
+    /**
+     * Mở rộng tới tọa độ chẵn (yêu cầu của lấy mẫu màu YUV 4:2:0) và giới hạn trong ảnh.
+     */
+    public CropRegion alignEven(int width, int height) {
+        int alignedLeft = Math.max(0, left) & ~1;
+        int alignedTop = Math.max(0, top) & ~1;
+        int alignedRight = Math.min(width & ~1, (Math.min(width, right) + 1) & ~1);
+        int alignedBottom = Math.min(height & ~1, (Math.min(height, bottom) + 1) & ~1);
+        return new CropRegion(alignedLeft, alignedTop, alignedRight, alignedBottom);
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getRight() {
+        return right;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CropRegion)) {
+            return false;
+        }
+        CropRegion other = (CropRegion) o;
+        return left == other.left && top == other.top && right == other.right && bottom == other.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((left * 31 + top) * 31 + right) * 31 + bottom;
+    }
+
+    @Override
+    public String toString() {
+        return "CropRegion(" + left + ", " + top + " - " + right + ", " + bottom + ")";
+    }
+}
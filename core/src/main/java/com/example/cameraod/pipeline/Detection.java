@@ -0,0 +1,93 @@
+package com.example.cameraod.pipeline;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plain-Java detection result, independent of ML Kit and Android types.
+ * Mirrors the shape of {@code DetectedObject} so the overlay and filters can
+ * consume results from any {@link Detector}.
+ */
+public final class Detection {
+
+    /**
+     * Nhãn phân loại của vật thể.
+     */
+    public static final class Label {
+        private final String text;
+        private final int index;
+        private final float confidence;
+
+        public Label(String text, int index, float confidence) {
+            this.text = text;
+            this.index = index;
+            this.confidence = confidence;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public float getConfidence() {
+            return confidence;
+        }
+    }
+
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+    private final Integer trackingId;
+    private final List<Label> labels;
+
+    public Detection(int left, int top, int right, int bottom, Integer trackingId, List<Label> labels) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        this.trackingId = trackingId;
+        this.labels = labels != null ? labels : Collections.<Label>emptyList();
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getRight() {
+        return right;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+
+    /**
+     * Tracking ID từ bộ nhận diện, hoặc {@code null} nếu không có.
+     */
+    public Integer getTrackingId() {
+        return trackingId;
+    }
+
+    /**
+     * Các nhãn, sắp xếp theo độ tin cậy giảm dần.
+     */
+    public List<Label> getLabels() {
+        return labels;
+    }
+}
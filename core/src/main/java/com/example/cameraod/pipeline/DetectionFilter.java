@@ -0,0 +1,14 @@
+package com.example.cameraod.pipeline;
+
+import java.util.List;
+
+/**
+ * Post-detection filter stage of the {@link FramePipeline}. The image size is
+ * the upright size, the coordinate space of {@link Detection}.
+ */
+public interface DetectionFilter {
+
+    DetectionFilter NONE = (detections, imageWidth, imageHeight) -> detections;
+
+    List<Detection> filter(List<Detection> detections, int imageWidth, int imageHeight);
+}
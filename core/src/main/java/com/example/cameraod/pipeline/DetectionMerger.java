@@ -0,0 +1,231 @@
+package com.example.cameraod.pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class-aware non-maximum suppression that merges the detections of several models
+ * into one list.
+ * Features:
+ * - Candidates are visited in descending confidence order (one primitive sort of
+ *   packed score/index keys); a candidate is dropped when it overlaps an already kept
+ *   box of the same class by more than the IoU threshold
+ * - Kept boxes are bucketed in a uniform grid over the candidates' extent, so each
+ *   candidate is only compared with kept boxes in the cells it covers instead of
+ *   with every kept box
+ * - Boxes of different classes never suppress each other; the class is the text of
+ *   the top label (unlabelled boxes form one class)
+ * - A kept box without a tracking ID takes the ID of the first tracked box it
+ *   suppressed, so overlay tracks survive a model switch
+ * - Working arrays are reused across calls; only the output list is allocated
+ * <p>
+ * Not thread-safe; use one instance per thread.
+ */
+public final class DetectionMerger {
+
+    public static final float DEFAULT_IOU_THRESHOLD = 0.5f;
+    static final int GRID_SIZE = 16; // Lưới 16x16 ô phủ vùng chứa mọi ứng viên
+
+    private static final int NONE = -1;
+
+    private final float iouThreshold;
+    private final Map<String, Integer> classIds = new HashMap<>();
+
+    // Ứng viên (theo thứ tự đầu vào)
+    private float[] left = new float[0];
+    private float[] top = new float[0];
+    private float[] right = new float[0];
+    private float[] bottom = new float[0];
+    private float[] score = new float[0];
+    private int[] classId = new int[0];
+    private long[] order = new long[0];
+    private int[] visited = new int[0];
+    private int[] keptRows = new int[0];
+    private int[] inheritedId = new int[0];
+    private boolean[] hasInheritedId = new boolean[0];
+
+    // Danh sách móc nối của các hộp đã giữ trong từng ô lưới
+    private final int[] cellHead = new int[GRID_SIZE * GRID_SIZE];
+    private int[] entryBox = new int[0];
+    private int[] entryNext = new int[0];
+    private int entryCount;
+
+    private long comparisonCount;
+
+    public DetectionMerger() {
+        this(DEFAULT_IOU_THRESHOLD);
+    }
+
+    public DetectionMerger(float iouThreshold) {
+        if (iouThreshold <= 0f || iouThreshold > 1f) {
+            throw new IllegalArgumentException("iouThreshold must be in (0, 1]");
+        }
+        this.iouThreshold = iouThreshold;
+    }
+
+    /**
+     * Gộp các ứng viên (từ một hoặc nhiều detector).
+     *
+     * @return the kept detections in descending confidence order
+     */
+    public List<Detection> merge(List<Detection> candidates) {
+        int n = candidates.size();
+        ensureCapacity(n);
+        classIds.clear();
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            Detection d = candidates.get(i);
+            left[i] = d.getLeft();
+            top[i] = d.getTop();
+            right[i] = d.getRight();
+            bottom[i] = d.getBottom();
+            minX = Math.min(minX, left[i]);
+            minY = Math.min(minY, top[i]);
+            maxX = Math.max(maxX, right[i]);
+            maxY = Math.max(maxY, bottom[i]);
+
+            String label = null;
+            float confidence = 0f;
+            if (!d.getLabels().isEmpty()) {
+                Detection.Label best = d.getLabels().get(0);
+                label = best.getText();
+                confidence = best.getConfidence();
+            }
+            Integer id = classIds.get(label);
+            if (id == null) {
+                id = classIds.size();
+                classIds.put(label, id);
+            }
+            classId[i] = id;
+            score[i] = Math.max(confidence, 0f);
+            // Điểm không âm: thứ tự bit của float trùng thứ tự giá trị, đảo để sắp giảm dần
+            order[i] = ((long) (Integer.MAX_VALUE - Float.floatToIntBits(score[i])) << 32) | i;
+            visited[i] = NONE;
+            hasInheritedId[i] = false;
+        }
+        Arrays.sort(order, 0, n);
+
+        Arrays.fill(cellHead, NONE);
+        entryCount = 0;
+        float cellWidth = Math.max((maxX - minX) / GRID_SIZE, 1f);
+        float cellHeight = Math.max((maxY - minY) / GRID_SIZE, 1f);
+
+        int keptCount = 0;
+        for (int k = 0; k < n; k++) {
+            int i = (int) order[k];
+            int col0 = cell(left[i], minX, cellWidth);
+            int col1 = cell(right[i], minX, cellWidth);
+            int row0 = cell(top[i], minY, cellHeight);
+            int row1 = cell(bottom[i], minY, cellHeight);
+
+            int suppressor = findSuppressor(i, col0, col1, row0, row1);
+            if (suppressor != NONE) {
+                Integer trackingId = candidates.get(i).getTrackingId();
+                if (trackingId != null && !hasInheritedId[suppressor]) {
+                    hasInheritedId[suppressor] = true;
+                    inheritedId[suppressor] = trackingId;
+                }
+                continue;
+            }
+            for (int row = row0; row <= row1; row++) {
+                for (int col = col0; col <= col1; col++) {
+                    addEntry(row * GRID_SIZE + col, i);
+                }
+            }
+            keptRows[keptCount++] = i;
+        }
+
+        List<Detection> kept = new ArrayList<>(keptCount);
+        for (int k = 0; k < keptCount; k++) {
+            int i = keptRows[k];
+            Detection d = candidates.get(i);
+            if (d.getTrackingId() == null && hasInheritedId[i]) {
+                // Hộp giữ lại không có tracking ID thì nhận ID của hộp nó đã loại
+                d = new Detection(d.getLeft(), d.getTop(), d.getRight(), d.getBottom(),
+                        inheritedId[i], d.getLabels());
+            }
+            kept.add(d);
+        }
+        return kept;
+    }
+
+    private int findSuppressor(int i, int col0, int col1, int row0, int row1) {
+        for (int row = row0; row <= row1; row++) {
+            for (int col = col0; col <= col1; col++) {
+                for (int e = cellHead[row * GRID_SIZE + col]; e != NONE; e = entryNext[e]) {
+                    int j = entryBox[e];
+                    // Hộp trải nhiều ô chỉ so sánh một lần cho mỗi ứng viên
+                    if (visited[j] == i || classId[j] != classId[i]) {
+                        continue;
+                    }
+                    visited[j] = i;
+                    comparisonCount++;
+                    if (iou(i, j) > iouThreshold) {
+                        return j;
+                    }
+                }
+            }
+        }
+        return NONE;
+    }
+
+    private float iou(int a, int b) {
+        float w = Math.min(right[a], right[b]) - Math.max(left[a], left[b]);
+        float h = Math.min(bottom[a], bottom[b]) - Math.max(top[a], top[b]);
+        if (w <= 0f || h <= 0f) {
+            return 0f;
+        }
+        float intersection = w * h;
+        float areaA = (right[a] - left[a]) * (bottom[a] - top[a]);
+        float areaB = (right[b] - left[b]) * (bottom[b] - top[b]);
+        return intersection / (areaA + areaB - intersection);
+    }
+
+    private static int cell(float value, float origin, float size) {
+        int index = (int) ((value - origin) / size);
+        return Math.max(0, Math.min(GRID_SIZE - 1, index));
+    }
+
+    private void addEntry(int cell, int box) {
+        if (entryCount == entryBox.length) {
+            int capacity = Math.max(16, entryBox.length * 2);
+            entryBox = Arrays.copyOf(entryBox, capacity);
+            entryNext = Arrays.copyOf(entryNext, capacity);
+        }
+        entryBox[entryCount] = box;
+        entryNext[entryCount] = cellHead[cell];
+        cellHead[cell] = entryCount;
+        entryCount++;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= score.length) {
+            return;
+        }
+        int capacity = Math.max(n, score.length * 2);
+        left = new float[capacity];
+        top = new float[capacity];
+        right = new float[capacity];
+        bottom = new float[capacity];
+        score = new float[capacity];
+        classId = new int[capacity];
+        order = new long[capacity];
+        visited = new int[capacity];
+        keptRows = new int[capacity];
+        inheritedId = new int[capacity];
+        hasInheritedId = new boolean[capacity];
+    }
+
+    /**
+     * Tổng số phép tính IoU đã thực hiện (đo hiệu quả của lưới).
+     */
+    public long getComparisonCount() {
+        return comparisonCount;
+    }
+}
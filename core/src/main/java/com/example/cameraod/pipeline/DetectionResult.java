@@ -0,0 +1,66 @@
+package com.example.cameraod.pipeline;
+
+import java.util.List;
+
+/**
+ * Filtered detections of one frame, together with the frame metadata the
+ * overlay needs to map boxes into view coordinates.
+ */
+public final class DetectionResult {
+
+    private final long sequence;
+    private final long timestampNanos;
+    private final int imageWidth;
+    private final int imageHeight;
+    private final int rotationDegrees;
+    private final List<Detection> detections;
+    private final boolean keyframe;
+
+    public DetectionResult(long sequence, long timestampNanos, int imageWidth, int imageHeight,
+                           int rotationDegrees, List<Detection> detections) {
+        this(sequence, timestampNanos, imageWidth, imageHeight, rotationDegrees, detections, true);
+    }
+
+    public DetectionResult(long sequence, long timestampNanos, int imageWidth, int imageHeight,
+                           int rotationDegrees, List<Detection> detections, boolean keyframe) {
+        this.sequence = sequence;
+        this.timestampNanos = timestampNanos;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.rotationDegrees = rotationDegrees;
+        this.detections = detections;
+        this.keyframe = keyframe;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public List<Detection> getDetections() {
+        return detections;
+    }
+
+    /**
+     * @return {@code true} if the detector ran on this frame, {@code false} if the
+     *         boxes were propagated from earlier keyframes
+     */
+    public boolean isKeyframe() {
+        return keyframe;
+    }
+}
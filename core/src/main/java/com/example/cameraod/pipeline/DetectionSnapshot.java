@@ -0,0 +1,169 @@
+package com.example.cameraod.pipeline;
+
+import java.util.List;
+
+/**
+ * Reusable, fixed-capacity copy of one {@link DetectionResult} in parallel
+ * primitive arrays, exchanged between threads through a {@link TripleBuffer}.
+ * Only the top label of each detection is kept; label texts are references to
+ * the detector's strings, so {@link #set} allocates nothing.
+ * Detections beyond the capacity are dropped and counted.
+ */
+public final class DetectionSnapshot {
+
+    public static final int NO_TRACKING_ID = Integer.MIN_VALUE;
+    public static final int NO_LABEL = -1;
+
+    private long sequence = -1;
+    private long timestampNanos;
+    private int imageWidth;
+    private int imageHeight;
+    private int rotationDegrees;
+    private boolean keyframe;
+    private int count;
+    private int truncatedCount;
+
+    private final int[] left;
+    private final int[] top;
+    private final int[] right;
+    private final int[] bottom;
+    private final int[] trackingId;
+    private final int[] labelIndex;
+    private final float[] confidence;
+    private final String[] labelText;
+
+    public DetectionSnapshot(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+        left = new int[capacity];
+        top = new int[capacity];
+        right = new int[capacity];
+        bottom = new int[capacity];
+        trackingId = new int[capacity];
+        labelIndex = new int[capacity];
+        confidence = new float[capacity];
+        labelText = new String[capacity];
+    }
+
+    /**
+     * Chép kết quả vào các mảng (ghi đè nội dung cũ).
+     */
+    public void set(DetectionResult result) {
+        sequence = result.getSequence();
+        timestampNanos = result.getTimestampNanos();
+        imageWidth = result.getImageWidth();
+        imageHeight = result.getImageHeight();
+        rotationDegrees = result.getRotationDegrees();
+        keyframe = result.isKeyframe();
+
+        List<Detection> detections = result.getDetections();
+        int previousCount = count;
+        int size = detections.size();
+        count = Math.min(size, left.length);
+        truncatedCount = size - count;
+        for (int i = 0; i < count; i++) {
+            Detection object = detections.get(i);
+            left[i] = object.getLeft();
+            top[i] = object.getTop();
+            right[i] = object.getRight();
+            bottom[i] = object.getBottom();
+            Integer id = object.getTrackingId();
+            trackingId[i] = id != null ? id : NO_TRACKING_ID;
+            if (object.getLabels().isEmpty()) {
+                labelIndex[i] = NO_LABEL;
+                confidence[i] = 0f;
+                labelText[i] = null;
+            } else {
+                Detection.Label label = object.getLabels().get(0);
+                labelIndex[i] = label.getIndex();
+                confidence[i] = label.getConfidence();
+                labelText[i] = label.getText();
+            }
+        }
+        // Không giữ tham chiếu tới nhãn của các frame cũ
+        for (int i = count; i < previousCount; i++) {
+            labelText[i] = null;
+        }
+    }
+
+    public int getCapacity() {
+        return left.length;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    public boolean isKeyframe() {
+        return keyframe;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Số vật thể bị bỏ vì vượt quá sức chứa.
+     */
+    public int getTruncatedCount() {
+        return truncatedCount;
+    }
+
+    public int getLeft(int index) {
+        return left[index];
+    }
+
+    public int getTop(int index) {
+        return top[index];
+    }
+
+    public int getRight(int index) {
+        return right[index];
+    }
+
+    public int getBottom(int index) {
+        return bottom[index];
+    }
+
+    /**
+     * @return the tracking ID, or {@link #NO_TRACKING_ID}
+     */
+    public int getTrackingId(int index) {
+        return trackingId[index];
+    }
+
+    /**
+     * @return the index of the top label, or {@link #NO_LABEL}
+     */
+    public int getLabelIndex(int index) {
+        return labelIndex[index];
+    }
+
+    public float getConfidence(int index) {
+        return confidence[index];
+    }
+
+    /**
+     * @return the text of the top label, or {@code null} without a label
+     */
+    public String getLabelText(int index) {
+        return labelText[index];
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.cameraod.pipeline;
+
+import java.util.List;
+
+/**
+ * Detection stage of the {@link FramePipeline}. Implementations are called on
+ * the pipeline's detect executor and may block until the result is ready.
+ */
+public interface Detector<T> {
+
+    List<Detection> detect(Frame<T> frame) throws Exception;
+
+    void close();
+}
@@ -0,0 +1,97 @@
+package com.example.cameraod.pipeline;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed set of reusable direct {@link ByteBuffer}s for preprocessed frames
+ * (NV21 crops handed to the detector), so the per-frame path allocates no
+ * image memory.
+ * Features:
+ * - Lock-free: acquire claims a free slot with one CAS, release frees it
+ * - Never blocks: when every buffer is in use {@link #acquire} returns
+ *   {@code null} and the caller falls back (counted as a miss)
+ * - A slot reallocates its buffer only when a larger frame is requested
+ *   (resolution change); buffers never shrink
+ */
+public final class DirectBufferPool {
+
+    private static final int FREE = 0;
+    private static final int IN_USE = 1;
+
+    private final ByteBuffer[] buffers;
+    private final AtomicIntegerArray states;
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong allocationCount = new AtomicLong();
+
+    public DirectBufferPool(int bufferCount) {
+        if (bufferCount < 1) {
+            throw new IllegalArgumentException("bufferCount must be >= 1");
+        }
+        buffers = new ByteBuffer[bufferCount];
+        states = new AtomicIntegerArray(bufferCount);
+    }
+
+    /**
+     * Lấy một buffer rảnh, vị trí 0 và giới hạn {@code size} byte.
+     *
+     * @return the buffer, or {@code null} if every buffer is in use
+     */
+    public ByteBuffer acquire(int size) {
+        for (int i = 0; i < buffers.length; i++) {
+            if (states.get(i) == FREE && states.compareAndSet(i, FREE, IN_USE)) {
+                // Slot thuộc riêng luồng này cho tới release: đọc/ghi mảng sau CAS là an toàn
+                ByteBuffer buffer = buffers[i];
+                if (buffer == null || buffer.capacity() < size) {
+                    buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+                    buffers[i] = buffer;
+                    allocationCount.incrementAndGet();
+                }
+                buffer.clear();
+                buffer.limit(size);
+                acquiredCount.incrementAndGet();
+                return buffer;
+            }
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Trả buffer đã lấy bằng {@link #acquire} (luồng bất kỳ).
+     */
+    public void release(ByteBuffer buffer) {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] == buffer && states.get(i) == IN_USE) {
+                states.set(i, FREE);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("buffer is not in use in this pool");
+    }
+
+    public int getBufferCount() {
+        return buffers.length;
+    }
+
+    public long getAcquiredCount() {
+        return acquiredCount.get();
+    }
+
+    /**
+     * Số lần mọi buffer đều đang dùng.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Số lần cấp phát buffer trực tiếp (lần đầu của mỗi slot, hoặc khi frame lớn hơn).
+     */
+    public long getAllocationCount() {
+        return allocationCount.get();
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.cameraod.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Detector} that runs several detectors on the same frame in parallel on a
+ * worker pool and merges their results with a class-aware {@link DetectionMerger}.
+ * Features:
+ * - Each detector can have its own time budget, measured from the start of the
+ *   frame; a detector that misses it is left out of that frame's result instead
+ *   of stalling the others. The frame still waits for the first detector to
+ *   finish when none met its budget, so a slow device gets slow results, not
+ *   none, and the wait shows up in the measured detector latency
+ * - A detector added without a budget (the primary model) is always waited for
+ * - A detector still running past its budget is skipped on the following frames
+ *   until it finishes, so a slow model never piles up work on the pool
+ * - The frame is held ({@link Frame#retain()}) until every detector that started
+ *   on it has finished, including the ones that missed their budget. When the
+ *   camera image was returned after preprocessing ({@link Frame#releaseSource()})
+ *   a late detector pins only the preprocessed image, so it never stalls the camera
+ * - Tracking IDs are made unique across detectors
+ * - A detector that fails is left out of the frame; the frame fails only if every
+ *   detector that ran failed, and is empty if every detector was skipped
+ *
+ * @param <T> image type shared by all detectors
+ */
+public final class FanOutDetector<T> implements Detector<T> {
+
+    /**
+     * Một detector thành viên và thống kê của nó.
+     */
+    private static final class Member<T> {
+        final Detector<T> detector;
+        final long budgetNanos;
+        // Số lần gọi đã quá hạn nhưng chưa chạy xong
+        final AtomicInteger lateCalls = new AtomicInteger();
+        final AtomicLong completedCount = new AtomicLong();
+        final AtomicLong timeoutCount = new AtomicLong();
+        final AtomicLong skippedCount = new AtomicLong();
+        final AtomicLong failedCount = new AtomicLong();
+
+        Member(Detector<T> detector, long budgetNanos) {
+            this.detector = detector;
+            this.budgetNanos = budgetNanos;
+        }
+    }
+
+    // Trạng thái một lần gọi: đang chạy, xong, hay đã bị bỏ vì quá hạn
+    private static final int RUNNING = 0;
+    private static final int DONE = 1;
+    private static final int ABANDONED = 2;
+
+    private final List<Member<T>> members;
+    private final Executor executor;
+    private final ThreadLocal<DetectionMerger> merger;
+
+    private FanOutDetector(Builder<T> builder) {
+        this.members = Collections.unmodifiableList(new ArrayList<>(builder.members));
+        this.executor = builder.executor;
+        float iouThreshold = builder.iouThreshold;
+        // Pipeline có thể nhận diện nhiều frame cùng lúc: mỗi luồng một merger
+        this.merger = ThreadLocal.withInitial(() -> new DetectionMerger(iouThreshold));
+    }
+
+    @Override
+    public List<Detection> detect(Frame<T> frame) throws Exception {
+        long start = System.nanoTime();
+        int count = members.size();
+        List<CompletableFuture<List<Detection>>> futures = new ArrayList<>(count);
+        AtomicInteger[] states = new AtomicInteger[count];
+        for (int i = 0; i < count; i++) {
+            Member<T> member = members.get(i);
+            if (member.lateCalls.get() > 0) {
+                member.skippedCount.incrementAndGet();
+                futures.add(null);
+                continue;
+            }
+            AtomicInteger state = new AtomicInteger(RUNNING);
+            Runnable hold = frame.retain();
+            states[i] = state;
+            try {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return member.detector.detect(frame);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        if (!state.compareAndSet(RUNNING, DONE)) {
+                            member.lateCalls.decrementAndGet();
+                        }
+                        hold.run();
+                    }
+                }, executor));
+            } catch (RuntimeException e) {
+                // Pool từ chối nhận việc: không giữ buffer cho lần gọi không bao giờ chạy
+                hold.run();
+                throw e;
+            }
+        }
+
+        Gathered gathered = new Gathered(count);
+        List<Integer> overdue = new ArrayList<>(0);
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<List<Detection>> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            Member<T> member = members.get(i);
+            if (awaitBudget(future, member, start)) {
+                gathered.add(i, future);
+            } else {
+                member.timeoutCount.incrementAndGet();
+                overdue.add(i);
+            }
+        }
+
+        // Không detector nào kịp hạn: chờ detector xong sớm nhất thay vì bỏ cả frame
+        while (gathered.succeeded == 0 && !overdue.isEmpty()) {
+            CompletableFuture<?>[] pending = new CompletableFuture<?>[overdue.size()];
+            for (int k = 0; k < pending.length; k++) {
+                pending[k] = futures.get(overdue.get(k));
+            }
+            try {
+                CompletableFuture.anyOf(pending).get();
+            } catch (ExecutionException e) {
+                // Lỗi được ghi nhận khi lấy kết quả bên dưới
+            }
+            for (Iterator<Integer> it = overdue.iterator(); it.hasNext(); ) {
+                int i = it.next();
+                if (futures.get(i).isDone()) {
+                    it.remove();
+                    gathered.add(i, futures.get(i));
+                }
+            }
+        }
+
+        // Đã có kết quả: bỏ các lần gọi quá hạn còn lại
+        for (int k = 0; k < overdue.size(); k++) {
+            int i = overdue.get(k);
+            if (!abandon(states[i], members.get(i))) {
+                // Vừa chạy xong đúng lúc bị bỏ: vẫn dùng kết quả
+                gathered.add(i, futures.get(i));
+            }
+        }
+
+        if (gathered.succeeded == 0 && gathered.firstError != null) {
+            throw gathered.firstError;
+        }
+        // Rỗng khi mọi detector bị bỏ qua vì lần gọi trước chưa xong
+        return count == 1 ? gathered.candidates : merger.get().merge(gathered.candidates);
+    }
+
+    /**
+     * Chờ lần gọi tới hết ngân sách của detector.
+     *
+     * @return {@code true} if the call finished (with a result or an error) within the budget
+     */
+    private static boolean awaitBudget(CompletableFuture<List<Detection>> future, Member<?> member,
+                                       long start) throws InterruptedException {
+        long remaining = member.budgetNanos - (System.nanoTime() - start);
+        try {
+            future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // Lỗi được ghi nhận khi lấy kết quả
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Bỏ một lần gọi quá hạn; nó vẫn giữ frame tới khi chạy xong.
+     *
+     * @return {@code false} if the call finished in the meantime and its result should be used
+     */
+    private static boolean abandon(AtomicInteger state, Member<?> member) {
+        // Tăng trước khi đánh dấu bỏ để lần gọi kết thúc muộn luôn giảm sau khi đã tăng
+        member.lateCalls.incrementAndGet();
+        if (state.compareAndSet(RUNNING, ABANDONED)) {
+            return true;
+        }
+        member.lateCalls.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * Kết quả đã thu được của một frame.
+     */
+    private final class Gathered {
+        final List<Detection> candidates = new ArrayList<>();
+        final int memberCount;
+        int succeeded;
+        Exception firstError;
+
+        Gathered(int memberCount) {
+            this.memberCount = memberCount;
+        }
+
+        /**
+         * Lấy kết quả (hoặc lỗi) của một lần gọi đã xong.
+         */
+        void add(int index, CompletableFuture<List<Detection>> future) throws InterruptedException {
+            Member<T> member = members.get(index);
+            List<Detection> detections;
+            try {
+                detections = future.get();
+            } catch (ExecutionException e) {
+                member.failedCount.incrementAndGet();
+                if (firstError == null) {
+                    firstError = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                return;
+            }
+            member.completedCount.incrementAndGet();
+            succeeded++;
+            addCandidates(candidates, detections, index, memberCount);
+        }
+    }
+
+    private static void addCandidates(List<Detection> candidates, List<Detection> detections,
+                                      int memberIndex, int memberCount) {
+        if (memberCount == 1) {
+            candidates.addAll(detections);
+            return;
+        }
+        for (int k = 0; k < detections.size(); k++) {
+            Detection d = detections.get(k);
+            Integer id = d.getTrackingId();
+            if (id != null) {
+                // Mỗi detector đánh ID riêng: xen kẽ theo chỉ số detector để không trùng nhau
+                d = new Detection(d.getLeft(), d.getTop(), d.getRight(), d.getBottom(),
+                        id * memberCount + memberIndex, d.getLabels());
+            }
+            candidates.add(d);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Member<T> member : members) {
+            member.detector.close();
+        }
+    }
+
+    public int getDetectorCount() {
+        return members.size();
+    }
+
+    /**
+     * Số frame detector {@code index} đã trả kết quả kịp hạn.
+     */
+    public long getCompletedCount(int index) {
+        return members.get(index).completedCount.get();
+    }
+
+    /**
+     * Số frame detector {@code index} chạy quá ngân sách thời gian.
+     */
+    public long getTimeoutCount(int index) {
+        return members.get(index).timeoutCount.get();
+    }
+
+    /**
+     * Số frame detector {@code index} không được chạy vì lần gọi trước vẫn chưa xong.
+     */
+    public long getSkippedCount(int index) {
+        return members.get(index).skippedCount.get();
+    }
+
+    public long getFailedCount(int index) {
+        return members.get(index).failedCount.get();
+    }
+
+    public static final class Builder<T> {
+        private final List<Member<T>> members = new ArrayList<>();
+        private final Executor executor;
+        private float iouThreshold = DetectionMerger.DEFAULT_IOU_THRESHOLD;
+
+        /**
+         * @param executor worker pool the detectors run on; needs at least one thread per
+         *                 detector to run them all in parallel
+         */
+        public Builder(Executor executor) {
+            this.executor = executor;
+        }
+
+        /**
+         * Thêm detector không có ngân sách thời gian: frame luôn chờ nó chạy xong.
+         */
+        public Builder<T> addDetector(Detector<T> detector) {
+            members.add(new Member<>(detector, Long.MAX_VALUE));
+            return this;
+        }
+
+        /**
+         * Thêm detector với ngân sách thời gian mỗi frame (tính từ lúc frame bắt đầu nhận diện).
+         */
+        public Builder<T> addDetector(Detector<T> detector, long budget, TimeUnit unit) {
+            if (budget <= 0) {
+                throw new IllegalArgumentException("budget must be > 0");
+            }
+            members.add(new Member<>(detector, unit.toNanos(budget)));
+            return this;
+        }
+
+        public Builder<T> setIouThreshold(float iouThreshold) {
+            this.iouThreshold = iouThreshold;
+            return this;
+        }
+
+        public FanOutDetector<T> build() {
+            if (members.isEmpty()) {
+                throw new IllegalStateException("at least one detector is required");
+            }
+            if (executor == null) {
+                throw new IllegalStateException("executor must not be null");
+            }
+            // Kiểm tra ngưỡng ngay khi build thay vì ở frame đầu tiên
+            new DetectionMerger(iouThreshold);
+            return new FanOutDetector<>(this);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.cameraod.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table-driven detection filter evaluating compiled {@link FilterRules}.
+ * Features:
+ * - One pass over the detections: label choice, per-class confidence, relative width,
+ *   aspect ratio and region checks read flat primitive tables
+ * - Max-per-class and top-K limits rank the survivors by score in per-thread
+ *   scratch arrays (no allocation once warmed up)
+ * - Rules can be swapped at any time with {@link #setRules}; a frame already being
+ *   filtered finishes with the rules it started with
+ * <p>
+ * {@link #filter(List, int, int, int[])} writes the indices of the kept detections
+ * and allocates nothing. The {@link DetectionFilter} entry point returns the input
+ * list when nothing is dropped and otherwise one right-sized list, because the
+ * result is handed to other threads and cannot live in a reused buffer.
+ */
+public final class FilterEngine implements DetectionFilter {
+
+    /**
+     * Bộ nhớ tạm của một luồng, tăng kích thước khi cần.
+     */
+    private static final class Scratch {
+        int[] indices = new int[64];
+        int[] slots = new int[64];
+        float[] scores = new float[64];
+        int[] classCounts = new int[16];
+        int[] kept = new int[64];
+
+        void ensureCapacity(int detections, int slotCount) {
+            if (indices.length < detections) {
+                int capacity = Math.max(detections, indices.length * 2);
+                indices = new int[capacity];
+                slots = new int[capacity];
+                scores = new float[capacity];
+                kept = new int[capacity];
+            }
+            if (classCounts.length < slotCount) {
+                classCounts = new int[slotCount];
+            }
+        }
+    }
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private volatile FilterRules rules;
+
+    public FilterEngine(FilterRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Thay bộ quy tắc (an toàn từ mọi luồng), áp dụng từ frame tiếp theo.
+     */
+    public void setRules(FilterRules rules) {
+        this.rules = rules;
+    }
+
+    public FilterRules getRules() {
+        return rules;
+    }
+
+    @Override
+    public List<Detection> filter(List<Detection> detections, int imageWidth, int imageHeight) {
+        Scratch buffers = scratch.get();
+        buffers.ensureCapacity(detections.size(), 0);
+        int count = filter(detections, imageWidth, imageHeight, buffers.kept);
+        if (count == detections.size()) {
+            return detections;
+        }
+        List<Detection> filtered = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            filtered.add(detections.get(buffers.kept[i]));
+        }
+        return filtered;
+    }
+
+    /**
+     * Lọc không cấp phát.
+     *
+     * @param out receives the indices of the kept detections in their original order;
+     *            must hold at least {@code detections.size()} entries
+     * @return number of kept detections
+     */
+    public int filter(List<Detection> detections, int imageWidth, int imageHeight, int[] out) {
+        FilterRules table = rules;
+        Scratch buffers = scratch.get();
+        buffers.ensureCapacity(detections.size(), table.defaultSlot + 1);
+        int[] indices = buffers.indices;
+        int[] slots = buffers.slots;
+        float[] scores = buffers.scores;
+
+        // Lượt 1: các điều kiện trên từng vật thể
+        float inverseWidth = imageWidth > 0 ? 1f / imageWidth : 0f;
+        float inverseHeight = imageHeight > 0 ? 1f / imageHeight : 0f;
+        int accepted = 0;
+        for (int i = 0; i < detections.size(); i++) {
+            Detection object = detections.get(i);
+            List<Detection.Label> labels = object.getLabels();
+
+            // Nhãn được chọn: nhãn tin cậy nhất đạt ngưỡng của lớp nó
+            int slot = -1;
+            float score = 0f;
+            if (labels.isEmpty()) {
+                slot = table.slot(FilterRules.UNLABELED);
+                if (table.minConfidence[slot] > 0f) {
+                    continue;
+                }
+            } else {
+                for (int j = 0; j < labels.size(); j++) {
+                    Detection.Label label = labels.get(j);
+                    int candidate = table.slot(label.getIndex());
+                    if (label.getConfidence() >= table.minConfidence[candidate]) {
+                        slot = candidate;
+                        score = label.getConfidence();
+                        break;
+                    }
+                }
+                if (slot < 0) {
+                    continue;
+                }
+            }
+
+            int width = object.width();
+            int height = object.height();
+            // Phép chia (không nhân nghịch đảo) để ranh giới khớp đúng phép so sánh của SmartFilter
+            float relativeWidth = imageWidth > 0 ? width / (float) imageWidth : 0f;
+            if (relativeWidth < table.minRelativeWidth[slot] || relativeWidth > table.maxRelativeWidth[slot]) {
+                continue;
+            }
+            float aspectRatio = height > 0 ? (float) width / height : Float.MAX_VALUE;
+            if (aspectRatio < table.minAspectRatio[slot] || aspectRatio > table.maxAspectRatio[slot]) {
+                continue;
+            }
+            if (table.hasRegion) {
+                float centerX = (object.getLeft() + object.getRight()) * 0.5f * inverseWidth;
+                float centerY = (object.getTop() + object.getBottom()) * 0.5f * inverseHeight;
+                if (centerX < table.regionLeft || centerX > table.regionRight
+                        || centerY < table.regionTop || centerY > table.regionBottom) {
+                    continue;
+                }
+            }
+            indices[accepted] = i;
+            slots[accepted] = slot;
+            scores[accepted] = score;
+            accepted++;
+        }
+
+        if (!table.limited) {
+            System.arraycopy(indices, 0, out, 0, accepted);
+            return accepted;
+        }
+
+        // Lượt 2: xếp hạng theo điểm, áp dụng giới hạn mỗi lớp và top-K
+        sortByScore(indices, slots, scores, accepted);
+        int[] classCounts = buffers.classCounts;
+        for (int slot = 0; slot <= table.defaultSlot; slot++) {
+            classCounts[slot] = 0;
+        }
+        int kept = 0;
+        for (int i = 0; i < accepted && kept < table.topK; i++) {
+            int slot = slots[i];
+            if (classCounts[slot] < table.maxPerClass[slot]) {
+                classCounts[slot]++;
+                out[kept++] = indices[i];
+            }
+        }
+        // Trả về theo thứ tự ban đầu
+        sortAscending(out, kept);
+        return kept;
+    }
+
+    /**
+     * Shell sort giảm dần theo điểm (bằng điểm: chỉ số nhỏ trước), trên các mảng song song.
+     */
+    private static void sortByScore(int[] indices, int[] slots, float[] scores, int count) {
+        for (int gap = count / 2; gap > 0; gap /= 2) {
+            for (int i = gap; i < count; i++) {
+                int index = indices[i];
+                int slot = slots[i];
+                float score = scores[i];
+                int j = i;
+                while (j >= gap && (scores[j - gap] < score || (scores[j - gap] == score && indices[j - gap] > index))) {
+                    indices[j] = indices[j - gap];
+                    slots[j] = slots[j - gap];
+                    scores[j] = scores[j - gap];
+                    j -= gap;
+                }
+                indices[j] = index;
+                slots[j] = slot;
+                scores[j] = score;
+            }
+        }
+    }
+
+    private static void sortAscending(int[] values, int count) {
+        for (int i = 1; i < count; i++) {
+            int value = values[i];
+            int j = i;
+            while (j > 0 && values[j - 1] > value) {
+                values[j] = values[j - 1];
+                j--;
+            }
+            values[j] = value;
+        }
+    }
+}
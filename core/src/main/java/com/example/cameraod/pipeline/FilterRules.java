@@ -0,0 +1,202 @@
+package com.example.cameraod.pipeline;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable rule set for the {@link FilterEngine}, compiled by the {@link Builder}
+ * into flat primitive tables indexed by class slot (label index + 1, slot 0 is
+ * for objects without a label). Labels without an explicit rule use the defaults.
+ * <p>
+ * Sizes are relative to the upright image width, the aspect ratio is
+ * width / height and the region is in normalized [0, 1] coordinates.
+ * Objects without a label have no confidence: they pass the confidence check
+ * only when the minimum confidence of {@link #UNLABELED} is 0.
+ */
+public final class FilterRules {
+
+    public static final int UNLABELED = -1;
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    // Bảng theo lớp (slot = labelIndex + 1), slot ngoài bảng dùng giá trị mặc định ở cuối bảng
+    final float[] minConfidence;
+    final float[] minRelativeWidth;
+    final float[] maxRelativeWidth;
+    final float[] minAspectRatio;
+    final float[] maxAspectRatio;
+    final int[] maxPerClass;
+    final int defaultSlot;
+
+    final float regionLeft;
+    final float regionTop;
+    final float regionRight;
+    final float regionBottom;
+    final boolean hasRegion;
+    final int topK;
+    final boolean limited; // Có giới hạn số lượng: cần xếp hạng theo điểm
+
+    private FilterRules(Builder builder) {
+        int slots = 1;
+        for (Map<Integer, ?> rule : builder.perClassRules()) {
+            for (int label : rule.keySet()) {
+                slots = Math.max(slots, label + 2);
+            }
+        }
+        defaultSlot = slots;
+        minConfidence = new float[slots + 1];
+        minRelativeWidth = new float[slots + 1];
+        maxRelativeWidth = new float[slots + 1];
+        minAspectRatio = new float[slots + 1];
+        maxAspectRatio = new float[slots + 1];
+        maxPerClass = new int[slots + 1];
+        boolean anyClassLimit = builder.defaultMaxPerClass != UNLIMITED;
+        for (int slot = 0; slot <= slots; slot++) {
+            int label = slot == defaultSlot ? Integer.MIN_VALUE : slot - 1;
+            minConfidence[slot] = builder.minConfidence.getOrDefault(label, builder.defaultMinConfidence);
+            minRelativeWidth[slot] = builder.minRelativeWidth.getOrDefault(label, builder.defaultMinRelativeWidth);
+            maxRelativeWidth[slot] = builder.maxRelativeWidth.getOrDefault(label, builder.defaultMaxRelativeWidth);
+            minAspectRatio[slot] = builder.minAspectRatio.getOrDefault(label, builder.defaultMinAspectRatio);
+            maxAspectRatio[slot] = builder.maxAspectRatio.getOrDefault(label, builder.defaultMaxAspectRatio);
+            maxPerClass[slot] = builder.maxPerClass.getOrDefault(label, builder.defaultMaxPerClass);
+            anyClassLimit |= maxPerClass[slot] != UNLIMITED;
+        }
+        regionLeft = builder.regionLeft;
+        regionTop = builder.regionTop;
+        regionRight = builder.regionRight;
+        regionBottom = builder.regionBottom;
+        hasRegion = regionLeft > 0 || regionTop > 0 || regionRight < 1 || regionBottom < 1;
+        topK = builder.topK;
+        limited = anyClassLimit || topK != UNLIMITED;
+    }
+
+    /**
+     * Slot của một nhãn trong các bảng.
+     */
+    int slot(int labelIndex) {
+        int slot = labelIndex + 1;
+        return slot >= 0 && slot < defaultSlot ? slot : defaultSlot;
+    }
+
+    /**
+     * Quy tắc tương đương {@link SmartFilter}: nhãn bất kỳ đạt ngưỡng, hoặc vật thể chưa
+     * phân loại rộng hơn 20% ảnh. Cận dưới được nâng lên giá trị float kế tiếp vì
+     * {@link SmartFilter} so sánh ngặt, còn bảng quy tắc dùng cận bao gồm.
+     */
+    public static FilterRules smartDefault(float confidenceThreshold) {
+        return new Builder()
+                .setMinConfidence(confidenceThreshold)
+                .setMinConfidence(UNLABELED, 0f)
+                .setRelativeWidth(UNLABELED, Math.nextUp(SmartFilter.MIN_UNCLASSIFIED_WIDTH_RATIO), Float.MAX_VALUE)
+                .build();
+    }
+
+    public static final class Builder {
+        private float defaultMinConfidence = 0f;
+        private float defaultMinRelativeWidth = 0f;
+        private float defaultMaxRelativeWidth = Float.MAX_VALUE;
+        private float defaultMinAspectRatio = 0f;
+        private float defaultMaxAspectRatio = Float.MAX_VALUE;
+        private int defaultMaxPerClass = UNLIMITED;
+        private final Map<Integer, Float> minConfidence = new HashMap<>();
+        private final Map<Integer, Float> minRelativeWidth = new HashMap<>();
+        private final Map<Integer, Float> maxRelativeWidth = new HashMap<>();
+        private final Map<Integer, Float> minAspectRatio = new HashMap<>();
+        private final Map<Integer, Float> maxAspectRatio = new HashMap<>();
+        private final Map<Integer, Integer> maxPerClass = new HashMap<>();
+        private float regionLeft = 0f;
+        private float regionTop = 0f;
+        private float regionRight = 1f;
+        private float regionBottom = 1f;
+        private int topK = UNLIMITED;
+
+        public Builder setMinConfidence(float confidence) {
+            defaultMinConfidence = confidence;
+            return this;
+        }
+
+        public Builder setMinConfidence(int labelIndex, float confidence) {
+            minConfidence.put(checkLabel(labelIndex), confidence);
+            return this;
+        }
+
+        public Builder setRelativeWidth(float min, float max) {
+            defaultMinRelativeWidth = min;
+            defaultMaxRelativeWidth = max;
+            return this;
+        }
+
+        public Builder setRelativeWidth(int labelIndex, float min, float max) {
+            minRelativeWidth.put(checkLabel(labelIndex), min);
+            maxRelativeWidth.put(labelIndex, max);
+            return this;
+        }
+
+        public Builder setAspectRatio(float min, float max) {
+            defaultMinAspectRatio = min;
+            defaultMaxAspectRatio = max;
+            return this;
+        }
+
+        public Builder setAspectRatio(int labelIndex, float min, float max) {
+            minAspectRatio.put(checkLabel(labelIndex), min);
+            maxAspectRatio.put(labelIndex, max);
+            return this;
+        }
+
+        public Builder setMaxPerClass(int count) {
+            defaultMaxPerClass = checkCount(count);
+            return this;
+        }
+
+        public Builder setMaxPerClass(int labelIndex, int count) {
+            maxPerClass.put(checkLabel(labelIndex), checkCount(count));
+            return this;
+        }
+
+        /**
+         * Chỉ giữ vật thể có tâm nằm trong vùng (tọa độ chuẩn hóa [0, 1] của ảnh thẳng đứng).
+         */
+        public Builder setRegion(float left, float top, float right, float bottom) {
+            if (left >= right || top >= bottom) {
+                throw new IllegalArgumentException("empty region");
+            }
+            regionLeft = left;
+            regionTop = top;
+            regionRight = right;
+            regionBottom = bottom;
+            return this;
+        }
+
+        /**
+         * Giữ tối đa {@code k} vật thể có điểm (độ tin cậy của nhãn được chọn) cao nhất.
+         */
+        public Builder setTopK(int k) {
+            topK = checkCount(k);
+            return this;
+        }
+
+        public FilterRules build() {
+            return new FilterRules(this);
+        }
+
+        private Iterable<Map<Integer, ?>> perClassRules() {
+            return Arrays.<Map<Integer, ?>>asList(minConfidence, minRelativeWidth, maxRelativeWidth,
+                    minAspectRatio, maxAspectRatio, maxPerClass);
+        }
+
+        private static int checkLabel(int labelIndex) {
+            if (labelIndex < UNLABELED) {
+                throw new IllegalArgumentException("invalid label index " + labelIndex);
+            }
+            return labelIndex;
+        }
+
+        private static int checkCount(int count) {
+            if (count < 0) {
+                throw new IllegalArgumentException("count must be >= 0");
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.cameraod.pipeline;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single camera frame travelling through the {@link FramePipeline}.
+ * The image handle is opaque to the pipeline; the releaser is invoked exactly
+ * once when the pipeline no longer needs the underlying buffer and no work that
+ * outlives the pipeline stage (see {@link #retain()}) is still reading it.
+ * A stage that copies the image out (preprocessing) can return the source
+ * early with {@link #releaseSource()}; holds then pin only what was registered
+ * with {@link #addReleaser}.
+ */
+public final class Frame<T> {
+
+    private final T image;
+    private final long timestampNanos;
+    private final int width;
+    private final int height;
+    private final int rotationDegrees;
+    private final Lifetime lifetime;
+
+    /**
+     * Vòng đời buffer, dùng chung giữa frame gốc và các frame tạo bằng {@link #withImage}.
+     */
+    private static final class Lifetime {
+        final Runnable releaser;
+        // Việc thêm bởi các stage (ví dụ trả buffer tiền xử lý về pool), chạy sau releaser
+        volatile Runnable extraReleaser;
+        final AtomicBoolean released = new AtomicBoolean();
+        final AtomicInteger holds = new AtomicInteger();
+        final AtomicBoolean returned = new AtomicBoolean();
+        final AtomicBoolean sourceReturned = new AtomicBoolean();
+
+        Lifetime(Runnable releaser) {
+            this.releaser = releaser;
+        }
+
+        void returnSource() {
+            if (sourceReturned.compareAndSet(false, true) && releaser != null) {
+                releaser.run();
+            }
+        }
+
+        void returnIfUnused() {
+            // Cả hai phía (release và bỏ giữ cuối cùng) đều kiểm tra sau khi cập nhật: đúng một bên trả buffer
+            if (released.get() && holds.get() == 0 && returned.compareAndSet(false, true)) {
+                returnSource();
+                Runnable extra = extraReleaser;
+                if (extra != null) {
+                    extra.run();
+                }
+            }
+        }
+    }
+
+    public Frame(T image, long timestampNanos, int width, int height, int rotationDegrees,
+                 Runnable releaser) {
+        this(image, timestampNanos, width, height, rotationDegrees, new Lifetime(releaser));
+    }
+
+    private Frame(T image, long timestampNanos, int width, int height, int rotationDegrees,
+                  Lifetime lifetime) {
+        this.image = image;
+        this.timestampNanos = timestampNanos;
+        this.width = width;
+        this.height = height;
+        this.rotationDegrees = rotationDegrees;
+        this.lifetime = lifetime;
+    }
+
+    /**
+     * Tạo frame mới với ảnh đã tiền xử lý, dùng chung metadata và releaser.
+     */
+    public <R> Frame<R> withImage(R newImage) {
+        return new Frame<>(newImage, timestampNanos, width, height, rotationDegrees, lifetime);
+    }
+
+    public T getImage() {
+        return image;
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Chiều rộng ảnh sau khi xoay thẳng đứng (hệ tọa độ của {@link Detection}).
+     */
+    public int getUprightWidth() {
+        return rotationDegrees % 180 == 0 ? width : height;
+    }
+
+    public int getUprightHeight() {
+        return rotationDegrees % 180 == 0 ? height : width;
+    }
+
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    /**
+     * Trả buffer về cho nguồn ảnh (hoặc ngay khi lượt giữ cuối cùng kết thúc). An toàn khi
+     * gọi nhiều lần.
+     */
+    public void release() {
+        if (lifetime.released.compareAndSet(false, true)) {
+            lifetime.returnIfUnused();
+        }
+    }
+
+    /**
+     * Giữ buffer cho công việc có thể chạy lâu hơn stage hiện tại (ví dụ detector bị bỏ qua vì
+     * quá hạn nhưng vẫn đang đọc ảnh). Phải gọi trước {@link #release()}.
+     *
+     * @return a one-shot handle that ends the hold; safe to run more than once
+     */
+    public Runnable retain() {
+        lifetime.holds.incrementAndGet();
+        AtomicBoolean ended = new AtomicBoolean();
+        return () -> {
+            if (ended.compareAndSet(false, true)) {
+                lifetime.holds.decrementAndGet();
+                lifetime.returnIfUnused();
+            }
+        };
+    }
+
+    /**
+     * Trả ảnh nguồn ngay, không chờ {@link #release()} và các lượt giữ, khi stage hiện tại đã
+     * sao chép xong ảnh (ví dụ tiền xử lý sang buffer riêng). Các releaser thêm bằng
+     * {@link #addReleaser} vẫn chỉ chạy khi vòng đời kết thúc. An toàn khi gọi nhiều lần.
+     */
+    public void releaseSource() {
+        lifetime.returnSource();
+    }
+
+    /**
+     * Thêm việc chạy khi buffer được trả (sau releaser gốc và sau mọi lượt giữ), ví dụ trả
+     * bộ đệm tiền xử lý về pool. Gọi từ stage đang giữ frame, trước {@link #release()}.
+     */
+    public void addReleaser(Runnable releaser) {
+        Runnable previous = lifetime.extraReleaser;
+        lifetime.extraReleaser = previous == null ? releaser : () -> {
+            previous.run();
+            releaser.run();
+        };
+    }
+
+    /**
+     * @return whether the pipeline has released the frame (the buffer may still be held)
+     */
+    public boolean isReleased() {
+        return lifetime.released.get();
+    }
+}
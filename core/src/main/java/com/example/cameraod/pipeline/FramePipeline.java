@@ -0,0 +1,392 @@
+package com.example.cameraod.pipeline;
+
+import com.example.cameraod.metrics.FrameTracer;
+import com.example.cameraod.metrics.PipelineMetrics;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-stage frame pipeline: acquire → preprocess → detect → filter → publish.
+ * Features:
+ * - Bounded number of concurrently in-flight frames (extra frames are dropped, not queued)
+ * - Explicit executor per stage
+ * - Frame buffers are released as soon as detection finishes
+ * - Results older than the last published frame are discarded
+ * - Optional keyframe scheduling: the detector only runs on keyframes and the
+ *   frames in between publish boxes propagated by a {@link MotionPropagator}
+ * - Optional per-stage latency recording into {@link PipelineMetrics}
+ *   and per-frame trace events into a {@link FrameTracer}
+ *
+ * @param <I> image type handed in by the frame source (e.g. {@code ImageProxy})
+ * @param <P> image type consumed by the {@link Detector} (e.g. {@code InputImage})
+ */
+public final class FramePipeline<I, P> {
+
+    /**
+     * Nhận kết quả từ stage publish.
+     */
+    public interface Listener {
+        void onResult(DetectionResult result);
+
+        default void onFrameFailed(long sequence, Throwable error) {
+        }
+    }
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private final Preprocessor<I, P> preprocessor;
+    private final Detector<P> detector;
+    private final DetectionFilter filter;
+    private final Listener listener;
+    private final Executor preprocessExecutor;
+    private final Executor detectExecutor;
+    private final Executor filterExecutor;
+    private final Executor publishExecutor;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final KeyframeScheduler scheduler;
+    private final MotionPropagator propagator;
+    private final PipelineMetrics metrics;
+    private final FrameTracer tracer;
+
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicLong lastPublishedSequence = new AtomicLong(-1);
+
+    // Bộ đếm thống kê
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong staleCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong propagatedCount = new AtomicLong();
+
+    private volatile boolean closed = false;
+
+    private FramePipeline(Builder<I, P> builder) {
+        this.preprocessor = builder.preprocessor;
+        this.detector = builder.detector;
+        this.filter = builder.filter;
+        this.listener = builder.listener;
+        this.preprocessExecutor = builder.preprocessExecutor;
+        this.detectExecutor = builder.detectExecutor;
+        this.filterExecutor = builder.filterExecutor;
+        this.publishExecutor = builder.publishExecutor;
+        this.maxInFlight = builder.maxInFlight;
+        this.inFlight = new Semaphore(builder.maxInFlight);
+        this.scheduler = builder.scheduler;
+        this.propagator = builder.scheduler != null ? new MotionPropagator() : null;
+        this.metrics = builder.metrics;
+        this.tracer = builder.tracer;
+    }
+
+    /**
+     * Stage acquire: nhận frame nếu còn slot trống, ngược lại bỏ frame ngay lập tức.
+     * Khi có {@link KeyframeScheduler}, frame không phải keyframe (hoặc không còn slot)
+     * được công bố ngay với các hộp dự đoán từ mô hình chuyển động.
+     *
+     * @return {@code true} if the frame entered the pipeline or was published as a propagated frame
+     */
+    public boolean submit(Frame<I> frame) {
+        long start = System.nanoTime();
+        if (closed) {
+            droppedCount.incrementAndGet();
+            frame.release();
+            return false;
+        }
+
+        boolean keyframeDue = scheduler == null || scheduler.onFrame(frame.getTimestampNanos());
+        if (keyframeDue && inFlight.tryAcquire()) {
+            if (scheduler != null) {
+                scheduler.onKeyframeStarted();
+            }
+            trace(FrameTracer.Stage.ACQUIRE, submitKeyframe(frame), start, -1);
+            return true;
+        }
+
+        if (propagator != null && propagator.hasKeyframe()) {
+            trace(FrameTracer.Stage.ACQUIRE, publishPropagated(frame), start, -1);
+            return true;
+        }
+
+        droppedCount.incrementAndGet();
+        frame.release();
+        trace(FrameTracer.Stage.ACQUIRE, -1, start, -1);
+        return false;
+    }
+
+    /**
+     * @return the sequence number assigned to the frame
+     */
+    private long submitKeyframe(Frame<I> frame) {
+        submittedCount.incrementAndGet();
+        final long sequence = nextSequence.getAndIncrement();
+        // Thời điểm kết quả được giao cho publishExecutor (đo độ trễ chuyển sang luồng UI)
+        final long[] handoffNanos = new long[1];
+
+        CompletableFuture
+                .supplyAsync(() -> preprocess(sequence, frame), preprocessExecutor)
+                .thenApplyAsync(preprocessed -> detect(sequence, frame, preprocessed), detectExecutor)
+                .thenApplyAsync(detections -> {
+                    List<Detection> filtered = filter(sequence, frame, detections);
+                    handoffNanos[0] = System.nanoTime();
+                    return filtered;
+                }, filterExecutor)
+                .thenAcceptAsync(filtered -> {
+                    recordSince(PipelineMetrics.Stage.UI_HANDOFF, handoffNanos[0]);
+                    publish(sequence, frame, filtered);
+                }, publishExecutor)
+                .whenComplete((ignored, error) -> {
+                    frame.release();
+                    inFlight.release();
+                    if (error != null) {
+                        failedCount.incrementAndGet();
+                        listener.onFrameFailed(sequence, unwrap(error));
+                    }
+                });
+        return sequence;
+    }
+
+    /**
+     * Frame giữa hai keyframe: trả buffer ngay, dự đoán hộp tại thời điểm chụp frame.
+     */
+    private long publishPropagated(Frame<I> frame) {
+        final long sequence = nextSequence.getAndIncrement();
+        final List<Detection> predicted = propagator.predict(frame.getTimestampNanos());
+        final DetectionResult result = new DetectionResult(sequence, frame.getTimestampNanos(),
+                frame.getWidth(), frame.getHeight(), frame.getRotationDegrees(), predicted, false);
+        frame.release();
+
+        propagatedCount.incrementAndGet();
+        final long handoffNanos = System.nanoTime();
+        publishExecutor.execute(() -> {
+            recordSince(PipelineMetrics.Stage.UI_HANDOFF, handoffNanos);
+            long start = System.nanoTime();
+            listener.onResult(result);
+            trace(FrameTracer.Stage.PROPAGATE, sequence, start, predicted.size());
+        });
+        return sequence;
+    }
+
+    private Frame<P> preprocess(long sequence, Frame<I> frame) {
+        long start = System.nanoTime();
+        try {
+            return frame.withImage(preprocessor.preprocess(frame));
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            trace(FrameTracer.Stage.PREPROCESS, sequence, start, -1);
+        }
+    }
+
+    private List<Detection> detect(long sequence, Frame<I> source, Frame<P> frame) {
+        long start = System.nanoTime();
+        try {
+            List<Detection> detections = detector.detect(frame);
+            recordDetectorLatency(System.nanoTime() - start);
+            trace(FrameTracer.Stage.DETECT, sequence, start, detections.size());
+            return detections;
+        } catch (Exception e) {
+            if (e instanceof TimeoutException) {
+                // Lần chạy quá hạn vẫn là tải thật của detector: bộ lập lịch phải thấy nó
+                recordDetectorLatency(System.nanoTime() - start);
+            }
+            throw new CompletionException(e);
+        } finally {
+            // Trả buffer camera ngay khi nhận diện xong
+            source.release();
+        }
+    }
+
+    private void recordDetectorLatency(long latency) {
+        if (scheduler != null) {
+            scheduler.onDetectorLatency(latency);
+        }
+        if (metrics != null) {
+            metrics.record(PipelineMetrics.Stage.DETECT, latency);
+        }
+    }
+
+    private List<Detection> filter(long sequence, Frame<I> frame, List<Detection> detections) {
+        long start = System.nanoTime();
+        List<Detection> filtered = filter.filter(detections, frame.getUprightWidth(), frame.getUprightHeight());
+        recordSince(PipelineMetrics.Stage.FILTER, start);
+        trace(FrameTracer.Stage.FILTER, sequence, start, filtered.size());
+        if (propagator != null) {
+            propagator.onKeyframe(frame.getTimestampNanos(), filtered);
+        }
+        return filtered;
+    }
+
+    private void publish(long sequence, Frame<I> frame, List<Detection> detections) {
+        // Bỏ kết quả cũ hơn keyframe đã hiển thị (các frame có thể hoàn thành không theo thứ tự).
+        // Frame dự đoán không tham gia so sánh này.
+        long last;
+        do {
+            last = lastPublishedSequence.get();
+            if (sequence < last) {
+                staleCount.incrementAndGet();
+                return;
+            }
+        } while (!lastPublishedSequence.compareAndSet(last, sequence));
+
+        publishedCount.incrementAndGet();
+        long start = System.nanoTime();
+        listener.onResult(new DetectionResult(sequence, frame.getTimestampNanos(),
+                frame.getWidth(), frame.getHeight(), frame.getRotationDegrees(), detections, true));
+        trace(FrameTracer.Stage.PUBLISH, sequence, start, detections.size());
+    }
+
+    private void recordSince(PipelineMetrics.Stage stage, long startNanos) {
+        if (metrics != null) {
+            metrics.record(stage, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void trace(FrameTracer.Stage stage, long sequence, long startNanos, int objectCount) {
+        if (tracer != null) {
+            tracer.record(stage, sequence, startNanos, System.nanoTime(), objectCount);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Ngừng nhận frame mới và đóng detector. Executors thuộc về phía gọi.
+     */
+    public void close() {
+        closed = true;
+        detector.close();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public long getStaleCount() {
+        return staleCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getPropagatedCount() {
+        return propagatedCount.get();
+    }
+
+    /**
+     * Khoảng keyframe hiện tại (1 = mọi frame đều chạy detector).
+     */
+    public int getKeyframeInterval() {
+        return scheduler != null ? scheduler.currentInterval() : 1;
+    }
+
+    public static final class Builder<I, P> {
+        private Preprocessor<I, P> preprocessor;
+        private Detector<P> detector;
+        private DetectionFilter filter = DetectionFilter.NONE;
+        private Listener listener;
+        private Executor preprocessExecutor = DIRECT;
+        private Executor detectExecutor;
+        private Executor filterExecutor = DIRECT;
+        private Executor publishExecutor = DIRECT;
+        private int maxInFlight = 1;
+        private KeyframeScheduler scheduler;
+        private PipelineMetrics metrics;
+        private FrameTracer tracer;
+
+        public Builder<I, P> setPreprocessor(Preprocessor<I, P> preprocessor, Executor executor) {
+            this.preprocessor = preprocessor;
+            this.preprocessExecutor = executor;
+            return this;
+        }
+
+        public Builder<I, P> setDetector(Detector<P> detector, Executor executor) {
+            this.detector = detector;
+            this.detectExecutor = executor;
+            return this;
+        }
+
+        public Builder<I, P> setFilter(DetectionFilter filter, Executor executor) {
+            this.filter = filter;
+            this.filterExecutor = executor;
+            return this;
+        }
+
+        public Builder<I, P> setListener(Listener listener, Executor executor) {
+            this.listener = listener;
+            this.publishExecutor = executor;
+            return this;
+        }
+
+        public Builder<I, P> setMaxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maxInFlight must be >= 1");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Chỉ chạy detector trên keyframe; các frame còn lại dùng hộp dự đoán.
+         */
+        public Builder<I, P> setKeyframeScheduler(KeyframeScheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Ghi độ trễ các stage detect, filter và chuyển sang luồng UI.
+         */
+        public Builder<I, P> setMetrics(PipelineMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Ghi vết từng stage của mỗi frame vào ring buffer.
+         */
+        public Builder<I, P> setTracer(FrameTracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        public FramePipeline<I, P> build() {
+            if (preprocessor == null || detector == null || listener == null) {
+                throw new IllegalStateException("preprocessor, detector and listener are required");
+            }
+            if (preprocessExecutor == null || detectExecutor == null
+                    || filterExecutor == null || publishExecutor == null) {
+                throw new IllegalStateException("stage executors must not be null");
+            }
+            return new FramePipeline<>(this);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.cameraod.pipeline;
+
+/**
+ * Decides which frames go through the full detector ("keyframes"). The
+ * interval adapts between 1-in-1 and 1-in-{@code maxInterval} so that the
+ * detector is busy for at most {@code targetLoad} of the camera frame time:
+ * {@code interval = ceil(detectorLatency / (frameInterval * targetLoad))}.
+ */
+public final class KeyframeScheduler {
+
+    private static final float EMA_WEIGHT = 0.2f; // Trọng số trung bình trượt cho phép đo mới
+
+    private final int maxInterval;
+    private float targetLoad;
+
+    // Đo đạc (trung bình trượt hàm mũ), 0 = chưa biết
+    private double detectorLatencyNanos = 0;
+    private double frameIntervalNanos = 0;
+    private long lastFrameTimestampNanos = 0;
+
+    private int framesSinceKeyframe = Integer.MAX_VALUE / 2;
+
+    /**
+     * @param maxInterval run the detector on at least one of every {@code maxInterval} frames
+     * @param targetLoad  fraction of camera frame time the detector may use, in (0, 1]
+     */
+    public KeyframeScheduler(int maxInterval, float targetLoad) {
+        if (maxInterval < 1) {
+            throw new IllegalArgumentException("maxInterval must be >= 1");
+        }
+        this.maxInterval = maxInterval;
+        setTargetLoad(targetLoad);
+    }
+
+    /**
+     * Đổi tỉ lệ thời gian frame dành cho detector (ví dụ hạ tần suất nhận diện khi máy quá tải).
+     */
+    public synchronized void setTargetLoad(float targetLoad) {
+        if (!(targetLoad > 0f && targetLoad <= 1f)) {
+            throw new IllegalArgumentException("targetLoad must be in (0, 1]");
+        }
+        this.targetLoad = targetLoad;
+    }
+
+    /**
+     * Gọi cho mỗi frame camera, theo thứ tự.
+     *
+     * @return {@code true} if this frame is due for full detection
+     */
+    public synchronized boolean onFrame(long timestampNanos) {
+        if (lastFrameTimestampNanos != 0 && timestampNanos > lastFrameTimestampNanos) {
+            frameIntervalNanos = ema(frameIntervalNanos, timestampNanos - lastFrameTimestampNanos);
+        }
+        lastFrameTimestampNanos = timestampNanos;
+        framesSinceKeyframe++;
+        return framesSinceKeyframe >= currentInterval();
+    }
+
+    /**
+     * Frame đã thực sự được đưa vào detector (có slot trống).
+     */
+    public synchronized void onKeyframeStarted() {
+        framesSinceKeyframe = 0;
+    }
+
+    public synchronized void onDetectorLatency(long latencyNanos) {
+        detectorLatencyNanos = ema(detectorLatencyNanos, latencyNanos);
+    }
+
+    /**
+     * Số frame giữa hai keyframe, trong [1, maxInterval].
+     */
+    public synchronized int currentInterval() {
+        if (detectorLatencyNanos <= 0 || frameIntervalNanos <= 0) {
+            return 1;
+        }
+        double interval = Math.ceil(detectorLatencyNanos / (frameIntervalNanos * targetLoad));
+        return (int) Math.max(1, Math.min(maxInterval, interval));
+    }
+
+    private static double ema(double current, double sample) {
+        return current <= 0 ? sample : current + (sample - current) * EMA_WEIGHT;
+    }
+}
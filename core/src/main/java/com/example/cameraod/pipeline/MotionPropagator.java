@@ -0,0 +1,122 @@
+package com.example.cameraod.pipeline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cheap constant-velocity motion model built from keyframe detections. Between
+ * keyframes it moves each tracked box along its estimated velocity so the
+ * overlay keeps updating at camera rate without running the detector.
+ * Boxes without a tracking ID are carried forward unchanged.
+ */
+public final class MotionPropagator {
+
+    public static final long DEFAULT_MAX_HORIZON_NANOS = 500_000_000L; // Không ngoại suy quá 0.5 s
+    private static final float VELOCITY_SMOOTHING = 0.5f; // Trọng số vận tốc mới
+
+    private static final class Track {
+        Detection detection;
+        long timestampNanos;
+        // Vận tốc các cạnh (px / ns)
+        double vLeft;
+        double vTop;
+        double vRight;
+        double vBottom;
+    }
+
+    private final long maxHorizonNanos;
+    private final Map<Integer, Track> tracks = new HashMap<>();
+    private final List<Detection> untracked = new ArrayList<>();
+    private long keyframeTimestampNanos = Long.MIN_VALUE;
+
+    public MotionPropagator() {
+        this(DEFAULT_MAX_HORIZON_NANOS);
+    }
+
+    public MotionPropagator(long maxHorizonNanos) {
+        this.maxHorizonNanos = maxHorizonNanos;
+    }
+
+    /**
+     * Cập nhật mô hình từ kết quả của một keyframe. Keyframe cũ hơn keyframe đã nhận bị bỏ qua.
+     */
+    public synchronized void onKeyframe(long timestampNanos, List<Detection> detections) {
+        if (timestampNanos <= keyframeTimestampNanos) {
+            return;
+        }
+        keyframeTimestampNanos = timestampNanos;
+        untracked.clear();
+
+        // Xóa các track không còn xuất hiện
+        Iterator<Map.Entry<Integer, Track>> iterator = tracks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (!contains(detections, iterator.next().getKey())) {
+                iterator.remove();
+            }
+        }
+
+        for (int i = 0; i < detections.size(); i++) {
+            Detection detection = detections.get(i);
+            Integer id = detection.getTrackingId();
+            if (id == null) {
+                untracked.add(detection);
+                continue;
+            }
+
+            Track track = tracks.get(id);
+            if (track == null) {
+                track = new Track();
+                tracks.put(id, track);
+            } else {
+                double dt = timestampNanos - track.timestampNanos;
+                Detection previous = track.detection;
+                track.vLeft = smooth(track.vLeft, (detection.getLeft() - previous.getLeft()) / dt);
+                track.vTop = smooth(track.vTop, (detection.getTop() - previous.getTop()) / dt);
+                track.vRight = smooth(track.vRight, (detection.getRight() - previous.getRight()) / dt);
+                track.vBottom = smooth(track.vBottom, (detection.getBottom() - previous.getBottom()) / dt);
+            }
+            track.detection = detection;
+            track.timestampNanos = timestampNanos;
+        }
+    }
+
+    private static boolean contains(List<Detection> detections, int trackingId) {
+        for (int i = 0; i < detections.size(); i++) {
+            Integer id = detections.get(i).getTrackingId();
+            if (id != null && id == trackingId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double smooth(double current, double sample) {
+        return current + (sample - current) * VELOCITY_SMOOTHING;
+    }
+
+    /**
+     * Dự đoán vị trí các hộp tại thời điểm {@code timestampNanos}.
+     */
+    public synchronized List<Detection> predict(long timestampNanos) {
+        List<Detection> predicted = new ArrayList<>(tracks.size() + untracked.size());
+        for (Track track : tracks.values()) {
+            long dt = Math.max(0, Math.min(timestampNanos - track.timestampNanos, maxHorizonNanos));
+            Detection d = track.detection;
+            predicted.add(new Detection(
+                    (int) Math.round(d.getLeft() + track.vLeft * dt),
+                    (int) Math.round(d.getTop() + track.vTop * dt),
+                    (int) Math.round(d.getRight() + track.vRight * dt),
+                    (int) Math.round(d.getBottom() + track.vBottom * dt),
+                    d.getTrackingId(), d.getLabels()));
+        }
+        predicted.addAll(untracked);
+        return predicted;
+    }
+
+    public synchronized boolean hasKeyframe() {
+        return keyframeTimestampNanos != Long.MIN_VALUE;
+    }
+}
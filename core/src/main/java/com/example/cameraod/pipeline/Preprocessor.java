@@ -0,0 +1,9 @@
+package com.example.cameraod.pipeline;
+
+/**
+ * Converts the acquired image into the form the {@link Detector} consumes.
+ */
+public interface Preprocessor<I, P> {
+
+    P preprocess(Frame<I> frame) throws Exception;
+}
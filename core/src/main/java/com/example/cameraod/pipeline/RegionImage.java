@@ -0,0 +1,58 @@
+package com.example.cameraod.pipeline;
+
+/**
+ * Preprocessed image covering only part of the frame, possibly downscaled. The
+ * crop is given in upright frame coordinates, so detections on the image are
+ * scaled by ({@link #getScaleX()}, {@link #getScaleY()}) and offset by
+ * ({@code crop.left}, {@code crop.top}) to map back to the full frame. The two
+ * axes are scaled separately because the image size is rounded per axis.
+ *
+ * @param <P> image type consumed by the wrapped {@link Detector}
+ */
+public final class RegionImage<P> {
+
+    private final P image;
+    private final CropRegion crop;
+    private final float scaleX;
+    private final float scaleY;
+
+    public RegionImage(P image, CropRegion crop) {
+        this.image = image;
+        this.crop = crop;
+        this.scaleX = 1f;
+        this.scaleY = 1f;
+    }
+
+    /**
+     * @param imageWidth  upright width of {@code image} in pixels
+     * @param imageHeight upright height of {@code image} in pixels
+     */
+    public RegionImage(P image, CropRegion crop, int imageWidth, int imageHeight) {
+        if (imageWidth <= 0 || imageHeight <= 0) {
+            throw new IllegalArgumentException("image size must be > 0");
+        }
+        this.image = image;
+        this.crop = crop;
+        this.scaleX = (float) crop.width() / imageWidth;
+        this.scaleY = (float) crop.height() / imageHeight;
+    }
+
+    public P getImage() {
+        return image;
+    }
+
+    public CropRegion getCrop() {
+        return crop;
+    }
+
+    /**
+     * Số pixel frame trên mỗi pixel ảnh theo chiều ngang ({@code > 1} khi vùng cắt đã thu nhỏ).
+     */
+    public float getScaleX() {
+        return scaleX;
+    }
+
+    public float getScaleY() {
+        return scaleY;
+    }
+}
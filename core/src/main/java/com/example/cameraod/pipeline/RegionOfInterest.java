@@ -0,0 +1,157 @@
+package com.example.cameraod.pipeline;
+
+import java.util.List;
+
+/**
+ * Chooses the part of the frame the detector should look at: the union of
+ * boxes seen during the last {@link #HISTORY_NANOS}, grown by a margin.
+ * Falls back to the full frame when nothing was seen recently, when the
+ * region would cover most of the frame anyway, and periodically so that
+ * objects entering elsewhere are still discovered. The previous crop is kept
+ * while it still contains the region and is not much larger, so the detector
+ * (and its tracker) does not see a different image size on every frame.
+ */
+public final class RegionOfInterest {
+
+    public static final long HISTORY_NANOS = 500_000_000L; // Hợp các hộp trong 0.5 s gần nhất
+    public static final float MARGIN = 0.25f;        // Lề mỗi phía, theo tỉ lệ kích thước vùng
+    public static final int MIN_MARGIN = 32;         // Lề tối thiểu (px)
+    public static final int MIN_SIZE = 160;          // Cạnh vùng cắt tối thiểu (px)
+    public static final float MAX_AREA_FRACTION = 0.6f; // Vùng lớn hơn thì dùng cả frame
+    public static final int FULL_FRAME_INTERVAL = 8;     // Cứ 8 lần chọn thì có 1 lần cả frame
+    public static final float KEEP_AREA_RATIO = 0.5f;    // Giữ vùng cũ nếu vùng mới chiếm >= 50% diện tích
+
+    private static final int HISTORY_CAPACITY = 32;
+
+    // Vòng lưu hợp các hộp của từng kết quả gần đây (mảng nguyên thủy)
+    private final long[] timestamps = new long[HISTORY_CAPACITY];
+    private final int[] lefts = new int[HISTORY_CAPACITY];
+    private final int[] tops = new int[HISTORY_CAPACITY];
+    private final int[] rights = new int[HISTORY_CAPACITY];
+    private final int[] bottoms = new int[HISTORY_CAPACITY];
+    private int head;
+    private int count;
+
+    private int selections;
+    private CropRegion lastCrop;
+    private boolean enabled = true;
+
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Quên các hộp cũ (ví dụ khi độ phân giải phân tích thay đổi và tọa độ cũ không còn đúng).
+     */
+    public synchronized void reset() {
+        count = 0;
+        head = 0;
+        lastCrop = null;
+    }
+
+    /**
+     * Ghi nhận kết quả (tọa độ thẳng đứng của cả frame) để dùng cho các lần chọn vùng sau.
+     */
+    public synchronized void onDetections(long timestampNanos, List<Detection> detections) {
+        if (detections.isEmpty()) {
+            return;
+        }
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int i = 0; i < detections.size(); i++) {
+            Detection d = detections.get(i);
+            left = Math.min(left, d.getLeft());
+            top = Math.min(top, d.getTop());
+            right = Math.max(right, d.getRight());
+            bottom = Math.max(bottom, d.getBottom());
+        }
+        timestamps[head] = timestampNanos;
+        lefts[head] = left;
+        tops[head] = top;
+        rights[head] = right;
+        bottoms[head] = bottom;
+        head = (head + 1) % HISTORY_CAPACITY;
+        count = Math.min(count + 1, HISTORY_CAPACITY);
+    }
+
+    /**
+     * Chọn vùng cần phân tích cho frame tại {@code timestampNanos}.
+     *
+     * @return the crop in upright coordinates; equals the full frame when cropping is not worth it
+     */
+    public synchronized CropRegion select(long timestampNanos, int width, int height) {
+        CropRegion full = CropRegion.full(width, height);
+        if (!enabled || selections++ % FULL_FRAME_INTERVAL == 0) {
+            return full;
+        }
+
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        boolean any = false;
+        for (int k = 0; k < count; k++) {
+            int i = (head - 1 - k + HISTORY_CAPACITY) % HISTORY_CAPACITY;
+            if (timestampNanos - timestamps[i] > HISTORY_NANOS) {
+                continue;
+            }
+            left = Math.min(left, lefts[i]);
+            top = Math.min(top, tops[i]);
+            right = Math.max(right, rights[i]);
+            bottom = Math.max(bottom, bottoms[i]);
+            any = true;
+        }
+        if (!any) {
+            return full;
+        }
+
+        // Vùng cũ vẫn dùng được nếu bao hợp các hộp với ít nhất nửa lề tối thiểu
+        int keepLeft = left - MIN_MARGIN / 2;
+        int keepTop = top - MIN_MARGIN / 2;
+        int keepRight = right + MIN_MARGIN / 2;
+        int keepBottom = bottom + MIN_MARGIN / 2;
+
+        // Thêm lề và đảm bảo kích thước tối thiểu
+        int marginX = Math.max(MIN_MARGIN, (int) ((right - left) * MARGIN));
+        int marginY = Math.max(MIN_MARGIN, (int) ((bottom - top) * MARGIN));
+        left -= marginX;
+        right += marginX;
+        top -= marginY;
+        bottom += marginY;
+        if (right - left < MIN_SIZE) {
+            int grow = (MIN_SIZE - (right - left) + 1) / 2;
+            left -= grow;
+            right += grow;
+        }
+        if (bottom - top < MIN_SIZE) {
+            int grow = (MIN_SIZE - (bottom - top) + 1) / 2;
+            top -= grow;
+            bottom += grow;
+        }
+        left = Math.max(0, left);
+        top = Math.max(0, top);
+        right = Math.min(width, right);
+        bottom = Math.min(height, bottom);
+
+        long area = (long) (right - left) * (bottom - top);
+        if (right <= left || bottom <= top || area > (long) (MAX_AREA_FRACTION * width * height)) {
+            return full;
+        }
+
+        // Giữ nguyên vùng cũ nếu vẫn bao được các hộp và không quá lớn so với vùng mới
+        if (lastCrop != null && lastCrop.getLeft() <= keepLeft && lastCrop.getTop() <= keepTop
+                && lastCrop.getRight() >= keepRight && lastCrop.getBottom() >= keepBottom
+                && lastCrop.getRight() <= width && lastCrop.getBottom() <= height
+                && area >= (long) (KEEP_AREA_RATIO * lastCrop.width() * lastCrop.height())) {
+            return lastCrop;
+        }
+        lastCrop = new CropRegion(left, top, right, bottom);
+        return lastCrop;
+    }
+}
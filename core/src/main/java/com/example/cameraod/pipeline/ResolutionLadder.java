@@ -0,0 +1,114 @@
+package com.example.cameraod.pipeline;
+
+import java.util.List;
+
+/**
+ * Discrete analysis resolutions (320p / 480p / 720p, 16:9). Recommends the
+ * lowest rung at which the smallest detected object is still at least
+ * {@link #MIN_OBJECT_SIZE} pixels, stepping up immediately when objects get
+ * too small and stepping down only after {@link #STEP_DOWN_RESULTS}
+ * consecutive results allow it, because every change rebinds the camera.
+ */
+public final class ResolutionLadder {
+
+    /**
+     * Một nấc độ phân giải (cạnh ngắn x cạnh dài, 16:9).
+     */
+    public enum Rung {
+        P320(320, 568),
+        P480(480, 854),
+        P720(720, 1280);
+
+        private final int shortSide;
+        private final int longSide;
+
+        Rung(int shortSide, int longSide) {
+            this.shortSide = shortSide;
+            this.longSide = longSide;
+        }
+
+        public int getShortSide() {
+            return shortSide;
+        }
+
+        public int getLongSide() {
+            return longSide;
+        }
+    }
+
+    public static final int MIN_OBJECT_SIZE = 48;    // Cạnh ngắn tối thiểu của vật thể ở độ phân giải phân tích (px)
+    public static final int STEP_DOWN_RESULTS = 30;  // Số kết quả liên tiếp cho phép hạ nấc
+
+    private static final Rung[] RUNGS = Rung.values();
+
+    private Rung rung;
+    private Rung maxRung = RUNGS[RUNGS.length - 1];
+    private int stepDownStreak;
+
+    public ResolutionLadder(Rung initial) {
+        this.rung = initial;
+    }
+
+    public synchronized Rung getRung() {
+        return rung;
+    }
+
+    /**
+     * Giới hạn nấc cao nhất được đề xuất (bộ điều chỉnh chất lượng hạ giới hạn khi máy quá tải).
+     *
+     * @return {@code true} if the current rung was lowered and the analysis use case should be rebound
+     */
+    public synchronized boolean setMaxRung(Rung maxRung) {
+        this.maxRung = maxRung;
+        if (rung.ordinal() > maxRung.ordinal()) {
+            rung = maxRung;
+            stepDownStreak = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cập nhật theo một kết quả nhận diện (tọa độ thẳng đứng của ảnh {@code width x height}).
+     *
+     * @return {@code true} if the recommended rung changed and the analysis use case should be rebound
+     */
+    public synchronized boolean onResult(List<Detection> detections, int width, int height) {
+        if (detections.isEmpty()) {
+            stepDownStreak = 0;
+            return false;
+        }
+
+        // Kích thước tương đối của vật thể nhỏ nhất so với cạnh ngắn của ảnh
+        float smallest = Float.MAX_VALUE;
+        for (int i = 0; i < detections.size(); i++) {
+            Detection d = detections.get(i);
+            smallest = Math.min(smallest, Math.min(d.width(), d.height()));
+        }
+        float fraction = smallest / Math.min(width, height);
+
+        Rung needed = maxRung;
+        for (int i = 0; i < maxRung.ordinal(); i++) {
+            if (fraction * RUNGS[i].shortSide >= MIN_OBJECT_SIZE) {
+                needed = RUNGS[i];
+                break;
+            }
+        }
+
+        if (needed.ordinal() > rung.ordinal()) {
+            rung = needed;
+            stepDownStreak = 0;
+            return true;
+        }
+        if (needed.ordinal() < rung.ordinal()) {
+            if (++stepDownStreak >= STEP_DOWN_RESULTS) {
+                rung = RUNGS[rung.ordinal() - 1];
+                stepDownStreak = 0;
+                return true;
+            }
+            return false;
+        }
+        stepDownStreak = 0;
+        return false;
+    }
+}
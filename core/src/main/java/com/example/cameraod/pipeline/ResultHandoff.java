@@ -0,0 +1,102 @@
+package com.example.cameraod.pipeline;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link FramePipeline.Listener} that hands results to a consumer thread (the
+ * overlay, at vsync) through a {@link TripleBuffer} of {@link DetectionSnapshot}s.
+ * Features:
+ * - Runs directly on the pipeline threads: no message per frame on the consumer's
+ *   looper and no allocation once constructed
+ * - The consumer polls at its own pace and always gets the newest snapshot;
+ *   snapshots it did not get to are dropped and counted, never queued
+ * - An unread keyframe (a detector measurement) is not replaced by a propagated frame,
+ *   so the overlay's motion filters still see every measurement it had time to show
+ * - The wake-up callback runs only after the consumer went idle, at most once until
+ *   it polls again
+ * <p>
+ * Results can arrive from several pipeline threads (analyzer and detector threads);
+ * they are serialized by a monitor on the producer side only. The consumer never blocks.
+ */
+public final class ResultHandoff implements FramePipeline.Listener {
+
+    public static final int DEFAULT_CAPACITY = 64; // Số vật thể tối đa mỗi snapshot
+
+    private final TripleBuffer<DetectionSnapshot> buffer;
+    private final Object writeLock = new Object();
+    private final AtomicBoolean consumerIdle = new AtomicBoolean(true);
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile Runnable wakeUp;
+
+    public ResultHandoff() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ResultHandoff(int capacity) {
+        buffer = new TripleBuffer<>(() -> new DetectionSnapshot(capacity));
+    }
+
+    /**
+     * Callback đánh thức luồng đọc khi nó đang nghỉ; chạy trên luồng pipeline nên chỉ nên
+     * post một tác vụ (ví dụ {@code View.postOnAnimation}).
+     */
+    public void setWakeUp(Runnable wakeUp) {
+        this.wakeUp = wakeUp;
+    }
+
+    @Override
+    public void onResult(DetectionResult result) {
+        synchronized (writeLock) {
+            DetectionSnapshot pending = buffer.pending();
+            if (!result.isKeyframe() && pending != null && pending.isKeyframe()) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            buffer.back().set(result);
+            if (buffer.publish()) {
+                droppedCount.incrementAndGet();
+            }
+            publishedCount.incrementAndGet();
+        }
+        if (consumerIdle.compareAndSet(true, false)) {
+            Runnable callback = wakeUp;
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * Lấy snapshot mới nhất (luồng đọc). Snapshot thuộc về luồng đọc cho tới lần poll sau.
+     *
+     * @return the newest snapshot, or {@code null} if nothing was published since the last poll
+     */
+    public DetectionSnapshot poll() {
+        return buffer.update() ? buffer.front() : null;
+    }
+
+    /**
+     * Luồng đọc báo không còn việc (ngừng poll). Lần công bố tiếp theo sẽ gọi wake-up.
+     *
+     * @return {@code true} if a snapshot arrived in the meantime and the consumer should
+     *         poll again instead of going idle
+     */
+    public boolean onConsumerIdle() {
+        consumerIdle.set(true);
+        // Snapshot công bố ngay trước khi đặt cờ sẽ không đánh thức ai: tự nhận lại
+        return buffer.hasUpdate() && consumerIdle.compareAndSet(true, false);
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * Số snapshot bị thay bởi snapshot mới hơn trước khi luồng đọc kịp lấy.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.cameraod.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a {@link Detector} on a {@link RegionImage} and maps the detections
+ * back to full-frame upright coordinates (undoing the crop offset and any
+ * downscale), so the filter, overlay transform and everything downstream are
+ * unaware of the crop. Mapped results are fed to the {@link RegionOfInterest}
+ * that picks the next crop.
+ *
+ * @param <P> image type consumed by the wrapped detector
+ */
+public final class RoiDetector<P> implements Detector<RegionImage<P>> {
+
+    private final Detector<P> delegate;
+    private final RegionOfInterest regionOfInterest;
+
+    public RoiDetector(Detector<P> delegate, RegionOfInterest regionOfInterest) {
+        this.delegate = delegate;
+        this.regionOfInterest = regionOfInterest;
+    }
+
+    @Override
+    public List<Detection> detect(Frame<RegionImage<P>> frame) throws Exception {
+        RegionImage<P> region = frame.getImage();
+        List<Detection> detections = delegate.detect(frame.withImage(region.getImage()));
+
+        int offsetX = region.getCrop().getLeft();
+        int offsetY = region.getCrop().getTop();
+        float scaleX = region.getScaleX();
+        float scaleY = region.getScaleY();
+        List<Detection> mapped = detections;
+        if (scaleX != 1f || scaleY != 1f) {
+            // Ảnh đã thu nhỏ: phóng tọa độ về kích thước vùng cắt trước khi dịch
+            mapped = new ArrayList<>(detections.size());
+            for (int i = 0; i < detections.size(); i++) {
+                Detection d = detections.get(i);
+                mapped.add(new Detection(Math.round(d.getLeft() * scaleX) + offsetX,
+                        Math.round(d.getTop() * scaleY) + offsetY,
+                        Math.round(d.getRight() * scaleX) + offsetX,
+                        Math.round(d.getBottom() * scaleY) + offsetY, d.getTrackingId(), d.getLabels()));
+            }
+        } else if (offsetX != 0 || offsetY != 0) {
+            mapped = new ArrayList<>(detections.size());
+            for (int i = 0; i < detections.size(); i++) {
+                Detection d = detections.get(i);
+                mapped.add(new Detection(d.getLeft() + offsetX, d.getTop() + offsetY,
+                        d.getRight() + offsetX, d.getBottom() + offsetY, d.getTrackingId(), d.getLabels()));
+            }
+        }
+        regionOfInterest.onDetections(frame.getTimestampNanos(), mapped);
+        return mapped;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
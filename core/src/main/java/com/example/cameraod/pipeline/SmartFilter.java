@@ -0,0 +1,43 @@
+package com.example.cameraod.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Smart Filter: giữ vật thể nếu ĐÃ PHÂN LOẠI hoặc (CHƯA PHÂN LOẠI nhưng KÍCH THƯỚC LỚN).
+ */
+public final class SmartFilter implements DetectionFilter {
+
+    static final float MIN_UNCLASSIFIED_WIDTH_RATIO = 0.2f;
+
+    private final float confidenceThreshold;
+
+    public SmartFilter(float confidenceThreshold) {
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    @Override
+    public List<Detection> filter(List<Detection> detections, int imageWidth, int imageHeight) {
+        List<Detection> filtered = new ArrayList<>(detections.size());
+        for (int i = 0; i < detections.size(); i++) {
+            Detection object = detections.get(i);
+            if (accept(object, imageWidth)) {
+                filtered.add(object);
+            }
+        }
+        return filtered;
+    }
+
+    boolean accept(Detection object, int imageWidth) {
+        // Kiểm tra xem có nhãn nào đạt ngưỡng tin cậy không
+        List<Detection.Label> labels = object.getLabels();
+        for (int i = 0; i < labels.size(); i++) {
+            if (labels.get(i).getConfidence() >= confidenceThreshold) {
+                return true;
+            }
+        }
+
+        // Vật thể chưa phân loại phải chiếm > 20% chiều rộng ảnh
+        return labels.isEmpty() && object.width() > imageWidth * MIN_UNCLASSIFIED_WIDTH_RATIO;
+    }
+}
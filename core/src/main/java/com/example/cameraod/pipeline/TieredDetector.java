@@ -0,0 +1,261 @@
+package com.example.cameraod.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier {@link Detector}: a cheap detection-only model runs on every frame it
+ * is given, and a classifying model runs in the background only every
+ * {@code classifyInterval}, or sooner when a new track appears. Labels are kept
+ * per tracking ID in a {@link TrackLabelCache} and attached to the cheap model's
+ * boxes in between.
+ * Features:
+ * - Classification never delays the frame: it runs on its own executor, at most
+ *   one run at a time, while the frame is held ({@link Frame#retain()}). When the
+ *   camera image was returned after preprocessing ({@link Frame#releaseSource()})
+ *   the hold pins only the preprocessed image, never the camera buffer
+ * - Classified boxes are matched to the same frame's tracked boxes by IoU, so
+ *   the two models' tracking IDs never need to agree
+ * - The per-track confidence-weighted vote smooths label flicker between runs
+ * - Boxes of tracks that have no label yet are passed through unlabelled
+ *
+ * @param <T> image type shared by both models
+ */
+public final class TieredDetector<T> implements Detector<T> {
+
+    static final float MIN_MATCH_IOU = 0.5f; // IoU tối thiểu để nhận nhãn của hộp đã phân loại
+
+    private final Detector<T> detector;
+    private final Detector<T> classifier;
+    private final Executor classifierExecutor;
+    private final long classifyIntervalNanos;
+    private final TrackLabelCache cache;
+
+    private final AtomicBoolean classifying = new AtomicBoolean();
+    private volatile long lastClassificationNanos = Long.MIN_VALUE;
+    // Frame trước có track chưa từng được phân loại: phân loại ngay, không chờ chu kỳ
+    private volatile boolean newTrackSeen = false;
+
+    private final AtomicLong classificationCount = new AtomicLong();
+    private final AtomicLong failedClassificationCount = new AtomicLong();
+
+    private TieredDetector(Builder<T> builder) {
+        this.detector = builder.detector;
+        this.classifier = builder.classifier;
+        this.classifierExecutor = builder.classifierExecutor;
+        this.classifyIntervalNanos = builder.classifyIntervalNanos;
+        this.cache = new TrackLabelCache(builder.labelTtlNanos, builder.maxTracks, builder.voteDecay);
+    }
+
+    @Override
+    public List<Detection> detect(Frame<T> frame) throws Exception {
+        long now = frame.getTimestampNanos();
+        CompletableFuture<List<Detection>> tracked = null;
+        if (classificationDue(now) && classifying.compareAndSet(false, true)) {
+            tracked = new CompletableFuture<>();
+            classify(frame, tracked);
+        }
+
+        List<Detection> detections;
+        try {
+            detections = detector.detect(frame);
+        } catch (Exception e) {
+            if (tracked != null) {
+                tracked.completeExceptionally(e);
+            }
+            throw e;
+        }
+        if (tracked != null) {
+            tracked.complete(detections);
+        }
+
+        cache.evictExpired(now);
+        boolean newTrack = false;
+        List<Detection> labelled = new ArrayList<>(detections.size());
+        for (int i = 0; i < detections.size(); i++) {
+            Detection d = detections.get(i);
+            Integer id = d.getTrackingId();
+            List<Detection.Label> labels = id != null ? cache.labelsFor(id, now) : null;
+            if (labels != null) {
+                labelled.add(new Detection(d.getLeft(), d.getTop(), d.getRight(), d.getBottom(), id, labels));
+            } else {
+                newTrack |= id != null && !cache.contains(id);
+                labelled.add(d);
+            }
+        }
+        if (newTrack) {
+            newTrackSeen = true;
+        }
+        return labelled;
+    }
+
+    private boolean classificationDue(long nowNanos) {
+        long last = lastClassificationNanos;
+        return newTrackSeen || last == Long.MIN_VALUE || nowNanos - last >= classifyIntervalNanos;
+    }
+
+    /**
+     * Chạy model phân loại trên frame ở luồng nền; kết quả được ghép với hộp của model nhanh
+     * trên cùng frame (khi có) rồi ghi vào cache.
+     */
+    private void classify(Frame<T> frame, CompletableFuture<List<Detection>> tracked) {
+        long now = frame.getTimestampNanos();
+        lastClassificationNanos = now;
+        newTrackSeen = false;
+        Runnable hold = frame.retain();
+        CompletableFuture<List<Detection>> classified;
+        try {
+            classified = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return classifier.detect(frame);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                } finally {
+                    hold.run();
+                }
+            }, classifierExecutor);
+        } catch (RejectedExecutionException e) {
+            hold.run();
+            failedClassificationCount.incrementAndGet();
+            classifying.set(false);
+            return;
+        }
+        classified.thenAcceptBoth(tracked, (classes, boxes) -> record(boxes, classes, now))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        failedClassificationCount.incrementAndGet();
+                    } else {
+                        classificationCount.incrementAndGet();
+                    }
+                    classifying.set(false);
+                });
+    }
+
+    /**
+     * Gán mỗi hộp có tracking ID cho hộp đã phân loại trùng nhất (IoU, mỗi hộp dùng một lần).
+     * Track không khớp vẫn được ghi (không nhãn) để không kích hoạt phân loại lại ngay.
+     */
+    private void record(List<Detection> boxes, List<Detection> classes, long nowNanos) {
+        boolean[] taken = new boolean[classes.size()];
+        for (int i = 0; i < boxes.size(); i++) {
+            Detection box = boxes.get(i);
+            if (box.getTrackingId() == null) {
+                continue;
+            }
+            int best = -1;
+            float bestIou = MIN_MATCH_IOU;
+            for (int j = 0; j < classes.size(); j++) {
+                float iou = taken[j] ? 0f : iou(box, classes.get(j));
+                if (iou >= bestIou) {
+                    best = j;
+                    bestIou = iou;
+                }
+            }
+            List<Detection.Label> labels = Collections.emptyList();
+            if (best >= 0) {
+                taken[best] = true;
+                labels = classes.get(best).getLabels();
+            }
+            cache.onClassified(box.getTrackingId(), labels, nowNanos);
+        }
+    }
+
+    static float iou(Detection a, Detection b) {
+        float w = Math.min(a.getRight(), b.getRight()) - Math.max(a.getLeft(), b.getLeft());
+        float h = Math.min(a.getBottom(), b.getBottom()) - Math.max(a.getTop(), b.getTop());
+        if (w <= 0f || h <= 0f) {
+            return 0f;
+        }
+        float intersection = w * h;
+        return intersection / ((float) a.width() * a.height() + (float) b.width() * b.height() - intersection);
+    }
+
+    public TrackLabelCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Số lần phân loại đã xong (kể cả khi không khớp được hộp nào).
+     */
+    public long getClassificationCount() {
+        return classificationCount.get();
+    }
+
+    public long getFailedClassificationCount() {
+        return failedClassificationCount.get();
+    }
+
+    @Override
+    public void close() {
+        detector.close();
+        classifier.close();
+    }
+
+    public static final class Builder<T> {
+        private final Detector<T> detector;
+        private final Detector<T> classifier;
+        private final Executor classifierExecutor;
+        private long classifyIntervalNanos = TimeUnit.MILLISECONDS.toNanos(500);
+        private long labelTtlNanos = TimeUnit.SECONDS.toNanos(2);
+        private int maxTracks = 64;
+        private float voteDecay = 0.7f;
+
+        /**
+         * @param detector           detection-only model, run on every frame
+         * @param classifier         classifying model, run in the background
+         * @param classifierExecutor executor for the classifier; one run at a time
+         */
+        public Builder(Detector<T> detector, Detector<T> classifier, Executor classifierExecutor) {
+            this.detector = detector;
+            this.classifier = classifier;
+            this.classifierExecutor = classifierExecutor;
+        }
+
+        /**
+         * Chu kỳ phân loại lại các track đã có nhãn (mặc định 500 ms).
+         */
+        public Builder<T> setClassifyInterval(long interval, TimeUnit unit) {
+            this.classifyIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * Track không được thấy trong thời gian này bị xóa khỏi cache (mặc định 2 s).
+         */
+        public Builder<T> setLabelTtl(long ttl, TimeUnit unit) {
+            this.labelTtlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        public Builder<T> setMaxTracks(int maxTracks) {
+            this.maxTracks = maxTracks;
+            return this;
+        }
+
+        /**
+         * Phần trọng số phiếu cũ còn giữ sau mỗi lần phân loại (mặc định 0.7).
+         */
+        public Builder<T> setVoteDecay(float voteDecay) {
+            this.voteDecay = voteDecay;
+            return this;
+        }
+
+        public TieredDetector<T> build() {
+            if (detector == null || classifier == null || classifierExecutor == null) {
+                throw new IllegalStateException("detector, classifier and executor are required");
+            }
+            if (classifyIntervalNanos <= 0) {
+                throw new IllegalStateException("classifyInterval must be positive");
+            }
+            return new TieredDetector<>(this);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.cameraod.pipeline;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Labels of tracked objects, keyed by tracking ID, so a detection-only model
+ * can show the label a classifying model gave the same track a moment ago.
+ * Features:
+ * - Confidence-weighted vote per track: each classification adds its labels'
+ *   confidences after older votes are decayed, and the label with the highest
+ *   weight wins, so one noisy classification does not flip the label
+ * - The winning label is reported with the decayed mean of its confidences and
+ *   cached as an immutable list (no allocation per lookup)
+ * - Tracks not seen for the TTL are evicted; the table is bounded and evicts the
+ *   least recently seen track when full
+ * Thread-safe.
+ */
+public final class TrackLabelCache {
+
+    static final int MAX_CANDIDATES = 4; // Số nhãn ứng viên giữ cho mỗi track
+
+    /**
+     * Phiếu bầu nhãn của một track.
+     */
+    private static final class Entry {
+        final String[] texts = new String[MAX_CANDIDATES];
+        final int[] indices = new int[MAX_CANDIDATES];
+        final float[] weights = new float[MAX_CANDIDATES];      // Tổng độ tin cậy (đã suy giảm)
+        final float[] observations = new float[MAX_CANDIDATES]; // Số lần thấy (đã suy giảm)
+        int candidates;
+        long lastSeenNanos;
+        List<Detection.Label> winner; // null khi chưa có nhãn nào
+    }
+
+    private final long ttlNanos;
+    private final int maxTracks;
+    private final float voteDecay;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param ttlNanos  a track not seen for this long is evicted
+     * @param maxTracks maximum number of cached tracks
+     * @param voteDecay weight kept by older votes at each new classification, in [0, 1)
+     */
+    public TrackLabelCache(long ttlNanos, int maxTracks, float voteDecay) {
+        if (ttlNanos <= 0 || maxTracks < 1) {
+            throw new IllegalArgumentException("ttlNanos and maxTracks must be positive");
+        }
+        if (!(voteDecay >= 0f && voteDecay < 1f)) {
+            throw new IllegalArgumentException("voteDecay must be in [0, 1)");
+        }
+        this.ttlNanos = ttlNanos;
+        this.maxTracks = maxTracks;
+        this.voteDecay = voteDecay;
+    }
+
+    /**
+     * Ghi kết quả phân loại của track (danh sách rỗng: đã phân loại nhưng không có nhãn).
+     */
+    public synchronized void onClassified(int trackingId, List<Detection.Label> labels, long nowNanos) {
+        Entry entry = entries.get(trackingId);
+        if (entry == null) {
+            entry = insert(trackingId, nowNanos);
+        }
+        entry.lastSeenNanos = Math.max(entry.lastSeenNanos, nowNanos);
+
+        // Phiếu cũ suy giảm trước khi cộng phiếu mới
+        for (int i = 0; i < entry.candidates; i++) {
+            entry.weights[i] *= voteDecay;
+            entry.observations[i] *= voteDecay;
+        }
+        for (int j = 0; j < labels.size(); j++) {
+            vote(entry, labels.get(j));
+        }
+        updateWinner(entry);
+    }
+
+    private static void vote(Entry entry, Detection.Label label) {
+        int slot = -1;
+        for (int i = 0; i < entry.candidates; i++) {
+            if (entry.indices[i] == label.getIndex() && entry.texts[i].equals(label.getText())) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) {
+            if (entry.candidates < MAX_CANDIDATES) {
+                slot = entry.candidates++;
+            } else {
+                // Thay ứng viên yếu nhất
+                slot = 0;
+                for (int i = 1; i < MAX_CANDIDATES; i++) {
+                    if (entry.weights[i] < entry.weights[slot]) {
+                        slot = i;
+                    }
+                }
+            }
+            entry.texts[slot] = label.getText();
+            entry.indices[slot] = label.getIndex();
+            entry.weights[slot] = 0f;
+            entry.observations[slot] = 0f;
+        }
+        entry.weights[slot] += label.getConfidence();
+        entry.observations[slot] += 1f;
+    }
+
+    private static void updateWinner(Entry entry) {
+        int best = -1;
+        for (int i = 0; i < entry.candidates; i++) {
+            if (best < 0 || entry.weights[i] > entry.weights[best]) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return;
+        }
+        String text = entry.texts[best];
+        float confidence = entry.observations[best] > 0f ? entry.weights[best] / entry.observations[best] : 0f;
+        Detection.Label current = entry.winner != null ? entry.winner.get(0) : null;
+        // Chỉ tạo đối tượng mới khi nhãn hoặc phần trăm hiển thị đổi
+        if (current == null || !current.getText().equals(text) || current.getIndex() != entry.indices[best]
+                || Math.round(current.getConfidence() * 100) != Math.round(confidence * 100)) {
+            entry.winner = Collections.singletonList(new Detection.Label(text, entry.indices[best], confidence));
+        }
+    }
+
+    private Entry insert(int trackingId, long nowNanos) {
+        if (entries.size() >= maxTracks) {
+            evictExpired(nowNanos);
+        }
+        if (entries.size() >= maxTracks) {
+            // Vẫn đầy: bỏ track lâu không thấy nhất
+            Integer oldest = null;
+            long oldestSeen = Long.MAX_VALUE;
+            for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+                if (e.getValue().lastSeenNanos < oldestSeen) {
+                    oldestSeen = e.getValue().lastSeenNanos;
+                    oldest = e.getKey();
+                }
+            }
+            entries.remove(oldest);
+            evictionCount++;
+        }
+        Entry entry = new Entry();
+        entries.put(trackingId, entry);
+        return entry;
+    }
+
+    /**
+     * Nhãn đã bầu của track và đánh dấu track vừa được thấy.
+     *
+     * @return the winning label as a one-element list, or {@code null} if the track has no label
+     */
+    public synchronized List<Detection.Label> labelsFor(int trackingId, long nowNanos) {
+        Entry entry = entries.get(trackingId);
+        if (entry != null) {
+            entry.lastSeenNanos = Math.max(entry.lastSeenNanos, nowNanos);
+        }
+        if (entry == null || entry.winner == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.winner;
+    }
+
+    /**
+     * @return whether the track has been classified at least once (with or without a label)
+     */
+    public synchronized boolean contains(int trackingId) {
+        return entries.containsKey(trackingId);
+    }
+
+    /**
+     * Bỏ các track không được thấy trong TTL.
+     *
+     * @return number of evicted tracks
+     */
+    public synchronized int evictExpired(long nowNanos) {
+        int evicted = 0;
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (nowNanos - it.next().lastSeenNanos > ttlNanos) {
+                it.remove();
+                evicted++;
+            }
+        }
+        evictionCount += evicted;
+        return evicted;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.cameraod.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free triple buffer between one producer thread and one consumer thread.
+ * The producer fills its back buffer and publishes it with a single atomic swap;
+ * the consumer swaps in the newest published buffer when it wants one. Neither
+ * side ever waits for the other, and a buffer published while the consumer was
+ * busy is simply overwritten by the next one.
+ * <p>
+ * The single atomic index also provides the happens-before edge: everything the
+ * producer wrote to a buffer before {@link #publish()} is visible to the consumer
+ * after {@link #update()} returns that buffer.
+ */
+public final class TripleBuffer<T> {
+
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4; // Buffer ở giữa chưa được đọc
+
+    private final Object[] buffers = new Object[3];
+    // Chỉ số buffer ở giữa (giao giữa hai luồng) | cờ FRESH
+    private final AtomicInteger middle = new AtomicInteger(2);
+    private int back = 0;  // Chỉ luồng ghi truy cập
+    private int front = 1; // Chỉ luồng đọc truy cập
+
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = factory.get();
+        }
+    }
+
+    /**
+     * Buffer riêng của luồng ghi; ghi xong thì gọi {@link #publish()}.
+     */
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Công bố buffer ghi và nhận lại buffer cũ ở giữa để ghi lần sau (luồng ghi).
+     *
+     * @return {@code true} if the previously published buffer was never read and has been dropped
+     */
+    public boolean publish() {
+        int previous = middle.getAndSet(back | FRESH);
+        back = previous & INDEX_MASK;
+        return (previous & FRESH) != 0;
+    }
+
+    /**
+     * Lấy buffer mới nhất nếu có (luồng đọc). Không có gì mới thì {@link #front()} giữ nguyên.
+     *
+     * @return {@code true} if {@link #front()} now holds a newly published buffer
+     */
+    public boolean update() {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+        // Luồng ghi chỉ có thể thay buffer ở giữa bằng một buffer mới hơn (vẫn FRESH)
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * Buffer đang được luồng đọc sử dụng.
+     */
+    @SuppressWarnings("unchecked")
+    public T front() {
+        return (T) buffers[front];
+    }
+
+    /**
+     * Có buffer đã công bố mà luồng đọc chưa lấy (đọc được từ mọi luồng).
+     */
+    public boolean hasUpdate() {
+        return (middle.get() & FRESH) != 0;
+    }
+
+    /**
+     * Buffer đã công bố chưa được đọc, hoặc {@code null}. Chỉ dùng làm gợi ý cho luồng ghi:
+     * luồng đọc có thể lấy nó ngay sau khi hàm trả về.
+     */
+    @SuppressWarnings("unchecked")
+    T pending() {
+        int state = middle.get();
+        return (state & FRESH) != 0 ? (T) buffers[state & INDEX_MASK] : null;
+    }
+}
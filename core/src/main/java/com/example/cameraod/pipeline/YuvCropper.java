@@ -0,0 +1,201 @@
+package com.example.cameraod.pipeline;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies (and optionally downscales) a rectangle of a YUV_420_888 image
+ * (three planes with arbitrary row and pixel strides) into NV21, so a detector
+ * can run on just the region of interest at the size it needs. The planes are
+ * read in place; the output can be a byte array or any {@link ByteBuffer}
+ * (typically a pooled direct buffer). Pure Java, independent of
+ * {@code android.media.Image}.
+ */
+public final class YuvCropper {
+
+    private static final int FIXED_SHIFT = 16; // Bước lấy mẫu dạng fixed-point 16.16
+
+    /**
+     * Mảng tạm theo từng luồng, cỡ một hàng ảnh.
+     */
+    private static final class Scratch {
+        byte[] v = new byte[0];
+        byte[] u = new byte[0];
+        byte[] line = new byte[0];
+        int[] columns = new int[0];
+
+        void ensureCapacity(int span, int lineLength, int columnCount) {
+            if (v.length < span) {
+                v = new byte[span];
+                u = new byte[span];
+            }
+            if (line.length < lineLength) {
+                line = new byte[lineLength];
+            }
+            if (columns.length < columnCount) {
+                columns = new int[columnCount];
+            }
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private YuvCropper() {
+    }
+
+    /**
+     * Số byte NV21 cho vùng cắt {@code width x height} (kích thước chẵn).
+     */
+    public static int nv21Size(int width, int height) {
+        return width * height + (width / 2) * (height / 2) * 2;
+    }
+
+    /**
+     * Cắt {@code crop} (tọa độ buffer cảm biến, đã căn chẵn) sang NV21 (Y rồi V/U xen kẽ).
+     *
+     * @param out destination, at least {@link #nv21Size} bytes
+     */
+    public static void cropToNv21(ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                                  ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                                  CropRegion crop, byte[] out) {
+        if (out.length < nv21Size(crop.width(), crop.height())) {
+            throw new IllegalArgumentException("output buffer too small");
+        }
+        cropToNv21(yPlane, yRowStride, yPixelStride, uPlane, vPlane, uvRowStride, uvPixelStride,
+                crop, ByteBuffer.wrap(out));
+    }
+
+    /**
+     * Cắt {@code crop} sang NV21, ghi từ vị trí hiện tại của {@code out} và tiến vị trí đó
+     * thêm {@link #nv21Size} byte (như {@link ByteBuffer#put}).
+     */
+    public static void cropToNv21(ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                                  ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                                  CropRegion crop, ByteBuffer out) {
+        int width = crop.width();
+        int height = crop.height();
+        if (out.remaining() < nv21Size(width, height)) {
+            throw new IllegalArgumentException("output buffer too small");
+        }
+        Scratch buffers = SCRATCH.get();
+
+        // Mặt phẳng Y: sao chép nguyên hàng (bulk, không qua mảng trung gian) khi các pixel liền nhau
+        ByteBuffer y = yPlane.duplicate();
+        if (yPixelStride == 1) {
+            for (int row = 0; row < height; row++) {
+                int from = (crop.getTop() + row) * yRowStride + crop.getLeft();
+                y.limit(from + width);
+                y.position(from);
+                out.put(y);
+            }
+        } else {
+            int ySpan = (width - 1) * yPixelStride + 1;
+            buffers.ensureCapacity(ySpan, width, 0);
+            byte[] line = buffers.line;
+            for (int row = 0; row < height; row++) {
+                readRow(y, (crop.getTop() + row) * yRowStride + crop.getLeft() * yPixelStride, buffers.v, ySpan);
+                for (int col = 0, index = 0; col < width; col++, index += yPixelStride) {
+                    line[col] = buffers.v[index];
+                }
+                out.put(line, 0, width);
+            }
+        }
+
+        // Mặt phẳng màu (lấy mẫu 1/2 mỗi chiều): NV21 xếp V trước U
+        int chromaWidth = width / 2;
+        int span = (chromaWidth - 1) * uvPixelStride + 1;
+        buffers.ensureCapacity(span, width, 0);
+        ByteBuffer v = vPlane.duplicate();
+        ByteBuffer u = uPlane.duplicate();
+        int chromaLeft = crop.getLeft() / 2;
+        int chromaTop = crop.getTop() / 2;
+        for (int row = 0; row < height / 2; row++) {
+            int base = (chromaTop + row) * uvRowStride + chromaLeft * uvPixelStride;
+            readRow(v, base, buffers.v, span);
+            readRow(u, base, buffers.u, span);
+            byte[] line = buffers.line;
+            for (int col = 0, index = 0; col < chromaWidth; col++, index += uvPixelStride) {
+                line[2 * col] = buffers.v[index];
+                line[2 * col + 1] = buffers.u[index];
+            }
+            out.put(line, 0, width);
+        }
+    }
+
+    /**
+     * Cắt {@code crop} và thu nhỏ (lấy mẫu điểm gần nhất) về {@code outWidth x outHeight} NV21,
+     * ghi từ vị trí hiện tại của {@code out} và tiến vị trí đó như {@link #cropToNv21}.
+     * Kích thước đích phải chẵn và không lớn hơn vùng cắt.
+     */
+    public static void scaleToNv21(ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                                   ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                                   CropRegion crop, int outWidth, int outHeight, ByteBuffer out) {
+        int width = crop.width();
+        int height = crop.height();
+        if (outWidth == width && outHeight == height) {
+            cropToNv21(yPlane, yRowStride, yPixelStride, uPlane, vPlane, uvRowStride, uvPixelStride, crop, out);
+            return;
+        }
+        if (outWidth < 2 || outHeight < 2 || outWidth > width || outHeight > height
+                || (outWidth & 1) != 0 || (outHeight & 1) != 0) {
+            throw new IllegalArgumentException("output must be even and within the crop");
+        }
+        if (out.remaining() < nv21Size(outWidth, outHeight)) {
+            throw new IllegalArgumentException("output buffer too small");
+        }
+
+        // Bước lấy mẫu cố định cho cả ảnh; tâm pixel đích rơi vào giữa ô nguồn tương ứng
+        int stepX = (width << FIXED_SHIFT) / outWidth;
+        int stepY = (height << FIXED_SHIFT) / outHeight;
+        int ySpan = (width - 1) * yPixelStride + 1;
+        int chromaWidth = outWidth / 2;
+        int uvSpan = (width / 2 - 1) * uvPixelStride + 1;
+        Scratch buffers = SCRATCH.get();
+        buffers.ensureCapacity(Math.max(ySpan, uvSpan), outWidth, outWidth);
+
+        // Vị trí cột nguồn tính một lần cho mọi hàng
+        int[] columns = buffers.columns;
+        for (int col = 0, x = stepX >> 1; col < outWidth; col++, x += stepX) {
+            columns[col] = (x >>> FIXED_SHIFT) * yPixelStride;
+        }
+        ByteBuffer y = yPlane.duplicate();
+        byte[] src = buffers.v;
+        byte[] line = buffers.line;
+        for (int row = 0; row < outHeight; row++) {
+            int srcRow = crop.getTop() + ((row * stepY + (stepY >> 1)) >>> FIXED_SHIFT);
+            readRow(y, srcRow * yRowStride + crop.getLeft() * yPixelStride, src, ySpan);
+            for (int col = 0; col < outWidth; col++) {
+                line[col] = src[columns[col]];
+            }
+            out.put(line, 0, outWidth);
+        }
+
+        // Màu: cùng tỉ lệ trên lưới 1/2
+        for (int col = 0, x = stepX >> 1; col < chromaWidth; col++, x += stepX) {
+            columns[col] = (x >>> FIXED_SHIFT) * uvPixelStride;
+        }
+        ByteBuffer v = vPlane.duplicate();
+        ByteBuffer u = uPlane.duplicate();
+        int chromaLeft = crop.getLeft() / 2;
+        int chromaTop = crop.getTop() / 2;
+        for (int row = 0; row < outHeight / 2; row++) {
+            int srcRow = chromaTop + ((row * stepY + (stepY >> 1)) >>> FIXED_SHIFT);
+            int base = srcRow * uvRowStride + chromaLeft * uvPixelStride;
+            readRow(v, base, buffers.v, uvSpan);
+            readRow(u, base, buffers.u, uvSpan);
+            for (int col = 0; col < chromaWidth; col++) {
+                line[2 * col] = buffers.v[columns[col]];
+                line[2 * col + 1] = buffers.u[columns[col]];
+            }
+            out.put(line, 0, outWidth);
+        }
+    }
+
+    /**
+     * Đọc {@code length} byte của plane từ chỉ số {@code index} (bulk, qua bản duplicate).
+     */
+    private static void readRow(ByteBuffer plane, int index, byte[] dst, int length) {
+        plane.limit(index + length);
+        plane.position(index);
+        plane.get(dst, 0, length);
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.cameraod.quality;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Closed-loop quality control: watches rolling detector and draw latencies
+ * against their budgets and steps quality down (glow, then corner accents,
+ * then analysis resolution, then detection rate) while a budget is exceeded,
+ * and back up when there is headroom.
+ * Features:
+ * - Hysteresis: stepping down needs {@code stepDownDelay} of sustained overload,
+ *   stepping up needs {@code stepUpDelay} (longer) of latency under
+ *   {@code headroom} x budget; in between the level holds
+ * - A step up that is reverted within its probe period doubles the next step-up
+ *   delay (up to {@code maxStepUpDelay}), so a device at the edge of its budget
+ *   does not oscillate
+ * - Sample windows are cleared on every change, so each decision only sees
+ *   latencies measured at the current level
+ * - Plain state machine on an injectable clock: testable with simulated latency traces
+ */
+public final class QualityGovernor {
+
+    /**
+     * Các mức chất lượng, từ cao xuống thấp; mỗi mức giữ mọi cắt giảm của mức trước.
+     */
+    public enum Level {
+        FULL,
+        NO_GLOW,
+        NO_CORNER_ACCENTS,
+        REDUCED_RESOLUTION,
+        REDUCED_RATE;
+
+        public boolean isGlowEnabled() {
+            return this == FULL;
+        }
+
+        public boolean areCornerAccentsEnabled() {
+            return ordinal() < NO_CORNER_ACCENTS.ordinal();
+        }
+
+        public boolean isResolutionReduced() {
+            return ordinal() >= REDUCED_RESOLUTION.ordinal();
+        }
+
+        public boolean isRateReduced() {
+            return this == REDUCED_RATE;
+        }
+    }
+
+    /**
+     * Nhận thông báo đổi mức, trên luồng vừa ghi độ trễ và khi governor đang bị khóa:
+     * chỉ nên chuyển việc sang luồng khác.
+     */
+    public interface Listener {
+        void onLevelChanged(Level level);
+    }
+
+    private static final Level[] LEVELS = Level.values();
+    private static final long UNSET = Long.MIN_VALUE;
+
+    /**
+     * Cửa sổ trượt {@code n} mẫu gần nhất, giữ sẵn tổng để lấy trung bình O(1).
+     */
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int count;
+        private long sum;
+
+        LatencyWindow(int size) {
+            samples = new long[size];
+        }
+
+        void add(long nanos) {
+            if (count == samples.length) {
+                sum -= samples[next];
+            } else {
+                count++;
+            }
+            samples[next] = nanos;
+            sum += nanos;
+            next = (next + 1) % samples.length;
+        }
+
+        void clear() {
+            next = 0;
+            count = 0;
+            sum = 0;
+        }
+
+        int count() {
+            return count;
+        }
+
+        double mean() {
+            return (double) sum / count;
+        }
+    }
+
+    private final long detectorBudgetNanos;
+    private final long drawBudgetNanos;
+    private final float headroom;
+    private final int minSamples;
+    private final long stepDownDelayNanos;
+    private final long baseStepUpDelayNanos;
+    private final long maxStepUpDelayNanos;
+    private final LongSupplier clock;
+    private final Listener listener;
+
+    private final LatencyWindow detectorWindow;
+    private final LatencyWindow drawWindow;
+
+    private volatile Level level = Level.FULL;
+    private long stepUpDelayNanos;
+    private long overBudgetSinceNanos = UNSET;
+    private long headroomSinceNanos = UNSET;
+    private long lastStepUpNanos = UNSET;
+    private long stepDownCount;
+    private long stepUpCount;
+
+    private QualityGovernor(Builder builder) {
+        this.detectorBudgetNanos = builder.detectorBudgetNanos;
+        this.drawBudgetNanos = builder.drawBudgetNanos;
+        this.headroom = builder.headroom;
+        this.minSamples = Math.max(1, builder.windowSize / 4);
+        this.stepDownDelayNanos = builder.stepDownDelayNanos;
+        this.baseStepUpDelayNanos = builder.stepUpDelayNanos;
+        this.maxStepUpDelayNanos = Math.max(builder.stepUpDelayNanos, builder.maxStepUpDelayNanos);
+        this.clock = builder.clock;
+        this.listener = builder.listener;
+        this.detectorWindow = new LatencyWindow(builder.windowSize);
+        this.drawWindow = new LatencyWindow(builder.windowSize);
+        this.stepUpDelayNanos = baseStepUpDelayNanos;
+    }
+
+    /**
+     * Ghi thời gian một lần chạy detector (luồng bất kỳ).
+     */
+    public synchronized void onDetectorLatency(long nanos) {
+        detectorWindow.add(nanos);
+        evaluate(clock.getAsLong());
+    }
+
+    /**
+     * Ghi thời gian vẽ một frame overlay (luồng bất kỳ).
+     */
+    public synchronized void onDrawLatency(long nanos) {
+        drawWindow.add(nanos);
+        evaluate(clock.getAsLong());
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public synchronized long getStepDownCount() {
+        return stepDownCount;
+    }
+
+    public synchronized long getStepUpCount() {
+        return stepUpCount;
+    }
+
+    /**
+     * Thời gian có dư địa cần có trước lần tăng mức tới (tăng gấp đôi sau mỗi lần tăng thất bại).
+     */
+    public synchronized long getStepUpDelayNanos() {
+        return stepUpDelayNanos;
+    }
+
+    private void evaluate(long nowNanos) {
+        double load = load();
+        if (load < 0) {
+            return;
+        }
+        if (load > 1) {
+            headroomSinceNanos = UNSET;
+            if (overBudgetSinceNanos == UNSET) {
+                overBudgetSinceNanos = nowNanos;
+            }
+            if (nowNanos - overBudgetSinceNanos >= stepDownDelayNanos && level.ordinal() < LEVELS.length - 1) {
+                // Vừa tăng mức mà lại quá tải trong thời gian thử: lần sau chờ lâu hơn
+                if (lastStepUpNanos != UNSET && nowNanos - lastStepUpNanos < stepUpDelayNanos) {
+                    stepUpDelayNanos = Math.min(stepUpDelayNanos * 2, maxStepUpDelayNanos);
+                } else {
+                    stepUpDelayNanos = baseStepUpDelayNanos;
+                }
+                stepDownCount++;
+                change(LEVELS[level.ordinal() + 1]);
+            }
+        } else if (load < headroom) {
+            overBudgetSinceNanos = UNSET;
+            if (headroomSinceNanos == UNSET) {
+                headroomSinceNanos = nowNanos;
+            }
+            if (nowNanos - headroomSinceNanos >= stepUpDelayNanos && level.ordinal() > 0) {
+                lastStepUpNanos = nowNanos;
+                stepUpCount++;
+                change(LEVELS[level.ordinal() - 1]);
+            }
+        } else {
+            // Trong vùng trễ: giữ nguyên mức
+            overBudgetSinceNanos = UNSET;
+            headroomSinceNanos = UNSET;
+        }
+    }
+
+    /**
+     * Tỉ lệ độ trễ trung bình trên ngân sách của nguồn nặng nhất, hoặc -1 khi chưa đủ mẫu.
+     */
+    private double load() {
+        double load = -1;
+        if (detectorWindow.count() >= minSamples) {
+            load = detectorWindow.mean() / detectorBudgetNanos;
+        }
+        if (drawWindow.count() >= minSamples) {
+            load = Math.max(load, drawWindow.mean() / drawBudgetNanos);
+        }
+        return load;
+    }
+
+    private void change(Level next) {
+        level = next;
+        // Mẫu đo ở mức cũ không còn phản ánh tải hiện tại
+        detectorWindow.clear();
+        drawWindow.clear();
+        overBudgetSinceNanos = UNSET;
+        headroomSinceNanos = UNSET;
+        if (listener != null) {
+            listener.onLevelChanged(next);
+        }
+    }
+
+    public static final class Builder {
+        private long detectorBudgetNanos;
+        private long drawBudgetNanos;
+        private int windowSize = 30;
+        private float headroom = 0.7f;
+        private long stepDownDelayNanos = TimeUnit.SECONDS.toNanos(1);
+        private long stepUpDelayNanos = TimeUnit.SECONDS.toNanos(5);
+        private long maxStepUpDelayNanos = TimeUnit.SECONDS.toNanos(60);
+        private LongSupplier clock = System::nanoTime;
+        private Listener listener;
+
+        /**
+         * Ngân sách cho độ trễ trung bình của detector.
+         */
+        public Builder setDetectorBudget(long budget, TimeUnit unit) {
+            this.detectorBudgetNanos = unit.toNanos(budget);
+            return this;
+        }
+
+        /**
+         * Ngân sách cho thời gian vẽ trung bình mỗi frame overlay.
+         */
+        public Builder setDrawBudget(long budget, TimeUnit unit) {
+            this.drawBudgetNanos = unit.toNanos(budget);
+            return this;
+        }
+
+        /**
+         * Số mẫu gần nhất của mỗi nguồn được lấy trung bình (mặc định 30).
+         */
+        public Builder setWindowSize(int windowSize) {
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("windowSize must be >= 1");
+            }
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * Chỉ tăng mức khi độ trễ dưới {@code headroom} x ngân sách (mặc định 0.7).
+         */
+        public Builder setHeadroom(float headroom) {
+            if (!(headroom > 0f && headroom < 1f)) {
+                throw new IllegalArgumentException("headroom must be in (0, 1)");
+            }
+            this.headroom = headroom;
+            return this;
+        }
+
+        public Builder setStepDownDelay(long delay, TimeUnit unit) {
+            this.stepDownDelayNanos = unit.toNanos(delay);
+            return this;
+        }
+
+        public Builder setStepUpDelay(long delay, long maxDelay, TimeUnit unit) {
+            this.stepUpDelayNanos = unit.toNanos(delay);
+            this.maxStepUpDelayNanos = unit.toNanos(maxDelay);
+            return this;
+        }
+
+        public Builder setClock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public Builder setListener(Listener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public QualityGovernor build() {
+            if (detectorBudgetNanos <= 0 || drawBudgetNanos <= 0) {
+                throw new IllegalStateException("detector and draw budgets are required");
+            }
+            return new QualityGovernor(this);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.cameraod.replay;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read-only, memory-mapped view of a capture file written by {@link FrameRecorder}.
+ * The records are indexed once when the file is opened; frame payloads are
+ * returned as slices of the mapping without copying. A truncated last record
+ * (e.g. the app was killed while recording) is ignored.
+ */
+public final class CaptureReader implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] windows;
+
+    // Chỉ mục bản ghi (mảng nguyên thủy, tăng gấp đôi khi đầy)
+    private int size;
+    private int[] windowIndex = new int[64];
+    private int[] payloadOffset = new int[64];
+    private int[] payloadBytes = new int[64];
+    private long[] timestamps = new long[64];
+    private int[] widths = new int[64];
+    private int[] heights = new int[64];
+    private int[] rotations = new int[64];
+
+    public CaptureReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(FrameRecorder.FILE_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (fileSize < FrameRecorder.FILE_HEADER_BYTES || channel.read(header, 0) < header.capacity()) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            if (header.getInt(0) != FrameRecorder.MAGIC) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            if (header.getInt(4) != FrameRecorder.VERSION) {
+                throw new IOException("Unsupported capture version " + header.getInt(4) + ": " + file);
+            }
+            int windowBytes = header.getInt(8);
+
+            windows = new MappedByteBuffer[(int) ((fileSize + windowBytes - 1) / windowBytes)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = (long) i * windowBytes;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowBytes, fileSize - start));
+                windows[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            index();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void index() {
+        int position = FrameRecorder.FILE_HEADER_BYTES;
+        for (int w = 0; w < windows.length; w++, position = 0) {
+            MappedByteBuffer window = windows[w];
+            while (window.limit() - position >= 4) {
+                int length = window.getInt(position);
+                if (length == FrameRecorder.END_OF_WINDOW) {
+                    break;
+                }
+                if (length <= 0 || window.limit() - position < FrameRecorder.RECORD_HEADER_BYTES + length) {
+                    // Hết dữ liệu hoặc bản ghi cuối bị cắt dở
+                    return;
+                }
+                add(w, position, window);
+                position += FrameRecorder.RECORD_HEADER_BYTES + length;
+            }
+        }
+    }
+
+    private void add(int window, int position, ByteBuffer buffer) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            windowIndex = Arrays.copyOf(windowIndex, capacity);
+            payloadOffset = Arrays.copyOf(payloadOffset, capacity);
+            payloadBytes = Arrays.copyOf(payloadBytes, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            widths = Arrays.copyOf(widths, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+            rotations = Arrays.copyOf(rotations, capacity);
+        }
+        windowIndex[size] = window;
+        payloadOffset[size] = position + FrameRecorder.RECORD_HEADER_BYTES;
+        payloadBytes[size] = buffer.getInt(position);
+        timestamps[size] = buffer.getLong(position + 4);
+        widths[size] = buffer.getInt(position + 12);
+        heights[size] = buffer.getInt(position + 16);
+        rotations[size] = buffer.getInt(position + 20);
+        size++;
+    }
+
+    /**
+     * Số frame trong file.
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getTimestampNanos(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public int getWidth(int index) {
+        checkIndex(index);
+        return widths[index];
+    }
+
+    public int getHeight(int index) {
+        checkIndex(index);
+        return heights[index];
+    }
+
+    public int getRotationDegrees(int index) {
+        checkIndex(index);
+        return rotations[index];
+    }
+
+    /**
+     * Khoảng thời gian từ frame đầu tới frame cuối.
+     */
+    public long getDurationNanos() {
+        return size > 0 ? timestamps[size - 1] - timestamps[0] : 0;
+    }
+
+    /**
+     * Dữ liệu NV21 của frame, dạng buffer chỉ đọc trỏ thẳng vào vùng ánh xạ (không sao chép).
+     */
+    public ByteBuffer image(int index) {
+        checkIndex(index);
+        ByteBuffer slice = windows[windowIndex[index]].asReadOnlyBuffer();
+        slice.position(payloadOffset[index]).limit(payloadOffset[index] + payloadBytes[index]);
+        return slice.slice();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("frame " + index + " of " + size);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.cameraod.replay;
+
+import com.example.cameraod.pipeline.CropRegion;
+import com.example.cameraod.pipeline.YuvCropper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends raw NV21 frames with their timestamp and rotation to a capture file
+ * through a memory-mapped window, so recording costs one memcpy per frame and
+ * no system call. The file is read back by {@link CaptureReader}.
+ * Features:
+ * - Append-only: a record becomes visible only once its length field is written,
+ *   so a crash leaves a readable prefix
+ * - The file grows one window at a time; records never straddle two windows
+ * - Not thread-safe: call from a single thread (the analyzer thread)
+ *
+ * <pre>
+ * file header:   int magic, int version, int windowBytes, int reserved
+ * record header: int payloadBytes, long timestampNanos, int width, int height, int rotationDegrees
+ * payload:       NV21 bytes
+ * </pre>
+ */
+public final class FrameRecorder implements Closeable {
+
+    public static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+
+    static final int MAGIC = 0x434F4446; // "CODF"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 24;
+    static final int END_OF_WINDOW = -1; // Phần còn lại của cửa sổ bị bỏ trống
+
+    private final FileChannel channel;
+    private final int windowBytes;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int frameCount;
+
+    public FrameRecorder(File file) throws IOException {
+        this(file, DEFAULT_WINDOW_BYTES);
+    }
+
+    public FrameRecorder(File file, int windowBytes) throws IOException {
+        if (windowBytes <= FILE_HEADER_BYTES + RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("window too small");
+        }
+        this.windowBytes = windowBytes;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        mapWindow(0);
+        window.putInt(MAGIC).putInt(VERSION).putInt(windowBytes).putInt(0);
+    }
+
+    /**
+     * Ghi một frame NV21.
+     *
+     * @param nv21   frame bytes in sensor orientation
+     * @param length number of bytes of {@code nv21} to write
+     */
+    public void append(long timestampNanos, int width, int height, int rotationDegrees, byte[] nv21, int length) {
+        ensureCapacity(length);
+        int start = window.position();
+        window.position(start + 4);
+        window.putLong(timestampNanos).putInt(width).putInt(height).putInt(rotationDegrees);
+        window.put(nv21, 0, length);
+        // Ghi độ dài sau cùng: bản ghi chỉ hợp lệ khi đã ghi đủ nội dung
+        window.putInt(start, length);
+        frameCount++;
+    }
+
+    /**
+     * Ghi một frame YUV_420_888 (ba mặt phẳng, stride bất kỳ) dưới dạng NV21.
+     */
+    public void appendYuv(long timestampNanos, int width, int height, int rotationDegrees,
+                          ByteBuffer yPlane, int yRowStride, int yPixelStride,
+                          ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride) {
+        int evenWidth = width & ~1;
+        int evenHeight = height & ~1;
+        int size = YuvCropper.nv21Size(evenWidth, evenHeight);
+        ensureCapacity(size);
+        int start = window.position();
+        window.position(start + 4);
+        window.putLong(timestampNanos).putInt(evenWidth).putInt(evenHeight).putInt(rotationDegrees);
+        // Đọc thẳng các mặt phẳng vào vùng ánh xạ, không qua mảng trung gian
+        YuvCropper.cropToNv21(yPlane, yRowStride, yPixelStride, uPlane, vPlane, uvRowStride, uvPixelStride,
+                CropRegion.full(evenWidth, evenHeight), window);
+        window.putInt(start, size);
+        frameCount++;
+    }
+
+    private void ensureCapacity(int payloadBytes) {
+        int needed = RECORD_HEADER_BYTES + payloadBytes;
+        if (needed > windowBytes - FILE_HEADER_BYTES) {
+            throw new IllegalArgumentException("frame of " + payloadBytes + " bytes does not fit a window");
+        }
+        if (window.remaining() >= needed) {
+            return;
+        }
+        if (window.remaining() >= 4) {
+            window.putInt(window.position(), END_OF_WINDOW);
+        }
+        try {
+            mapWindow(windowStart + windowBytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot extend capture file", e);
+        }
+    }
+
+    private void mapWindow(long start) throws IOException {
+        // Ánh xạ READ_WRITE tự mở rộng file tới cuối cửa sổ (phần chưa ghi toàn số 0)
+        window = channel.map(FileChannel.MapMode.READ_WRITE, start, windowBytes);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = start;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Số byte đã dùng của file (không tính phần trống cuối cửa sổ hiện tại).
+     */
+    public long getBytesWritten() {
+        return windowStart + window.position();
+    }
+
+    /**
+     * Đẩy dữ liệu xuống đĩa và cắt phần trống cuối file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            long end = getBytesWritten();
+            window.force();
+            channel.truncate(end);
+        } finally {
+            channel.close();
+        }
+    }
+}
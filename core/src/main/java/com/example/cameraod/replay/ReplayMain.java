@@ -0,0 +1,151 @@
+package com.example.cameraod.replay;
+
+import com.example.cameraod.metrics.LatencyHistogram;
+import com.example.cameraod.metrics.PipelineMetrics;
+import com.example.cameraod.overlay.BoxTracker;
+import com.example.cameraod.overlay.ViewTransform;
+import com.example.cameraod.pipeline.DetectionResult;
+import com.example.cameraod.pipeline.FilterEngine;
+import com.example.cameraod.pipeline.FilterRules;
+import com.example.cameraod.pipeline.Frame;
+import com.example.cameraod.pipeline.FramePipeline;
+import com.example.cameraod.pipeline.KeyframeScheduler;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless replay of a capture file through detect → filter → overlay tracking
+ * with the {@link StandInDetector}, printing throughput and per-stage latency.
+ * Run with {@code ./gradlew :core:replay --args="<capture> [options]"}.
+ *
+ * <pre>
+ * --fast                 process every frame as fast as possible (default: recorded pace)
+ * --in-flight N          frames in flight (default 1)
+ * --detector-ms N        emulated detector latency (default 30)
+ * --threshold N          stand-in detector luma threshold (default 160)
+ * --keyframe-interval N  max keyframe interval, 1 = detector on every frame (default 1)
+ * </pre>
+ */
+public final class ReplayMain {
+
+    private static final float CONFIDENCE_THRESHOLD = 0.3f; // Giống MainActivity
+    private static final float TARGET_DETECTOR_LOAD = 0.5f;
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 1920;
+    private static final int PALETTE_SIZE = 5;
+
+    private ReplayMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("usage: ReplayMain <capture> [--fast] [--in-flight N] [--detector-ms N]"
+                    + " [--threshold N] [--keyframe-interval N]");
+            System.exit(2);
+        }
+        File file = new File(args[0]);
+        ReplaySource.Pacing pacing = ReplaySource.Pacing.RECORDED;
+        int maxInFlight = 1;
+        long detectorMillis = 30;
+        int threshold = 160;
+        int keyframeInterval = 1;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--fast":
+                    pacing = ReplaySource.Pacing.AS_FAST_AS_POSSIBLE;
+                    break;
+                case "--in-flight":
+                    maxInFlight = Integer.parseInt(args[++i]);
+                    break;
+                case "--detector-ms":
+                    detectorMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Integer.parseInt(args[++i]);
+                    break;
+                case "--keyframe-interval":
+                    keyframeInterval = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+
+        try (CaptureReader reader = new CaptureReader(file)) {
+            run(reader, pacing, maxInFlight, new StandInDetector(threshold,
+                    TimeUnit.MILLISECONDS.toNanos(detectorMillis)), keyframeInterval);
+        }
+    }
+
+    private static void run(CaptureReader reader, ReplaySource.Pacing pacing, int maxInFlight,
+                            StandInDetector detector, int keyframeInterval) throws InterruptedException {
+        ExecutorService detectExecutor = Executors.newFixedThreadPool(maxInFlight);
+        // Luồng "UI": nhận kết quả và cập nhật tracking của overlay như GraphicOverlay
+        ExecutorService uiExecutor = Executors.newSingleThreadExecutor();
+        PipelineMetrics metrics = new PipelineMetrics();
+        BoxTracker boxTracker = new BoxTracker(PALETTE_SIZE);
+        ViewTransform viewTransform = new ViewTransform();
+        viewTransform.setViewSize(VIEW_WIDTH, VIEW_HEIGHT);
+
+        FramePipeline.Builder<ByteBuffer, ByteBuffer> builder = new FramePipeline.Builder<ByteBuffer, ByteBuffer>()
+                .setPreprocessor(Frame::getImage, Runnable::run)
+                .setDetector(detector, detectExecutor)
+                .setFilter(new FilterEngine(FilterRules.smartDefault(CONFIDENCE_THRESHOLD)), Runnable::run)
+                .setListener(result -> onResult(result, pacing, viewTransform, boxTracker, metrics), uiExecutor)
+                .setMaxInFlight(maxInFlight)
+                .setMetrics(metrics);
+        if (keyframeInterval > 1) {
+            builder.setKeyframeScheduler(new KeyframeScheduler(keyframeInterval, TARGET_DETECTOR_LOAD));
+        }
+        FramePipeline<ByteBuffer, ByteBuffer> pipeline = builder.build();
+
+        long start = System.nanoTime();
+        int accepted = new ReplaySource(reader, pacing).run(pipeline);
+        while (pipeline.getInFlightCount() > 0) {
+            Thread.sleep(1);
+        }
+        uiExecutor.shutdown();
+        uiExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        pipeline.close();
+        detectExecutor.shutdown();
+
+        System.out.println(String.format(Locale.US,
+                "%d frames (%.1f s recorded) in %.2f s: %.1f fps, accepted %d, keyframes %d, propagated %d,"
+                        + " dropped %d, stale %d, failed %d",
+                reader.size(), reader.getDurationNanos() / 1e9, elapsed / 1e9, reader.size() * 1e9 / elapsed,
+                accepted, pipeline.getSubmittedCount(), pipeline.getPropagatedCount(), pipeline.getDroppedCount(),
+                pipeline.getStaleCount(), pipeline.getFailedCount()));
+        System.out.println(String.format(Locale.US, "%-16s %7s %7s %7s %7s %7s",
+                "ms", "count", "p50", "p95", "p99", "max"));
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            LatencyHistogram.Snapshot snapshot = metrics.histogram(stage).snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            System.out.println(String.format(Locale.US, "%-16s %7d %7.2f %7.2f %7.2f %7.2f", stage.getLabel(),
+                    snapshot.getCount(), snapshot.getPercentileNanos(0.50) / 1e6,
+                    snapshot.getPercentileNanos(0.95) / 1e6, snapshot.getPercentileNanos(0.99) / 1e6,
+                    snapshot.getMaxNanos() / 1e6));
+        }
+    }
+
+    /**
+     * Cập nhật tracking và animation của overlay; thời gian này được ghi vào stage DRAW.
+     */
+    private static void onResult(DetectionResult result, ReplaySource.Pacing pacing, ViewTransform viewTransform,
+                                 BoxTracker boxTracker, PipelineMetrics metrics) {
+        long start = System.nanoTime();
+        viewTransform.setImageSize(result.getImageWidth(), result.getImageHeight(), result.getRotationDegrees());
+        boxTracker.update(result.getDetections(), viewTransform, System.currentTimeMillis(),
+                result.getTimestampNanos(), result.isKeyframe());
+        // Khi chạy nhanh nhất có thể, đồng hồ hiển thị là đồng hồ ghi hình
+        boxTracker.animate(pacing == ReplaySource.Pacing.RECORDED ? start : result.getTimestampNanos());
+        metrics.record(PipelineMetrics.Stage.DRAW, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cameraod.replay;
+
+import com.example.cameraod.pipeline.Frame;
+import com.example.cameraod.pipeline.FramePipeline;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds the frames of a {@link CaptureReader} into a {@link FramePipeline},
+ * replacing the live {@code ImageAnalysis} analyzer for offline runs.
+ * Features:
+ * - {@link Pacing#RECORDED}: frames arrive at their recorded intervals (timestamps
+ *   are rebased onto {@link System#nanoTime()}), so frame drops behave as on the device
+ * - {@link Pacing#AS_FAST_AS_POSSIBLE}: each frame waits for a free pipeline slot and keeps
+ *   its recorded timestamp, so every frame is processed and runs are comparable
+ * - Frame images are read-only slices of the capture mapping (no copy)
+ */
+public final class ReplaySource {
+
+    public enum Pacing {
+        RECORDED,
+        AS_FAST_AS_POSSIBLE
+    }
+
+    private static final long SLOT_POLL_NANOS = 100_000L; // Chu kỳ chờ slot trống (0.1 ms)
+
+    private final CaptureReader reader;
+    private final Pacing pacing;
+
+    public ReplaySource(CaptureReader reader, Pacing pacing) {
+        this.reader = reader;
+        this.pacing = pacing;
+    }
+
+    /**
+     * Phát lại toàn bộ file vào pipeline trên luồng hiện tại.
+     *
+     * @return number of frames accepted by the pipeline (the rest were dropped)
+     */
+    public int run(FramePipeline<ByteBuffer, ?> pipeline) throws InterruptedException {
+        int accepted = 0;
+        long firstTimestamp = reader.size() > 0 ? reader.getTimestampNanos(0) : 0;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < reader.size(); i++) {
+            long timestamp = reader.getTimestampNanos(i);
+            if (pacing == Pacing.RECORDED) {
+                // Chờ tới thời điểm tương ứng của frame trên đồng hồ phát lại
+                timestamp = startNanos + (timestamp - firstTimestamp);
+                long remaining;
+                while ((remaining = timestamp - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+            } else {
+                // Nguồn frame "chặn" giống STRATEGY_BLOCK_PRODUCER
+                while (pipeline.getInFlightCount() >= pipeline.getMaxInFlight()) {
+                    LockSupport.parkNanos(SLOT_POLL_NANOS);
+                }
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            Frame<ByteBuffer> frame = new Frame<>(reader.image(i), timestamp,
+                    reader.getWidth(i), reader.getHeight(i), reader.getRotationDegrees(i), null);
+            if (pipeline.submit(frame)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.cameraod.replay;
+
+import com.example.cameraod.pipeline.CropRegion;
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.Detector;
+import com.example.cameraod.pipeline.Frame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Deterministic stand-in for the ML Kit detector, used to replay captures on a
+ * plain JVM. The luma plane of an NV21 frame is averaged over a grid of cells;
+ * connected bright cells become one {@link Detection} in upright coordinates.
+ * An optional fixed latency emulates the cost of a real model.
+ */
+public final class StandInDetector implements Detector<ByteBuffer> {
+
+    public static final int CELL_SIZE = 16;    // Kích thước ô lưới (px)
+    public static final int MIN_CELLS = 2;     // Vùng sáng nhỏ hơn bị bỏ qua
+    public static final String LABEL = "Home good";
+
+    private final int lumaThreshold;
+    private final long latencyNanos;
+
+    /**
+     * @param lumaThreshold mean luma (0-255) above which a cell is foreground
+     * @param latencyNanos  extra time spent per frame to emulate a model, 0 for none
+     */
+    public StandInDetector(int lumaThreshold, long latencyNanos) {
+        this.lumaThreshold = lumaThreshold;
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public List<Detection> detect(Frame<ByteBuffer> frame) {
+        long deadline = System.nanoTime() + latencyNanos;
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int columns = width / CELL_SIZE;
+        int rows = height / CELL_SIZE;
+        int[] means = cellMeans(frame.getImage(), width, columns, rows);
+
+        List<Detection> detections = new ArrayList<>();
+        boolean[] visited = new boolean[means.length];
+        int[] stack = new int[means.length];
+        for (int cell = 0; cell < means.length; cell++) {
+            if (visited[cell] || means[cell] < lumaThreshold) {
+                continue;
+            }
+            // Loang 4 hướng trên lưới ô
+            int left = columns;
+            int top = rows;
+            int right = -1;
+            int bottom = -1;
+            int count = 0;
+            long lumaSum = 0;
+            int depth = 0;
+            visited[cell] = true;
+            stack[depth++] = cell;
+            while (depth > 0) {
+                int current = stack[--depth];
+                int column = current % columns;
+                int row = current / columns;
+                left = Math.min(left, column);
+                right = Math.max(right, column);
+                top = Math.min(top, row);
+                bottom = Math.max(bottom, row);
+                lumaSum += means[current];
+                count++;
+                if (column > 0) {
+                    depth = push(current - 1, means, visited, stack, depth);
+                }
+                if (column < columns - 1) {
+                    depth = push(current + 1, means, visited, stack, depth);
+                }
+                if (row > 0) {
+                    depth = push(current - columns, means, visited, stack, depth);
+                }
+                if (row < rows - 1) {
+                    depth = push(current + columns, means, visited, stack, depth);
+                }
+            }
+            if (count < MIN_CELLS) {
+                continue;
+            }
+
+            CropRegion box = new CropRegion(left * CELL_SIZE, top * CELL_SIZE,
+                    (right + 1) * CELL_SIZE, (bottom + 1) * CELL_SIZE)
+                    .sensorToUpright(frame.getRotationDegrees(), width, height);
+            float confidence = 0.5f + 0.5f * (lumaSum / (float) count - lumaThreshold) / (256 - lumaThreshold);
+            detections.add(new Detection(box.getLeft(), box.getTop(), box.getRight(), box.getBottom(), null,
+                    Collections.singletonList(new Detection.Label(LABEL, 1, Math.min(1f, confidence)))));
+        }
+
+        // Giả lập thời gian chạy của model thật
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+        return detections;
+    }
+
+    private int push(int cell, int[] means, boolean[] visited, int[] stack, int depth) {
+        if (visited[cell] || means[cell] < lumaThreshold) {
+            return depth;
+        }
+        visited[cell] = true;
+        stack[depth] = cell;
+        return depth + 1;
+    }
+
+    /**
+     * Độ sáng trung bình từng ô (lấy mẫu 1/2 mỗi chiều trên mặt phẳng Y).
+     */
+    private static int[] cellMeans(ByteBuffer nv21, int width, int columns, int rows) {
+        int[] means = new int[columns * rows];
+        int samples = (CELL_SIZE / 2) * (CELL_SIZE / 2);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int sum = 0;
+                for (int y = 0; y < CELL_SIZE; y += 2) {
+                    int base = (row * CELL_SIZE + y) * width + column * CELL_SIZE;
+                    for (int x = 0; x < CELL_SIZE; x += 2) {
+                        sum += nv21.get(base + x) & 0xFF;
+                    }
+                }
+                means[row * columns + column] = sum / samples;
+            }
+        }
+        return means;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.cameraod.startup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs the cold-start steps of the app as a dependency graph and records when each
+ * one became ready, started and finished, plus named milestones (first preview
+ * frame, first box on screen).
+ * Features:
+ * - Each step declares the steps it depends on and the executor it runs on; steps
+ *   without a path between them run concurrently
+ * - A failed step fails its dependents, which are reported as skipped; the other
+ *   branches keep going
+ * - Milestones are recorded once, lock- and allocation-free after the first time,
+ *   so they can be marked from per-frame code
+ * - Timings are relative to {@link #start()} on an injectable clock
+ *   ({@link System#nanoTime()} by default)
+ */
+public final class StartupOrchestrator {
+
+    /**
+     * Một bước khởi động, chạy trên executor đã khai báo.
+     */
+    public interface Step {
+        void run() throws Exception;
+    }
+
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private static final class Node {
+        final String name;
+        final Executor executor;
+        final Step step;
+        final List<String> dependencies;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        volatile long readyNanos = UNSET;
+        volatile long startNanos = UNSET;
+        volatile long endNanos = UNSET;
+
+        Node(String name, Executor executor, Step step, List<String> dependencies) {
+            this.name = name;
+            this.executor = executor;
+            this.step = step;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private final Map<String, Node> nodes;
+    private final Map<String, AtomicLong> milestones;
+    private final LongSupplier clock;
+    private volatile long originNanos = UNSET;
+
+    private StartupOrchestrator(Builder builder) {
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(builder.nodes));
+        Map<String, AtomicLong> marks = new LinkedHashMap<>();
+        for (String milestone : builder.milestones) {
+            marks.put(milestone, new AtomicLong(UNSET));
+        }
+        this.milestones = Collections.unmodifiableMap(marks);
+        this.clock = builder.clock;
+    }
+
+    /**
+     * Bắt đầu chạy đồ thị (chỉ gọi một lần). Thời điểm gọi là gốc của mọi mốc thời gian.
+     *
+     * @return a future that completes when every step has finished, exceptionally if any failed
+     */
+    public CompletableFuture<Void> start() {
+        if (originNanos != UNSET) {
+            throw new IllegalStateException("Startup already started");
+        }
+        originNanos = clock.getAsLong();
+        // Bước phụ thuộc luôn được khai báo sau các bước nó cần: duyệt theo thứ tự khai báo là đủ
+        for (Node node : nodes.values()) {
+            CompletableFuture<?>[] dependencies = new CompletableFuture<?>[node.dependencies.size()];
+            for (int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = nodes.get(node.dependencies.get(i)).done;
+            }
+            CompletableFuture.allOf(dependencies)
+                    .thenRun(() -> node.readyNanos = clock.getAsLong())
+                    .thenRunAsync(() -> run(node), node.executor)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            node.done.completeExceptionally(unwrap(error));
+                        } else {
+                            node.done.complete(null);
+                        }
+                    });
+        }
+        List<CompletableFuture<Void>> all = new ArrayList<>(nodes.size());
+        for (Node node : nodes.values()) {
+            all.add(node.done);
+        }
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void run(Node node) {
+        node.startNanos = clock.getAsLong();
+        try {
+            node.step.run();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            node.endNanos = clock.getAsLong();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * @return a future that completes when step {@code name} has finished
+     */
+    public CompletableFuture<Void> stepFuture(String name) {
+        return node(name).done;
+    }
+
+    /**
+     * Ghi mốc {@code milestone} tại thời điểm hiện tại nếu chưa ghi (an toàn từ mọi luồng).
+     *
+     * @return {@code true} if this call recorded the milestone
+     */
+    public boolean mark(String milestone) {
+        AtomicLong value = milestones.get(milestone);
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown milestone " + milestone);
+        }
+        if (value.get() != UNSET || originNanos == UNSET) {
+            return false;
+        }
+        return value.compareAndSet(UNSET, clock.getAsLong() - originNanos);
+    }
+
+    /**
+     * @return nanoseconds from {@link #start()} to the milestone, or -1 if not reached yet
+     */
+    public long getMilestoneNanos(String milestone) {
+        AtomicLong value = milestones.get(milestone);
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown milestone " + milestone);
+        }
+        long nanos = value.get();
+        return nanos == UNSET ? -1 : nanos;
+    }
+
+    /**
+     * @return run time of step {@code name}, or -1 if it has not finished (or never ran)
+     */
+    public long getStepDurationNanos(String name) {
+        Node node = node(name);
+        long start = node.startNanos;
+        long end = node.endNanos;
+        return start == UNSET || end == UNSET ? -1 : end - start;
+    }
+
+    /**
+     * @return nanoseconds from {@link #start()} to the end of step {@code name}, or -1
+     */
+    public long getStepEndNanos(String name) {
+        long end = node(name).endNanos;
+        return end == UNSET ? -1 : end - originNanos;
+    }
+
+    private Node node(String name) {
+        Node node = nodes.get(name);
+        if (node == null) {
+            throw new IllegalArgumentException("Unknown step " + name);
+        }
+        return node;
+    }
+
+    /**
+     * Bảng thời gian (ms tính từ {@link #start()}): chờ phụ thuộc, chờ executor, thời gian chạy
+     * và thời điểm xong của từng bước, rồi các mốc.
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder(512);
+        out.append(String.format(Locale.US, "%-16s %8s %8s %8s %8s", "startup ms", "ready", "queue", "run", "end"));
+        for (Node node : nodes.values()) {
+            out.append(String.format(Locale.US, "%n%-16s ", node.name));
+            if (node.endNanos == UNSET) {
+                boolean started = node.startNanos != UNSET;
+                if (node.done.isCompletedExceptionally()) {
+                    out.append(started ? "failed" : "skipped");
+                } else {
+                    out.append(started ? "running" : "waiting");
+                }
+                continue;
+            }
+            out.append(String.format(Locale.US, "%8.1f %8.1f %8.1f %8.1f",
+                    millis(node.readyNanos - originNanos), millis(node.startNanos - node.readyNanos),
+                    millis(node.endNanos - node.startNanos), millis(node.endNanos - originNanos)));
+            if (node.done.isCompletedExceptionally()) {
+                out.append(" failed");
+            }
+        }
+        for (Map.Entry<String, AtomicLong> entry : milestones.entrySet()) {
+            long nanos = entry.getValue().get();
+            out.append(String.format(Locale.US, "%n%-16s %s", entry.getKey(),
+                    nanos == UNSET ? "-" : String.format(Locale.US, "%8.1f", millis(nanos))));
+        }
+        return out.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    public static final class Builder {
+        private final Map<String, Node> nodes = new LinkedHashMap<>();
+        private final List<String> milestones = new ArrayList<>();
+        private LongSupplier clock = System::nanoTime;
+
+        /**
+         * Thêm bước {@code name}; các bước trong {@code dependsOn} phải được thêm trước (nên
+         * đồ thị không thể có chu trình).
+         */
+        public Builder addStep(String name, Executor executor, Step step, String... dependsOn) {
+            if (nodes.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate step " + name);
+            }
+            for (String dependency : dependsOn) {
+                if (!nodes.containsKey(dependency)) {
+                    throw new IllegalArgumentException(name + " depends on unknown step " + dependency);
+                }
+            }
+            List<String> dependencies = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(dependsOn)));
+            nodes.put(name, new Node(name, executor, step, dependencies));
+            return this;
+        }
+
+        /**
+         * Khai báo một mốc được ghi bằng {@link #mark(String)}.
+         */
+        public Builder addMilestone(String name) {
+            if (milestones.contains(name)) {
+                throw new IllegalArgumentException("Duplicate milestone " + name);
+            }
+            milestones.add(name);
+            return this;
+        }
+
+        public Builder setClock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public StartupOrchestrator build() {
+            if (nodes.isEmpty()) {
+                throw new IllegalStateException("at least one step is required");
+            }
+            return new StartupOrchestrator(this);
+        }
+    }
+}
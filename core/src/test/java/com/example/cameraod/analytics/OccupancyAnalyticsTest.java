@@ -0,0 +1,141 @@
+package com.example.cameraod.analytics;
+
+import com.example.cameraod.pipeline.Detection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class OccupancyAnalyticsTest {
+
+    private static final long MS = 1_000_000L;
+    private static final int FOOD = 1;
+    private static final int PLANT = 4;
+
+    private static Detection detection(Integer trackingId, int labelIndex) {
+        List<Detection.Label> labels = labelIndex == OccupancyAnalytics.UNLABELED
+                ? Collections.<Detection.Label>emptyList()
+                : Collections.singletonList(new Detection.Label(labelIndex == FOOD ? "Food" : "Plant", labelIndex, 0.9f));
+        return new Detection(0, 0, 10, 10, trackingId, labels);
+    }
+
+    // Cửa sổ 10 bucket x 100 ms, track kết thúc sau 250 ms không thấy
+    private static OccupancyAnalytics analytics(int maxTracks) {
+        return new OccupancyAnalytics.Builder()
+                .setWindow(100, TimeUnit.MILLISECONDS, 10)
+                .setMaxTracks(maxTracks)
+                .setTrackTimeout(250, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Test
+    public void countsUniqueTracksAndPeakOverTheWindow() {
+        OccupancyAnalytics analytics = analytics(16);
+        analytics.onResult(Arrays.asList(detection(1, FOOD), detection(2, FOOD), detection(3, PLANT)), 0);
+        analytics.onResult(Arrays.asList(detection(1, FOOD), detection(3, PLANT)), 50 * MS);
+        analytics.onResult(Arrays.asList(detection(1, FOOD), detection(4, FOOD), detection(5, FOOD)), 150 * MS);
+
+        OccupancyAnalytics.Snapshot snapshot = analytics.snapshot(150 * MS);
+        assertEquals(4, snapshot.getUniqueCount(FOOD));
+        assertEquals(1, snapshot.getUniqueCount(PLANT));
+        assertEquals(5, snapshot.getUniqueTotal());
+        assertEquals(3, snapshot.getCurrentCount(FOOD));
+        assertEquals(0, snapshot.getCurrentCount(PLANT));
+        assertEquals(3, snapshot.getPeakOccupancy(FOOD));
+        assertEquals(3, snapshot.getPeakTotal());
+        assertEquals("Food", snapshot.getLabelText(FOOD));
+
+        // Bucket đầu (0-100 ms) ra khỏi cửa sổ 1 s: chỉ còn các track mới của bucket 150 ms
+        snapshot = analytics.snapshot(1_050 * MS);
+        assertEquals(2, snapshot.getUniqueCount(FOOD));
+        assertEquals(0, snapshot.getUniqueCount(PLANT));
+        assertEquals(3, snapshot.getPeakOccupancy(FOOD));
+        assertEquals(0, snapshot.getPeakOccupancy(PLANT));
+
+        snapshot = analytics.snapshot(5_000 * MS);
+        assertEquals(0, snapshot.getUniqueTotal());
+        assertEquals(0, snapshot.getPeakTotal());
+    }
+
+    @Test
+    public void recordsDwellWhenTracksEnd() {
+        OccupancyAnalytics analytics = analytics(16);
+        for (long t = 0; t <= 400; t += 100) {
+            analytics.onResult(Collections.singletonList(detection(7, FOOD)), t * MS);
+        }
+        analytics.onResult(Collections.singletonList(detection(8, FOOD)), 400 * MS);
+        assertEquals(400 * MS, analytics.getDwellNanos(7));
+        assertEquals(0, analytics.getDwellNanos(8));
+        assertEquals(-1, analytics.getDwellNanos(9));
+
+        OccupancyAnalytics.Snapshot snapshot = analytics.snapshot(500 * MS);
+        assertEquals(400 * MS, snapshot.getLongestDwellNanos(FOOD));
+        assertEquals(0, snapshot.getMeanDwellNanos(FOOD));
+
+        // Hai track kết thúc sau 250 ms không thấy: 400 ms và 0 ms
+        snapshot = analytics.snapshot(700 * MS);
+        assertEquals(0, snapshot.getActiveTrackCount());
+        assertEquals(200 * MS, snapshot.getMeanDwellNanos(FOOD));
+        assertEquals(200 * MS, snapshot.getMeanDwellTotalNanos());
+        assertEquals(0, snapshot.getLongestDwellNanos(FOOD));
+    }
+
+    @Test
+    public void trackLabelledLaterMovesToItsClass() {
+        OccupancyAnalytics analytics = analytics(16);
+        analytics.onResult(Collections.singletonList(detection(1, OccupancyAnalytics.UNLABELED)), 0);
+        analytics.onResult(Collections.singletonList(detection(1, PLANT)), 200 * MS);
+        // Frame thiếu nhãn không đưa track về lại "chưa phân loại"
+        analytics.onResult(Collections.singletonList(detection(1, OccupancyAnalytics.UNLABELED)), 300 * MS);
+
+        OccupancyAnalytics.Snapshot snapshot = analytics.snapshot(300 * MS);
+        assertEquals(0, snapshot.getUniqueCount(OccupancyAnalytics.UNLABELED));
+        assertEquals(1, snapshot.getUniqueCount(PLANT));
+        assertEquals(1, snapshot.getUniqueTotal());
+        assertEquals(1, snapshot.getCurrentCount(OccupancyAnalytics.UNLABELED));
+    }
+
+    @Test
+    public void highLabelsShareTheOtherRow() {
+        OccupancyAnalytics analytics = new OccupancyAnalytics.Builder().setMaxLabels(2).build();
+        analytics.onResult(Arrays.asList(detection(1, FOOD), detection(2, PLANT)), 0);
+        OccupancyAnalytics.Snapshot snapshot = analytics.snapshot(0);
+        assertEquals(1, snapshot.getUniqueCount(FOOD));
+        assertEquals(1, snapshot.getUniqueCount(OccupancyAnalytics.OTHER));
+        assertEquals(1, snapshot.getUniqueCount(7));
+    }
+
+    @Test
+    public void trackTableIsBoundedAndReusesSlots() {
+        OccupancyAnalytics analytics = analytics(4);
+        List<Detection> crowd = new ArrayList<>();
+        for (int id = 0; id < 6; id++) {
+            crowd.add(detection(id, FOOD));
+        }
+        analytics.onResult(crowd, 0);
+        assertEquals(4, analytics.getActiveTrackCount());
+        assertEquals(2, analytics.getOverflowCount());
+        assertEquals(6, analytics.snapshot(0).getCurrentCount(FOOD));
+
+        // Nhiều lượt track đến rồi đi: bảng không đầy lên và mọi track vẫn tìm được
+        for (int round = 1; round <= 50; round++) {
+            long now = round * 1_000 * MS;
+            List<Detection> batch = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                batch.add(detection(round * 97 + i * 13, FOOD));
+            }
+            analytics.onResult(batch, now);
+            assertEquals(4, analytics.getActiveTrackCount());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(0, analytics.getDwellNanos(round * 97 + i * 13));
+            }
+        }
+        assertEquals(2, analytics.getOverflowCount());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.cameraod.capture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class SnapshotSaverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void dropsWhenEverySlotIsTaken() throws IOException {
+        SnapshotSaver saver = new SnapshotSaver(new SnapshotStore(folder.newFolder("snapshots"), 10, 1 << 20), 2);
+        assertTrue(saver.tryReserve());
+        assertTrue(saver.tryReserve());
+        assertFalse(saver.tryReserve());
+        assertEquals(1, saver.getDroppedCount());
+        assertEquals(2, saver.getPendingCount());
+
+        // Ghi xong hoặc chụp lỗi đều trả chỗ
+        File file = saver.save(1_000, "a", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        assertTrue(file.exists());
+        saver.cancel();
+        assertEquals(0, saver.getPendingCount());
+        assertEquals(1, saver.getSavedCount());
+        assertEquals(1, saver.getFailedCount());
+        assertTrue(saver.tryReserve());
+    }
+
+    @Test
+    public void failedWriteReleasesTheSlot() throws IOException {
+        File directory = folder.newFolder("snapshots");
+        SnapshotSaver saver = new SnapshotSaver(new SnapshotStore(directory, 10, 1 << 20), 1);
+        assertTrue(saver.tryReserve());
+        assertTrue(directory.delete());
+        try {
+            saver.save(1_000, "a", ByteBuffer.wrap(new byte[]{1}));
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // Thư mục đã bị xóa
+        }
+        assertEquals(0, saver.getPendingCount());
+        assertEquals(1, saver.getFailedCount());
+        assertTrue(saver.tryReserve());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.cameraod.capture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ByteBuffer bytes(int size, int value) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) value);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String[] names(File directory) {
+        String[] names = directory.list();
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Test
+    public void writesThroughChannelAndRenames() throws IOException {
+        File directory = folder.newFolder("snapshots");
+        SnapshotStore store = new SnapshotStore(directory, 10, 1 << 20);
+        ByteBuffer data = bytes(1000, 7);
+
+        File file = store.write(1_700_000_000_000L, "Thực phẩm #12", data);
+        assertFalse(data.hasRemaining());
+        assertEquals("snapshot-1700000000000-0000-Th_c_ph_m__12.jpg", file.getName());
+        byte[] written = Files.readAllBytes(file.toPath());
+        assertEquals(1000, written.length);
+        assertEquals(7, written[999]);
+        assertArrayEquals(new String[]{file.getName()}, names(directory));
+        assertEquals(1000, store.getTotalBytes());
+    }
+
+    @Test
+    public void evictsOldestByCountAndBytes() throws IOException {
+        File directory = folder.newFolder("snapshots");
+        SnapshotStore store = new SnapshotStore(directory, 3, 2_500);
+        File first = store.write(1_000, "a", bytes(1000, 1));
+        store.write(2_000, "b", bytes(1000, 2));
+        assertEquals(2, store.getFileCount());
+
+        // Vượt giới hạn byte: file cũ nhất bị xóa
+        store.write(3_000, "c", bytes(1000, 3));
+        assertFalse(first.exists());
+        assertEquals(2, store.getFileCount());
+        assertEquals(2_000, store.getTotalBytes());
+
+        // Vượt giới hạn số file
+        for (int i = 0; i < 3; i++) {
+            store.write(4_000 + i, "d", bytes(10, 4));
+        }
+        assertEquals(3, store.getFileCount());
+        assertEquals(3, names(directory).length);
+        assertEquals(3, store.getEvictedCount());
+
+        // File mới nhất luôn được giữ dù lớn hơn giới hạn
+        File big = store.write(5_000, "e", bytes(5_000, 5));
+        assertTrue(big.exists());
+        assertEquals(1, store.getFileCount());
+    }
+
+    @Test
+    public void countsEarlierFilesAndDropsPartialWrites() throws IOException {
+        File directory = folder.newFolder("snapshots");
+        SnapshotStore store = new SnapshotStore(directory, 2, 1 << 20);
+        File old = store.write(1_000, "old", bytes(100, 1));
+        store.write(2_000, "newer", bytes(100, 2));
+        File partial = new File(directory, SnapshotStore.PREFIX + "0000000003000-0000-x" + SnapshotStore.TEMP_SUFFIX);
+        assertTrue(partial.createNewFile());
+
+        SnapshotStore reopened = new SnapshotStore(directory, 2, 1 << 20);
+        assertFalse(partial.exists());
+        assertEquals(2, reopened.getFileCount());
+        assertEquals(200, reopened.getTotalBytes());
+        reopened.write(3_000, "newest", bytes(100, 3));
+        assertFalse(old.exists());
+        assertEquals(2, names(directory).length);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.cameraod.capture;
+
+import com.example.cameraod.pipeline.Detection;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SnapshotTriggerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final long MS = 1_000_000L;
+
+    private static Detection detection(Integer trackingId, int labelIndex, float confidence) {
+        return new Detection(0, 0, 10, 10, trackingId,
+                Collections.singletonList(new Detection.Label("Food", labelIndex, confidence)));
+    }
+
+    private static SnapshotTrigger.Builder foodTrigger() {
+        return new SnapshotTrigger.Builder()
+                .addLabel(0, 0.6f)
+                .setPerTrackInterval(1_000, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void picksTheMostConfidentEligibleDetection() {
+        SnapshotTrigger trigger = foodTrigger().build();
+        Detection weak = detection(1, 0, 0.5f);       // Dưới ngưỡng
+        Detection otherClass = detection(2, 3, 0.99f); // Lớp không cấu hình
+        Detection good = detection(3, 0, 0.7f);
+        Detection best = detection(4, 0, 0.9f);
+        Detection unlabelled = new Detection(0, 0, 5, 5, 5, Collections.<Detection.Label>emptyList());
+        List<Detection> detections = Arrays.asList(weak, otherClass, good, best, unlabelled);
+
+        assertSame(best, trigger.onResult(detections, 0));
+        assertNull(trigger.onResult(Arrays.asList(weak, otherClass, unlabelled), 10 * MS));
+        assertEquals(1, trigger.getTriggerCount());
+    }
+
+    @Test
+    public void rateLimitsEachTrack() {
+        SnapshotTrigger trigger = foodTrigger().build();
+        Detection first = detection(1, 0, 0.9f);
+        Detection second = detection(2, 0, 0.8f);
+        List<Detection> both = Arrays.asList(first, second);
+
+        assertSame(first, trigger.onResult(both, 0));
+        // Track 1 vừa được chụp: track 2 được chọn dù độ tin cậy thấp hơn
+        assertSame(second, trigger.onResult(both, 100 * MS));
+        assertNull(trigger.onResult(both, 500 * MS));
+        assertEquals(3, trigger.getSuppressedCount());
+        assertSame(first, trigger.onResult(both, 1_000 * MS));
+    }
+
+    @Test
+    public void untrackedDetectionsAreLimitedPerLabel() {
+        SnapshotTrigger trigger = foodTrigger().addLabel(4, 0.5f).build();
+        Detection food = detection(null, 0, 0.9f);
+        Detection plant = detection(null, 4, 0.8f);
+
+        assertSame(food, trigger.onResult(Collections.singletonList(food), 0));
+        assertNull(trigger.onResult(Collections.singletonList(food), 100 * MS));
+        assertSame(plant, trigger.onResult(Arrays.asList(food, plant), 200 * MS));
+    }
+
+    @Test
+    public void globalIntervalAndBoundedTable() {
+        SnapshotTrigger trigger = foodTrigger()
+                .setMinInterval(100, TimeUnit.MILLISECONDS)
+                .setMaxTracks(2)
+                .build();
+        assertNotNull(trigger.onResult(Collections.singletonList(detection(1, 0, 0.9f)), 0));
+        assertNull(trigger.onResult(Collections.singletonList(detection(2, 0, 0.9f)), 50 * MS));
+        assertNotNull(trigger.onResult(Collections.singletonList(detection(2, 0, 0.9f)), 100 * MS));
+
+        // Bảng đầy: track cũ nhất (1) bị bỏ, nên có thể chụp lại trước hết khoảng giới hạn
+        assertNotNull(trigger.onResult(Collections.singletonList(detection(3, 0, 0.9f)), 200 * MS));
+        assertEquals(2, trigger.size());
+        assertNotNull(trigger.onResult(Collections.singletonList(detection(1, 0, 0.9f)), 300 * MS));
+    }
+
+    @Test
+    public void droppedSnapshotDoesNotSuppressTheTrack() throws Exception {
+        SnapshotTrigger trigger = foodTrigger().build();
+        SnapshotSaver saver = new SnapshotSaver(new SnapshotStore(folder.newFolder("snapshots"), 10, 1 << 20), 1);
+        Detection food = detection(1, 0, 0.9f);
+        List<Detection> detections = Collections.singletonList(detection(2, 0, 0.9f));
+
+        assertNotNull(trigger.onResult(detections, 0, saver));
+        // Hàng ghi đầy: không chụp, và track 1 vẫn được chụp ngay khi có chỗ
+        assertNull(trigger.onResult(Collections.singletonList(food), 10 * MS, saver));
+        assertEquals(1, saver.getDroppedCount());
+        saver.cancel();
+        assertSame(food, trigger.onResult(Collections.singletonList(food), 20 * MS, saver));
+        assertEquals(2, trigger.getTriggerCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void requiresALabel() {
+        new SnapshotTrigger.Builder().build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.cameraod.log;
+
+import com.example.cameraod.pipeline.Detection;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void appendRecords(DetectionLog log, int from, int to) {
+        for (int i = from; i < to; i++) {
+            // Timestamp (i + 1) ms
+            assertTrue(log.append(1_000_000L * (i + 1), i, i, 2 * i, i + 10, 2 * i + 20, i % 5, 0.5f));
+        }
+    }
+
+    @Test
+    public void rollsOverSegmentsAndScansInOrder() throws IOException {
+        File directory = folder.newFolder("log");
+        try (DetectionLog log = new DetectionLog(directory, 100, Integer.MAX_VALUE)) {
+            appendRecords(log, 0, 250);
+            assertEquals(250, log.getAppendedCount());
+        }
+        assertEquals(3, directory.listFiles().length);
+
+        try (DetectionLogReader reader = new DetectionLogReader(directory)) {
+            assertEquals(250, reader.size());
+            long[] next = {0};
+            reader.scan((index, timestamp, trackingId, left, top, right, bottom, label, confidence) -> {
+                assertEquals(next[0]++, index);
+                assertEquals(1_000_000L * (index + 1), timestamp);
+                assertEquals(index, trackingId);
+                assertEquals(index, left);
+                assertEquals(2 * index, top);
+                assertEquals(index + 10, right);
+                assertEquals(2 * index + 20, bottom);
+                assertEquals(index % 5, label);
+                assertEquals(0.5f, confidence, 1e-4f);
+            });
+            assertEquals(250, next[0]);
+        }
+    }
+
+    @Test
+    public void queriesTimeRangesAcrossSegments() throws IOException {
+        File directory = folder.newFolder("log");
+        try (DetectionLog log = new DetectionLog(directory, 64, Integer.MAX_VALUE)) {
+            appendRecords(log, 0, 1000);
+        }
+
+        try (DetectionLogReader reader = new DetectionLogReader(directory)) {
+            List<Long> visited = new ArrayList<>();
+            // [100 ms, 300 ms) -> bản ghi 99..298
+            long count = reader.query(100_000_000L, 300_000_000L,
+                    (index, timestamp, trackingId, left, top, right, bottom, label, confidence) -> visited.add(index));
+            assertEquals(200, count);
+            assertEquals(200, visited.size());
+            assertEquals(Long.valueOf(99), visited.get(0));
+            assertEquals(Long.valueOf(298), visited.get(199));
+            assertEquals(200, reader.count(100_000_000L, 300_000_000L));
+            assertEquals(0, reader.count(2_000_000_000L, 3_000_000_000L));
+            assertEquals(1000, reader.count(0, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void readsSegmentBeingWritten() throws IOException {
+        File directory = folder.newFolder("log");
+        try (DetectionLog log = new DetectionLog(directory, 1000, Integer.MAX_VALUE)) {
+            appendRecords(log, 0, 10);
+            log.flush();
+            // Segment đang ghi chưa bị cắt: phần đuôi toàn số 0 không được tính
+            try (DetectionLogReader reader = new DetectionLogReader(directory)) {
+                assertEquals(10, reader.size());
+                assertEquals(10_000_000L, reader.getTimestampNanos(9));
+            }
+        }
+    }
+
+    @Test
+    public void keepsOrderAndRetentionAcrossRestarts() throws IOException {
+        File directory = folder.newFolder("log");
+        try (DetectionLog log = new DetectionLog(directory, 10, 3)) {
+            appendRecords(log, 0, 25);
+        }
+        try (DetectionLog log = new DetectionLog(directory, 10, 3)) {
+            // Cũ hơn bản ghi cuối của lần chạy trước
+            assertFalse(log.append(5_000_000L, 1, 0, 0, 1, 1, 0, 0.9f));
+            assertEquals(1, log.getRejectedCount());
+            appendRecords(log, 25, 30);
+        }
+
+        String[] names = directory.list();
+        Arrays.sort(names);
+        // Chỉ giữ 3 segment mới nhất; segment 4 bắt đầu sau segment 3 của lần chạy trước
+        assertEquals(Arrays.asList("detections-000002.dlog", "detections-000003.dlog", "detections-000004.dlog"),
+                Arrays.asList(names));
+        try (DetectionLogReader reader = new DetectionLogReader(directory)) {
+            assertEquals(20, reader.size());
+            assertEquals(11_000_000L, reader.getTimestampNanos(0));
+            assertEquals(30_000_000L, reader.getTimestampNanos(19));
+        }
+    }
+
+    @Test
+    public void appendsDetectionsWithTopLabel() throws IOException {
+        File directory = folder.newFolder("log");
+        List<Detection> detections = Arrays.asList(
+                new Detection(1, 2, 3, 4, 7, Arrays.asList(
+                        new Detection.Label("Food", 0, 0.8f), new Detection.Label("Plant", 4, 0.1f))),
+                new Detection(40_000, -40_000, 5, 6, null, Collections.<Detection.Label>emptyList()));
+        try (DetectionLog log = new DetectionLog(directory)) {
+            log.append(42L, detections);
+        }
+
+        try (DetectionLogReader reader = new DetectionLogReader(directory)) {
+            assertEquals(2, reader.size());
+            List<String> records = new ArrayList<>();
+            reader.scan((index, timestamp, trackingId, left, top, right, bottom, label, confidence) ->
+                    records.add(timestamp + " " + trackingId + " " + left + "," + top + "," + right + "," + bottom
+                            + " " + label + " " + confidence));
+            assertEquals("42 7 1,2,3,4 0 0.8", records.get(0));
+            // Tọa độ bị chặn trong phạm vi short, không có tracking ID/nhãn
+            assertEquals("42 " + DetectionLog.NO_TRACKING_ID + " 32767,-32768,5,6 -1 0.0", records.get(1));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.cameraod.metrics;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class FrameTracerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void keepsMostRecentEventsWhenFull() {
+        FrameTracer tracer = new FrameTracer(6);
+        assertEquals(8, tracer.getCapacity());
+        for (int i = 0; i < 20; i++) {
+            tracer.record(FrameTracer.Stage.DETECT, i, i * MS, i * MS + 500_000L, i % 3);
+        }
+
+        List<Long> frames = new ArrayList<>();
+        int visited = tracer.forEach(Long.MIN_VALUE, (stage, frameId, start, end, objects, threadId) -> {
+            assertEquals(FrameTracer.Stage.DETECT, stage);
+            assertEquals(frameId * MS, start);
+            assertEquals((int) (frameId % 3), objects);
+            assertEquals(Thread.currentThread().getId(), threadId);
+            frames.add(frameId);
+        });
+        assertEquals(8, visited);
+        assertEquals(Long.valueOf(12), frames.get(0));
+        assertEquals(Long.valueOf(19), frames.get(7));
+        assertEquals(20, tracer.getRecordedCount());
+    }
+
+    @Test
+    public void filtersByEndTime() {
+        FrameTracer tracer = new FrameTracer(16);
+        for (int i = 0; i < 10; i++) {
+            tracer.record(FrameTracer.Stage.DRAW, i, i * 100 * MS, i * 100 * MS + MS, -1);
+        }
+        // Chỉ 0.5 s cuối
+        assertEquals(5, tracer.forEach(500 * MS, (stage, frameId, start, end, objects, threadId) -> { }));
+    }
+
+    @Test
+    public void concurrentWritersProduceConsistentEvents() throws Exception {
+        FrameTracer tracer = new FrameTracer(1024);
+        int threads = 4;
+        int perThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    // Các trường cùng một sự kiện liên hệ với nhau để phát hiện đọc lẫn
+                    tracer.record(FrameTracer.Stage.FILTER, i, i * 2L, i * 3L, i % 100);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+
+        // Đọc đồng thời trong khi các luồng đang ghi
+        int[] torn = new int[1];
+        while (workers.get(0).isAlive()) {
+            tracer.forEach(Long.MIN_VALUE, (stage, frameId, s, e, objects, threadId) -> {
+                if (s != frameId * 2 || e != frameId * 3 || objects != frameId % 100) {
+                    torn[0]++;
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, torn[0]);
+        assertEquals((long) threads * perThread, tracer.getRecordedCount());
+        assertEquals(1024, tracer.forEach(Long.MIN_VALUE, (stage, frameId, s, e, objects, threadId) -> { }));
+    }
+
+    @Test
+    public void exportsChromeTraceEvents() throws Exception {
+        FrameTracer tracer = new FrameTracer(64);
+        tracer.record(FrameTracer.Stage.DETECT, 7, 2 * MS, 34 * MS, 3);
+        tracer.record(FrameTracer.Stage.PUBLISH, 7, 35 * MS, 36 * MS, 3);
+        tracer.record(FrameTracer.Stage.DRAW, 7, 5_000 * MS, 5_002 * MS, 3);
+
+        StringWriter json = new StringWriter();
+        int written = TraceExporter.writeChromeTrace(tracer, 5_010 * MS, 4_975 * MS, json);
+
+        assertEquals(2, written);
+        String text = json.toString();
+        assertTrue(text.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(text.contains("\"name\":\"publish\",\"cat\":\"pipeline\",\"ph\":\"X\""));
+        assertTrue(text.contains("\"ts\":35000.000,\"dur\":1000.000,\"args\":{\"frame\":7,\"objects\":3}"));
+        assertFalse(text.contains("\"name\":\"detect\""));
+        // Ngoặc cân bằng (JSON hợp lệ về cấu trúc)
+        assertEquals(count(text, '{'), count(text, '}'));
+        assertEquals(count(text, '['), count(text, ']'));
+    }
+
+    private static int count(String text, char c) {
+        int n = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.cameraod.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PipelineMetricsTest {
+
+    private static final long FRAME_NANOS = 33_333_333L;
+
+    @Test
+    public void countsFramesSkippedBeforeAnalyzer() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        long timestamp = 0;
+        for (int i = 0; i < 30; i++) {
+            timestamp += FRAME_NANOS;
+            metrics.onFrameArrived(timestamp);
+        }
+        assertEquals(0, metrics.getCameraDroppedFrames());
+
+        // Camera bỏ 2 frame, rồi 1 frame
+        timestamp += 3 * FRAME_NANOS;
+        metrics.onFrameArrived(timestamp);
+        timestamp += 2 * FRAME_NANOS;
+        metrics.onFrameArrived(timestamp);
+        assertEquals(3, metrics.getCameraDroppedFrames());
+        assertEquals(32, metrics.getArrivedFrames());
+    }
+
+    @Test
+    public void adaptsToLowerCameraFrameRate() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        long timestamp = 0;
+        for (int i = 0; i < 30; i++) {
+            timestamp += FRAME_NANOS;
+            metrics.onFrameArrived(timestamp);
+        }
+        // Thiếu sáng: camera chuyển sang 15 fps, chỉ các frame đầu bị tính là bỏ
+        for (int i = 0; i < 200; i++) {
+            timestamp += 2 * FRAME_NANOS;
+            metrics.onFrameArrived(timestamp);
+        }
+        long afterSwitch = metrics.getCameraDroppedFrames();
+        assertTrue("dropped=" + afterSwitch, afterSwitch < 30);
+        for (int i = 0; i < 100; i++) {
+            timestamp += 2 * FRAME_NANOS;
+            metrics.onFrameArrived(timestamp);
+        }
+        assertEquals(afterSwitch, metrics.getCameraDroppedFrames());
+    }
+
+    @Test
+    public void recordsPerStage() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.DETECT, 40_000_000L);
+        metrics.record(PipelineMetrics.Stage.DRAW, 2_000_000L);
+        assertEquals(1, metrics.histogram(PipelineMetrics.Stage.DETECT).snapshot().getCount());
+        assertEquals(40_000_000L, metrics.histogram(PipelineMetrics.Stage.DETECT).snapshot().getMaxNanos());
+        assertEquals(0, metrics.histogram(PipelineMetrics.Stage.FILTER).snapshot().getCount());
+    }
+
+    @Test
+    public void forwardsEachRecordToTheLatencyListener() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        long[] seen = new long[PipelineMetrics.Stage.values().length];
+        metrics.setLatencyListener((stage, nanos) -> seen[stage.ordinal()] += nanos);
+        metrics.record(PipelineMetrics.Stage.DETECT, 40_000_000L);
+        metrics.record(PipelineMetrics.Stage.DRAW, 2_000_000L);
+        metrics.record(PipelineMetrics.Stage.DRAW, 3_000_000L);
+        assertEquals(40_000_000L, seen[PipelineMetrics.Stage.DETECT.ordinal()]);
+        assertEquals(5_000_000L, seen[PipelineMetrics.Stage.DRAW.ordinal()]);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.cameraod.overlay;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AtlasSlotsTest {
+
+    @Test
+    public void pinnedSlotsAreAssignedInOrderAndNeverEvicted() {
+        AtlasSlots slots = new AtlasSlots(4);
+        assertEquals(0, slots.pin("Người"));
+        assertEquals(1, slots.pin("Ghế"));
+        assertEquals(0, slots.pin("Người"));
+        assertEquals(2, slots.getPinnedCount());
+
+        for (int i = 0; i < 10; i++) {
+            slots.beginFrame();
+            assertNotEquals(AtlasSlots.NO_SLOT, slots.insert("custom " + i));
+        }
+        slots.beginFrame();
+        assertEquals(0, slots.find("Người"));
+        assertEquals(1, slots.find("Ghế"));
+        assertEquals(8, slots.getEvictionCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        AtlasSlots slots = new AtlasSlots(3);
+        slots.pin("Sách");
+        int a = slots.insert("a");
+        int b = slots.insert("b");
+        slots.beginFrame();
+        // "a" vừa được dùng nên "b" là slot bị thay
+        assertEquals(a, slots.find("a"));
+        int c = slots.insert("c");
+        assertEquals(b, c);
+        assertEquals(AtlasSlots.NO_SLOT, slots.find("b"));
+        assertEquals("c", slots.keyAt(c));
+        assertEquals(a, slots.find("a"));
+    }
+
+    @Test
+    public void slotsUsedInTheCurrentFrameAreNotEvicted() {
+        AtlasSlots slots = new AtlasSlots(2);
+        slots.insert("a");
+        slots.insert("b");
+        slots.beginFrame();
+        slots.find("a");
+        slots.find("b");
+        assertEquals(AtlasSlots.NO_SLOT, slots.insert("c"));
+        slots.beginFrame();
+        assertNotEquals(AtlasSlots.NO_SLOT, slots.insert("c"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pinAfterInsertIsRejected() {
+        AtlasSlots slots = new AtlasSlots(3);
+        slots.insert("a");
+        slots.pin("b");
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.cameraod.overlay;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoxArraysTest {
+
+    @Test
+    public void batchAnimateMatchesPerRowAnimate() {
+        Random random = new Random(5);
+        BoxArrays batch = new BoxArrays(4);
+        BoxArrays single = new BoxArrays(4);
+        int count = 300;
+        batch.ensureCapacity(count);
+        single.ensureCapacity(count);
+        for (int row = 0; row < count; row++) {
+            float left = random.nextFloat() * 1000;
+            float top = random.nextFloat() * 1000;
+            float factor = row % 3 == 0 ? 1f : AnimatedBox.LERP_FACTOR;
+            for (BoxArrays arrays : new BoxArrays[]{batch, single}) {
+                arrays.resetRow(row);
+                arrays.setTarget(row, left, top, left + 50, top + 80);
+                arrays.setPositionFactor(row, factor);
+            }
+        }
+        for (int frame = 0; frame < 40; frame++) {
+            batch.animate(count, AnimatedBox.FADE_SPEED);
+            for (int row = 0; row < count; row++) {
+                single.animateRow(row, single.positionFactor[row], AnimatedBox.FADE_SPEED);
+            }
+        }
+        BoxRect expected = new BoxRect();
+        BoxRect actual = new BoxRect();
+        for (int row = 0; row < count; row++) {
+            single.readCurrent(row, expected);
+            batch.readCurrent(row, actual);
+            assertEquals(expected.left, actual.left, 0f);
+            assertEquals(expected.bottom, actual.bottom, 0f);
+            assertEquals(single.getAlpha(row), batch.getAlpha(row), 0f);
+            assertEquals(single.isSettled(row), batch.isSettled(row));
+        }
+        // Hàng dùng hệ số 1 tới đích ngay ở frame đầu, alpha tới đích sau đủ số frame
+        assertTrue(batch.isSettled(0));
+    }
+
+    @Test
+    public void growsAndCopiesRows() {
+        BoxArrays arrays = new BoxArrays(1);
+        arrays.ensureCapacity(3);
+        assertTrue(arrays.getCapacity() >= 3);
+        arrays.resetRow(2);
+        arrays.setCurrent(2, 1f, 2f, 3f, 4f);
+        arrays.setTargetAlpha(2, 0f);
+        arrays.copyRow(2, 0);
+        BoxRect rect = new BoxRect();
+        arrays.readCurrent(0, rect);
+        assertEquals(1f, rect.left, 0f);
+        assertEquals(4f, rect.bottom, 0f);
+        assertEquals(0f, arrays.targetAlpha[0], 0f);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.cameraod.overlay;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoxStoreTest {
+
+    private static void finish(AnimatedBox box) {
+        box.startFadeOut();
+        box.animate(0f, 1f); // alpha về 0 ngay
+    }
+
+    @Test
+    public void getReturnsInsertedBoxesAcrossGrowth() {
+        BoxStore store = new BoxStore(8);
+        for (int id = -500; id < 500; id++) {
+            store.obtain(id, 0L);
+        }
+        assertEquals(1000, store.size());
+        for (int id = -500; id < 500; id++) {
+            assertEquals(id, store.get(id).getTrackingId());
+        }
+        assertNull(store.get(500));
+    }
+
+    @Test
+    public void removeFinishedKeepsInsertionOrderAndLookups() {
+        BoxStore store = new BoxStore(8);
+        for (int id = 0; id < 100; id++) {
+            store.obtain(id * 16, 0L); // nhiều ID cùng bucket để thử backward-shift
+        }
+        for (int i = 0; i < store.size(); i++) {
+            if (i % 3 == 0) {
+                finish(store.valueAt(i));
+            }
+        }
+        store.removeFinished();
+
+        int expected = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (expected % 3 == 0) {
+                expected++;
+            }
+            assertEquals(expected * 16, store.valueAt(i).getTrackingId());
+            expected++;
+        }
+        for (int id = 0; id < 100; id++) {
+            AnimatedBox box = store.get(id * 16);
+            if (id % 3 == 0) {
+                assertNull(box);
+            } else {
+                assertEquals(id * 16, box.getTrackingId());
+            }
+        }
+    }
+
+    @Test
+    public void recyclesRemovedBoxesUpToPoolLimit() {
+        BoxStore store = new BoxStore(2);
+        AnimatedBox a = store.obtain(1, 0L);
+        AnimatedBox b = store.obtain(2, 0L);
+        AnimatedBox c = store.obtain(3, 0L);
+        a.setRenderState("state");
+        finish(a);
+        finish(b);
+        finish(c);
+        store.removeFinished();
+        assertEquals(0, store.size());
+        assertEquals(2, store.pooledCount());
+
+        AnimatedBox reused = store.obtain(7, 100L);
+        assertTrue(reused == a || reused == b);
+        assertEquals(7, reused.getTrackingId());
+        assertEquals(0f, reused.getAlpha(), 0f);
+        assertTrue(reused.isActive);
+        assertSame(reused, store.get(7));
+        // Trạng thái vẽ được giữ lại khi tái chế
+        if (reused == a) {
+            assertEquals("state", reused.getRenderState());
+        }
+    }
+
+    @Test
+    public void rowsFollowBoxesWhenCompacted() {
+        BoxStore store = new BoxStore(8);
+        BoxRect rect = new BoxRect();
+        for (int id = 0; id < 40; id++) {
+            AnimatedBox box = store.obtain(id, 0L);
+            rect.set(id, id, id + 10, id + 10);
+            box.setCurrent(rect);
+            box.updateTarget(rect, null, 0f, id % 6, 0L);
+        }
+        for (int id = 0; id < 40; id += 4) {
+            finish(store.get(id));
+        }
+        store.removeFinished();
+        store.get(1).isActive = false;
+        assertTrue(store.evictOldestInactive());
+
+        assertEquals(29, store.size());
+        for (int i = 0; i < store.size(); i++) {
+            AnimatedBox box = store.valueAt(i);
+            assertEquals(i, box.row);
+            assertEquals(box.getTrackingId(), box.getCurrentRect().left, 0f);
+            assertEquals(box.getTrackingId() % 6, box.getColorIndex());
+        }
+    }
+}
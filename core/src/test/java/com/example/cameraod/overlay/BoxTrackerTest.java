@@ -0,0 +1,168 @@
+package com.example.cameraod.overlay;
+
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.DetectionResult;
+import com.example.cameraod.pipeline.DetectionSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BoxTrackerTest {
+
+    private final ViewTransform transform = new ViewTransform();
+
+    @Before
+    public void setUp() {
+        // Biến đổi đơn vị: tọa độ ảnh = tọa độ View
+        transform.setViewSize(640, 480);
+        transform.setImageSize(640, 480, 0);
+    }
+
+    private static Detection untracked(int left, int top, int size) {
+        return new Detection(left, top, left + size, top + size, null, null);
+    }
+
+    private static int[] ids(BoxTracker tracker) {
+        int[] ids = new int[tracker.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tracker.getBox(i).getTrackingId();
+        }
+        return ids;
+    }
+
+    @Test
+    public void untrackedObjectKeepsSyntheticIdWhileMoving() {
+        BoxTracker tracker = new BoxTracker(6);
+        tracker.update(Arrays.asList(untracked(100, 100, 80), untracked(400, 300, 60)), transform, 0);
+        int[] first = ids(tracker);
+        assertEquals(2, first.length);
+        assertTrue(first[0] < 0 && first[1] < 0 && first[0] != first[1]);
+
+        // Cả hai vật thể dịch chuyển nhẹ, thứ tự trong danh sách bị đảo
+        for (int frame = 1; frame <= 20; frame++) {
+            tracker.update(Arrays.asList(
+                    untracked(400 - frame * 3, 300, 60),
+                    untracked(100 + frame * 4, 100 + frame * 2, 80)), transform, frame * 33L);
+            assertArrayEquals(first, ids(tracker));
+        }
+        assertEquals(400 - 60, tracker.getBox(1).getTargetRect().left, 0f);
+    }
+
+    @Test
+    public void farAwayDetectionGetsNewId() {
+        BoxTracker tracker = new BoxTracker(6);
+        tracker.update(Arrays.asList(untracked(10, 10, 50)), transform, 0);
+        tracker.update(Arrays.asList(untracked(500, 400, 50)), transform, 33);
+        int[] ids = ids(tracker);
+        assertEquals(2, ids.length);
+        assertNotEquals(ids[0], ids[1]);
+    }
+
+    @Test
+    public void liveBoxesAreBounded() {
+        BoxTracker tracker = new BoxTracker(6, 32);
+        for (int frame = 0; frame < 10; frame++) {
+            List<Detection> detections = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                // Mỗi frame là các vật thể hoàn toàn mới ở vị trí khác
+                detections.add(untracked((frame * 20 + i) * 3 % 600, frame * 40, 20));
+            }
+            tracker.update(detections, transform, frame * 33L);
+            assertTrue(tracker.size() <= 32);
+        }
+    }
+
+    @Test
+    public void capturedTimestampsDrawBoxesAtPredictedPosition() {
+        BoxTracker tracker = new BoxTracker(6);
+        long frameNanos = 33_333_333L;
+        long latencyNanos = 100_000_000L;
+        int lastLeft = 0;
+        for (int frame = 0; frame < 30; frame++) {
+            lastLeft = 50 + frame * 5; // 150 px/s
+            Detection detection = new Detection(lastLeft, 100, lastLeft + 60, 160, 7, null);
+            tracker.update(Arrays.asList(detection), transform, frame * 33L, frame * frameNanos, true);
+        }
+
+        // Kết quả đến sau độ trễ pipeline; hộp được vẽ ở vị trí dự đoán, không phải vị trí đo
+        long vsync = 29 * frameNanos + latencyNanos;
+        assertTrue(tracker.animate(vsync));
+        float expected = lastLeft + 150f * (latencyNanos + BoxTracker.PREDICTION_LEAD_NANOS) / 1e9f;
+        assertEquals(expected, tracker.getBox(0).getCurrentRect().left, 2f);
+    }
+
+    @Test
+    public void propagatedResultsDoNotCorrectFilter() {
+        BoxTracker tracker = new BoxTracker(6);
+        Detection detection = new Detection(100, 100, 160, 160, 3, null);
+        tracker.update(Arrays.asList(detection), transform, 0, 1_000L, true);
+        long timestamp = tracker.getBox(0).getMotion().getTimestampNanos();
+
+        tracker.update(Arrays.asList(detection), transform, 33, 50_000_000L, false);
+        assertEquals(timestamp, tracker.getBox(0).getMotion().getTimestampNanos());
+    }
+
+    @Test
+    public void stationaryPredictedBoxesSettle() {
+        BoxTracker tracker = new BoxTracker(6);
+        Detection detection = new Detection(100, 100, 160, 160, 3, null);
+        for (int frame = 0; frame < 5; frame++) {
+            tracker.update(Arrays.asList(detection), transform, frame * 33L, frame * 33_333_333L, true);
+        }
+        long vsync = 200_000_000L;
+        int frames = 0;
+        while (tracker.animate(vsync) && frames < 1000) {
+            vsync += 16_666_667L;
+            frames++;
+        }
+        assertTrue("frames=" + frames, frames < 1000);
+        assertEquals(100f, tracker.getBox(0).getCurrentRect().left, 0.5f);
+    }
+
+    @Test
+    public void snapshotUpdateMatchesListUpdate() {
+        BoxTracker fromList = new BoxTracker(6);
+        BoxTracker fromSnapshot = new BoxTracker(6);
+        DetectionSnapshot snapshot = new DetectionSnapshot(8);
+        for (int frame = 0; frame < 10; frame++) {
+            List<Detection> detections = Arrays.asList(
+                    new Detection(10 + frame, 20, 90 + frame, 100, 7, Arrays.asList(
+                            new Detection.Label("Food", 2, 0.8f), new Detection.Label("Plant", 4, 0.1f))),
+                    untracked(300 - frame * 2, 200, 60));
+            DetectionResult result = new DetectionResult(frame, frame * 33_000_000L, 640, 480, 0,
+                    detections, frame % 3 == 0);
+            fromList.update(detections, transform, frame * 33L, result.getTimestampNanos(), result.isKeyframe());
+            snapshot.set(result);
+            fromSnapshot.update(snapshot, transform, frame * 33L);
+        }
+        assertArrayEquals(ids(fromList), ids(fromSnapshot));
+        for (int i = 0; i < fromList.size(); i++) {
+            AnimatedBox expected = fromList.getBox(i);
+            AnimatedBox actual = fromSnapshot.getBox(i);
+            assertEquals(expected.getLabel(), actual.getLabel());
+            assertEquals(expected.getConfidence(), actual.getConfidence(), 0f);
+            assertEquals(expected.getColorIndex(), actual.getColorIndex());
+            assertEquals(expected.getTargetRect().left, actual.getTargetRect().left, 0f);
+            assertEquals(expected.getMotion().isInitialized(), actual.getMotion().isInitialized());
+        }
+    }
+
+    @Test
+    public void iouOfIdenticalAndDisjointBoxes() {
+        BoxRect a = new BoxRect();
+        BoxRect b = new BoxRect();
+        a.set(0, 0, 10, 10);
+        b.set(0, 0, 10, 10);
+        assertEquals(1f, UntrackedMatcher.iou(a, b), 1e-6f);
+        b.set(5, 0, 15, 10);
+        assertEquals(50f / 150f, UntrackedMatcher.iou(a, b), 1e-6f);
+        b.set(20, 20, 30, 30);
+        assertEquals(0f, UntrackedMatcher.iou(a, b), 0f);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.cameraod.overlay;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays recorded-style trajectories (30 fps detections with pixel noise)
+ * through {@link KalmanBoxFilter} and checks the prediction at display time.
+ */
+public class KalmanBoxFilterTest {
+
+    private static final long FRAME_NANOS = 33_333_333L;
+    private static final long LATENCY_NANOS = 120_000_000L; // Capture -> hiển thị
+
+    /**
+     * Quỹ đạo tâm hộp theo thời gian (giây).
+     */
+    private interface Trajectory {
+        double x(double t);
+
+        double y(double t);
+    }
+
+    private static final Trajectory LINEAR = new Trajectory() {
+        @Override
+        public double x(double t) {
+            return 100 + 300 * t;
+        }
+
+        @Override
+        public double y(double t) {
+            return 200 - 120 * t;
+        }
+    };
+
+    private static final Trajectory STILL = new Trajectory() {
+        @Override
+        public double x(double t) {
+            return 320;
+        }
+
+        @Override
+        public double y(double t) {
+            return 240;
+        }
+    };
+
+    private static final Trajectory CIRCLE = new Trajectory() {
+        @Override
+        public double x(double t) {
+            return 320 + 150 * Math.cos(t);
+        }
+
+        @Override
+        public double y(double t) {
+            return 240 + 150 * Math.sin(t);
+        }
+    };
+
+    /**
+     * Chạy {@code frames} phép đo có nhiễu, trả về sai số trung bình (px) của vị trí dự đoán
+     * tại thời điểm hiển thị so với vị trí thật, và của vị trí đo gần nhất (không dự đoán).
+     */
+    private static double[] replay(Trajectory trajectory, int frames, double noise) {
+        KalmanBoxFilter filter = new KalmanBoxFilter();
+        Random random = new Random(42);
+        BoxRect measured = new BoxRect();
+        BoxRect predicted = new BoxRect();
+        double predictedError = 0;
+        double rawError = 0;
+        int counted = 0;
+
+        for (int i = 0; i < frames; i++) {
+            long capture = i * FRAME_NANOS;
+            double t = capture / 1e9;
+            float cx = (float) (trajectory.x(t) + random.nextGaussian() * noise);
+            float cy = (float) (trajectory.y(t) + random.nextGaussian() * noise);
+            measured.set(cx - 40, cy - 30, cx + 40, cy + 30);
+            filter.correct(measured, capture);
+
+            // Bỏ qua giai đoạn bộ lọc mới khởi động
+            if (i < 15) {
+                continue;
+            }
+            long display = capture + LATENCY_NANOS;
+            double displayT = display / 1e9;
+            filter.predict(display, predicted);
+            predictedError += Math.hypot(
+                    (predicted.left + predicted.right) * 0.5 - trajectory.x(displayT),
+                    (predicted.top + predicted.bottom) * 0.5 - trajectory.y(displayT));
+            rawError += Math.hypot(cx - trajectory.x(displayT), cy - trajectory.y(displayT));
+            counted++;
+        }
+        return new double[]{predictedError / counted, rawError / counted};
+    }
+
+    @Test
+    public void linearMotionIsPredictedToDisplayTime() {
+        double[] errors = replay(LINEAR, 90, 3.0);
+        // Không dự đoán: trễ 120 ms * 323 px/s ~ 39 px
+        assertTrue("raw=" + errors[1], errors[1] > 30);
+        assertTrue("predicted=" + errors[0], errors[0] < 8);
+    }
+
+    @Test
+    public void curvedMotionLagsLessThanRawDetections() {
+        double[] errors = replay(CIRCLE, 150, 3.0);
+        assertTrue("predicted=" + errors[0] + " raw=" + errors[1], errors[0] < errors[1] * 0.5);
+    }
+
+    @Test
+    public void stationaryObjectStaysPut() {
+        double[] errors = replay(STILL, 90, 3.0);
+        // Nhiễu đo (~3.8 px) chỉ bị khuếch đại vừa phải khi ngoại suy 120 ms
+        assertTrue("predicted=" + errors[0], errors[0] < 8);
+    }
+
+    @Test
+    public void estimatesVelocityAndSize() {
+        KalmanBoxFilter filter = new KalmanBoxFilter();
+        BoxRect rect = new BoxRect();
+        for (int i = 0; i < 30; i++) {
+            float x = i * 10f; // 10 px / frame = 300 px/s
+            rect.set(x, 50f, x + 100f, 130f);
+            filter.correct(rect, i * FRAME_NANOS);
+        }
+        assertEquals(300f, filter.getVelocityX(), 5f);
+        assertEquals(0f, filter.getVelocityY(), 1f);
+
+        filter.predict(29 * FRAME_NANOS + 100_000_000L, rect);
+        assertEquals(290f + 30f, rect.left, 2f);
+        assertEquals(100f, rect.width(), 1f);
+        assertEquals(80f, rect.height(), 1f);
+    }
+
+    @Test
+    public void ignoresOutOfOrderMeasurementsAndCapsHorizon() {
+        KalmanBoxFilter filter = new KalmanBoxFilter();
+        BoxRect rect = new BoxRect();
+        for (int i = 0; i < 30; i++) {
+            rect.set(i * 10f, 0f, i * 10f + 50f, 50f);
+            filter.correct(rect, i * FRAME_NANOS);
+        }
+        long last = filter.getTimestampNanos();
+
+        // Phép đo cũ hơn đến muộn: không làm thay đổi trạng thái
+        rect.set(0f, 0f, 50f, 50f);
+        filter.correct(rect, last - FRAME_NANOS);
+        assertEquals(last, filter.getTimestampNanos());
+        assertEquals(300f, filter.getVelocityX(), 5f);
+
+        BoxRect capped = new BoxRect();
+        BoxRect far = new BoxRect();
+        filter.predict(last + KalmanBoxFilter.MAX_PREDICTION_NANOS, capped);
+        filter.predict(last + 10 * KalmanBoxFilter.MAX_PREDICTION_NANOS, far);
+        assertEquals(capped.left, far.left, 0f);
+        assertTrue(filter.isMoving(last));
+        assertFalse(filter.isMoving(last + KalmanBoxFilter.MAX_PREDICTION_NANOS));
+    }
+
+    @Test
+    public void resetForgetsTrack() {
+        KalmanBoxFilter filter = new KalmanBoxFilter();
+        BoxRect rect = new BoxRect();
+        rect.set(0f, 0f, 10f, 10f);
+        filter.correct(rect, 0);
+        assertTrue(filter.isInitialized());
+        filter.reset();
+        assertFalse(filter.isInitialized());
+        assertFalse(filter.isMoving(0));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.cameraod.overlay;
+
+import com.example.cameraod.pipeline.Detection;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time-based animation checked against a fake vsync clock.
+ */
+public class SmoothingTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void factorMatchesPerFrameValueAtReferenceRate() {
+        assertEquals(AnimatedBox.LERP_FACTOR,
+                Smoothing.factor(AnimatedBox.LERP_FACTOR, Smoothing.REFERENCE_FRAME_NANOS), 1e-6f);
+        assertEquals(0f, Smoothing.factor(AnimatedBox.LERP_FACTOR, 0), 0f);
+        // Hai frame 120 Hz tương đương một frame 60 Hz
+        float half = Smoothing.factor(AnimatedBox.LERP_FACTOR, Smoothing.REFERENCE_FRAME_NANOS / 2);
+        assertEquals(AnimatedBox.LERP_FACTOR, 1f - (1f - half) * (1f - half), 1e-6f);
+    }
+
+    /**
+     * Vị trí cạnh trái sau {@code durationNanos}, khi hộp di chuyển từ x=0 tới x=300.
+     */
+    private static float leftAfter(long frameNanos, long durationNanos) {
+        ViewTransform transform = new ViewTransform();
+        transform.setViewSize(640, 480);
+        transform.setImageSize(640, 480, 0);
+        BoxTracker tracker = new BoxTracker(6);
+        tracker.update(Collections.singletonList(new Detection(0, 0, 100, 100, 1, null)), transform, 0);
+        tracker.update(Collections.singletonList(new Detection(300, 0, 400, 100, 1, null)), transform, 0);
+
+        long start = SECOND;
+        tracker.animate(start);
+        for (long t = start + frameNanos; t <= start + durationNanos; t += frameNanos) {
+            tracker.animate(t);
+        }
+        return tracker.getBox(0).getCurrentRect().left;
+    }
+
+    @Test
+    public void motionIsIdenticalAcrossRefreshRates() {
+        long duration = 100_000_000L; // 100 ms: chia hết cho chu kỳ 60/120 Hz (xấp xỉ)
+        float at60 = leftAfter(SECOND / 60, duration);
+        float at120 = leftAfter(SECOND / 120, duration);
+        float at90 = leftAfter(SECOND / 90, duration);
+        assertTrue(at60 > 0f && at60 < 300f);
+        assertEquals(at60, at120, 1f);
+        assertEquals(at60, at90, 1f);
+    }
+
+    @Test
+    public void settlesAndStopsRequestingFrames() {
+        ViewTransform transform = new ViewTransform();
+        transform.setViewSize(640, 480);
+        transform.setImageSize(640, 480, 0);
+        BoxTracker tracker = new BoxTracker(6);
+        tracker.update(Collections.singletonList(new Detection(10, 10, 110, 110, 1, null)), transform, 0);
+
+        long t = SECOND;
+        int frames = 0;
+        while (tracker.animate(t)) {
+            t += SECOND / 120;
+            assertTrue("never settled", ++frames < 1000);
+        }
+        AnimatedBox box = tracker.getBox(0);
+        assertTrue(box.isSettled());
+        assertEquals(1f, box.getAlpha(), 0f);
+        assertEquals(10f, box.getCurrentRect().left, 0f);
+
+        // Kết quả mới làm hộp chuyển động lại
+        tracker.update(Collections.singletonList(new Detection(50, 10, 150, 110, 1, null)), transform, 0);
+        assertTrue(tracker.animate(t + SECOND));
+        assertFalse(box.isSettled());
+    }
+}
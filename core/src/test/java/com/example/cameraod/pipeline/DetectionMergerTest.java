@@ -0,0 +1,106 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DetectionMergerTest {
+
+    private static Detection box(int left, int top, int size, Integer id, String label, float confidence) {
+        return new Detection(left, top, left + size, top + size, id,
+                Collections.singletonList(new Detection.Label(label, 0, confidence)));
+    }
+
+    @Test
+    public void suppressesOverlappingBoxesOfTheSameClass() {
+        Detection strong = box(100, 100, 100, null, "Food", 0.9f);
+        Detection weak = box(105, 105, 100, null, "Food", 0.6f);
+        Detection otherClass = box(102, 102, 100, null, "Plant", 0.5f);
+        Detection apart = box(400, 400, 100, null, "Food", 0.4f);
+
+        List<Detection> merged = new DetectionMerger().merge(Arrays.asList(weak, apart, otherClass, strong));
+
+        assertEquals(Arrays.asList(strong, otherClass, apart), merged);
+    }
+
+    @Test
+    public void keptBoxInheritsTrackingIdOfSuppressedBox() {
+        Detection untracked = box(0, 0, 50, null, "Food", 0.9f);
+        Detection tracked = box(2, 2, 50, 7, "Food", 0.8f);
+
+        List<Detection> merged = new DetectionMerger().merge(Arrays.asList(untracked, tracked));
+
+        assertEquals(1, merged.size());
+        assertEquals(Integer.valueOf(7), merged.get(0).getTrackingId());
+        assertEquals(0, merged.get(0).getLeft());
+    }
+
+    @Test
+    public void gridResultMatchesBruteForceNms() {
+        Random random = new Random(11);
+        String[] classes = {"Food", "Plant", "Place"};
+        DetectionMerger merger = new DetectionMerger(0.4f);
+        for (int round = 0; round < 20; round++) {
+            List<Detection> candidates = new ArrayList<>();
+            int count = 50 + random.nextInt(400);
+            for (int i = 0; i < count; i++) {
+                int size = 10 + random.nextInt(random.nextInt(10) == 0 ? 800 : 80);
+                candidates.add(box(random.nextInt(1000), random.nextInt(1000), size, null,
+                        classes[random.nextInt(classes.length)], random.nextFloat()));
+            }
+            assertEquals(bruteForce(candidates, 0.4f), merger.merge(candidates));
+        }
+    }
+
+    @Test
+    public void gridSkipsDistantBoxes() {
+        List<Detection> candidates = new ArrayList<>();
+        for (int row = 0; row < 30; row++) {
+            for (int col = 0; col < 30; col++) {
+                candidates.add(box(col * 40, row * 40, 30, null, "Food", 0.5f));
+            }
+        }
+        DetectionMerger merger = new DetectionMerger();
+        assertEquals(900, merger.merge(candidates).size());
+        // So sánh tất cả cặp sẽ cần ~400 000 phép tính IoU
+        assertTrue(merger.getComparisonCount() < 20 * candidates.size());
+    }
+
+    private static List<Detection> bruteForce(List<Detection> candidates, float threshold) {
+        List<Detection> sorted = new ArrayList<>(candidates);
+        // Sắp ổn định: cùng điểm thì giữ thứ tự đầu vào như DetectionMerger
+        sorted.sort((a, b) -> Float.compare(b.getLabels().get(0).getConfidence(),
+                a.getLabels().get(0).getConfidence()));
+        List<Detection> kept = new ArrayList<>();
+        for (Detection candidate : sorted) {
+            boolean suppressed = false;
+            for (Detection k : kept) {
+                if (k.getLabels().get(0).getText().equals(candidate.getLabels().get(0).getText())
+                        && iou(k, candidate) > threshold) {
+                    suppressed = true;
+                    break;
+                }
+            }
+            if (!suppressed) {
+                kept.add(candidate);
+            }
+        }
+        return kept;
+    }
+
+    private static float iou(Detection a, Detection b) {
+        float w = Math.min(a.getRight(), b.getRight()) - Math.max(a.getLeft(), b.getLeft());
+        float h = Math.min(a.getBottom(), b.getBottom()) - Math.max(a.getTop(), b.getTop());
+        if (w <= 0 || h <= 0) {
+            return 0f;
+        }
+        float intersection = w * h;
+        return intersection / ((float) a.width() * a.height() + (float) b.width() * b.height() - intersection);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class DirectBufferPoolTest {
+
+    @Test
+    public void reusesBuffersAndMissesWhenExhausted() {
+        DirectBufferPool pool = new DirectBufferPool(2);
+        ByteBuffer first = pool.acquire(100);
+        ByteBuffer second = pool.acquire(100);
+        assertTrue(first.isDirect());
+        assertEquals(100, first.limit());
+        assertNotSame(first, second);
+        assertNull(pool.acquire(100));
+        assertEquals(1, pool.getMissCount());
+
+        pool.release(first);
+        first.position(40);
+        ByteBuffer again = pool.acquire(80);
+        assertSame(first, again);
+        assertEquals(0, again.position());
+        assertEquals(80, again.limit());
+        assertEquals(2, pool.getAllocationCount());
+    }
+
+    @Test
+    public void growsASlotForLargerFrames() {
+        DirectBufferPool pool = new DirectBufferPool(1);
+        ByteBuffer small = pool.acquire(100);
+        pool.release(small);
+        ByteBuffer large = pool.acquire(1000);
+        assertNotSame(small, large);
+        assertEquals(1000, large.limit());
+        assertEquals(2, pool.getAllocationCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsForeignBuffers() {
+        new DirectBufferPool(1).release(ByteBuffer.allocateDirect(10));
+    }
+
+    @Test
+    public void bufferAttachedToFrameReturnsAfterLastHold() {
+        DirectBufferPool pool = new DirectBufferPool(1);
+        int[] closed = new int[1];
+        Frame<Integer> frame = new Frame<>(0, 0, 640, 480, 0, () -> closed[0]++);
+        ByteBuffer buffer = pool.acquire(64);
+        frame.withImage(buffer).addReleaser(() -> pool.release(buffer));
+        Runnable hold = frame.retain();
+
+        frame.release();
+        assertEquals(0, closed[0]);
+        assertNull(pool.acquire(64));
+
+        hold.run();
+        assertEquals(1, closed[0]);
+        assertSame(buffer, pool.acquire(64));
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FanOutDetectorTest {
+
+    /**
+     * Detector giả lập trả một hộp cố định, có thể bị chặn cho tới khi mở chốt.
+     */
+    private static final class FakeDetector implements Detector<Integer> {
+        final Detection detection;
+        final CountDownLatch gate;
+        final AtomicInteger calls = new AtomicInteger();
+        boolean closed;
+
+        FakeDetector(Detection detection, CountDownLatch gate) {
+            this.detection = detection;
+            this.gate = gate;
+        }
+
+        @Override
+        public List<Detection> detect(Frame<Integer> frame) throws Exception {
+            calls.incrementAndGet();
+            if (gate != null) {
+                gate.await();
+            }
+            return Collections.singletonList(detection);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static Detection box(int left, Integer id, String label, float confidence) {
+        return new Detection(left, 0, left + 100, 100, id,
+                Collections.singletonList(new Detection.Label(label, 0, confidence)));
+    }
+
+    @Test
+    public void mergesDetectorsWithClassAwareNms() throws Exception {
+        FakeDetector coarse = new FakeDetector(box(0, 3, "Food", 0.6f), null);
+        FakeDetector custom = new FakeDetector(box(5, 3, "Food", 0.9f), null);
+        FakeDetector other = new FakeDetector(box(0, null, "Cup", 0.7f), null);
+        FanOutDetector<Integer> detector = new FanOutDetector.Builder<Integer>(pool)
+                .addDetector(coarse, 1, TimeUnit.SECONDS)
+                .addDetector(custom, 1, TimeUnit.SECONDS)
+                .addDetector(other, 1, TimeUnit.SECONDS)
+                .build();
+
+        List<Detection> merged = detector.detect(new Frame<>(0, 0, 640, 480, 0, null));
+
+        assertEquals(2, merged.size());
+        assertEquals(5, merged.get(0).getLeft());
+        assertEquals("Cup", merged.get(1).getLabels().get(0).getText());
+        // Tracking ID được tách theo detector: ID 3 của detector 1 → 3 * 3 + 1
+        assertEquals(Integer.valueOf(10), merged.get(0).getTrackingId());
+
+        detector.close();
+        assertTrue(coarse.closed && custom.closed && other.closed);
+    }
+
+    @Test
+    public void slowDetectorIsSkippedAndHoldsTheFrameUntilItFinishes() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        FakeDetector fast = new FakeDetector(box(0, null, "Food", 0.8f), null);
+        FakeDetector slow = new FakeDetector(box(300, null, "Plant", 0.8f), gate);
+        FanOutDetector<Integer> detector = new FanOutDetector.Builder<Integer>(pool)
+                .addDetector(fast, 1, TimeUnit.SECONDS)
+                .addDetector(slow, 20, TimeUnit.MILLISECONDS)
+                .build();
+
+        AtomicInteger returned = new AtomicInteger();
+        Frame<Integer> first = new Frame<>(0, 0, 640, 480, 0, returned::incrementAndGet);
+        List<Detection> result = detector.detect(first);
+        assertEquals(1, result.size());
+        assertEquals(1, detector.getTimeoutCount(1));
+
+        // Pipeline trả frame, nhưng detector chậm vẫn đang đọc ảnh
+        first.release();
+        assertTrue(first.isReleased());
+        assertEquals(0, returned.get());
+
+        // Frame sau không gọi lại detector chậm khi nó chưa xong
+        assertEquals(1, detector.detect(new Frame<>(1, 1, 640, 480, 0, null)).size());
+        assertEquals(1, detector.getSkippedCount(1));
+        assertEquals(1, slow.calls.get());
+
+        gate.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (returned.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, returned.get());
+        assertEquals(2, detector.getCompletedCount(0));
+    }
+
+    @Test
+    public void lateDetectorPinsOnlyThePreprocessedImage() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        FakeDetector fast = new FakeDetector(box(0, null, "Food", 0.8f), null);
+        FakeDetector slow = new FakeDetector(box(300, null, "Plant", 0.8f), gate);
+        FanOutDetector<Integer> detector = new FanOutDetector.Builder<Integer>(pool)
+                .addDetector(fast, 1, TimeUnit.SECONDS)
+                .addDetector(slow, 20, TimeUnit.MILLISECONDS)
+                .build();
+
+        AtomicInteger cameraReturned = new AtomicInteger();
+        AtomicInteger bufferReturned = new AtomicInteger();
+        Frame<Integer> source = new Frame<>(0, 0, 640, 480, 0, cameraReturned::incrementAndGet);
+        source.addReleaser(bufferReturned::incrementAndGet);
+        source.releaseSource();
+
+        assertEquals(1, detector.detect(source.withImage(1)).size());
+        source.release();
+        // Detector quá hạn vẫn giữ ảnh tiền xử lý, không giữ ảnh camera
+        assertEquals(1, detector.getTimeoutCount(1));
+        assertEquals(1, cameraReturned.get());
+        assertEquals(0, bufferReturned.get());
+        gate.countDown();
+    }
+
+    @Test
+    public void waitsForTheFirstDetectorWhenNoneMeetsItsBudget() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        FakeDetector only = new FakeDetector(box(0, null, "Food", 0.8f), gate);
+        FanOutDetector<Integer> detector = new FanOutDetector.Builder<Integer>(pool)
+                .addDetector(only, 10, TimeUnit.MILLISECONDS)
+                .build();
+        pool.execute(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            gate.countDown();
+        });
+
+        // Máy chậm: kết quả đến muộn chứ không mất
+        assertEquals(1, detector.detect(new Frame<>(0, 0, 640, 480, 0, null)).size());
+        assertEquals(1, detector.getTimeoutCount(0));
+
+        // Lần gọi không bị bỏ nên frame sau vẫn chạy detector
+        assertEquals(1, detector.detect(new Frame<>(1, 1, 640, 480, 0, null)).size());
+        assertEquals(0, detector.getSkippedCount(0));
+        assertEquals(2, detector.getCompletedCount(0));
+    }
+
+    @Test
+    public void alwaysWaitsForTheDetectorWithoutBudget() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        FakeDetector primary = new FakeDetector(box(0, null, "Food", 0.8f), gate);
+        FakeDetector extra = new FakeDetector(box(300, null, "Plant", 0.8f), null);
+        FanOutDetector<Integer> detector = new FanOutDetector.Builder<Integer>(pool)
+                .addDetector(primary)
+                .addDetector(extra, 10, TimeUnit.MILLISECONDS)
+                .build();
+        pool.execute(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            gate.countDown();
+        });
+
+        assertEquals(2, detector.detect(new Frame<>(0, 0, 640, 480, 0, null)).size());
+        assertEquals(0, detector.getTimeoutCount(0));
+        assertEquals(1, detector.getCompletedCount(1));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FilterEngineTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 640;
+
+    private static Detection object(int left, int top, int right, int bottom, int label, float confidence) {
+        List<Detection.Label> labels = label == FilterRules.UNLABELED
+                ? Collections.<Detection.Label>emptyList()
+                : Collections.singletonList(new Detection.Label("label" + label, label, confidence));
+        return new Detection(left, top, right, bottom, null, labels);
+    }
+
+    private static int[] keep(FilterEngine engine, List<Detection> detections) {
+        int[] out = new int[detections.size()];
+        int count = engine.filter(detections, WIDTH, HEIGHT, out);
+        return Arrays.copyOf(out, count);
+    }
+
+    @Test
+    public void smartDefaultMatchesSmartFilter() {
+        Random random = new Random(3);
+        SmartFilter smartFilter = new SmartFilter(0.3f);
+        FilterEngine engine = new FilterEngine(FilterRules.smartDefault(0.3f));
+        for (int frame = 0; frame < 200; frame++) {
+            List<Detection> detections = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                int left = random.nextInt(WIDTH - 20);
+                int width = 1 + random.nextInt(WIDTH - left);
+                int label = random.nextInt(4) - 1;
+                detections.add(object(left, 0, left + width, 50, label, random.nextFloat()));
+            }
+            // Ranh giới 20%: đúng 20% bị loại, rộng hơn một pixel thì giữ
+            detections.add(object(0, 0, WIDTH / 5, 50, FilterRules.UNLABELED, 0f));
+            detections.add(object(0, 0, WIDTH / 5 + 1, 50, FilterRules.UNLABELED, 0f));
+            List<Detection> expected = smartFilter.filter(detections, WIDTH, HEIGHT);
+            assertEquals(expected, engine.filter(detections, WIDTH, HEIGHT));
+        }
+    }
+
+    @Test
+    public void appliesPerClassThresholdsAndShapes() {
+        FilterRules rules = new FilterRules.Builder()
+                .setMinConfidence(0.5f)
+                .setMinConfidence(2, 0.8f)
+                .setRelativeWidth(0.05f, 0.9f)
+                .setAspectRatio(4, 0.2f, 1f) // Lớp 4 (cây): cao hơn rộng
+                .build();
+        FilterEngine engine = new FilterEngine(rules);
+        List<Detection> detections = Arrays.asList(
+                object(0, 0, 100, 100, 0, 0.6f),    // 0: giữ
+                object(0, 0, 100, 100, 2, 0.6f),    // 1: lớp 2 cần 0.8
+                object(0, 0, 100, 100, 2, 0.85f),   // 2: giữ
+                object(0, 0, 10, 10, 0, 0.9f),      // 3: quá nhỏ (< 5% chiều rộng)
+                object(0, 0, 470, 100, 0, 0.9f),    // 4: quá lớn
+                object(0, 0, 200, 100, 4, 0.9f),    // 5: lớp 4 quá rộng
+                object(0, 0, 100, 200, 4, 0.9f),    // 6: giữ
+                object(0, 0, 100, 100, 9, 0.55f),   // 7: nhãn ngoài bảng dùng mặc định -> giữ
+                object(0, 0, 100, 100, FilterRules.UNLABELED, 0f)); // 8: không nhãn, ngưỡng > 0
+        assertArrayEquals(new int[]{0, 2, 6, 7}, keep(engine, detections));
+    }
+
+    @Test
+    public void choosesBestLabelThatPassesItsClassThreshold() {
+        FilterRules rules = new FilterRules.Builder()
+                .setMinConfidence(0.3f)
+                .setMinConfidence(1, 0.9f)
+                .setMaxPerClass(1)
+                .build();
+        FilterEngine engine = new FilterEngine(rules);
+        // Nhãn 1 (0.7) không đạt 0.9 -> dùng nhãn 3 (0.4) làm lớp và điểm
+        Detection mixed = new Detection(0, 0, 100, 100, null, Arrays.asList(
+                new Detection.Label("a", 1, 0.7f), new Detection.Label("b", 3, 0.4f)));
+        Detection stronger = object(200, 0, 300, 100, 3, 0.6f);
+        assertArrayEquals(new int[]{1}, keep(engine, Arrays.asList(mixed, stronger)));
+    }
+
+    @Test
+    public void limitsPerClassAndTopKByScoreKeepingOriginalOrder() {
+        FilterRules rules = new FilterRules.Builder()
+                .setMaxPerClass(0, 2)
+                .setTopK(3)
+                .build();
+        FilterEngine engine = new FilterEngine(rules);
+        List<Detection> detections = Arrays.asList(
+                object(0, 0, 50, 50, 0, 0.5f),
+                object(0, 0, 50, 50, 0, 0.9f),
+                object(0, 0, 50, 50, 1, 0.4f),
+                object(0, 0, 50, 50, 0, 0.8f),
+                object(0, 0, 50, 50, 1, 0.7f),
+                object(0, 0, 50, 50, 2, 0.6f));
+        // Lớp 0: giữ 0.9 và 0.8; sau đó top-3 theo điểm: 0.9, 0.8, 0.7
+        assertArrayEquals(new int[]{1, 3, 4}, keep(engine, detections));
+    }
+
+    @Test
+    public void filtersByRegionCenter() {
+        FilterEngine engine = new FilterEngine(new FilterRules.Builder()
+                .setRegion(0f, 0.5f, 1f, 1f) // Nửa dưới ảnh
+                .build());
+        List<Detection> detections = Arrays.asList(
+                object(0, 0, 100, 100, 0, 1f),
+                object(0, 300, 100, 400, 0, 1f),
+                object(0, 600, 100, 640, 0, 1f));
+        assertArrayEquals(new int[]{1, 2}, keep(engine, detections));
+    }
+
+    @Test
+    public void swapsRulesAtRuntime() {
+        List<Detection> detections = Arrays.asList(
+                object(0, 0, 100, 100, 0, 0.5f),
+                object(0, 0, 100, 100, 0, 0.7f));
+        FilterEngine engine = new FilterEngine(new FilterRules.Builder().build());
+        // Không có gì bị loại: trả về chính danh sách đầu vào
+        assertSame(detections, engine.filter(detections, WIDTH, HEIGHT));
+
+        engine.setRules(new FilterRules.Builder().setMinConfidence(0.6f).build());
+        assertEquals(Collections.singletonList(detections.get(1)), engine.filter(detections, WIDTH, HEIGHT));
+    }
+}
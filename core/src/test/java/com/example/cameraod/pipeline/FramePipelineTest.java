@@ -0,0 +1,282 @@
+package com.example.cameraod.pipeline;
+
+import com.example.cameraod.metrics.LatencyHistogram;
+import com.example.cameraod.metrics.PipelineMetrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load tests for {@link FramePipeline} using a fake detector on the plain JVM.
+ */
+public class FramePipelineTest {
+
+    /**
+     * Detector giả lập: ngủ một khoảng thời gian cố định và trả về một vật thể.
+     */
+    private static final class FakeDetector implements Detector<Integer> {
+        final long latencyMillis;
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        FakeDetector(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public List<Detection> detect(Frame<Integer> frame) throws Exception {
+            int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(latencyMillis);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            Detection.Label label = new Detection.Label("Food", 0, 0.9f);
+            return Collections.singletonList(
+                    new Detection(0, 0, 10, 10, frame.getImage(), Collections.singletonList(label)));
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final ExecutorService detectExecutor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() {
+        detectExecutor.shutdownNow();
+    }
+
+    private FramePipeline<Integer, Integer> newPipeline(Detector<Integer> detector, int maxInFlight,
+                                                        FramePipeline.Listener listener) {
+        return new FramePipeline.Builder<Integer, Integer>()
+                .setPreprocessor(Frame::getImage, Runnable::run)
+                .setDetector(detector, detectExecutor)
+                .setFilter(new SmartFilter(0.3f), Runnable::run)
+                .setListener(listener, Runnable::run)
+                .setMaxInFlight(maxInFlight)
+                .build();
+    }
+
+    @Test
+    public void dropsFramesWhenAllSlotsAreBusy() throws Exception {
+        FakeDetector detector = new FakeDetector(200);
+        FramePipeline<Integer, Integer> pipeline = newPipeline(detector, 2, result -> { });
+
+        AtomicInteger released = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            pipeline.submit(new Frame<>(i, i, 640, 480, 0, released::incrementAndGet));
+        }
+
+        assertEquals(2, pipeline.getSubmittedCount());
+        assertEquals(3, pipeline.getDroppedCount());
+        // Frame bị bỏ phải được trả lại ngay
+        assertEquals(3, released.get());
+
+        waitForIdle(pipeline);
+        assertEquals(2, detector.maxConcurrent.get());
+        // Hai frame có thể hoàn thành không theo thứ tự: frame về sau bị tính là stale
+        assertEquals(2, pipeline.getPublishedCount() + pipeline.getStaleCount());
+        assertEquals(5, released.get());
+    }
+
+    @Test
+    public void throughputScalesWithFramesInFlight() throws Exception {
+        long serial = runLoad(1, 20, 20);
+        long parallel = runLoad(4, 20, 20);
+        // 4 frame song song phải nhanh hơn rõ rệt so với 1 frame
+        assertTrue("serial=" + serial + "ms parallel=" + parallel + "ms", parallel * 2 < serial);
+    }
+
+    private long runLoad(int maxInFlight, int frames, long latencyMillis) throws Exception {
+        FakeDetector detector = new FakeDetector(latencyMillis);
+        FramePipeline<Integer, Integer> pipeline = newPipeline(detector, maxInFlight, result -> { });
+
+        long start = System.nanoTime();
+        int sent = 0;
+        while (sent < frames) {
+            // Nguồn frame "chặn" giống STRATEGY_BLOCK_PRODUCER: chờ tới khi có slot trống
+            if (pipeline.getInFlightCount() < maxInFlight
+                    && pipeline.submit(new Frame<>(sent, sent, 640, 480, 0, null))) {
+                sent++;
+            } else {
+                Thread.sleep(1);
+            }
+        }
+        waitForIdle(pipeline);
+        // Kết quả về trễ hơn frame đã hiển thị được tính là stale, không mất
+        assertEquals(frames, pipeline.getPublishedCount() + pipeline.getStaleCount());
+        assertTrue(detector.maxConcurrent.get() <= maxInFlight);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    @Test
+    public void discardsResultsOlderThanLastPublished() throws Exception {
+        // Frame 0 chậm, frame 1 nhanh: kết quả của frame 0 đến sau và phải bị bỏ
+        Detector<Integer> detector = new Detector<Integer>() {
+            @Override
+            public List<Detection> detect(Frame<Integer> frame) throws Exception {
+                Thread.sleep(frame.getImage() == 0 ? 150 : 10);
+                return Collections.emptyList();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        List<Long> published = Collections.synchronizedList(new ArrayList<>());
+        FramePipeline<Integer, Integer> pipeline = newPipeline(detector, 2,
+                result -> published.add(result.getSequence()));
+
+        pipeline.submit(new Frame<>(0, 0, 640, 480, 0, null));
+        pipeline.submit(new Frame<>(1, 1, 640, 480, 0, null));
+        waitForIdle(pipeline);
+
+        assertEquals(Collections.singletonList(1L), published);
+        assertEquals(1, pipeline.getStaleCount());
+    }
+
+    @Test
+    public void reportsDetectorFailures() throws Exception {
+        Detector<Integer> detector = new Detector<Integer>() {
+            @Override
+            public List<Detection> detect(Frame<Integer> frame) {
+                throw new IllegalStateException("boom");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger released = new AtomicInteger();
+        FramePipeline<Integer, Integer> pipeline = newPipeline(detector, 1, new FramePipeline.Listener() {
+            @Override
+            public void onResult(DetectionResult result) {
+                fail("no result expected");
+            }
+
+            @Override
+            public void onFrameFailed(long sequence, Throwable error) {
+                assertTrue(error instanceof IllegalStateException);
+                failed.countDown();
+            }
+        });
+
+        pipeline.submit(new Frame<>(0, 0, 640, 480, 0, released::incrementAndGet));
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        waitForIdle(pipeline);
+        assertEquals(1, released.get());
+        assertEquals(1, pipeline.getFailedCount());
+    }
+
+    @Test
+    public void propagatesBoxesBetweenKeyframes() throws Exception {
+        FakeDetector detector = new FakeDetector(15);
+        List<DetectionResult> results = Collections.synchronizedList(new ArrayList<>());
+        FramePipeline<Integer, Integer> pipeline = new FramePipeline.Builder<Integer, Integer>()
+                .setPreprocessor(Frame::getImage, Runnable::run)
+                .setDetector(detector, detectExecutor)
+                .setFilter(new SmartFilter(0.3f), Runnable::run)
+                .setListener(results::add, Runnable::run)
+                .setKeyframeScheduler(new KeyframeScheduler(4, 0.1f))
+                .build();
+
+        // 40 frame, 33 ms/frame (đồng hồ giả), detector 15 ms, tải mục tiêu 10% -> khoảng keyframe bị chặn ở 4
+        AtomicInteger released = new AtomicInteger();
+        long frameNanos = 33_333_333L;
+        for (int i = 0; i < 40; i++) {
+            pipeline.submit(new Frame<>(i, (i + 1) * frameNanos, 640, 480, 0, released::incrementAndGet));
+            waitForIdle(pipeline);
+        }
+
+        assertEquals(4, pipeline.getKeyframeInterval());
+        assertEquals(40, pipeline.getSubmittedCount() + pipeline.getPropagatedCount());
+        assertTrue("keyframes=" + pipeline.getSubmittedCount(), pipeline.getSubmittedCount() <= 12);
+        assertEquals(0, pipeline.getDroppedCount());
+        assertEquals(40, released.get());
+        // Mỗi frame camera đều có kết quả, frame dự đoán mang hộp của keyframe trước
+        assertEquals(40, results.size());
+        for (DetectionResult result : results) {
+            assertEquals(1, result.getDetections().size());
+        }
+        assertTrue(results.get(0).isKeyframe());
+        assertFalse(results.get(1).isKeyframe());
+    }
+
+    @Test
+    public void recordsStageLatencies() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        FramePipeline<Integer, Integer> pipeline = new FramePipeline.Builder<Integer, Integer>()
+                .setPreprocessor(Frame::getImage, Runnable::run)
+                .setDetector(new FakeDetector(20), detectExecutor)
+                .setFilter(new SmartFilter(0.3f), Runnable::run)
+                .setListener(result -> { }, Runnable::run)
+                .setMetrics(metrics)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            pipeline.submit(new Frame<>(i, i, 640, 480, 0, null));
+            waitForIdle(pipeline);
+        }
+
+        LatencyHistogram.Snapshot detect = metrics.histogram(PipelineMetrics.Stage.DETECT).snapshot();
+        assertEquals(3, detect.getCount());
+        assertTrue(detect.getPercentileNanos(0.5) >= 20_000_000L);
+        assertEquals(3, metrics.histogram(PipelineMetrics.Stage.FILTER).snapshot().getCount());
+        assertEquals(3, metrics.histogram(PipelineMetrics.Stage.UI_HANDOFF).snapshot().getCount());
+    }
+
+    @Test
+    public void recordsLatencyOfTimedOutDetections() throws Exception {
+        PipelineMetrics metrics = new PipelineMetrics();
+        Detector<Integer> detector = new Detector<Integer>() {
+            @Override
+            public List<Detection> detect(Frame<Integer> frame) throws Exception {
+                Thread.sleep(20);
+                throw new TimeoutException("over budget");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        FramePipeline<Integer, Integer> pipeline = new FramePipeline.Builder<Integer, Integer>()
+                .setPreprocessor(Frame::getImage, Runnable::run)
+                .setDetector(detector, detectExecutor)
+                .setFilter(new SmartFilter(0.3f), Runnable::run)
+                .setListener(result -> { }, Runnable::run)
+                .setMetrics(metrics)
+                .build();
+
+        pipeline.submit(new Frame<>(0, 0, 640, 480, 0, null));
+        waitForIdle(pipeline);
+
+        assertEquals(1, pipeline.getFailedCount());
+        LatencyHistogram.Snapshot detect = metrics.histogram(PipelineMetrics.Stage.DETECT).snapshot();
+        assertEquals(1, detect.getCount());
+        assertTrue(detect.getPercentileNanos(0.5) >= 20_000_000L);
+    }
+
+    private static void waitForIdle(FramePipeline<?, ?> pipeline) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pipeline.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, pipeline.getInFlightCount());
+    }
+}
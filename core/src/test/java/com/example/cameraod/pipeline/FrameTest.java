@@ -0,0 +1,47 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameTest {
+
+    @Test
+    public void releaserRunsOnceAfterReleaseAndLastHold() {
+        int[] returned = new int[1];
+        Frame<Integer> frame = new Frame<>(0, 0, 640, 480, 0, () -> returned[0]++);
+        Runnable first = frame.retain();
+        Runnable second = frame.withImage("preprocessed").retain();
+
+        frame.release();
+        first.run();
+        first.run();
+        assertTrue(frame.isReleased());
+        assertEquals(0, returned[0]);
+
+        second.run();
+        frame.release();
+        assertEquals(1, returned[0]);
+    }
+
+    @Test
+    public void releasedSourceLeavesHoldsPinningOnlyAddedReleasers() {
+        int[] camera = new int[1];
+        int[] buffer = new int[1];
+        Frame<Integer> frame = new Frame<>(0, 0, 640, 480, 0, () -> camera[0]++);
+        frame.addReleaser(() -> buffer[0]++);
+
+        // Tiền xử lý đã sao chép xong: trả ảnh camera ngay, đúng một lần
+        frame.releaseSource();
+        frame.releaseSource();
+        assertEquals(1, camera[0]);
+
+        Runnable hold = frame.withImage("preprocessed").retain();
+        frame.release();
+        assertEquals(0, buffer[0]);
+
+        hold.run();
+        assertEquals(1, camera[0]);
+        assertEquals(1, buffer[0]);
+    }
+}
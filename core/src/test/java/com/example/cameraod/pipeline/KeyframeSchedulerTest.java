@@ -0,0 +1,87 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeyframeSchedulerTest {
+
+    private static final long FRAME_NANOS = 33_333_333L; // 30 fps
+
+    @Test
+    public void detectsEveryFrameUntilLatencyIsKnown() {
+        KeyframeScheduler scheduler = new KeyframeScheduler(6, 1f);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(scheduler.onFrame(i * FRAME_NANOS));
+            scheduler.onKeyframeStarted();
+        }
+        assertEquals(1, scheduler.currentInterval());
+    }
+
+    @Test
+    public void intervalFollowsDetectorLatency() {
+        KeyframeScheduler scheduler = new KeyframeScheduler(6, 1f);
+        scheduler.onFrame(FRAME_NANOS);
+        scheduler.onFrame(2 * FRAME_NANOS);
+
+        // 100 ms / 33 ms -> mỗi 4 frame một keyframe
+        scheduler.onDetectorLatency(100_000_000L);
+        assertEquals(4, scheduler.currentInterval());
+
+        // Detector chậm hơn nhiều: bị chặn bởi maxInterval
+        KeyframeScheduler capped = new KeyframeScheduler(6, 1f);
+        capped.onFrame(FRAME_NANOS);
+        capped.onFrame(2 * FRAME_NANOS);
+        capped.onDetectorLatency(1_000_000_000L);
+        assertEquals(6, capped.currentInterval());
+
+        // Detector nhanh: mọi frame
+        KeyframeScheduler fast = new KeyframeScheduler(6, 1f);
+        fast.onFrame(FRAME_NANOS);
+        fast.onFrame(2 * FRAME_NANOS);
+        fast.onDetectorLatency(10_000_000L);
+        assertEquals(1, fast.currentInterval());
+    }
+
+    @Test
+    public void targetLoadStretchesInterval() {
+        KeyframeScheduler scheduler = new KeyframeScheduler(10, 0.5f);
+        scheduler.onFrame(FRAME_NANOS);
+        scheduler.onFrame(2 * FRAME_NANOS);
+        scheduler.onDetectorLatency(45_000_000L);
+        // 45 / (33.3 * 0.5) = 2.7 -> 3
+        assertEquals(3, scheduler.currentInterval());
+    }
+
+    @Test
+    public void loweringTargetLoadLowersDetectionRate() {
+        KeyframeScheduler scheduler = new KeyframeScheduler(10, 0.5f);
+        scheduler.onFrame(FRAME_NANOS);
+        scheduler.onFrame(2 * FRAME_NANOS);
+        scheduler.onDetectorLatency(45_000_000L);
+        assertEquals(3, scheduler.currentInterval());
+        // 45 / (33.3 * 0.25) = 5.4 -> 6
+        scheduler.setTargetLoad(0.25f);
+        assertEquals(6, scheduler.currentInterval());
+    }
+
+    @Test
+    public void keyframeStaysDueUntilStarted() {
+        KeyframeScheduler scheduler = new KeyframeScheduler(6, 1f);
+        scheduler.onFrame(FRAME_NANOS);
+        scheduler.onKeyframeStarted();
+        scheduler.onDetectorLatency(60_000_000L); // interval 2
+
+        assertFalse(scheduler.onFrame(2 * FRAME_NANOS));
+        assertTrue(scheduler.onFrame(3 * FRAME_NANOS));
+        // Không còn slot: keyframe chưa bắt đầu nên frame sau vẫn đến hạn
+        assertTrue(scheduler.onFrame(4 * FRAME_NANOS));
+        scheduler.onKeyframeStarted();
+        assertFalse(scheduler.onFrame(5 * FRAME_NANOS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidTargetLoad() {
+        new KeyframeScheduler(4, 0f);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MotionPropagatorTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static Detection box(int left, int top, Integer id) {
+        return new Detection(left, top, left + 50, top + 40, id, Collections.<Detection.Label>emptyList());
+    }
+
+    @Test
+    public void firstKeyframeIsCarriedForwardUnchanged() {
+        MotionPropagator propagator = new MotionPropagator();
+        assertFalse(propagator.hasKeyframe());
+        propagator.onKeyframe(100 * MS, Collections.singletonList(box(10, 20, 1)));
+
+        assertTrue(propagator.hasKeyframe());
+        Detection predicted = propagator.predict(150 * MS).get(0);
+        assertEquals(10, predicted.getLeft());
+        assertEquals(20, predicted.getTop());
+        assertEquals(Integer.valueOf(1), predicted.getTrackingId());
+    }
+
+    @Test
+    public void extrapolatesTrackedBoxesAlongVelocity() {
+        MotionPropagator propagator = new MotionPropagator();
+        propagator.onKeyframe(0, Collections.singletonList(box(0, 0, 7)));
+        propagator.onKeyframe(100 * MS, Collections.singletonList(box(100, 50, 7)));
+        propagator.onKeyframe(200 * MS, Collections.singletonList(box(200, 100, 7)));
+
+        // Vận tốc hội tụ dần về 1 px/ms ngang, 0.5 px/ms dọc
+        Detection predicted = propagator.predict(240 * MS).get(0);
+        assertEquals(200 + 30, predicted.getLeft()); // v = 0.75 px/ms sau 2 mẫu làm mượt
+        assertEquals(100 + 15, predicted.getTop());
+        assertEquals(predicted.getLeft() + 50, predicted.getRight());
+    }
+
+    @Test
+    public void limitsExtrapolationHorizon() {
+        MotionPropagator propagator = new MotionPropagator(100 * MS);
+        propagator.onKeyframe(0, Collections.singletonList(box(0, 0, 1)));
+        propagator.onKeyframe(100 * MS, Collections.singletonList(box(100, 0, 1)));
+
+        // v = 0.5 px/ms, chỉ ngoại suy tối đa 100 ms
+        assertEquals(150, propagator.predict(10_000 * MS).get(0).getLeft());
+    }
+
+    @Test
+    public void dropsLostTracksAndIgnoresOutOfOrderKeyframes() {
+        MotionPropagator propagator = new MotionPropagator();
+        propagator.onKeyframe(100 * MS, Arrays.asList(box(0, 0, 1), box(100, 0, 2), box(300, 0, null)));
+        propagator.onKeyframe(200 * MS, Collections.singletonList(box(100, 0, 2)));
+        // Keyframe cũ hơn đến muộn: bỏ qua
+        propagator.onKeyframe(150 * MS, Collections.singletonList(box(0, 0, 1)));
+
+        List<Detection> predicted = propagator.predict(200 * MS);
+        assertEquals(1, predicted.size());
+        assertEquals(Integer.valueOf(2), predicted.get(0).getTrackingId());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RegionOfInterestTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static Detection box(int left, int top, int right, int bottom) {
+        return new Detection(left, top, right, bottom, 1, Collections.<Detection.Label>emptyList());
+    }
+
+    /**
+     * Bỏ qua lần chọn cả frame định kỳ đầu tiên.
+     */
+    private static CropRegion selectAfterRefresh(RegionOfInterest roi, long timestamp, int width, int height) {
+        assertTrue(roi.select(timestamp, width, height).isFull(width, height));
+        return roi.select(timestamp, width, height);
+    }
+
+    @Test
+    public void cropCoversRecentBoxesWithMargin() {
+        RegionOfInterest roi = new RegionOfInterest();
+        roi.onDetections(0, Collections.singletonList(box(200, 100, 300, 200)));
+        roi.onDetections(100 * MS, Collections.singletonList(box(260, 150, 340, 230)));
+
+        CropRegion crop = selectAfterRefresh(roi, 120 * MS, 1280, 720);
+        // Hợp = (200,100)-(340,230), lề = max(32, 25%)
+        assertEquals(new CropRegion(200 - 35, 100 - 32, 340 + 35, 230 + 32), crop);
+    }
+
+    @Test
+    public void fallsBackToFullFrame() {
+        RegionOfInterest roi = new RegionOfInterest();
+        // Chưa có hộp nào
+        assertTrue(selectAfterRefresh(roi, 0, 640, 480).isFull(640, 480));
+
+        // Hộp quá cũ
+        roi.onDetections(0, Collections.singletonList(box(10, 10, 50, 50)));
+        assertTrue(roi.select(RegionOfInterest.HISTORY_NANOS + MS, 640, 480).isFull(640, 480));
+
+        // Vùng chiếm phần lớn frame
+        roi.onDetections(MS, Collections.singletonList(box(20, 20, 600, 460)));
+        assertTrue(roi.select(2 * MS, 640, 480).isFull(640, 480));
+
+        // Tắt chế độ ROI
+        RegionOfInterest disabled = new RegionOfInterest();
+        disabled.setEnabled(false);
+        disabled.onDetections(0, Collections.singletonList(box(10, 10, 50, 50)));
+        disabled.select(0, 640, 480);
+        assertTrue(disabled.select(0, 640, 480).isFull(640, 480));
+    }
+
+    @Test
+    public void periodicallyAnalysesFullFrame() {
+        RegionOfInterest roi = new RegionOfInterest();
+        int full = 0;
+        for (int i = 0; i < 4 * RegionOfInterest.FULL_FRAME_INTERVAL; i++) {
+            roi.onDetections(i * MS, Collections.singletonList(box(100, 100, 160, 160)));
+            if (roi.select(i * MS, 1280, 720).isFull(1280, 720)) {
+                full++;
+            }
+        }
+        assertEquals(4, full);
+    }
+
+    @Test
+    public void keepsCropWhileRegionStaysInside() {
+        RegionOfInterest roi = new RegionOfInterest();
+        roi.onDetections(0, Collections.singletonList(box(400, 300, 500, 400)));
+        CropRegion first = selectAfterRefresh(roi, 0, 1280, 720);
+
+        // Vật thể dịch nhẹ: vùng cũ vẫn bao được, không đổi kích thước ảnh đầu vào
+        roi.onDetections(400 * MS, Collections.singletonList(box(405, 302, 505, 402)));
+        assertSame(first, roi.select(MS * 600, 1280, 720));
+    }
+
+    @Test
+    public void cropRegionRotationRoundTrips() {
+        CropRegion upright = new CropRegion(10, 20, 110, 70);
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            int sensorWidth = 640;
+            int sensorHeight = 480;
+            CropRegion sensor = upright.uprightToSensor(rotation, sensorWidth, sensorHeight);
+            assertEquals(upright, sensor.sensorToUpright(rotation, sensorWidth, sensorHeight));
+            assertEquals(rotation % 180 == 0 ? 100 : 50, sensor.width());
+        }
+        // Xoay 90°: cạnh trên của ảnh thẳng đứng là cạnh trái của buffer cảm biến
+        assertEquals(new CropRegion(20, 480 - 110, 70, 480 - 10), upright.uprightToSensor(90, 640, 480));
+    }
+
+    @Test
+    public void alignEvenGrowsAndClamps() {
+        assertEquals(new CropRegion(2, 4, 12, 10), new CropRegion(3, 5, 11, 9).alignEven(640, 480));
+        assertEquals(new CropRegion(0, 0, 640, 480), new CropRegion(-5, -1, 700, 481).alignEven(640, 480));
+    }
+
+    @Test
+    public void roiDetectorMapsDetectionsBackToFullFrame() throws Exception {
+        Detector<String> delegate = new Detector<String>() {
+            @Override
+            public List<Detection> detect(Frame<String> frame) {
+                assertEquals("crop", frame.getImage());
+                return Arrays.asList(box(0, 0, 10, 10), box(5, 6, 25, 36));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        RegionOfInterest roi = new RegionOfInterest();
+        RoiDetector<String> detector = new RoiDetector<>(delegate, roi);
+
+        CropRegion crop = new CropRegion(100, 50, 300, 250);
+        List<Detection> mapped = detector.detect(
+                new Frame<>(new RegionImage<>("crop", crop), 0, 640, 480, 0, null));
+
+        assertEquals(100, mapped.get(0).getLeft());
+        assertEquals(50, mapped.get(0).getTop());
+        assertEquals(125, mapped.get(1).getRight());
+        assertEquals(86, mapped.get(1).getBottom());
+
+        // Kết quả đã quy đổi được dùng cho lần chọn vùng tiếp theo
+        CropRegion next = selectAfterRefresh(roi, 0, 640, 480);
+        assertTrue(next.getLeft() <= 100 && next.getRight() >= 125);
+    }
+
+    @Test
+    public void roiDetectorScalesEachAxisSeparately() throws Exception {
+        Detector<String> delegate = new Detector<String>() {
+            @Override
+            public List<Detection> detect(Frame<String> frame) {
+                return Arrays.asList(box(0, 0, 100, 50));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        RoiDetector<String> detector = new RoiDetector<>(delegate, new RegionOfInterest());
+
+        // Vùng 300x200 thu nhỏ về 100x50 (làm tròn khác nhau theo từng trục)
+        CropRegion crop = new CropRegion(20, 10, 320, 210);
+        List<Detection> mapped = detector.detect(
+                new Frame<>(new RegionImage<>("crop", crop, 100, 50), 0, 640, 480, 0, null));
+
+        assertEquals(new CropRegion(20, 10, 320, 210), new CropRegion(mapped.get(0).getLeft(),
+                mapped.get(0).getTop(), mapped.get(0).getRight(), mapped.get(0).getBottom()));
+    }
+}
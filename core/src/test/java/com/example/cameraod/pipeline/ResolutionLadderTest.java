@@ -0,0 +1,65 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResolutionLadderTest {
+
+    private static List<Detection> objectOfSize(int size) {
+        return Collections.singletonList(
+                new Detection(0, 0, size, size, 1, Collections.<Detection.Label>emptyList()));
+    }
+
+    @Test
+    public void stepsUpImmediatelyForSmallObjects() {
+        ResolutionLadder ladder = new ResolutionLadder(ResolutionLadder.Rung.P320);
+        // Vật thể 10% cạnh ngắn: 32 px ở 320p, 48 px ở 480p
+        assertTrue(ladder.onResult(objectOfSize(72), 1280, 720));
+        assertEquals(ResolutionLadder.Rung.P480, ladder.getRung());
+
+        // Rất nhỏ: lên thẳng nấc cao nhất
+        assertTrue(ladder.onResult(objectOfSize(20), 1280, 720));
+        assertEquals(ResolutionLadder.Rung.P720, ladder.getRung());
+    }
+
+    @Test
+    public void stepsDownOneRungAfterSustainedLargeObjects() {
+        ResolutionLadder ladder = new ResolutionLadder(ResolutionLadder.Rung.P720);
+        for (int i = 1; i < ResolutionLadder.STEP_DOWN_RESULTS; i++) {
+            assertFalse(ladder.onResult(objectOfSize(400), 1280, 720));
+        }
+        assertTrue(ladder.onResult(objectOfSize(400), 1280, 720));
+        assertEquals(ResolutionLadder.Rung.P480, ladder.getRung());
+    }
+
+    @Test
+    public void emptyResultsResetStepDown() {
+        ResolutionLadder ladder = new ResolutionLadder(ResolutionLadder.Rung.P720);
+        for (int i = 1; i < ResolutionLadder.STEP_DOWN_RESULTS; i++) {
+            ladder.onResult(objectOfSize(400), 1280, 720);
+        }
+        assertFalse(ladder.onResult(Collections.<Detection>emptyList(), 1280, 720));
+        assertFalse(ladder.onResult(objectOfSize(400), 1280, 720));
+        assertEquals(ResolutionLadder.Rung.P720, ladder.getRung());
+    }
+
+    @Test
+    public void maxRungCapsRecommendation() {
+        ResolutionLadder ladder = new ResolutionLadder(ResolutionLadder.Rung.P720);
+        assertTrue(ladder.setMaxRung(ResolutionLadder.Rung.P320));
+        assertEquals(ResolutionLadder.Rung.P320, ladder.getRung());
+
+        // Vật thể nhỏ không vượt được giới hạn
+        assertFalse(ladder.onResult(objectOfSize(20), 1280, 720));
+        assertEquals(ResolutionLadder.Rung.P320, ladder.getRung());
+
+        // Bỏ giới hạn: nấc chỉ tăng lại theo kết quả tiếp theo
+        assertFalse(ladder.setMaxRung(ResolutionLadder.Rung.P720));
+        assertTrue(ladder.onResult(objectOfSize(20), 1280, 720));
+        assertEquals(ResolutionLadder.Rung.P720, ladder.getRung());
+    }
+}
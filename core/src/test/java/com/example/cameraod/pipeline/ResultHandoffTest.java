@@ -0,0 +1,95 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ResultHandoffTest {
+
+    private static DetectionResult result(long sequence, boolean keyframe, Detection... detections) {
+        return new DetectionResult(sequence, sequence * 1000, 640, 480, 90, Arrays.asList(detections), keyframe);
+    }
+
+    @Test
+    public void copiesResultIntoSnapshot() {
+        ResultHandoff handoff = new ResultHandoff(2);
+        handoff.onResult(result(5, true,
+                new Detection(1, 2, 3, 4, 9, Collections.singletonList(new Detection.Label("Food", 2, 0.7f))),
+                new Detection(5, 6, 7, 8, null, null),
+                new Detection(0, 0, 1, 1, null, null)));
+
+        DetectionSnapshot snapshot = handoff.poll();
+        assertNotNull(snapshot);
+        assertEquals(5, snapshot.getSequence());
+        assertEquals(5000, snapshot.getTimestampNanos());
+        assertEquals(90, snapshot.getRotationDegrees());
+        assertTrue(snapshot.isKeyframe());
+        assertEquals(2, snapshot.size());
+        assertEquals(1, snapshot.getTruncatedCount());
+        assertEquals(3, snapshot.getRight(0));
+        assertEquals(9, snapshot.getTrackingId(0));
+        assertEquals("Food", snapshot.getLabelText(0));
+        assertEquals(2, snapshot.getLabelIndex(0));
+        assertEquals(0.7f, snapshot.getConfidence(0), 0f);
+        assertEquals(DetectionSnapshot.NO_TRACKING_ID, snapshot.getTrackingId(1));
+        assertEquals(DetectionSnapshot.NO_LABEL, snapshot.getLabelIndex(1));
+        assertNull(snapshot.getLabelText(1));
+        assertNull(handoff.poll());
+    }
+
+    @Test
+    public void dropsStaleSnapshotsButKeepsUnreadKeyframe() {
+        ResultHandoff handoff = new ResultHandoff();
+        handoff.onResult(result(1, false));
+        handoff.onResult(result(2, true));  // Thay frame 1
+        handoff.onResult(result(3, false)); // Keyframe 2 chưa được đọc: bỏ frame 3
+        assertEquals(2, handoff.getDroppedCount());
+        assertEquals(2, handoff.poll().getSequence());
+
+        handoff.onResult(result(4, false));
+        handoff.onResult(result(5, true));
+        assertEquals(5, handoff.poll().getSequence());
+        assertEquals(3, handoff.getDroppedCount());
+        assertEquals(4, handoff.getPublishedCount());
+    }
+
+    @Test
+    public void wakesConsumerOnlyWhenIdle() {
+        ResultHandoff handoff = new ResultHandoff();
+        AtomicInteger wakeUps = new AtomicInteger();
+        handoff.setWakeUp(wakeUps::incrementAndGet);
+
+        handoff.onResult(result(1, true));
+        handoff.onResult(result(2, true));
+        assertEquals(1, wakeUps.get());
+
+        // Luồng đọc còn đang chạy (đã poll nhưng chưa nghỉ): không đánh thức thêm
+        handoff.poll();
+        handoff.onResult(result(3, true));
+        assertEquals(1, wakeUps.get());
+
+        // Nghỉ khi vẫn còn snapshot chưa đọc: tự nhận lại thay vì chờ đánh thức
+        assertTrue(handoff.onConsumerIdle());
+        assertEquals(3, handoff.poll().getSequence());
+        assertFalse(handoff.onConsumerIdle());
+        handoff.onResult(result(4, true));
+        assertEquals(2, wakeUps.get());
+    }
+
+    @Test
+    public void clearsLabelReferencesOfOlderFrames() {
+        DetectionSnapshot snapshot = new DetectionSnapshot(4);
+        List<Detection.Label> labels = Collections.singletonList(new Detection.Label("Place", 3, 0.9f));
+        snapshot.set(result(1, true, new Detection(0, 0, 1, 1, null, labels),
+                new Detection(0, 0, 1, 1, null, labels)));
+        snapshot.set(result(2, true, new Detection(0, 0, 1, 1, null, null)));
+        assertEquals(1, snapshot.size());
+        assertNull(snapshot.getLabelText(0));
+        assertNull(snapshot.getLabelText(1));
+    }
+}
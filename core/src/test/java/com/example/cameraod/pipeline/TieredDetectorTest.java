@@ -0,0 +1,168 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TieredDetectorTest {
+
+    private static final long MS = 1_000_000L;
+
+    /**
+     * Detector giả lập trả danh sách hộp đặt trước; có thể bị chặn cho tới khi mở chốt.
+     */
+    private static final class FakeDetector implements Detector<Integer> {
+        volatile List<Detection> result = Collections.emptyList();
+        final AtomicInteger calls = new AtomicInteger();
+        volatile CountDownLatch gate;
+
+        @Override
+        public List<Detection> detect(Frame<Integer> frame) throws Exception {
+            calls.incrementAndGet();
+            CountDownLatch latch = gate;
+            if (latch != null) {
+                latch.await();
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private final FakeDetector fast = new FakeDetector();
+    private final FakeDetector classifier = new FakeDetector();
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static Detection box(int left, Integer id, String label, float confidence) {
+        List<Detection.Label> labels = label == null ? Collections.<Detection.Label>emptyList()
+                : Collections.singletonList(new Detection.Label(label, 1, confidence));
+        return new Detection(left, 0, left + 100, 100, id, labels);
+    }
+
+    private static Frame<Integer> frameAt(long millis, Runnable releaser) {
+        return new Frame<>(0, millis * MS, 640, 480, 0, releaser);
+    }
+
+    private static List<Detection> boxes(Detection... detections) {
+        List<Detection> list = new ArrayList<>();
+        Collections.addAll(list, detections);
+        return list;
+    }
+
+    @Test
+    public void carriesCachedLabelsBetweenClassifications() throws Exception {
+        TieredDetector<Integer> detector = new TieredDetector.Builder<Integer>(fast, classifier, Runnable::run)
+                .setClassifyInterval(500, TimeUnit.MILLISECONDS)
+                .build();
+        fast.result = boxes(box(0, 7, null, 0f));
+        // Model phân loại có tracking ID riêng và hộp lệch một chút
+        classifier.result = boxes(box(4, 99, "Food", 0.8f));
+
+        List<Detection> first = detector.detect(frameAt(0, null));
+        assertEquals("Food", first.get(0).getLabels().get(0).getText());
+        assertEquals(Integer.valueOf(7), first.get(0).getTrackingId());
+        assertEquals(0, first.get(0).getLeft());
+
+        for (long t = 33; t < 500; t += 33) {
+            List<Detection> between = detector.detect(frameAt(t, null));
+            assertEquals("Food", between.get(0).getLabels().get(0).getText());
+        }
+        assertEquals(1, classifier.calls.get());
+
+        detector.detect(frameAt(528, null));
+        assertEquals(2, classifier.calls.get());
+        assertEquals(2, detector.getClassificationCount());
+    }
+
+    @Test
+    public void newTrackTriggersClassificationOnTheNextFrame() throws Exception {
+        TieredDetector<Integer> detector = new TieredDetector.Builder<Integer>(fast, classifier, Runnable::run)
+                .setClassifyInterval(1, TimeUnit.SECONDS)
+                .build();
+        fast.result = boxes(box(0, 1, null, 0f));
+        classifier.result = boxes(box(0, 50, "Food", 0.8f));
+        detector.detect(frameAt(0, null));
+
+        fast.result = boxes(box(0, 1, null, 0f), box(300, 2, null, 0f));
+        List<Detection> appeared = detector.detect(frameAt(33, null));
+        assertTrue(appeared.get(1).getLabels().isEmpty());
+        assertEquals(1, classifier.calls.get());
+
+        classifier.result = boxes(box(0, 50, "Food", 0.8f), box(302, 51, "Plant", 0.7f));
+        List<Detection> next = detector.detect(frameAt(66, null));
+        assertEquals(2, classifier.calls.get());
+        assertEquals("Plant", next.get(1).getLabels().get(0).getText());
+
+        // Track đã phân loại (dù không có nhãn) không kích hoạt lại
+        detector.detect(frameAt(99, null));
+        assertEquals(2, classifier.calls.get());
+    }
+
+    @Test
+    public void classificationRunsInTheBackgroundAndHoldsTheFrame() throws Exception {
+        TieredDetector<Integer> detector = new TieredDetector.Builder<Integer>(fast, classifier, pool).build();
+        fast.result = boxes(box(0, 1, null, 0f));
+        classifier.result = boxes(box(0, 50, "Food", 0.8f));
+        CountDownLatch gate = new CountDownLatch(1);
+        classifier.gate = gate;
+
+        AtomicInteger returned = new AtomicInteger();
+        Frame<Integer> frame = frameAt(0, returned::incrementAndGet);
+        List<Detection> result = detector.detect(frame);
+        // Frame không chờ model phân loại
+        assertTrue(result.get(0).getLabels().isEmpty());
+        frame.release();
+        assertEquals(0, returned.get());
+
+        // Chỉ một lần phân loại tại một thời điểm
+        detector.detect(frameAt(33, null));
+        assertEquals(1, classifier.calls.get());
+
+        gate.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        // Lượt giữ kết thúc sau khi kết quả phân loại được ghi nhận
+        while (returned.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, returned.get());
+        assertEquals(1, detector.getClassificationCount());
+        assertEquals("Food", detector.detect(frameAt(66, null)).get(0).getLabels().get(0).getText());
+    }
+
+    @Test
+    public void backgroundClassificationDoesNotHoldTheCameraImage() throws Exception {
+        TieredDetector<Integer> detector = new TieredDetector.Builder<Integer>(fast, classifier, pool).build();
+        fast.result = boxes(box(0, 1, null, 0f));
+        classifier.result = boxes(box(0, 50, "Food", 0.8f));
+        CountDownLatch gate = new CountDownLatch(1);
+        classifier.gate = gate;
+
+        AtomicInteger cameraReturned = new AtomicInteger();
+        Frame<Integer> source = frameAt(0, cameraReturned::incrementAndGet);
+        source.releaseSource();
+
+        detector.detect(source.withImage(1));
+        source.release();
+        // Ảnh camera đã được trả trong khi model phân loại vẫn đang chạy trên ảnh tiền xử lý
+        assertEquals(0, detector.getClassificationCount());
+        assertEquals(1, cameraReturned.get());
+        gate.countDown();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TrackLabelCacheTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static List<Detection.Label> label(String text, int index, float confidence) {
+        return Collections.singletonList(new Detection.Label(text, index, confidence));
+    }
+
+    @Test
+    public void confidenceWeightedVoteResistsOneNoisyClassification() {
+        TrackLabelCache cache = new TrackLabelCache(2_000 * MS, 16, 0.7f);
+        for (int i = 0; i < 3; i++) {
+            cache.onClassified(1, label("Food", 1, 0.8f), i * 100 * MS);
+        }
+        // Một lần phân loại sai với độ tin cậy thấp hơn không đổi nhãn
+        cache.onClassified(1, label("Plant", 4, 0.6f), 300 * MS);
+        assertEquals("Food", cache.labelsFor(1, 300 * MS).get(0).getText());
+
+        // Nhãn mới được xác nhận nhiều lần thì thắng
+        cache.onClassified(1, label("Plant", 4, 0.6f), 400 * MS);
+        cache.onClassified(1, label("Plant", 4, 0.6f), 500 * MS);
+        Detection.Label winner = cache.labelsFor(1, 500 * MS).get(0);
+        assertEquals("Plant", winner.getText());
+        assertEquals(4, winner.getIndex());
+        assertEquals(0.6f, winner.getConfidence(), 1e-4f);
+    }
+
+    @Test
+    public void lookupReusesTheCachedList() {
+        TrackLabelCache cache = new TrackLabelCache(2_000 * MS, 16, 0.7f);
+        cache.onClassified(1, Arrays.asList(new Detection.Label("Food", 1, 0.8f),
+                new Detection.Label("Plant", 4, 0.1f)), 0);
+        List<Detection.Label> first = cache.labelsFor(1, 10 * MS);
+        assertSame(first, cache.labelsFor(1, 20 * MS));
+        assertEquals(1, first.size());
+        assertEquals(2, cache.getHitCount());
+
+        // Đã phân loại nhưng không có nhãn: có trong cache, không có nhãn
+        cache.onClassified(2, Collections.<Detection.Label>emptyList(), 0);
+        assertTrue(cache.contains(2));
+        assertNull(cache.labelsFor(2, 20 * MS));
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsTracksNotSeenForTheTtl() {
+        TrackLabelCache cache = new TrackLabelCache(1_000 * MS, 16, 0.7f);
+        cache.onClassified(1, label("Food", 1, 0.8f), 0);
+        cache.onClassified(2, label("Plant", 4, 0.8f), 0);
+        // Track 1 vẫn được model nhanh nhìn thấy
+        assertNotNull(cache.labelsFor(1, 800 * MS));
+
+        assertEquals(1, cache.evictExpired(1_500 * MS));
+        assertTrue(cache.contains(1));
+        assertFalse(cache.contains(2));
+    }
+
+    @Test
+    public void fullTableEvictsLeastRecentlySeenTrack() {
+        TrackLabelCache cache = new TrackLabelCache(10_000 * MS, 2, 0.7f);
+        cache.onClassified(1, label("Food", 1, 0.8f), 0);
+        cache.onClassified(2, label("Plant", 4, 0.8f), 10 * MS);
+        cache.labelsFor(1, 20 * MS);
+
+        cache.onClassified(3, label("Place", 3, 0.8f), 30 * MS);
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.contains(2));
+        assertEquals(1, cache.getEvictionCount());
+    }
+}
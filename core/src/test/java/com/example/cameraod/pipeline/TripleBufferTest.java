@@ -0,0 +1,82 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TripleBufferTest {
+
+    @Test
+    public void consumerGetsNewestAndDropsUnread() {
+        TripleBuffer<long[]> buffer = new TripleBuffer<>(() -> new long[1]);
+        assertFalse(buffer.update());
+
+        buffer.back()[0] = 1;
+        assertFalse(buffer.publish());
+        buffer.back()[0] = 2;
+        assertTrue(buffer.publish()); // 1 chưa được đọc: bị bỏ
+
+        assertTrue(buffer.update());
+        assertEquals(2, buffer.front()[0]);
+        assertFalse(buffer.update());
+        assertEquals(2, buffer.front()[0]);
+
+        buffer.back()[0] = 3;
+        assertFalse(buffer.publish());
+        assertTrue(buffer.hasUpdate());
+        assertTrue(buffer.update());
+        assertEquals(3, buffer.front()[0]);
+    }
+
+    @Test
+    public void buffersAreNeverShared() {
+        TripleBuffer<long[]> buffer = new TripleBuffer<>(() -> new long[1]);
+        for (int i = 0; i < 100; i++) {
+            assertNotSame(buffer.back(), buffer.front());
+            buffer.publish();
+            if (i % 3 == 0) {
+                buffer.update();
+            }
+        }
+    }
+
+    @Test
+    public void consumerSeesCompleteSnapshotsInOrder() throws Exception {
+        // Mỗi buffer chứa 4 bản sao của cùng một số: luồng đọc không được thấy buffer viết dở
+        TripleBuffer<long[]> buffer = new TripleBuffer<>(() -> new long[4]);
+        final long count = 200_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            for (long value = 1; value <= count; value++) {
+                long[] back = buffer.back();
+                for (int i = 0; i < back.length; i++) {
+                    back[i] = value;
+                }
+                buffer.publish();
+            }
+        });
+        producer.start();
+        long last = 0;
+        while (last < count) {
+            if (!buffer.update()) {
+                if (!producer.isAlive() && !buffer.hasUpdate()) {
+                    break;
+                }
+                continue;
+            }
+            long[] front = buffer.front();
+            for (long value : front) {
+                if (value != front[0]) {
+                    failure.set(new AssertionError("torn snapshot"));
+                }
+            }
+            assertTrue(front[0] > last);
+            last = front[0];
+        }
+        producer.join();
+        assertNull(failure.get());
+        assertEquals(count, last);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.cameraod.pipeline;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvCropperTest {
+
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+
+    /**
+     * Ảnh YUV_420_888 giả: giá trị pixel mã hóa tọa độ, có padding cuối hàng.
+     */
+    private static ByteBuffer plane(int width, int height, int rowStride, int pixelStride, int base) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rowStride * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.put(y * rowStride + x * pixelStride, (byte) (base + y * width + x));
+            }
+        }
+        return buffer;
+    }
+
+    @Test
+    public void cropsPlanarAndSemiPlanarLayouts() {
+        CropRegion crop = new CropRegion(4, 2, 10, 6);
+        for (int uvPixelStride : new int[]{1, 2}) {
+            int yRowStride = WIDTH + 4;
+            int uvRowStride = (WIDTH / 2) * uvPixelStride + 2;
+            ByteBuffer y = plane(WIDTH, HEIGHT, yRowStride, 1, 0);
+            ByteBuffer u = plane(WIDTH / 2, HEIGHT / 2, uvRowStride, uvPixelStride, 100);
+            ByteBuffer v = plane(WIDTH / 2, HEIGHT / 2, uvRowStride, uvPixelStride, 150);
+
+            byte[] out = new byte[YuvCropper.nv21Size(crop.width(), crop.height())];
+            YuvCropper.cropToNv21(y, yRowStride, 1, u, v, uvRowStride, uvPixelStride, crop, out);
+
+            // Y
+            assertEquals(2 * WIDTH + 4, out[0]);
+            assertEquals(5 * WIDTH + 9, out[crop.width() * crop.height() - 1]);
+            // V/U xen kẽ, bắt đầu tại ô màu (2, 1)
+            int chroma = crop.width() * crop.height();
+            assertEquals((byte) (150 + WIDTH / 2 + 2), out[chroma]);
+            assertEquals((byte) (100 + WIDTH / 2 + 2), out[chroma + 1]);
+            assertEquals((byte) (100 + 2 * (WIDTH / 2) + 4), out[out.length - 1]);
+            // Vị trí đọc của buffer gốc không bị thay đổi
+            assertEquals(0, y.position());
+        }
+    }
+
+    @Test
+    public void writesIntoByteBufferAtItsPosition() {
+        CropRegion crop = new CropRegion(2, 2, 12, 8);
+        int uvRowStride = WIDTH + 2;
+        ByteBuffer y = plane(WIDTH, HEIGHT, WIDTH, 1, 0);
+        ByteBuffer u = plane(WIDTH / 2, HEIGHT / 2, uvRowStride, 2, 100);
+        ByteBuffer v = plane(WIDTH / 2, HEIGHT / 2, uvRowStride, 2, 150);
+        int size = YuvCropper.nv21Size(crop.width(), crop.height());
+        byte[] expected = new byte[size];
+        YuvCropper.cropToNv21(y, WIDTH, 1, u, v, uvRowStride, 2, crop, expected);
+
+        ByteBuffer out = ByteBuffer.allocateDirect(size + 8);
+        out.position(8);
+        YuvCropper.cropToNv21(y, WIDTH, 1, u, v, uvRowStride, 2, crop, out);
+
+        assertEquals(size + 8, out.position());
+        for (int i = 0; i < size; i++) {
+            assertEquals(expected[i], out.get(8 + i));
+        }
+    }
+
+    @Test
+    public void downscalesByNearestSample() {
+        ByteBuffer y = plane(WIDTH, HEIGHT, WIDTH, 1, 0);
+        ByteBuffer u = plane(WIDTH / 2, HEIGHT / 2, WIDTH, 2, 100);
+        ByteBuffer v = plane(WIDTH / 2, HEIGHT / 2, WIDTH, 2, 150);
+        CropRegion full = CropRegion.full(WIDTH, HEIGHT);
+        ByteBuffer out = ByteBuffer.allocate(YuvCropper.nv21Size(WIDTH / 2, HEIGHT / 2));
+
+        YuvCropper.scaleToNv21(y, WIDTH, 1, u, v, WIDTH, 2, full, WIDTH / 2, HEIGHT / 2, out);
+
+        assertFalse(out.hasRemaining());
+        // Thu nhỏ 1/2: pixel đích (c, r) lấy pixel nguồn (2c + 1, 2r + 1)
+        assertEquals(WIDTH + 1, out.get(0));
+        assertEquals(WIDTH + 3, out.get(1));
+        assertEquals((byte) (3 * WIDTH + 1), out.get(WIDTH / 2));
+        // Màu: ô (0, 0) của lưới 4x2 lấy ô nguồn (1, 1)
+        int chroma = (WIDTH / 2) * (HEIGHT / 2);
+        assertEquals((byte) (150 + WIDTH / 2 + 1), out.get(chroma));
+        assertEquals((byte) (100 + WIDTH / 2 + 1), out.get(chroma + 1));
+
+        // Cùng kích thước: giống hệt cắt thường
+        ByteBuffer same = ByteBuffer.allocate(YuvCropper.nv21Size(WIDTH, HEIGHT));
+        byte[] cropped = new byte[same.capacity()];
+        YuvCropper.scaleToNv21(y, WIDTH, 1, u, v, WIDTH, 2, full, WIDTH, HEIGHT, same);
+        YuvCropper.cropToNv21(y, WIDTH, 1, u, v, WIDTH, 2, full, cropped);
+        assertArrayEquals(cropped, same.array());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSmallOutput() {
+        ByteBuffer plane = ByteBuffer.allocate(WIDTH * HEIGHT);
+        YuvCropper.cropToNv21(plane, WIDTH, 1, plane, plane, WIDTH, 1,
+                new CropRegion(0, 0, 4, 4), new byte[10]);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.cameraod.quality;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QualityGovernorTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long DRAW_PERIOD = 16 * MS;     // Overlay 60 Hz
+    private static final long DETECT_PERIOD = 100 * MS;  // Detector 10 Hz
+
+    private long now = 0;
+    private final List<QualityGovernor.Level> changes = new ArrayList<>();
+
+    private QualityGovernor newGovernor() {
+        return new QualityGovernor.Builder()
+                .setDetectorBudget(80, TimeUnit.MILLISECONDS)
+                .setDrawBudget(8, TimeUnit.MILLISECONDS)
+                .setStepDownDelay(1, TimeUnit.SECONDS)
+                .setStepUpDelay(5, 20, TimeUnit.SECONDS)
+                .setClock(() -> now)
+                .setListener(changes::add)
+                .build();
+    }
+
+    /**
+     * Phát lại một đoạn vết độ trễ trong {@code durationMs}: vẽ mỗi 16 ms, detector mỗi 100 ms.
+     */
+    private void play(QualityGovernor governor, long durationMs, long detectorMs, long drawMs) {
+        long end = now + durationMs * MS;
+        long nextDetect = now;
+        while (now < end) {
+            governor.onDrawLatency(drawMs * MS);
+            if (now >= nextDetect) {
+                governor.onDetectorLatency(detectorMs * MS);
+                nextDetect += DETECT_PERIOD;
+            }
+            now += DRAW_PERIOD;
+        }
+    }
+
+    @Test
+    public void stepsDownInOrderWhileOverBudget() {
+        QualityGovernor governor = newGovernor();
+        play(governor, 800, 150, 4);
+        // Quá tải chưa đủ lâu
+        assertEquals(QualityGovernor.Level.FULL, governor.getLevel());
+
+        play(governor, 10_000, 150, 4);
+
+        assertEquals(QualityGovernor.Level.REDUCED_RATE, governor.getLevel());
+        assertEquals(4, governor.getStepDownCount());
+        assertEquals(Arrays.asList(QualityGovernor.Level.NO_GLOW,
+                QualityGovernor.Level.NO_CORNER_ACCENTS, QualityGovernor.Level.REDUCED_RESOLUTION,
+                QualityGovernor.Level.REDUCED_RATE), changes);
+        assertFalse(governor.getLevel().isGlowEnabled());
+        assertTrue(governor.getLevel().isResolutionReduced());
+    }
+
+    @Test
+    public void holdsLevelInsideHysteresisBandAndStepsUpAfterSustainedHeadroom() {
+        QualityGovernor governor = newGovernor();
+        play(governor, 2_500, 40, 12);
+        assertEquals(QualityGovernor.Level.NO_CORNER_ACCENTS, governor.getLevel());
+
+        // 7 ms / 8 ms: dưới ngân sách nhưng không đủ dư địa
+        play(governor, 30_000, 40, 7);
+        assertEquals(QualityGovernor.Level.NO_CORNER_ACCENTS, governor.getLevel());
+
+        // Dư địa nhưng chưa đủ lâu
+        play(governor, 4_000, 40, 3);
+        assertEquals(QualityGovernor.Level.NO_CORNER_ACCENTS, governor.getLevel());
+        play(governor, 1_500, 40, 3);
+        assertEquals(QualityGovernor.Level.NO_GLOW, governor.getLevel());
+        play(governor, 6_000, 40, 3);
+        assertEquals(QualityGovernor.Level.FULL, governor.getLevel());
+        assertEquals(2, governor.getStepUpCount());
+    }
+
+    @Test
+    public void revertedStepUpBacksOffTheNextProbe() {
+        QualityGovernor governor = newGovernor();
+        // Thiết bị ở mép ngân sách: có glow thì quá tải, không glow thì dư địa
+        long base = 5 * TimeUnit.SECONDS.toNanos(1);
+        for (int round = 0; round < 3; round++) {
+            long deadline = now + 60_000 * MS;
+            while (governor.getLevel() == QualityGovernor.Level.FULL && now < deadline) {
+                play(governor, 100, 40, 10);
+            }
+            assertEquals(QualityGovernor.Level.NO_GLOW, governor.getLevel());
+            long delay = governor.getStepUpDelayNanos();
+            assertEquals(round == 0 ? base : Math.min(base << round, 20_000 * MS), delay);
+
+            long dropped = now;
+            while (governor.getLevel() == QualityGovernor.Level.NO_GLOW && now < deadline) {
+                play(governor, 100, 40, 3);
+            }
+            assertEquals(QualityGovernor.Level.FULL, governor.getLevel());
+            assertTrue(now - dropped >= delay);
+        }
+        assertEquals(3, governor.getStepDownCount());
+    }
+
+    @Test
+    public void loadSpikeRecoversWithoutOscillating() {
+        QualityGovernor governor = newGovernor();
+        play(governor, 5_000, 40, 3);
+        play(governor, 3_000, 200, 3);   // Máy nóng / app khác tranh CPU
+        play(governor, 60_000, 40, 3);
+
+        assertEquals(QualityGovernor.Level.FULL, governor.getLevel());
+        assertEquals(governor.getStepDownCount(), governor.getStepUpCount());
+        // Mỗi mức chỉ xuống rồi lên một lần
+        assertEquals(2 * governor.getStepDownCount(), changes.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void budgetsAreRequired() {
+        new QualityGovernor.Builder().setDrawBudget(8, TimeUnit.MILLISECONDS).build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.cameraod.replay;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FrameRecorderTest {
+
+    private static final int WIDTH = 32;
+    private static final int HEIGHT = 16;
+    private static final int FRAME_BYTES = WIDTH * HEIGHT * 3 / 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] frame(int seed) {
+        byte[] nv21 = new byte[FRAME_BYTES];
+        for (int i = 0; i < nv21.length; i++) {
+            nv21[i] = (byte) (seed * 7 + i);
+        }
+        return nv21;
+    }
+
+    @Test
+    public void roundTripsFramesAcrossWindows() throws IOException {
+        File file = folder.newFile("capture.yuv");
+        // Cửa sổ nhỏ: mỗi cửa sổ chứa 2 frame, bản ghi không được vắt qua hai cửa sổ
+        try (FrameRecorder recorder = new FrameRecorder(file, 2 * (FRAME_BYTES + 24) + 40)) {
+            for (int i = 0; i < 7; i++) {
+                recorder.append(1_000L * i, WIDTH, HEIGHT, 90, frame(i), FRAME_BYTES);
+            }
+            assertEquals(7, recorder.getFrameCount());
+        }
+
+        try (CaptureReader reader = new CaptureReader(file)) {
+            assertEquals(7, reader.size());
+            assertEquals(6_000L, reader.getDurationNanos());
+            for (int i = 0; i < 7; i++) {
+                assertEquals(1_000L * i, reader.getTimestampNanos(i));
+                assertEquals(WIDTH, reader.getWidth(i));
+                assertEquals(HEIGHT, reader.getHeight(i));
+                assertEquals(90, reader.getRotationDegrees(i));
+                ByteBuffer image = reader.image(i);
+                assertEquals(FRAME_BYTES, image.remaining());
+                byte[] actual = new byte[FRAME_BYTES];
+                image.get(actual);
+                assertArrayEquals(frame(i), actual);
+            }
+        }
+    }
+
+    @Test
+    public void ignoresTruncatedLastRecord() throws IOException {
+        File file = folder.newFile("capture.yuv");
+        long bytes;
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            recorder.append(1, WIDTH, HEIGHT, 0, frame(1), FRAME_BYTES);
+            recorder.append(2, WIDTH, HEIGHT, 0, frame(2), FRAME_BYTES);
+            bytes = recorder.getBytesWritten();
+        }
+        assertEquals(bytes, file.length());
+
+        // Ứng dụng bị dừng giữa lúc ghi frame thứ hai
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(bytes - 10);
+        }
+        try (CaptureReader reader = new CaptureReader(file)) {
+            assertEquals(1, reader.size());
+            assertEquals(1, reader.getTimestampNanos(0));
+        }
+    }
+
+    @Test
+    public void convertsYuvPlanesToNv21() throws IOException {
+        int rowStride = WIDTH + 8;
+        ByteBuffer y = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) 200);
+        }
+        // Mặt phẳng màu xen kẽ (pixel stride 2) như phần lớn thiết bị
+        ByteBuffer u = ByteBuffer.allocateDirect(rowStride * HEIGHT / 2);
+        ByteBuffer v = ByteBuffer.allocateDirect(rowStride * HEIGHT / 2);
+        for (int i = 0; i < u.capacity(); i++) {
+            u.put(i, (byte) 10);
+            v.put(i, (byte) 20);
+        }
+
+        File file = folder.newFile("capture.yuv");
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            recorder.appendYuv(5, WIDTH + 1, HEIGHT, 270, y, rowStride, 1, u, v, rowStride, 2);
+        }
+        try (CaptureReader reader = new CaptureReader(file)) {
+            assertEquals(1, reader.size());
+            // Kích thước lẻ được làm chẵn
+            assertEquals(WIDTH, reader.getWidth(0));
+            ByteBuffer image = reader.image(0);
+            assertEquals(FRAME_BYTES, image.remaining());
+            assertEquals((byte) 200, image.get(WIDTH * HEIGHT - 1));
+            assertEquals((byte) 20, image.get(WIDTH * HEIGHT));
+            assertEquals((byte) 10, image.get(WIDTH * HEIGHT + 1));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeBytes("not a capture file at all");
+        }
+        new CaptureReader(file).close();
+    }
+}
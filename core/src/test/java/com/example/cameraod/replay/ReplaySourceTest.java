@@ -0,0 +1,128 @@
+package com.example.cameraod.replay;
+
+import com.example.cameraod.pipeline.Detection;
+import com.example.cameraod.pipeline.DetectionResult;
+import com.example.cameraod.pipeline.Frame;
+import com.example.cameraod.pipeline.FramePipeline;
+import com.example.cameraod.pipeline.SmartFilter;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays a synthetic capture (a bright square moving right) through the
+ * pipeline with the {@link StandInDetector}.
+ */
+public class ReplaySourceTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int FRAMES = 20;
+    private static final long FRAME_NANOS = 10_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService detectExecutor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        detectExecutor.shutdownNow();
+    }
+
+    private File record() throws IOException {
+        File file = folder.newFile("capture.yuv");
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            for (int i = 0; i < FRAMES; i++) {
+                // Nền tối, hình vuông sáng 64x64 dịch 8 px mỗi frame
+                Arrays.fill(nv21, (byte) 16);
+                int left = 16 + i * 8;
+                for (int y = 64; y < 128; y++) {
+                    for (int x = left; x < left + 64; x++) {
+                        nv21[y * WIDTH + x] = (byte) 235;
+                    }
+                }
+                recorder.append(1_000_000_000L + i * FRAME_NANOS, WIDTH, HEIGHT, 0, nv21, nv21.length);
+            }
+        }
+        return file;
+    }
+
+    private FramePipeline<ByteBuffer, ByteBuffer> newPipeline(List<DetectionResult> results) {
+        return new FramePipeline.Builder<ByteBuffer, ByteBuffer>()
+                .setPreprocessor(Frame::getImage, Runnable::run)
+                .setDetector(new StandInDetector(128, 0), detectExecutor)
+                .setFilter(new SmartFilter(0.4f), Runnable::run)
+                .setListener(results::add, Runnable::run)
+                .setMaxInFlight(2)
+                .build();
+    }
+
+    @Test
+    public void fastReplayProcessesEveryFrameDeterministically() throws Exception {
+        File file = record();
+        List<DetectionResult> results = Collections.synchronizedList(new ArrayList<>());
+        FramePipeline<ByteBuffer, ByteBuffer> pipeline = newPipeline(results);
+
+        try (CaptureReader reader = new CaptureReader(file)) {
+            int accepted = new ReplaySource(reader, ReplaySource.Pacing.AS_FAST_AS_POSSIBLE).run(pipeline);
+            waitForIdle(pipeline);
+            assertEquals(FRAMES, accepted);
+        }
+        assertEquals(0, pipeline.getDroppedCount());
+        assertEquals(FRAMES, pipeline.getPublishedCount() + pipeline.getStaleCount());
+
+        for (DetectionResult result : results) {
+            // Giữ nguyên timestamp ghi hình
+            int frame = (int) ((result.getTimestampNanos() - 1_000_000_000L) / FRAME_NANOS);
+            assertEquals(1, result.getDetections().size());
+            Detection box = result.getDetections().get(0);
+            // Hộp được làm tròn vào trong theo lưới 16 px
+            int left = 16 + frame * 8;
+            assertTrue(box.getLeft() >= left && box.getLeft() < left + 16);
+            assertEquals(64, box.getTop());
+            assertEquals(128, box.getBottom());
+        }
+    }
+
+    @Test
+    public void recordedPaceFollowsCaptureTimestamps() throws Exception {
+        File file = record();
+        List<DetectionResult> results = Collections.synchronizedList(new ArrayList<>());
+        FramePipeline<ByteBuffer, ByteBuffer> pipeline = newPipeline(results);
+
+        try (CaptureReader reader = new CaptureReader(file)) {
+            long start = System.nanoTime();
+            new ReplaySource(reader, ReplaySource.Pacing.RECORDED).run(pipeline);
+            long elapsed = System.nanoTime() - start;
+            waitForIdle(pipeline);
+            assertTrue("elapsed=" + elapsed, elapsed >= reader.getDurationNanos());
+        }
+        // Timestamp được chuyển sang đồng hồ phát lại, khoảng cách giữa các frame giữ nguyên
+        assertFalse(results.isEmpty());
+        assertTrue(results.get(0).getTimestampNanos() < System.nanoTime());
+    }
+
+    private static void waitForIdle(FramePipeline<?, ?> pipeline) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pipeline.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, pipeline.getInFlightCount());
+    }
+}
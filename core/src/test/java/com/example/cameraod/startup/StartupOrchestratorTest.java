@@ -0,0 +1,110 @@
+package com.example.cameraod.startup;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class StartupOrchestratorTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void independentStepsRunConcurrentlyAndDependentsWait() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        AtomicBoolean detectorDone = new AtomicBoolean();
+        AtomicBoolean cameraDone = new AtomicBoolean();
+        AtomicBoolean bindSawBoth = new AtomicBoolean();
+        StartupOrchestrator startup = new StartupOrchestrator.Builder()
+                .addStep("detector", pool, () -> {
+                    bothStarted.countDown();
+                    // Chỉ qua được nếu bước camera chạy song song
+                    assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                    detectorDone.set(true);
+                })
+                .addStep("camera", pool, () -> {
+                    bothStarted.countDown();
+                    assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                    cameraDone.set(true);
+                })
+                .addStep("bind", pool, () -> bindSawBoth.set(detectorDone.get() && cameraDone.get()),
+                        "detector", "camera")
+                .build();
+
+        startup.start().get(5, TimeUnit.SECONDS);
+
+        assertTrue(bindSawBoth.get());
+        assertTrue(startup.getStepEndNanos("bind") >= startup.getStepEndNanos("camera"));
+    }
+
+    @Test
+    public void recordsStepTimesAndMilestonesOnTheGivenClock() throws Exception {
+        AtomicLong clock = new AtomicLong(1_000);
+        StartupOrchestrator startup = new StartupOrchestrator.Builder()
+                .setClock(clock::get)
+                .addStep("detector", Runnable::run, () -> clock.addAndGet(80_000_000))
+                .addStep("warm-up", Runnable::run, () -> clock.addAndGet(30_000_000), "detector")
+                .addMilestone("first_box")
+                .build();
+        assertFalse(startup.mark("first_box"));
+
+        startup.start().get();
+        clock.addAndGet(5_000_000);
+        assertTrue(startup.mark("first_box"));
+        clock.addAndGet(5_000_000);
+        assertFalse(startup.mark("first_box"));
+
+        assertEquals(80_000_000, startup.getStepDurationNanos("detector"));
+        assertEquals(110_000_000, startup.getStepEndNanos("warm-up"));
+        assertEquals(115_000_000, startup.getMilestoneNanos("first_box"));
+        assertTrue(startup.format().contains("first_box"));
+    }
+
+    @Test
+    public void failedStepSkipsItsDependentsOnly() throws Exception {
+        AtomicBoolean dependentRan = new AtomicBoolean();
+        AtomicBoolean otherRan = new AtomicBoolean();
+        StartupOrchestrator startup = new StartupOrchestrator.Builder()
+                .addStep("detector", pool, () -> {
+                    throw new IOException("model missing");
+                })
+                .addStep("warm-up", pool, () -> dependentRan.set(true), "detector")
+                .addStep("camera", pool, () -> otherRan.set(true))
+                .build();
+
+        CompletableFuture<Void> done = startup.start();
+        try {
+            done.get(5, TimeUnit.SECONDS);
+            fail("startup should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        startup.stepFuture("camera").get(5, TimeUnit.SECONDS);
+
+        assertFalse(dependentRan.get());
+        assertTrue(otherRan.get());
+        assertTrue(startup.stepFuture("warm-up").isCompletedExceptionally());
+        assertTrue(startup.format().contains("skipped"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dependenciesMustBeDeclaredFirst() {
+        new StartupOrchestrator.Builder()
+                .addStep("bind", Runnable::run, () -> { }, "camera");
+    }
+}